@@ -0,0 +1,121 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.data.MultiLabelInstances;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parallelCC.data.SyntheticGenerator;
+import parallelCC.experiments.Algorithms;
+
+/**
+ * Benchmark of the time to build each learner, created as in MainClass (see Algorithms).
+ * Each invocation builds a new learner from scratch, so it is measured in single shot mode.
+ * Sequential learners are built by buildSequential and parallel ones by buildParallel, which is the only one
+ * 	with the number of threads (see Parallel), so sequential learners are not built again for each number of threads.
+ * Parameters can be changed from the command line, e.g.:
+ * 	java -jar benchmarks.jar BuildBenchmark -p sequentialLearner=CC -p parallelLearner=PCC -p numThreads=1,16 -p numLabels=100
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BuildBenchmark {
+
+	@Param({"10", "50"})
+	public int numLabels;
+
+	@Param({"1000", "10000"})
+	public int numInstances;
+
+	@Param({"50"})
+	public int numFeatures;
+
+	@Param({"CHAIN"})
+	public SyntheticGenerator.Dependency dependency;
+
+	/**
+	 * Training dataset
+	 */
+	MultiLabelInstances trainData;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		SyntheticGenerator generator = new SyntheticGenerator();
+		generator.setNumFeatures(numFeatures);
+		generator.setNumLabels(numLabels);
+		generator.setCardinality(numLabels / 5.0);
+		generator.setDependency(dependency);
+		trainData = generator.generate(numInstances);
+	}
+
+	/**
+	 * Sequential learners
+	 */
+	@State(Scope.Benchmark)
+	public static class Sequential {
+
+		@Param({"BR", "CC", "EBR", "ECC"})
+		public String sequentialLearner;
+	}
+
+	/**
+	 * Parallel learners and their number of threads
+	 */
+	@State(Scope.Benchmark)
+	public static class Parallel {
+
+		@Param({"PCC", "EPCC", "PECC", "PEBR", "PEPCC"})
+		public String parallelLearner;
+
+		@Param({"1", "2", "4", "8"})
+		public int numThreads;
+	}
+
+	@Benchmark
+	public MultiLabelLearner buildSequential(Sequential sequential) throws Exception {
+		MultiLabelLearner model = Algorithms.create(sequential.sequentialLearner, 1, 10, false);
+		model.build(trainData);
+		return model;
+	}
+
+	@Benchmark
+	public MultiLabelLearner buildParallel(Parallel parallel) throws Exception {
+		MultiLabelLearner model = Algorithms.create(parallel.parallelLearner, parallel.numThreads, 10, false);
+		model.build(trainData);
+		return model;
+	}
+}
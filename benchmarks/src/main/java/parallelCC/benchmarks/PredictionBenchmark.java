@@ -0,0 +1,153 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.classifier.MultiLabelOutput;
+import mulan.data.MultiLabelInstances;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parallelCC.data.SyntheticGenerator;
+import parallelCC.experiments.Algorithms;
+import parallelCC.inference.PredictionMatrix;
+import weka.core.SerializedObject;
+
+/**
+ * Benchmark of the prediction of each learner, trained once per trial.
+ * makePrediction gives the latency of predicting a single instance (instances of the test set are taken in turn),
+ * 	and predictAll gives the time to predict the whole test set with the given number of threads (see PredictionMatrix).
+ * The number of threads only applies to predictAll (see Copies), so makePrediction is not repeated for each of them;
+ * 	the model is always built with the same number of threads (trainThreads), since it changes the chains of the parallel learners.
+ * Each thread predicts with its own copy of the model, since not all the learners predict in a thread-safe way.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PredictionBenchmark {
+
+	/**
+	 * Number of test instances
+	 */
+	static final int NUM_TEST = 1000;
+
+	@Param({"BR", "CC", "PCC", "EBR", "ECC", "EPCC", "PECC", "PEBR", "PEPCC"})
+	public String learner;
+
+	@Param({"4"})
+	public int trainThreads;
+
+	@Param({"10", "50"})
+	public int numLabels;
+
+	@Param({"1000", "10000"})
+	public int numInstances;
+
+	@Param({"50"})
+	public int numFeatures;
+
+	@Param({"CHAIN"})
+	public SyntheticGenerator.Dependency dependency;
+
+	/**
+	 * Test dataset
+	 */
+	MultiLabelInstances testData;
+
+	/**
+	 * Trained model
+	 */
+	MultiLabelLearner model;
+
+	/**
+	 * Index of the next instance to predict in makePrediction
+	 */
+	int next;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		//Train and test instances come from the same generator, so they share the model of labels
+		SyntheticGenerator generator = new SyntheticGenerator();
+		generator.setNumFeatures(numFeatures);
+		generator.setNumLabels(numLabels);
+		generator.setCardinality(numLabels / 5.0);
+		generator.setDependency(dependency);
+		MultiLabelInstances trainData = generator.generate(numInstances);
+		testData = generator.generate(NUM_TEST);
+
+		model = Algorithms.create(learner, trainThreads, 10, false);
+		model.build(trainData);
+		next = 0;
+	}
+
+	/**
+	 * Copies of the trained model, one for each thread that predicts
+	 */
+	@State(Scope.Benchmark)
+	public static class Copies {
+
+		@Param({"1", "2", "4", "8"})
+		public int numThreads;
+
+		/**
+		 * Trained model, a copy for each thread
+		 */
+		MultiLabelLearner [] models;
+
+		@Setup(Level.Trial)
+		public void setup(PredictionBenchmark benchmark) throws Exception {
+			models = new MultiLabelLearner[numThreads];
+			models[0] = benchmark.model;
+			SerializedObject serialized = new SerializedObject(benchmark.model);
+			for(int t=1; t<numThreads; t++) {
+				models[t] = (MultiLabelLearner) serialized.getObject();
+			}
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public MultiLabelOutput makePrediction() throws Exception {
+		MultiLabelOutput output = model.makePrediction(testData.getDataSet().get(next));
+		next = (next + 1) % NUM_TEST;
+		return output;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public PredictionMatrix predictAll(Copies copies) throws Exception {
+		return PredictionMatrix.predict(copies.models, testData);
+	}
+}
@@ -1,11 +1,15 @@
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import mulan.classifier.MultiLabelLearner;
 import mulan.classifier.transformation.BR;
 import mulan.classifier.transformation.EBR;
 import mulan.classifier.transformation.ECC;
@@ -39,10 +43,25 @@ import mulan.evaluation.measure.RankingLoss;
 import mulan.evaluation.measure.SubsetAccuracy;
 import parallelCC.NewCC;
 import parallelCC.ParallelCC;
+import parallelCC.data.DatasetCache;
+import parallelCC.data.ParallelArffReader;
+import parallelCC.data.StreamingDataset;
+import parallelCC.data.SyntheticGenerator;
 import parallelCC.ensemble.EPCC;
 import parallelCC.ensemble.PEBR;
 import parallelCC.ensemble.PECC;
 import parallelCC.ensemble.PEPCC;
+import parallelCC.experiments.ExperimentRunner;
+import parallelCC.experiments.RunIndex;
+import parallelCC.experiments.ScalingSweep;
+import parallelCC.inference.BatchPredictor;
+import parallelCC.inference.ModelFile;
+import parallelCC.metrics.MetricsRegistry;
+import parallelCC.metrics.MetricsServer;
+import parallelCC.metrics.ModelFootprint;
+import parallelCC.metrics.PoolMetrics;
+import parallelCC.metrics.ResourceUsage;
+import weka.classifiers.trees.HoeffdingTree;
 import weka.classifiers.trees.J48;
 import weka.core.Utils;
 
@@ -66,6 +85,18 @@ public class MainClass {
 		System.out.println("\t -t Number of threads. If 0, all available threads.");
 		System.out.println("\t -s Number of different seeds for random numbers.");
 		System.out.println("\t -o Filename for reports.");
+		System.out.println("\t -c Chain ordering for CC methods: random (default) or dependency.");
+		System.out.println("\t -b Use binary cache of datasets (a .bin file is created next to each ARFF file).");
+		System.out.println("\t -p Parse ARFF files in parallel, with the number of threads given by -t.");
+		System.out.println("\t -m Streaming (out-of-core) training for BR and PCC, reading training data from disk; it uses HoeffdingTree.");
+		System.out.println("\t -u Print the metrics of the thread pools of parallel algorithms (utilization, queue depth, task latencies) after each building.");
+		System.out.println("\t -e Port of a local endpoint with metrics in Prometheus format (http://localhost:port/metrics); optional.");
+		System.out.println("\t -f Print the memory footprint of each trained model (bytes per label, filter, header and member).");
+		System.out.println("\t -j Run the datasets, algorithms and seeds as concurrent jobs within the given number of cores (0: all available); optional.");
+		System.out.println("\t    Several comma-separated algorithms can be given (-a CC,PCC); not available with -m.");
+		System.out.println("\t -r Resume: skip the datasets, algorithms, seeds and threads whose results are already in the report");
+		System.out.println("\t    (they are recorded in a file next to the report, with the .done extension); not available with -m.");
+		System.out.println("\t -k Directory where trained models are kept, and loaded from instead of building them if they exist; optional.");
 		System.out.println("\t -a Algorithm to execute:");
 		System.out.println("\t\tBR: Binary Relevance");
 		System.out.println("\t\tCC: Classifier Chains");
@@ -74,6 +105,46 @@ public class MainClass {
 		System.out.println("\t\tPEBR: Parallel Ensemble of Binary Relevance");
 		System.out.println("\t\tECC: Ensemble of Classifier Chains");
 		System.out.println("\t\tEPCC: Ensemble of Parallel Classifier Chains");
+		System.out.println();
+		System.out.println("Prediction mode (first argument: predict):");
+		System.out.println("\t -f Model file (see ModelFile).");
+		System.out.println("\t -i Input file, ARFF (.arff) or CSV.");
+		System.out.println("\t -o Output CSV file with the bipartition and confidences of each row.");
+		System.out.println("\t -t Number of threads. If 0, all available threads.");
+		System.out.println("\t -r Load a copy of the model for each thread, for models that do not predict in a thread-safe way.");
+		System.out.println("\t -e Port of a local endpoint with metrics in Prometheus format (http://localhost:port/metrics); optional.");
+		System.out.println();
+		System.out.println("Generation of synthetic datasets (first argument: generate):");
+		System.out.println("\t -o Output directory.");
+		System.out.println("\t -n Name of the dataset (default: synthetic).");
+		System.out.println("\t -i Number of train instances (default: 10000).");
+		System.out.println("\t -e Number of test instances (default: 2500).");
+		System.out.println("\t -f Number of features (default: 100).");
+		System.out.println("\t -l Number of labels (default: 20).");
+		System.out.println("\t -c Label cardinality (default: 2).");
+		System.out.println("\t -s Sparsity of features, i.e., probability of a value being zero (default: 0).");
+		System.out.println("\t -k Skew of the frequencies of labels (default: 0).");
+		System.out.println("\t -g Dependency among labels: none, chain (default), tree or clusters.");
+		System.out.println("\t -w Strength of the dependency among labels, in [0, 1] (default: 0.5).");
+		System.out.println("\t -z Number of labels of each cluster (default: 10).");
+		System.out.println("\t -r Seed for random numbers (default: 1).");
+		System.out.println("\t -b Create the binary files of the datasets (see -b option of experiments).");
+		System.out.println("\t -d File with paths to datasets, where the paths of the generated files are appended; optional.");
+		System.out.println();
+		System.out.println("Scaling sweep of parallel algorithms against their sequential counterparts (first argument: scaling):");
+		System.out.println("\t -d Path of the file including paths to datasets.");
+		System.out.println("\t -o Filename for reports, without extension (a .csv and a .html file are created).");
+		System.out.println("\t -a Comma-separated parallel algorithms (default: PCC,PEBR,EPCC,PECC,PEPCC).");
+		System.out.println("\t -t Comma-separated numbers of threads (default: powers of two up to all available threads).");
+		System.out.println("\t -m Comma-separated kinds of scaling: strong (default) and/or weak.");
+		System.out.println("\t -w Number of warm-up runs of each configuration (default: 1).");
+		System.out.println("\t -s Number of measured runs of each configuration, with different seeds (default: 3).");
+		System.out.println("\t -c Chain ordering for CC methods: random (default) or dependency.");
+		System.out.println("\t -b Use binary cache of datasets.");
+		System.out.println();
+		System.out.println("Memory footprint of a persisted model (first argument: footprint):");
+		System.out.println("\t -f Model file (see ModelFile).");
+		System.out.println("\t -n Number of top components and classes to list (default: 10).");
 	}
 	
 	/**
@@ -83,18 +154,47 @@ public class MainClass {
 	 *  3) -s Number of different seeds for random numbers
 	 *  4) -o Report filename
 	 *  5) -a Algorithm to execute (BR, CC, PCC)
+	 *  6) -c Chain ordering (random or dependency); optional
+	 *  7) -b Use binary cache of datasets; optional
+	 *  8) -p Parse ARFF files in parallel; optional
+	 *  9) -m Streaming training for BR and PCC; optional
+	 *  10) -u Print metrics of thread pools; optional
+	 *  11) -e Port of the endpoint with metrics in Prometheus format; optional
+	 *  12) -f Print the memory footprint of the models; optional
+	 *  13) -j Number of cores for concurrent jobs; optional
+	 *  14) -r Resume the experiments; optional
+	 *  15) -k Directory of trained models; optional
 	 *  
 	 * @param args List of arguments
 	 */
 	public static void main(String [] args) {
 
+		if(args.length > 0 && args[0].equalsIgnoreCase("predict")) {
+			predict(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equalsIgnoreCase("generate")) {
+			generate(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equalsIgnoreCase("scaling")) {
+			scaling(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equalsIgnoreCase("footprint")) {
+			footprint(args);
+			return;
+		}
+
 		PrintWriter pw = null;			
+		MetricsServer metricsServer = null;
 		ArrayList<String> trainFilenames = new ArrayList<String>();
 		ArrayList<String> testFilenames = new ArrayList<String>();
 		ArrayList<String> xmlFilenames = new ArrayList<String>();
 		
-		String dataFilenames=null , reportFilename=null, algorithm=null;
+		String dataFilenames=null , reportFilename=null, algorithm=null, metricsPort=null, budget=null, modelDirectory=null;
 		int numThreads=0, numSeeds=0;
+		boolean dependencyOrdering = false, useCache = false, parallelParser = false, streaming = false, poolMetrics = false, footprint = false, resume = false;
 		
 		try {
 			dataFilenames = Utils.getOption("d", args);
@@ -112,11 +212,51 @@ public class MainClass {
 			reportFilename = Utils.getOption("o", args);
 			numSeeds = Integer.parseInt(Utils.getOption("s", args));
 			algorithm = Utils.getOption("a", args);
+			dependencyOrdering = Utils.getOption("c", args).equalsIgnoreCase("dependency");
+			useCache = Utils.getFlag("b", args);
+			parallelParser = Utils.getFlag("p", args);
+			streaming = Utils.getFlag("m", args);
+			poolMetrics = Utils.getFlag("u", args);
+			footprint = Utils.getFlag("f", args);
+			budget = Utils.getOption("j", args);
+			resume = Utils.getFlag("r", args);
+			modelDirectory = Utils.getOption("k", args);
+			metricsPort = Utils.getOption("e", args);
 		}
 		catch(Exception e) {
 			showUse();
 			System.exit(1);
 		}
+		
+		if(streaming && !algorithm.equalsIgnoreCase("BR") && !algorithm.equalsIgnoreCase("PCC")) {
+			System.out.println("Streaming training is only available for BR and PCC.");
+			System.exit(1);
+		}
+		
+		//Resumed runs and kept models are run as jobs, one after another if they are not concurrent
+		if(budget.length() > 0 || resume || modelDirectory.length() > 0) {
+			if(streaming) {
+				System.out.println("Streaming training is not available with concurrent jobs, resumed runs or kept models.");
+				System.exit(1);
+			}
+			ExperimentRunner runner = null;
+			try {
+				runner = new ExperimentRunner(algorithm.split(","), numSeeds, numThreads, (budget.length() > 0) ? Integer.parseInt(budget) : 1);
+			} catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+				System.exit(1);
+			}
+			runner.setUseDependencyOrdering(dependencyOrdering);
+			runner.setUseCache(useCache);
+			runner.setParallelParser(parallelParser);
+			if(modelDirectory.length() > 0) {
+				File directory = new File(modelDirectory);
+				directory.mkdirs();
+				runner.setModelDirectory(directory);
+			}
+			runConcurrent(runner, dataFilenames, reportFilename, metricsPort, poolMetrics, footprint, resume);
+			return;
+		}
 			
 		try {
 			//Read filenames
@@ -135,20 +275,54 @@ public class MainClass {
 			
 			MultiLabelInstances trainData = null;
 			MultiLabelInstances testData = null;
+			StreamingDataset trainStream = null;
 			List<Measure> measures = null;
 			Evaluator eval = new Evaluator();
 			Evaluation results;
 			long init_time, end_time;
+			ResourceUsage loadUsage, buildUsage, evaluationUsage;
 			
 			pw = new PrintWriter(new FileWriter(reportFilename, true));
+			metricsServer = startMetricsServer(metricsPort);
+			
+			//Suffix of the name of CC methods that use the dependency ordering
+			String ordering = dependencyOrdering ? "_dep" : "";
+			
+			//Suffix of the name of methods trained in streaming
+			String stream = streaming ? "_stream" : "";
 			
 			//For each dataset
 			for(int f=0; f<nFiles; f++) {
 				/*
 				 * Read the dataset
 				 */
-				trainData = new MultiLabelInstances(trainFilenames.get(f), xmlFilenames.get(f));
-				testData = new MultiLabelInstances(testFilenames.get(f), xmlFilenames.get(f));
+				loadUsage = ResourceUsage.begin();
+				if(streaming) {
+					//Training data is read from disk while training, so only its header is loaded
+					trainStream = StreamingDataset.open(trainFilenames.get(f), xmlFilenames.get(f), useCache, numThreads);
+					trainData = trainStream.getHeader();
+				}
+				else if(useCache) {
+					trainData = DatasetCache.load(trainFilenames.get(f), xmlFilenames.get(f), numThreads);
+				}
+				else if(parallelParser) {
+					trainData = ParallelArffReader.load(trainFilenames.get(f), xmlFilenames.get(f), numThreads);
+				}
+				else {
+					trainData = new MultiLabelInstances(trainFilenames.get(f), xmlFilenames.get(f));
+				}
+				
+				if(useCache) {
+					testData = DatasetCache.load(testFilenames.get(f), xmlFilenames.get(f), numThreads);
+				}
+				else if(parallelParser) {
+					testData = ParallelArffReader.load(testFilenames.get(f), xmlFilenames.get(f), numThreads);
+				}
+				else {
+					testData = new MultiLabelInstances(testFilenames.get(f), xmlFilenames.get(f));
+				}
+				
+				loadUsage.end();
 				
 				measures = prepareMeasuresClassification(trainData);			
 				
@@ -157,104 +331,211 @@ public class MainClass {
 				if(algorithm.equalsIgnoreCase("BR")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
-						BR br = new BR(new J48());
-						br.build(trainData);
+						buildUsage = ResourceUsage.begin();
+						BR br;
+						if(streaming) {
+							br = new BR(new HoeffdingTree());
+							br.setNumThreads(numThreads);
+							br.build(trainStream);
+						}
+						else {
+							br = new BR(new J48());
+							br.build(trainData);
+						}
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(br, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "BR", (end_time - init_time), br.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "BR" + stream, (end_time - init_time), br.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "BR" + stream, br);
+						}
 					}
 				}
 				else if(algorithm.equalsIgnoreCase("CC")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
+						buildUsage = ResourceUsage.begin();
 						NewCC cc = new NewCC(new J48());
 						cc.setSeed((i+1)*10);
+						cc.setUseDependencyOrdering(dependencyOrdering);
 						cc.build(trainData);
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(cc, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "CC", (end_time - init_time), cc.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "CC" + ordering, (end_time - init_time), cc.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "CC" + ordering, cc);
+						}
 					}
 				}
 				else if(algorithm.equalsIgnoreCase("PCC")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
-						ParallelCC pcc = new ParallelCC(new J48());
+						buildUsage = ResourceUsage.begin();
+						ParallelCC pcc = streaming ? new ParallelCC(new HoeffdingTree()) : new ParallelCC(new J48());
 						pcc.setNumThreads(numThreads);
 						pcc.setSeed((i+1)*10);
-						pcc.build(trainData);
+						pcc.setUseDependencyOrdering(dependencyOrdering);
+						if(streaming) {
+							pcc.build(trainStream);
+						}
+						else {
+							pcc.build(trainData);
+						}
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(pcc, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "pCC_" + numThreads, (end_time - init_time), pcc.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "pCC_" + numThreads + ordering + stream, (end_time - init_time), pcc.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "pCC_" + numThreads + ordering + stream, pcc);
+						}
+						if(poolMetrics) {
+							MainClass.printPoolMetrics(trainFilenames.get(f), "pCC_" + numThreads + ordering + stream, "pool", pcc.getPoolMetrics());
+						}
 					}
 				}
 				else if(algorithm.equalsIgnoreCase("EBR")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
+						buildUsage = ResourceUsage.begin();
 						EBR ebr = new EBR();
 						ebr.setSeed((i+1)*10);
 						ebr.build(trainData);
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(ebr, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "EBR", (end_time - init_time), ebr.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "EBR", (end_time - init_time), ebr.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "EBR", ebr);
+						}
 					}
 				}
 				else if(algorithm.equalsIgnoreCase("PEBR")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
+						buildUsage = ResourceUsage.begin();
 						PEBR pebr = new PEBR();
 						pebr.setNumThreads(numThreads);
 						pebr.setSeed((i+1)*10);
 						pebr.build(trainData);
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(pebr, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "PEBR_" + numThreads, (end_time - init_time), pebr.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "PEBR_" + numThreads, (end_time - init_time), pebr.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "PEBR_" + numThreads, pebr);
+						}
+						if(poolMetrics) {
+							MainClass.printPoolMetrics(trainFilenames.get(f), "PEBR_" + numThreads, "pool", pebr.getPoolMetrics());
+						}
 					}
 				}
 				else if(algorithm.equalsIgnoreCase("ECC")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
+						buildUsage = ResourceUsage.begin();
 						ECC ecc = new ECC();
 						ecc.setSeed((i+1)*10);
+						ecc.setUseDependencyOrdering(dependencyOrdering);
 						ecc.build(trainData);
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(ecc, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "ECC", (end_time - init_time), ecc.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "ECC" + ordering, (end_time - init_time), ecc.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "ECC" + ordering, ecc);
+						}
 					}
 				}
 				else if(algorithm.equalsIgnoreCase("EPCC")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
+						buildUsage = ResourceUsage.begin();
 						EPCC epcc = new EPCC();
 						epcc.setNumThreads(numThreads);
 						epcc.setSeed((i+1)*10);
+						epcc.setUseDependencyOrdering(dependencyOrdering);
 						epcc.build(trainData);
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(epcc, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "EPCC_" + numThreads, (end_time - init_time), epcc.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "EPCC_" + numThreads + ordering, (end_time - init_time), epcc.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "EPCC_" + numThreads + ordering, epcc);
+						}
+						if(poolMetrics) {
+							MainClass.printPoolMetrics(trainFilenames.get(f), "EPCC_" + numThreads + ordering, "pool", epcc.getPoolMetrics());
+						}
 					}
 				}
 				else if(algorithm.equalsIgnoreCase("PECC")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
+						buildUsage = ResourceUsage.begin();
 						PECC pecc = new PECC();
 						pecc.setNumThreads(numThreads);
 						pecc.setSeed((i+1)*10);
+						pecc.setUseDependencyOrdering(dependencyOrdering);
 						pecc.build(trainData);
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(pecc, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "PECC_" + numThreads, (end_time - init_time), pecc.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "PECC_" + numThreads + ordering, (end_time - init_time), pecc.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "PECC_" + numThreads + ordering, pecc);
+						}
+						if(poolMetrics) {
+							MainClass.printPoolMetrics(trainFilenames.get(f), "PECC_" + numThreads + ordering, "pool", pecc.getPoolMetrics());
+						}
 					}
 				}
 				else if(algorithm.equalsIgnoreCase("PEPCC")) {
 					for(int i=0; i<numSeeds; i++) {
 						init_time = System.currentTimeMillis();
+						buildUsage = ResourceUsage.begin();
 						PEPCC pepcc = new PEPCC();
 						pepcc.setNumThreads(numThreads);
 						pepcc.setSeed((i+1)*10);
+						pepcc.setUseDependencyOrdering(dependencyOrdering);
 						pepcc.build(trainData);
+						buildUsage.end();
+						evaluationUsage = ResourceUsage.begin();
 						results = eval.evaluate(pepcc, testData, measures);
+						evaluationUsage.end();
+						MetricsRegistry.recordPredictions("evaluation", testData.getNumInstances());
 						end_time = System.currentTimeMillis();
-						MainClass.printResults(pw, results, trainFilenames.get(f), "PEPCC_" + numThreads, (end_time - init_time), pepcc.getBuildingTime());
+						MainClass.printResults(pw, results, trainFilenames.get(f), "PEPCC_" + numThreads + ordering, (end_time - init_time), pepcc.getBuildingTime(), loadUsage, buildUsage, evaluationUsage);
+						if(footprint) {
+							MainClass.printFootprint(trainFilenames.get(f), "PEPCC_" + numThreads + ordering, pepcc);
+						}
+						if(poolMetrics) {
+							MainClass.printPoolMetrics(trainFilenames.get(f), "PEPCC_" + numThreads + ordering, "members pool", pepcc.getPoolMetrics());
+							MainClass.printPoolMetrics(trainFilenames.get(f), "PEPCC_" + numThreads + ordering, "chain pools", pepcc.getMemberPoolMetrics());
+						}
 					}
 				}
 				else {
@@ -272,11 +553,449 @@ public class MainClass {
     		{
     			pw.close();
     		}
+    		if(metricsServer != null) {
+    			metricsServer.stop();
+    		}
     	}
 		
 		System.out.println("Finished.");
 	}
 	
+	/**
+	 * Runs the experiments as concurrent jobs (see ExperimentRunner), with the same report as main.
+	 * When they are resumed, the completed jobs are recorded in a RunIndex next to the report, which is discarded
+	 * 	if the report does not exist.
+	 * 
+	 * @param runner Configured runner
+	 * @param dataFilenames Path of the file including paths to datasets
+	 * @param reportFilename Report filename
+	 * @param metricsPort Port of the endpoint with metrics, or empty string
+	 * @param poolMetrics Print the metrics of the thread pools
+	 * @param footprint Print the memory footprint of the models
+	 * @param resume Skip the jobs whose results are already in the report
+	 */
+	static void runConcurrent(ExperimentRunner runner, String dataFilenames, String reportFilename, String metricsPort,
+			final boolean poolMetrics, final boolean footprint, boolean resume) {
+		PrintWriter pw = null;
+		MetricsServer metricsServer = null;
+		RunIndex index = null;
+		
+		try {
+			//Read filenames
+			List<String []> datasets = new ArrayList<String []>();
+			BufferedReader b = new BufferedReader(new FileReader(new File(dataFilenames)));
+			String readLine = "";
+			while ((readLine = b.readLine()) != null) {
+				if(readLine.trim().length() > 0) {
+					datasets.add(readLine.trim().split(" "));
+				}
+			}
+			b.close();
+			
+			if(resume) {
+				index = RunIndex.open(new File(reportFilename + ".done"), !new File(reportFilename).exists());
+				runner.setIndex(index);
+				if(index.size() > 0) {
+					System.out.println("Resuming: " + index.size() + " completed jobs are skipped.");
+				}
+			}
+			FileOutputStream report = new FileOutputStream(reportFilename, true);
+			pw = new PrintWriter(new OutputStreamWriter(report));
+			metricsServer = startMetricsServer(metricsPort);
+			
+			runner.run(datasets, pw, report.getFD(), new ExperimentRunner.Reporter() {
+				@Override
+				public List<Measure> measures(MultiLabelInstances trainData) {
+					return prepareMeasuresClassification(trainData);
+				}
+				
+				@Override
+				public void header(PrintWriter pw, List<Measure> measures, MultiLabelInstances trainData) throws Exception {
+					MainClass.printHeader(pw, measures, trainData);
+				}
+				
+				@Override
+				public void results(PrintWriter pw, ExperimentRunner.Job job, MultiLabelLearner learner, Evaluation results, long runtime, long buildTime,
+						ResourceUsage load, ResourceUsage build, ResourceUsage evaluation) throws Exception {
+					String dataset = job.files[0];
+					MainClass.printResults(pw, results, dataset, job.name, runtime, buildTime, load, build, evaluation);
+					if(poolMetrics) {
+						if(learner instanceof ParallelCC) {
+							MainClass.printPoolMetrics(dataset, job.name, "pool", ((ParallelCC) learner).getPoolMetrics());
+						}
+						else if(learner instanceof PEBR) {
+							MainClass.printPoolMetrics(dataset, job.name, "pool", ((PEBR) learner).getPoolMetrics());
+						}
+						else if(learner instanceof PEPCC) {
+							MainClass.printPoolMetrics(dataset, job.name, "members pool", ((PEPCC) learner).getPoolMetrics());
+							MainClass.printPoolMetrics(dataset, job.name, "chain pools", ((PEPCC) learner).getMemberPoolMetrics());
+						}
+						else if(learner instanceof EPCC) {
+							MainClass.printPoolMetrics(dataset, job.name, "pool", ((EPCC) learner).getPoolMetrics());
+						}
+						else if(learner instanceof PECC) {
+							MainClass.printPoolMetrics(dataset, job.name, "pool", ((PECC) learner).getPoolMetrics());
+						}
+					}
+					if(footprint) {
+						MainClass.printFootprint(dataset, job.name, learner);
+					}
+				}
+			});
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if(pw != null) {
+				pw.close();
+			}
+			if(index != null) {
+				try {
+					index.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			if(metricsServer != null) {
+				metricsServer.stop();
+			}
+		}
+		
+		System.out.println("Finished.");
+	}
+	
+	/**
+	 * Predicts the rows of a file with a persisted model, streaming the file through a pipeline
+	 * 	(see BatchPredictor), so files of any size are predicted with constant memory.
+	 * Arguments are:
+	 * 	1) predict
+	 * 	2) -f Model file
+	 * 	3) -i Input file (ARFF or CSV)
+	 * 	4) -o Output file
+	 * 	5) -t Number of threads
+	 * 	6) -r Load a copy of the model for each thread; optional
+	 * 
+	 * @param args List of arguments
+	 */
+	public static void predict(String [] args) {
+		String modelFilename=null, inputFilename=null, outputFilename=null, metricsPort=null;
+		int numThreads=0;
+		boolean copies = false;
+		
+		try {
+			modelFilename = Utils.getOption("f", args);
+			inputFilename = Utils.getOption("i", args);
+			outputFilename = Utils.getOption("o", args);
+			String nT = Utils.getOption("t", args);
+			if (nT.length() > 0) {
+				numThreads = Integer.parseInt(nT);
+			}
+			if(numThreads < 1) {
+				numThreads = Runtime.getRuntime().availableProcessors();
+			}
+			copies = Utils.getFlag("r", args);
+			metricsPort = Utils.getOption("e", args);
+		}
+		catch(Exception e) {
+			showUse();
+			System.exit(1);
+		}
+		
+		if(modelFilename.length() == 0 || inputFilename.length() == 0 || outputFilename.length() == 0) {
+			showUse();
+			System.exit(1);
+		}
+		
+		MetricsServer metricsServer = null;
+		try {
+			metricsServer = startMetricsServer(metricsPort);
+			long init_time = System.currentTimeMillis();
+			ModelFile file = ModelFile.open(new File(modelFilename));
+			MultiLabelLearner [] models = new MultiLabelLearner[numThreads];
+			for(int t=0; t<numThreads; t++) {
+				models[t] = (copies || t == 0) ? file.load(numThreads) : models[0];
+			}
+			long load_time = System.currentTimeMillis();
+			
+			BatchPredictor predictor = new BatchPredictor(models, file.getHeader(), file.getLabelIndices());
+			long numRows = predictor.predict(new File(inputFilename), new File(outputFilename));
+			long end_time = System.currentTimeMillis();
+			
+			System.out.println("Predicted " + numRows + " rows in " + (end_time - load_time) + " ms (model loaded in " + (load_time - init_time) + " ms).");
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		} finally {
+			if(metricsServer != null) {
+				metricsServer.stop();
+			}
+		}
+	}
+	
+	/**
+	 * Starts the endpoint with metrics in Prometheus format (see MetricsRegistry), if a port is given
+	 * 
+	 * @param port Port, or empty string to not start it
+	 * @return Metrics server, or null if it is not started
+	 * @throws IOException if the port cannot be bound
+	 */
+	static MetricsServer startMetricsServer(String port) throws IOException {
+		if(port == null || port.length() == 0) {
+			return null;
+		}
+		MetricsServer server = new MetricsServer();
+		server.start(Integer.parseInt(port));
+		System.out.println("Metrics on http://localhost:" + server.getPort() + "/metrics");
+		return server;
+	}
+	
+	/**
+	 * Generates a synthetic multi-label dataset, with a train and a test partition (see SyntheticGenerator).
+	 * The paths of the generated files are printed with the format of the file with paths to datasets,
+	 * 	and they are also appended to that file if it is given.
+	 * Arguments are:
+	 * 	1) generate
+	 * 	2) -o Output directory
+	 * 	3) Configuration of the dataset (-n, -i, -e, -f, -l, -c, -s, -k, -g, -w, -z, -r); optional
+	 * 	4) -b Create binary files; optional
+	 * 	5) -d File with paths to datasets; optional
+	 * 
+	 * @param args List of arguments
+	 */
+	public static void generate(String [] args) {
+		String directory=null, name=null, dataFilenames=null;
+		int numTrain=10000, numTest=2500;
+		boolean binary = false;
+		SyntheticGenerator generator = new SyntheticGenerator();
+		
+		try {
+			directory = Utils.getOption("o", args);
+			name = Utils.getOption("n", args);
+			if(name.length() == 0) {
+				name = "synthetic";
+			}
+			String option = Utils.getOption("i", args);
+			if(option.length() > 0) {
+				numTrain = Integer.parseInt(option);
+			}
+			option = Utils.getOption("e", args);
+			if(option.length() > 0) {
+				numTest = Integer.parseInt(option);
+			}
+			option = Utils.getOption("f", args);
+			if(option.length() > 0) {
+				generator.setNumFeatures(Integer.parseInt(option));
+			}
+			option = Utils.getOption("l", args);
+			if(option.length() > 0) {
+				generator.setNumLabels(Integer.parseInt(option));
+			}
+			option = Utils.getOption("c", args);
+			if(option.length() > 0) {
+				generator.setCardinality(Double.parseDouble(option));
+			}
+			option = Utils.getOption("s", args);
+			if(option.length() > 0) {
+				generator.setSparsity(Double.parseDouble(option));
+			}
+			option = Utils.getOption("k", args);
+			if(option.length() > 0) {
+				generator.setSkew(Double.parseDouble(option));
+			}
+			option = Utils.getOption("g", args);
+			if(option.length() > 0) {
+				generator.setDependency(SyntheticGenerator.Dependency.valueOf(option.toUpperCase()));
+			}
+			option = Utils.getOption("w", args);
+			if(option.length() > 0) {
+				generator.setStrength(Double.parseDouble(option));
+			}
+			option = Utils.getOption("z", args);
+			if(option.length() > 0) {
+				generator.setClusterSize(Integer.parseInt(option));
+			}
+			option = Utils.getOption("r", args);
+			if(option.length() > 0) {
+				generator.setSeed(Long.parseLong(option));
+			}
+			binary = Utils.getFlag("b", args);
+			dataFilenames = Utils.getOption("d", args);
+		}
+		catch(Exception e) {
+			showUse();
+			System.exit(1);
+		}
+		
+		if(directory.length() == 0) {
+			showUse();
+			System.exit(1);
+		}
+		
+		try {
+			long init_time = System.currentTimeMillis();
+			String line = generator.write(new File(directory), name, numTrain, numTest, binary);
+			long end_time = System.currentTimeMillis();
+			
+			if(dataFilenames.length() > 0) {
+				PrintWriter pw = new PrintWriter(new FileWriter(dataFilenames, true));
+				pw.println(line);
+				pw.close();
+			}
+			System.out.println(line);
+			System.out.println("Generated in " + (end_time - init_time) + " ms.");
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Runs a scaling sweep of the parallel algorithms (see ScalingSweep), and writes the results to a CSV file
+	 * 	and a standalone HTML report.
+	 * Arguments are:
+	 * 	1) scaling
+	 * 	2) -d Path file including paths to datasets
+	 * 	3) -o Report filename, without extension
+	 * 	4) Configuration of the sweep (-a, -t, -m, -w, -s, -c, -b); optional
+	 * 
+	 * @param args List of arguments
+	 */
+	public static void scaling(String [] args) {
+		String dataFilenames=null, reportFilename=null;
+		ScalingSweep sweep = new ScalingSweep();
+		
+		try {
+			dataFilenames = Utils.getOption("d", args);
+			reportFilename = Utils.getOption("o", args);
+			String option = Utils.getOption("a", args);
+			if(option.length() > 0) {
+				sweep.setAlgorithms(option.split(","));
+			}
+			option = Utils.getOption("t", args);
+			if(option.length() > 0) {
+				String [] values = option.split(",");
+				int [] threads = new int[values.length];
+				for(int i=0; i<values.length; i++) {
+					threads[i] = Integer.parseInt(values[i].trim());
+				}
+				sweep.setThreads(threads);
+			}
+			option = Utils.getOption("m", args);
+			if(option.length() > 0) {
+				String [] values = option.split(",");
+				ScalingSweep.Mode [] modes = new ScalingSweep.Mode[values.length];
+				for(int i=0; i<values.length; i++) {
+					modes[i] = ScalingSweep.Mode.valueOf(values[i].trim().toUpperCase());
+				}
+				sweep.setModes(modes);
+			}
+			option = Utils.getOption("w", args);
+			if(option.length() > 0) {
+				sweep.setWarmup(Integer.parseInt(option));
+			}
+			option = Utils.getOption("s", args);
+			if(option.length() > 0) {
+				sweep.setRepetitions(Integer.parseInt(option));
+			}
+			sweep.setUseDependencyOrdering(Utils.getOption("c", args).equalsIgnoreCase("dependency"));
+			sweep.setUseCache(Utils.getFlag("b", args));
+		}
+		catch(Exception e) {
+			showUse();
+			System.exit(1);
+		}
+		
+		if(dataFilenames.length() == 0 || reportFilename.length() == 0) {
+			showUse();
+			System.exit(1);
+		}
+		
+		try {
+			//Read filenames
+			List<String []> datasets = new ArrayList<String []>();
+			BufferedReader b = new BufferedReader(new FileReader(new File(dataFilenames)));
+			String readLine = "";
+			while ((readLine = b.readLine()) != null) {
+				if(readLine.trim().length() > 0) {
+					datasets.add(readLine.trim().split(" "));
+				}
+			}
+			b.close();
+			
+			List<ScalingSweep.Result> results = sweep.run(datasets);
+			ScalingSweep.writeCsv(results, new File(reportFilename + ".csv"));
+			ScalingSweep.writeHtml(results, new File(reportFilename + ".html"));
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		
+		System.out.println("Finished.");
+	}
+	
+	/**
+	 * Prints the metrics of a thread pool used to build a model (see PoolMetrics).
+	 * 
+	 * @param dataset Dataset name
+	 * @param algorithm Algorithm name
+	 * @param pool Name of the pool in the algorithm
+	 * @param metrics Metrics of the pool
+	 */
+	public static void printPoolMetrics(String dataset, String algorithm, String pool, PoolMetrics metrics) {
+		if(metrics != null) {
+			System.out.println(dataset + " - " + algorithm + " - " + pool + ": " + metrics);
+		}
+	}
+	
+	/**
+	 * Prints the memory footprint of a trained model (see ModelFootprint).
+	 * 
+	 * @param dataset Dataset name
+	 * @param algorithm Algorithm name
+	 * @param model Trained model
+	 */
+	public static void printFootprint(String dataset, String algorithm, MultiLabelLearner model) {
+		System.out.println(dataset + " - " + algorithm + " - " + ModelFootprint.analyze(model));
+	}
+	
+	/**
+	 * Prints the memory footprint of a persisted model once it is loaded (see ModelFootprint).
+	 * Arguments are:
+	 * 	1) footprint
+	 * 	2) -f Model file
+	 * 	3) -n Number of top components and classes; optional
+	 * 
+	 * @param args List of arguments
+	 */
+	public static void footprint(String [] args) {
+		String modelFilename=null;
+		int top = 10;
+		
+		try {
+			modelFilename = Utils.getOption("f", args);
+			String option = Utils.getOption("n", args);
+			if(option.length() > 0) {
+				top = Integer.parseInt(option);
+			}
+		}
+		catch(Exception e) {
+			showUse();
+			System.exit(1);
+		}
+		
+		if(modelFilename.length() == 0) {
+			showUse();
+			System.exit(1);
+		}
+		
+		try {
+			MultiLabelLearner model = ModelFile.open(new File(modelFilename)).load(1);
+			System.out.println(ModelFootprint.analyze(model).toString(top));
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+	
 	/**
 	 * Prints header of results file with the name of the metrics.
 	 * 
@@ -294,6 +1013,9 @@ public class MainClass {
         	pw.print(m.getName() + ";");
         }
         pw.print("Execution time (ms)" + ";" + "Building time (ms)");
+        pw.print(";" + ResourceUsage.header("Load", ";"));
+        pw.print(";" + ResourceUsage.header("Build", ";"));
+        pw.print(";" + ResourceUsage.header("Evaluation", ";"));
         pw.println();
 	}
 	
@@ -306,10 +1028,14 @@ public class MainClass {
 	 * @param algorithm Name of the algorithm
 	 * @param runtime Runtime of the algorithm
 	 * @param buildTime Runtime to build the method
+	 * @param load Resources used to load the datasets
+	 * @param build Resources used to build the method
+	 * @param evaluation Resources used to evaluate the method
 	 * 
 	 * @throws Exception Exception
 	 */
-	public static void printResults(PrintWriter pw, Evaluation results, String dataname, String algorithm, long runtime, long buildTime) throws Exception {
+	public static void printResults(PrintWriter pw, Evaluation results, String dataname, String algorithm, long runtime, long buildTime,
+			ResourceUsage load, ResourceUsage build, ResourceUsage evaluation) throws Exception {
 		String [] p = dataname.split("\\/");
 		String datasetName = p[p.length-1].split("\\.")[0];                   
        
@@ -319,6 +1045,7 @@ public class MainClass {
         	pw.print(m.getValue() + ";");
         }
         pw.print(runtime + ";" + buildTime);
+        pw.print(";" + load.toString(";") + ";" + build.toString(";") + ";" + evaluation.toString(";"));
         pw.println();  
 	}
 	
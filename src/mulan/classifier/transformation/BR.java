@@ -15,13 +15,29 @@
  */
 package mulan.classifier.transformation;
 
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import mulan.classifier.MultiLabelOutput;
 import mulan.data.MultiLabelInstances;
-import mulan.transformations.BinaryRelevanceTransformation;
+import parallelCC.data.OnlineSampling;
+import parallelCC.data.StreamingDataset;
+import parallelCC.events.ClassifierBuildEvent;
+import parallelCC.events.FilterSetupEvent;
+import parallelCC.filters.SparseRemove;
+import parallelCC.inference.LinearScorer;
+import parallelCC.metrics.BuildProgress;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 
 /**
  * <p>Algorithm that builds one binary model per label.</p>
@@ -30,7 +46,7 @@ import weka.core.Instances;
  * @author Grigorios Tsoumakas
  * @version 2012.03.14
  */
-public class BR extends TransformationBasedMultiLabelLearner {
+public class BR extends TransformationBasedMultiLabelLearner implements OnlineSampling.Updateable {
 
     /**
      * The ensemble of binary relevance models. These are Weka Classifier
@@ -41,7 +57,37 @@ public class BR extends TransformationBasedMultiLabelLearner {
      * The correspondence between ensemble models and labels
      */
     private String[] correspondence;
-    private BinaryRelevanceTransformation brt;
+    /**
+     * Filter that removes all labels but the first one, whose column holds the label of each binary model.
+     * All models share the same format, so each instance is transformed only once for all of them,
+     * 	and sparse instances are kept sparse.
+     */
+    private SparseRemove removeLabels;
+    /**
+     * Index of the class value "1" in the binary models
+     */
+    private int positiveIndex;
+    
+    /**
+     * Scorer that evaluates all the models at once when they are linear models.
+     * It is null if it is not used or the models are not linear.
+     */
+    protected LinearScorer linearScorer;
+    
+    /**
+     * Indicates if the linear scorer is used for prediction when the base classifier is linear
+     */
+    protected boolean useLinearScorer = false;
+
+    /**
+     * Number of threads to update the models in streaming training
+     */
+    protected int numThreads = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * Dataset read from disk in streaming training; null in the usual training
+     */
+    private transient StreamingDataset streamingData;
 
     /**
      * Stores time needed to build the model (ms)
@@ -58,6 +104,44 @@ public class BR extends TransformationBasedMultiLabelLearner {
         super(classifier);
     }
 
+    /**
+     * Set if a linear scorer is used for prediction when the base classifier is a linear model (Logistic)
+     * 
+     * @param useLinearScorer Indicates if the linear scorer is used
+     */
+    public void setUseLinearScorer(boolean useLinearScorer) {
+    	this.useLinearScorer = useLinearScorer;
+    }
+    
+    /**
+     * Set the number of threads used to update the models in streaming training
+     * 
+     * @param numThreads Number of threads
+     */
+    public void setNumThreads(int numThreads) {
+    	this.numThreads = numThreads;
+    }
+    
+    /**
+     * Builds the models over a dataset that is read from disk block by block, so it does not need to fit in memory.
+     * The base classifier must be updateable (e.g., NaiveBayesUpdateable or HoeffdingTree);
+     * 	each model is initialized with the empty dataset and updated with the instances of each block, in one pass.
+     * 
+     * @param data Dataset read from disk
+     * @throws Exception if the base classifier is not updateable or the dataset cannot be read
+     */
+    public void build(StreamingDataset data) throws Exception {
+        if (!(baseClassifier instanceof UpdateableClassifier)) {
+            throw new IllegalArgumentException("Streaming training requires an updateable base classifier");
+        }
+        streamingData = data;
+        try {
+            build(data.getHeader());
+        } finally {
+            streamingData = null;
+        }
+    }
+    
     /**
      * Get building time
      * 
@@ -67,36 +151,271 @@ public class BR extends TransformationBasedMultiLabelLearner {
     	return timeBuild;
     }
     
+    /**
+     * Get the binary models, in the order of the labels
+     * 
+     * @return Model of each label
+     */
+    public Classifier[] getModels() {
+        return ensemble;
+    }
+    
+    /**
+     * Get the header of the training dataset
+     * 
+     * @return Header (without instances), or null if the model has not been built
+     */
+    public Instances getHeader() {
+        return (removeLabels == null) ? null : removeLabels.getInputHeader();
+    }
+    
+    /**
+     * Get the indices of the labels, in the order of the models
+     * 
+     * @return Indices of the labels
+     */
+    public int[] getLabelIndices() {
+        return labelIndices;
+    }
+    
+    /**
+     * Get if a linear scorer is used for prediction when the base classifier is a linear model
+     * 
+     * @return True if the linear scorer is used
+     */
+    public boolean getUseLinearScorer() {
+        return useLinearScorer;
+    }
+    
+    /**
+     * Restores trained models (e.g., when they are loaded from a ModelFile), instead of building them.
+     * The linear scorer is compiled again from the models.
+     * 
+     * @param header Header of the training dataset
+     * @param labelIndices Indices of the labels
+     * @param featureIndices Indices of the features
+     * @param models Trained model of each label
+     * @throws Exception if the format of the models cannot be created
+     */
+    public void restore(Instances header, int[] labelIndices, int[] featureIndices, Classifier[] models) throws Exception {
+        this.labelIndices = labelIndices;
+        this.featureIndices = featureIndices;
+        numLabels = labelIndices.length;
+        ensemble = models;
+        prepareShell(header);
+        buildLinearScorer(header);
+    }
+    
     protected void buildInternal(MultiLabelInstances train) throws Exception {
     	long time_init = System.currentTimeMillis();
     	
         ensemble = new Classifier[numLabels];
 
+        debug("preparing shell");
+        Instances trainDataset = train.getDataSet();
+        int classSlot = labelIndices[0];
+        prepareShell(trainDataset);
+
+        if (streamingData != null) {
+            buildStreaming(streamingData);
+        } else {
+            double[][] overrides = new double[trainDataset.numAttributes()][];
+            BuildProgress.of(getClass().getSimpleName(), "labels").build(numLabels, i -> {
+                ensemble[i] = AbstractClassifier.makeCopy(baseClassifier);
+
+                // Values of the i-th label, in the format of the class attribute
+                FilterSetupEvent setupEvent = new FilterSetupEvent();
+                setupEvent.begin();
+                overrides[classSlot] = classValues(trainDataset, i);
+
+                Instances shell = removeLabels.filterDataset(trainDataset, overrides);
+                setupEvent.label = correspondence[i];
+                setupEvent.commit();
+
+                debug("Bulding model " + (i + 1) + "/" + numLabels);
+                ClassifierBuildEvent buildEvent = new ClassifierBuildEvent();
+                buildEvent.begin();
+                ensemble[i].buildClassifier(shell);
+                buildEvent.label = correspondence[i];
+                buildEvent.commit();
+            });
+        }
+        
+        buildLinearScorer(trainDataset);
+        
+        timeBuild = System.currentTimeMillis() - time_init;
+    }
+    
+    /**
+     * Creates the filter that transforms instances to the format of the binary models,
+     * 	where the column of the first label holds the label of each model
+     * 
+     * @param dataset Training dataset, or its header
+     * @throws Exception
+     */
+    private void prepareShell(Instances dataset) throws Exception {
         correspondence = new String[numLabels];
         for (int i = 0; i < numLabels; i++) {
-            correspondence[i] = train.getDataSet().attribute(labelIndices[i]).name();
+            correspondence[i] = dataset.attribute(labelIndices[i]).name();
         }
 
-        debug("preparing shell");
-        brt = new BinaryRelevanceTransformation(train);
+        int classSlot = labelIndices[0];
+        int[] indicesToRemove = new int[numLabels - 1];
+        for (int i = 1; i < numLabels; i++) {
+            indicesToRemove[i - 1] = labelIndices[i];
+        }
+        Instances header = new Instances(dataset, 0);
+        header.setClassIndex(classSlot);
+        removeLabels = new SparseRemove();
+        removeLabels.setAttributeIndicesArray(indicesToRemove);
+        removeLabels.setInvertSelection(false);
+        removeLabels.setInputFormat(header);
 
+        Attribute classAttribute = dataset.attribute(classSlot);
+        positiveIndex = classAttribute.indexOfValue("1");
+    }
+    
+    /**
+     * Builds the linear scorer from the models, if it is used
+     * 
+     * @param header Header of the training dataset
+     */
+    private void buildLinearScorer(Instances header) {
+        linearScorer = null;
+        if (useLinearScorer) {
+            int[] identity = new int[numLabels];
+            for (int i = 0; i < numLabels; i++) {
+                identity[i] = i;
+            }
+            linearScorer = LinearScorer.build(ensemble, header, featureIndices, labelIndices, identity);
+        }
+    }
+
+    /**
+     * Builds the models by reading the dataset block by block.
+     * In each block, the models are updated in parallel; each model is updated by only one thread,
+     * 	in the order of the instances, so the result does not depend on the number of threads.
+     * 
+     * @param data Dataset read from disk
+     * @throws Exception
+     */
+    private void buildStreaming(StreamingDataset data) throws Exception {
+        Instances header = data.getHeader().getDataSet();
+        Instances emptyShell = removeLabels.filterDataset(header, null);
         for (int i = 0; i < numLabels; i++) {
             ensemble[i] = AbstractClassifier.makeCopy(baseClassifier);
-            Instances shell = brt.transformInstances(i);
-            debug("Bulding model " + (i + 1) + "/" + numLabels);
-            ensemble[i].buildClassifier(shell);
+            ensemble[i].buildClassifier(emptyShell);
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            data.forEachBlock(new StreamingDataset.BlockHandler() {
+                @Override
+                public void accept(Instances block) throws Exception {
+                    updateModels(block, executorService);
+                }
+            });
+        } finally {
+            executorService.shutdown();
+        }
+    }
+    
+    /**
+     * Updates the models with new training instances, instead of building them again from scratch.
+     * The base classifier must be updateable (e.g., NaiveBayesUpdateable or HoeffdingTree).
+     * 
+     * @param data New training instances, with the same format than the training dataset
+     * @throws Exception if the base classifier is not updateable or the model has not been built
+     */
+    public void update(MultiLabelInstances data) throws Exception {
+        if (!(baseClassifier instanceof UpdateableClassifier)) {
+            throw new IllegalArgumentException("Incremental update requires an updateable base classifier");
+        }
+        if (ensemble == null) {
+            throw new IllegalStateException("The model must be built before it is updated");
         }
         
-        timeBuild = System.currentTimeMillis() - time_init;
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            updateModels(data.getDataSet(), executorService);
+        } finally {
+            executorService.shutdown();
+        }
+        
+        // Linear models have changed
+        buildLinearScorer(data.getDataSet());
+    }
+    
+    /**
+     * Updates all the models with a block of instances, in parallel.
+     * Each model is updated by only one thread, in the order of the instances.
+     * 
+     * @param block Block of instances
+     * @param executorService Executor of the updates
+     * @throws Exception
+     */
+    private void updateModels(final Instances block, ExecutorService executorService) throws Exception {
+        final int classSlot = labelIndices[0];
+        ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int i = 0; i < numLabels; i++) {
+            final int label = i;
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    double[][] overrides = new double[block.numAttributes()][];
+                    overrides[classSlot] = classValues(block, label);
+                    Instances shell = removeLabels.filterDataset(block, overrides);
+                    for (Instance inst : shell) {
+                        ((UpdateableClassifier) ensemble[label]).updateClassifier(inst);
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        }
+    }
+    
+    /**
+     * Get the values of a label in the format of the class attribute of the models (the first label)
+     * 
+     * @param data Dataset
+     * @param label Index of the label
+     * @return Value of the label for each instance
+     */
+    private double[] classValues(Instances data, int label) {
+        Attribute classAttribute = data.attribute(labelIndices[0]);
+        Attribute labelAttribute = data.attribute(labelIndices[label]);
+        double[] classValues = new double[data.numInstances()];
+        for (int j = 0; j < data.numInstances(); j++) {
+            Instance inst = data.get(j);
+            if (inst.isMissing(labelIndices[label])) {
+                classValues[j] = Utils.missingValue();
+            } else {
+                classValues[j] = classAttribute.indexOfValue(labelAttribute.value((int) inst.value(labelIndices[label])));
+            }
+        }
+        return classValues;
     }
 
     protected MultiLabelOutput makePredictionInternal(Instance instance) {
+        if (linearScorer != null) {
+            MultiLabelOutput mlo = linearScorer.score(instance);
+            if (mlo != null) {
+                return mlo;
+            }
+        }
+        
         boolean[] bipartition = new boolean[numLabels];
         double[] confidences = new double[numLabels];
 
-
+        Instance transformedInstance = removeLabels.convertInstance(instance);
         for (int counter = 0; counter < numLabels; counter++) {
-            Instance transformedInstance = brt.transformInstance(instance, counter);
             double distribution[];
             try {
                 distribution = ensemble[counter].distributionForInstance(transformedInstance);
@@ -107,10 +426,10 @@ public class BR extends TransformationBasedMultiLabelLearner {
             int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
 
             // Ensure correct predictions both for class values {0,1} and {1,0}
-            bipartition[counter] = (maxIndex == 1) ? true : false;
+            bipartition[counter] = (maxIndex == positiveIndex) ? true : false;
 
             // The confidence of the label being equal to 1
-            confidences[counter] = distribution[1];
+            confidences[counter] = distribution[positiveIndex];
         }
 
         MultiLabelOutput mlo = new MultiLabelOutput(bipartition, confidences);
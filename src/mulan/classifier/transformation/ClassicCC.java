@@ -18,8 +18,14 @@ package mulan.classifier.transformation;
 import java.util.Random;
 
 import mulan.classifier.MultiLabelOutput;
-import mulan.data.DataUtils;
 import mulan.data.MultiLabelInstances;
+import parallelCC.data.ChainOrdering;
+import parallelCC.data.LabelMatrix;
+import parallelCC.events.ClassifierBuildEvent;
+import parallelCC.events.FilterSetupEvent;
+import parallelCC.filters.SparseRemove;
+import parallelCC.inference.FlatTree;
+import parallelCC.inference.LinearScorer;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.meta.FilteredClassifier;
@@ -27,7 +33,7 @@ import weka.classifiers.trees.J48;
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.filters.unsupervised.attribute.Remove;
+import weka.core.SparseInstance;
 
 /**
  * <p>Implementation of the Classifier Chain (CC) algorithm.</p> <p>For more
@@ -54,6 +60,40 @@ public class ClassicCC extends TransformationBasedMultiLabelLearner {
      */
     protected FilteredClassifier[] ensemble;
     
+    /**
+     * Flattened trees of the ensemble, used for prediction instead of the J48 object graph.
+     * It is null if any of the models could not be flattened.
+     */
+    protected FlatTree[] flatEnsemble;
+    
+    /**
+     * Indicates if trained J48 trees are flattened for prediction
+     */
+    protected boolean useFlatTrees = true;
+    
+    /**
+     * Scorer that evaluates all the links at once when they are linear models.
+     * It is null if it is not used or the models are not linear.
+     */
+    protected LinearScorer linearScorer;
+    
+    /**
+     * Indicates if the linear scorer is used for prediction when the base classifier is linear
+     */
+    protected boolean useLinearScorer = false;
+    
+    /**
+     * Indicates if the chain is ordered from the dependence structure of the labels instead of randomly.
+     * If a chain is given, it is only used to break ties.
+     */
+    protected boolean useDependencyOrdering = false;
+    
+    /**
+     * Maximum relative perturbation of the dependence of the labels in the dependency ordering (see ChainOrdering.perturb());
+     * 	0 for the greedy chain. It is used by the members of ensembles, so their chains are not all the same.
+     */
+    protected double chainPerturbation = 0;
+    
     /**
      * Seed for random numbers
      */
@@ -102,6 +142,79 @@ public class ClassicCC extends TransformationBasedMultiLabelLearner {
     	this.seed = seed;
     }
     
+    /**
+     * Set if trained J48 trees are flattened to arrays for prediction
+     * 
+     * @param useFlatTrees Indicates if trees are flattened
+     */
+    public void setUseFlatTrees(boolean useFlatTrees) {
+    	this.useFlatTrees = useFlatTrees;
+    }
+    
+    /**
+     * Set if a linear scorer is used for prediction when the base classifier is a linear model (Logistic)
+     * 
+     * @param useLinearScorer Indicates if the linear scorer is used
+     */
+    public void setUseLinearScorer(boolean useLinearScorer) {
+    	this.useLinearScorer = useLinearScorer;
+    }
+    
+    /**
+     * Set if the chain is ordered from the dependence structure of the labels (see ChainOrdering) instead of randomly
+     * 
+     * @param useDependencyOrdering Indicates if the dependency ordering is used
+     */
+    public void setUseDependencyOrdering(boolean useDependencyOrdering) {
+    	this.useDependencyOrdering = useDependencyOrdering;
+    }
+    
+    /**
+     * Set the perturbation of the dependence of the labels in the dependency ordering, drawn from the seed (see setSeed())
+     * 
+     * @param chainPerturbation Maximum relative perturbation, in [0, 1]; 0 for the greedy chain
+     */
+    public void setChainPerturbation(double chainPerturbation) {
+    	this.chainPerturbation = chainPerturbation;
+    }
+    
+    /**
+     * Get the chain of labels
+     * 
+     * @return Chain of labels
+     */
+    public int[] getChain() {
+    	return chain;
+    }
+    
+    /**
+     * Get the models of the chain, in the order of the chain
+     * 
+     * @return Model of each position of the chain
+     */
+    public FilteredClassifier[] getLinks() {
+    	return ensemble;
+    }
+    
+    /**
+     * Get if a linear scorer is used for prediction when the base classifier is a linear model
+     * 
+     * @return True if the linear scorer is used
+     */
+    public boolean getUseLinearScorer() {
+    	return useLinearScorer;
+    }
+    
+    /**
+     * Indicates if the chain predicts only with flattened trees, which is thread-safe.
+     * A linear scorer is not enough, since instances with missing values are predicted with the original models.
+     * 
+     * @return True if all the models of the chain are flattened trees
+     */
+    public boolean isFlattened() {
+    	return flatEnsemble != null && linearScorer == null;
+    }
+    
     /**
      * Get building time
      * 
@@ -110,18 +223,37 @@ public class ClassicCC extends TransformationBasedMultiLabelLearner {
     public long getBuildingTime() {
     	return timeBuild;
     }
+    
+    /**
+     * Restores a trained chain from its models (e.g., when it is loaded from a ModelFile), instead of building it.
+     * The flattened trees and the linear scorer are compiled again from the models.
+     * 
+     * @param header Header of the training dataset
+     * @param labelIndices Indices of the labels
+     * @param featureIndices Indices of the features
+     * @param aChain Chain of labels
+     * @param links Trained model of each position of the chain
+     */
+    public void restore(Instances header, int[] labelIndices, int[] featureIndices, int[] aChain, FilteredClassifier[] links) {
+    	this.labelIndices = labelIndices;
+    	this.featureIndices = featureIndices;
+    	numLabels = labelIndices.length;
+    	chain = aChain;
+    	ensemble = links;
+    	flatEnsemble = null;
+    	compileEnsemble(header);
+    }
 
     protected void buildInternal(MultiLabelInstances train) throws Exception {
     	long time_init = System.currentTimeMillis();
     	
-    	//Create RANDOM chain if it does not exists
-    	if (chain == null) {
-            chain = randomChain(seed);
-        }
+    	//Create RANDOM (or dependency-based) chain if it does not exists
+    	createChain(train);
 
         Instances trainDataset;
         numLabels = train.getNumLabels();
         ensemble = new FilteredClassifier[numLabels];
+        flatEnsemble = null;
         trainDataset = train.getDataSet();
 
         for (int i = 0; i < numLabels; i++) {
@@ -138,25 +270,27 @@ public class ClassicCC extends TransformationBasedMultiLabelLearner {
                 counter2++;
             }
 
-            Remove remove = new Remove();
-            remove.setAttributeIndicesArray(indicesToRemove);
-            remove.setInputFormat(trainDataset);
-            remove.setInvertSelection(false);
-            ensemble[i].setFilter(remove);
-
-            trainDataset.setClassIndex(labelIndices[chain[i]]);
             debug("Bulding model " + (i + 1) + "/" + numLabels);
-            ensemble[i].buildClassifier(trainDataset);
+            buildLink(ensemble[i], trainDataset, labelIndices[chain[i]], indicesToRemove, null);
         }
         
+        compileEnsemble(trainDataset);
+        
         timeBuild = System.currentTimeMillis() - time_init;
     }
 
     protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception {
+        if (flatEnsemble != null || linearScorer != null) {
+            MultiLabelOutput mlo = (instance instanceof SparseInstance) ? makeFlatPrediction(instance) : makeFlatPrediction(instance.toDoubleArray());
+            if (mlo != null) {
+                return mlo;
+            }
+        }
+        
         boolean[] bipartition = new boolean[numLabels];
         double[] confidences = new double[numLabels];
 
-        Instance tempInstance = DataUtils.createInstance(instance, instance.weight(), instance.toDoubleArray());
+        Instance tempInstance = (Instance) instance.copy();
         for (int counter = 0; counter < numLabels; counter++) {
             double distribution[];
             try {
@@ -182,6 +316,209 @@ public class ClassicCC extends TransformationBasedMultiLabelLearner {
         return mlo;
     }
     
+    /**
+     * Makes a prediction over the primitive feature vector of an instance, by using the linear scorer or the flattened trees.
+     * The values of the labels in the vector are overwritten with the predictions of the chain;
+     * 	as each label is predicted before it is used, the same vector can be reused by other chains.
+     * 
+     * @param values Values of all attributes of the instance
+     * @return Output of the chain, or null if the models have not been compiled or cannot predict the instance
+     */
+    public MultiLabelOutput makeFlatPrediction(double[] values) {
+        if (linearScorer != null) {
+            return linearScorer.score(values);
+        }
+        if (flatEnsemble == null) {
+            return null;
+        }
+        
+        boolean[] bipartition = new boolean[numLabels];
+        double[] confidences = new double[numLabels];
+
+        for (int counter = 0; counter < numLabels; counter++) {
+            double distribution[] = flatEnsemble[counter].distributionForInstance(values);
+            int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
+            int positiveIndex = flatEnsemble[counter].getPositiveIndex();
+
+            bipartition[chain[counter]] = (maxIndex == positiveIndex);
+            confidences[chain[counter]] = distribution[positiveIndex];
+
+            values[labelIndices[chain[counter]]] = maxIndex;
+        }
+
+        return new MultiLabelOutput(bipartition, confidences);
+    }
+    
+    /**
+     * Makes a prediction over an instance, by using the linear scorer or the flattened trees.
+     * Only the non-zero values are visited, so sparse instances are not converted to dense;
+     * 	the predictions of the chain are set over a copy of the instance.
+     * 
+     * @param instance Instance to predict
+     * @return Output of the chain, or null if the models have not been compiled or cannot predict the instance
+     */
+    public MultiLabelOutput makeFlatPrediction(Instance instance) {
+        if (linearScorer != null) {
+            return linearScorer.score(instance);
+        }
+        if (flatEnsemble == null) {
+            return null;
+        }
+        
+        boolean[] bipartition = new boolean[numLabels];
+        double[] confidences = new double[numLabels];
+
+        Instance tempInstance = (Instance) instance.copy();
+        for (int counter = 0; counter < numLabels; counter++) {
+            double distribution[] = flatEnsemble[counter].distributionForInstance(tempInstance);
+            int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
+            int positiveIndex = flatEnsemble[counter].getPositiveIndex();
+
+            bipartition[chain[counter]] = (maxIndex == positiveIndex);
+            confidences[chain[counter]] = distribution[positiveIndex];
+
+            tempInstance.setValue(labelIndices[chain[counter]], maxIndex);
+        }
+
+        return new MultiLabelOutput(bipartition, confidences);
+    }
+    
+    /**
+     * Builds a model of the chain, keeping sparse instances sparse.
+     * The training dataset is filtered only once, without copying it first nor modifying it
+     * 	(FilteredClassifier copies the whole dataset before filtering it), and the base classifier is trained
+     * 	directly over the filtered data. It is thread-safe, so the same dataset may be shared by several models.
+     * Both phases (filter setup and building of the classifier) emit their flight recorder events.
+     * 
+     * @param model FilteredClassifier with the (untrained) base classifier
+     * @param trainDataset Training dataset
+     * @param classIndex Index of the label used as class
+     * @param indicesToRemove Indices of the attributes to remove
+     * @param overrides Values replacing the ones of the dataset for each attribute (e.g., predictions of previous labels), or null
+     * @return Filtered dataset used to train the model
+     * @throws Exception
+     */
+    protected static Instances buildLink(FilteredClassifier model, Instances trainDataset, int classIndex, int[] indicesToRemove, double[][] overrides) throws Exception {
+        FilterSetupEvent setupEvent = new FilterSetupEvent();
+        setupEvent.begin();
+        Instances header = new Instances(trainDataset, 0);
+        header.setClassIndex(classIndex);
+
+        SparseRemove remove = new SparseRemove();
+        remove.setAttributeIndicesArray(indicesToRemove);
+        remove.setInvertSelection(false);
+        remove.setInputFormat(header);
+        model.setFilter(remove);
+
+        Instances filtered = remove.filterDataset(trainDataset, overrides);
+        setupEvent.label = header.classAttribute().name();
+        setupEvent.commit();
+
+        ClassifierBuildEvent buildEvent = new ClassifierBuildEvent();
+        buildEvent.begin();
+        model.getClassifier().buildClassifier(filtered);
+        buildEvent.label = setupEvent.label;
+        buildEvent.commit();
+        return filtered;
+    }
+    
+    /**
+     * Predicts the label of a model of the chain for all the instances of its (filtered) training dataset
+     * 
+     * @param model Trained model
+     * @param filtered Filtered dataset used to train the model
+     * @return Value of the label predicted for each instance (1 if the label is predicted as relevant, 0 otherwise)
+     * @throws Exception
+     */
+    protected static double[] predictLink(FilteredClassifier model, Instances filtered) throws Exception {
+        double[] predicted = new double[filtered.numInstances()];
+        
+        // Ensure correct predictions both for class values {0,1} and {1,0}
+        Attribute classAttribute = filtered.classAttribute();
+        for (int j = 0; j < filtered.numInstances(); j++) {
+            double distribution[] = model.getClassifier().distributionForInstance(filtered.get(j));
+            int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
+            predicted[j] = classAttribute.value(maxIndex).equals("1") ? 1 : 0;
+        }
+        
+        return predicted;
+    }
+    
+    /**
+     * Compiles the models of the ensemble for fast prediction.
+     * It flattens the trees that have not been flattened yet and, if required, builds the linear scorer.
+     * If any of the models could not be compiled, the original models are used for prediction.
+     * 
+     * @param header Header of the training dataset
+     */
+    protected void compileEnsemble(Instances header) {
+        linearScorer = null;
+        if (useLinearScorer) {
+            Classifier[] models = new Classifier[numLabels];
+            for (int i = 0; i < numLabels; i++) {
+                models[i] = ensemble[i].getClassifier();
+            }
+            linearScorer = LinearScorer.build(models, header, featureIndices, labelIndices, chain);
+        }
+        
+        if (!useFlatTrees) {
+            flatEnsemble = null;
+            return;
+        }
+        
+        if (flatEnsemble == null) {
+            flatEnsemble = new FlatTree[numLabels];
+        }
+        for (int i = 0; i < numLabels; i++) {
+            if (flatEnsemble[i] == null) {
+                flatEnsemble[i] = FlatTree.flatten(ensemble[i], header);
+                if (flatEnsemble[i] == null) {
+                    flatEnsemble = null;
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Creates the chain of labels for the training data.
+     * If the dependency ordering is used, the chain is ordered from the dependence of the labels in the training data,
+     * 	breaking ties with the given chain (if any); otherwise, a random chain is created if it does not exist.
+     * 
+     * @param train Training data
+     */
+    protected void createChain(MultiLabelInstances train) {
+    	if (useDependencyOrdering) {
+    		LabelMatrix matrix = LabelMatrix.fromInstances(train.getDataSet(), labelIndices, parallelism());
+    		chain = ChainOrdering.dependencyChain(dependence(matrix.dependence()), parallelism(), chain);
+    	}
+    	else if (chain == null) {
+            chain = randomChain(seed);
+        }
+    }
+    
+    /**
+     * Get the dependence of the labels used to order the chain, perturbed if a perturbation is set
+     * 
+     * @param dependence Pairwise dependence of the labels in the training data
+     * @return Dependence used to order the chain
+     */
+    protected double[][] dependence(double[][] dependence) {
+    	if (chainPerturbation > 0) {
+    		return ChainOrdering.perturb(dependence, chainPerturbation, new Random(seed));
+    	}
+    	return dependence;
+    }
+    
+    /**
+     * Get the number of binary classifiers that are built at the same time; used to order the chain
+     * 
+     * @return Number of classifiers built at the same time
+     */
+    protected int parallelism() {
+    	return 1;
+    }
+    
     /**
      * Generates a random chain
      * 
@@ -19,9 +19,14 @@ import java.util.Arrays;
 import java.util.Random;
 import mulan.classifier.InvalidDataException;
 import mulan.classifier.MultiLabelOutput;
-import mulan.classifier.transformation.BinaryRelevance;
+import mulan.classifier.transformation.BR;
 import mulan.classifier.transformation.TransformationBasedMultiLabelLearner;
 import mulan.data.MultiLabelInstances;
+import parallelCC.data.OnlineSampling;
+import parallelCC.events.BuildEvent;
+import parallelCC.events.DatasetCopyEvent;
+import parallelCC.events.MemberBuildEvent;
+import parallelCC.metrics.BuildProgress;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instance;
@@ -50,7 +55,7 @@ public class EBR extends TransformationBasedMultiLabelLearner {
     /**
      * An array of ClassifierChain models
      */
-    protected BinaryRelevance[] ensemble;
+    protected BR[] ensemble;
     /**
      * Random number generator
      */
@@ -173,7 +178,7 @@ public class EBR extends TransformationBasedMultiLabelLearner {
         numOfModels = aNumOfModels;
         useConfidences = doUseConfidences;
         useSamplingWithReplacement = doUseSamplingWithReplacement;
-        ensemble = new BinaryRelevance[aNumOfModels];
+        ensemble = new BR[aNumOfModels];
         rand = new Random(1);
     }
 
@@ -183,8 +188,11 @@ public class EBR extends TransformationBasedMultiLabelLearner {
     	
         Instances dataSet = new Instances(trainingSet.getDataSet());
 
-        for (int i = 0; i < numOfModels; i++) {
+        BuildProgress.of(getClass().getSimpleName(), "members").build(numOfModels, i -> {
             debug("ECC Building Model:" + (i + 1) + "/" + numOfModels);
+            BuildEvent.setMember(i);
+            DatasetCopyEvent copyEvent = new DatasetCopyEvent();
+            copyEvent.begin();
             Instances sampledDataSet;
             dataSet.randomize(rand);
             if (useSamplingWithReplacement) {
@@ -202,14 +210,48 @@ public class EBR extends TransformationBasedMultiLabelLearner {
                 sampledDataSet = Filter.useFilter(dataSet, rmvp);
             }
             MultiLabelInstances train = new MultiLabelInstances(sampledDataSet, trainingSet.getLabelsMetaData());
+            copyEvent.commit();
 
-            ensemble[i] = new BinaryRelevance(baseClassifier);
+            MemberBuildEvent buildEvent = new MemberBuildEvent();
+            buildEvent.begin();
+            ensemble[i] = new BR(baseClassifier);
             ensemble[i].build(train);
-        }
+            buildEvent.commit();
+        });
+        BuildEvent.clearMember();
         
         timeBuild = System.currentTimeMillis() - time_init;
     }
 
+    /**
+     * Updates the members of the ensemble with new training instances, instead of building them again from scratch.
+     * Each member is updated with its own sample of the new instances (see OnlineSampling); the base classifier must be updateable.
+     *
+     * @param data New training instances, with the same format than the training dataset
+     * @throws Exception if the base classifier is not updateable or the model has not been built
+     */
+    public void update(MultiLabelInstances data) throws Exception {
+        OnlineSampling.updateMembers(members(), data, rand, useSamplingWithReplacement, BagSizePercent, samplingPercentage, memberThreads());
+    }
+
+    /**
+     * Get the members of the ensemble
+     *
+     * @return Members of the ensemble
+     */
+    protected BR[] members() {
+        return ensemble;
+    }
+
+    /**
+     * Get the number of members that are updated at the same time
+     *
+     * @return Number of threads to update the members
+     */
+    protected int memberThreads() {
+        return 1;
+    }
+
     @Override
     protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception,
             InvalidDataException {
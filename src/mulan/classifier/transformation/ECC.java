@@ -21,10 +21,16 @@ import mulan.classifier.InvalidDataException;
 import mulan.classifier.MultiLabelOutput;
 import mulan.data.MultiLabelInstances;
 import parallelCC.NewCC;
+import parallelCC.data.OnlineSampling;
+import parallelCC.events.BuildEvent;
+import parallelCC.events.DatasetCopyEvent;
+import parallelCC.events.MemberBuildEvent;
+import parallelCC.metrics.BuildProgress;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 import weka.filters.Filter;
 import weka.filters.unsupervised.instance.RemovePercentage;
 
@@ -69,6 +75,24 @@ public class ECC extends TransformationBasedMultiLabelLearner {
      */
     protected int BagSizePercent = 100;
     
+    /**
+     * Whether the members use a linear scorer for prediction when the base classifier is linear
+     */
+    protected boolean useLinearScorer = false;
+    
+    /**
+     * Whether the chains of the members are ordered from the dependence structure of the labels in their samples,
+     * 	using the random chains only to break ties
+     */
+    protected boolean useDependencyOrdering = false;
+    
+    /**
+     * Maximum relative perturbation of the dependence of the labels in the dependency ordering of each member
+     * 	(see ChainOrdering.perturb()). Without it, all the members get almost the same greedy chain and the ensemble
+     * 	loses the diversity of its chains; with larger values, members are more diverse but each chain models less dependence.
+     */
+    protected double chainPerturbation = 0.5;
+    
     /**
      * Stores time needed to build the model (ms)
      */
@@ -116,6 +140,24 @@ public class ECC extends TransformationBasedMultiLabelLearner {
      */
     protected double samplingPercentage = 67;
 
+    /**
+     * Returns whether the output is computed based on the average confidences instead of the average votes
+     *
+     * @return whether confidences are used
+     */
+    public boolean getUseConfidences() {
+        return useConfidences;
+    }
+
+    /**
+     * Returns whether sampling with replacement is used to create the data of the models
+     *
+     * @return whether sampling with replacement is used
+     */
+    public boolean getUseSamplingWithReplacement() {
+        return useSamplingWithReplacement;
+    }
+
     /**
      * Default constructor
      */
@@ -150,6 +192,33 @@ public class ECC extends TransformationBasedMultiLabelLearner {
     	rand = new Random(seed);
     }
 
+    /**
+     * Set if the members use a linear scorer for prediction when the base classifier is a linear model (Logistic)
+     * 
+     * @param useLinearScorer Indicates if the linear scorer is used
+     */
+    public void setUseLinearScorer(boolean useLinearScorer) {
+    	this.useLinearScorer = useLinearScorer;
+    }
+
+    /**
+     * Set if the chains of the members are ordered from the dependence structure of the labels instead of randomly
+     * 
+     * @param useDependencyOrdering Indicates if the dependency ordering is used
+     */
+    public void setUseDependencyOrdering(boolean useDependencyOrdering) {
+    	this.useDependencyOrdering = useDependencyOrdering;
+    }
+
+    /**
+     * Set the perturbation of the dependence of the labels in the dependency ordering of each member
+     * 
+     * @param chainPerturbation Maximum relative perturbation, in [0, 1]; 0 to give the greedy chain to all the members
+     */
+    public void setChainPerturbation(double chainPerturbation) {
+    	this.chainPerturbation = chainPerturbation;
+    }
+
     /**
      * Get building time
      * 
@@ -165,8 +234,11 @@ public class ECC extends TransformationBasedMultiLabelLearner {
     	
         Instances dataSet = new Instances(trainingSet.getDataSet());
 
-        for (int i = 0; i < numOfModels; i++) {
+        BuildProgress.of(getClass().getSimpleName(), "members").build(numOfModels, i -> {
             debug("ECC Building Model:" + (i + 1) + "/" + numOfModels);
+            BuildEvent.setMember(i);
+            DatasetCopyEvent copyEvent = new DatasetCopyEvent();
+            copyEvent.begin();
             Instances sampledDataSet;
             dataSet.randomize(rand);
             if (useSamplingWithReplacement) {
@@ -184,7 +256,10 @@ public class ECC extends TransformationBasedMultiLabelLearner {
                 sampledDataSet = Filter.useFilter(dataSet, rmvp);
             }
             MultiLabelInstances train = new MultiLabelInstances(sampledDataSet, trainingSet.getLabelsMetaData());
+            copyEvent.commit();
 
+            MemberBuildEvent buildEvent = new MemberBuildEvent();
+            buildEvent.begin();
             int[] chain = new int[numLabels];
             for (int j = 0; j < numLabels; j++) {
                 chain[j] = j;
@@ -203,12 +278,65 @@ public class ECC extends TransformationBasedMultiLabelLearner {
             // IT JUST SIMPLY SAY A RANDOM CHAIN ORDERING OF L
 
             ensemble[i] = new NewCC(baseClassifier, chain);
+            ensemble[i].setUseLinearScorer(useLinearScorer);
+            ensemble[i].setUseDependencyOrdering(useDependencyOrdering);
+            if (useDependencyOrdering) {
+                //Each member perturbs the dependence differently, so members do not share the same greedy chain
+                ensemble[i].setChainPerturbation(chainPerturbation);
+                ensemble[i].setSeed(rand.nextLong());
+            }
             ensemble[i].build(train);
-        }
+            buildEvent.commit();
+        });
+        BuildEvent.clearMember();
 
         timeBuild = System.currentTimeMillis() - time_init;
     }
 
+    /**
+     * Updates the members of the ensemble with new training instances, instead of building them again from scratch.
+     * Each member is updated with its own sample of the new instances (see OnlineSampling); the base classifier must be updateable.
+     *
+     * @param data New training instances, with the same format than the training dataset
+     * @throws Exception if the base classifier is not updateable or the model has not been built
+     */
+    public void update(MultiLabelInstances data) throws Exception {
+        OnlineSampling.updateMembers(members(), data, rand, useSamplingWithReplacement, BagSizePercent, samplingPercentage, memberThreads());
+    }
+
+    /**
+     * Get the members of the ensemble
+     *
+     * @return Members of the ensemble
+     */
+    public NewCC[] members() {
+        return ensemble;
+    }
+
+    /**
+     * Restores a trained ensemble from its members (e.g., when it is loaded from a ModelFile), instead of building it
+     *
+     * @param labelIndices Indices of the labels
+     * @param featureIndices Indices of the features
+     * @param members Trained members
+     */
+    public void restore(int[] labelIndices, int[] featureIndices, NewCC[] members) {
+        this.labelIndices = labelIndices;
+        this.featureIndices = featureIndices;
+        numLabels = labelIndices.length;
+        numOfModels = members.length;
+        ensemble = members;
+    }
+
+    /**
+     * Get the number of members that are updated at the same time
+     *
+     * @return Number of threads to update the members
+     */
+    protected int memberThreads() {
+        return 1;
+    }
+
     @Override
     protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception,
             InvalidDataException {
@@ -219,8 +347,15 @@ public class ECC extends TransformationBasedMultiLabelLearner {
         Arrays.fill(sumVotes, 0);
         Arrays.fill(sumConf, 0);
 
+        // The same feature vector is shared by all members using flattened trees
+        // Sparse instances are not converted to dense; each member visits only their non-zero values
+        double[] values = (instance instanceof SparseInstance) ? null : instance.toDoubleArray();
+
         for (int i = 0; i < numOfModels; i++) {
-            MultiLabelOutput ensembleMLO = ensemble[i].makePrediction(instance);
+            MultiLabelOutput ensembleMLO = (values != null) ? ensemble[i].makeFlatPrediction(values) : ensemble[i].makeFlatPrediction(instance);
+            if (ensembleMLO == null) {
+                ensembleMLO = ensemble[i].makePrediction(instance);
+            }
             boolean[] bip = ensembleMLO.getBipartition();
             double[] conf = ensembleMLO.getConfidences();
 
@@ -16,19 +16,25 @@
 package parallelCC;
 
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import mulan.classifier.MultiLabelOutput;
 import mulan.classifier.transformation.ClassicCC;
-import mulan.data.DataUtils;
 import mulan.data.MultiLabelInstances;
+import parallelCC.data.OnlineSampling;
+import parallelCC.events.TrainingPredictionEvent;
+import parallelCC.filters.SparseRemove;
+import parallelCC.metrics.BuildProgress;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
 import weka.classifiers.meta.FilteredClassifier;
 import weka.classifiers.trees.J48;
-import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.filters.unsupervised.attribute.Remove;
 
 /**
  * Implementation of the Classifier Chain (CC) algorithm but using different implementation than the one of Mulan. 
@@ -38,7 +44,7 @@ import weka.filters.unsupervised.attribute.Remove;
  * @author Jose M. Moyano
  * @version 2018.12.03
  */
-public class NewCC extends ClassicCC {
+public class NewCC extends ClassicCC implements OnlineSampling.Updateable {
   
     /**
 	 * 
@@ -89,6 +95,15 @@ public class NewCC extends ClassicCC {
     public void setUsePredictions(boolean usePredictions) {
     	this.usePredictions = usePredictions;
     }
+    
+    /**
+     * Get if predictions of labels are used in training phase instead of ground truth
+     * 
+     * @return True if predictions of labels are used in training phase
+     */
+    public boolean getUsePredictions() {
+    	return usePredictions;
+    }
 
     /**
      * Build CC classifier given a multi-label dataset
@@ -99,10 +114,8 @@ public class NewCC extends ClassicCC {
     protected void buildInternal(MultiLabelInstances train) throws Exception {
         long time_init = System.currentTimeMillis();
     	
-    	//Create RANDOM chain if it does not exists
-    	if (chain == null) {
-            chain = randomChain(seed);
-        }
+    	//Create RANDOM (or dependency-based) chain if it does not exists
+    	createChain(train);
         
     	//At the beginning, all bytes from 'trained' are zeros
         trained = new byte[chain.length];
@@ -111,12 +124,14 @@ public class NewCC extends ClassicCC {
         Instances trainDataset;
         numLabels = train.getNumLabels();
         ensemble = new FilteredClassifier[numLabels];
+        flatEnsemble = null;
         trainDataset = train.getDataSet();
-
+        
+        //Predictions of each label on training, stored apart so the training dataset is not modified
+        double[][] predictions = new double[trainDataset.numAttributes()][];
+        
         //Train classifier for each label in the chain
-        for (int i = 0; i < numLabels; i++) {        	
-        	trainDataset.setClassIndex(labelIndices[chain[i]]);
-        	
+        BuildProgress.of(getClass().getSimpleName(), "labels").build(numLabels, i -> {
         	//List that store the labels to remove in each case
         	ArrayList<Integer> toRemoveLabels = new ArrayList<Integer>();//new ArrayList<Integer>(Arrays.asList(Arrays.stream(chain).boxed().toArray(Integer[]::new)));
 
@@ -132,66 +147,136 @@ public class NewCC extends ClassicCC {
             	}
             }
             int [] indicesToRemove = toRemoveLabels.stream().mapToInt(Integer::intValue).toArray();
-            
-            //Remove labels
-            Remove remove = new Remove();
-            remove.setAttributeIndicesArray(indicesToRemove);
-            remove.setInputFormat(trainDataset);
-            remove.setInvertSelection(false);
-            ensemble[i].setFilter(remove);
-            
-            //Build model
-            trainDataset.setClassIndex(labelIndices[chain[i]]);
+        
+            //Remove labels and build model
             debug("Bulding model " + (i + 1) + "/" + numLabels);
-            ensemble[i].buildClassifier(trainDataset);
+            Instances filtered = buildLink(ensemble[i], trainDataset, labelIndices[chain[i]], indicesToRemove, predictions);
 
             //If predictions of labels are used in training ->
             //	-> Predict i-th label for all training instances to use in following classifiers
             if(usePredictions) {
-            	for(int j=0; j<trainDataset.numInstances(); j++) {
-                	boolean[] bip = makePredictionInternal(i, trainDataset.get(j)).getBipartition();
-                	trainDataset.get(j).setValue(labelIndices[chain[i]], bip[0]? 1:0);
-                }
+            	TrainingPredictionEvent predictionEvent = new TrainingPredictionEvent();
+            	predictionEvent.begin();
+            	predictions[labelIndices[chain[i]]] = predictLink(ensemble[i], filtered);
+            	predictionEvent.label = filtered.classAttribute().name();
+            	predictionEvent.commit();
             }
             trained[chain[i]] = 1;
-        }
+        });
+        
+        compileEnsemble(trainDataset);
         
         timeBuild = System.currentTimeMillis() - time_init;
     }
     
     /**
-     * Make prediction for a given i-th classifier in the chain and a given instance
+     * Updates the chain with new training instances, instead of building it again from scratch.
+     * The base classifier must be updateable (e.g., NaiveBayesUpdateable or HoeffdingTree).
+     * Each link is only updated with the new instances; if predictions are used in training, the values of the previous labels
+     * 	used by each link are the predictions of their (already updated) links over the new instances, as in build.
+     * Links that do not use the predictions of each other are updated in parallel (see parallelism()).
      * 
-     * @param classifierIndex Index of the label to predict
-     * @param instance Instance to predict the label
-     * @return Output predicted by i-th classifier for given instance
-     * @throws Exception
+     * @param data New training instances, with the same format than the training dataset
+     * @throws Exception if the base classifier is not updateable or the model has not been built
      */
-    protected MultiLabelOutput makePredictionInternal(int classifierIndex, Instance instance) throws Exception {
-        boolean[] bipartition = new boolean[1];
-        double[] confidences = new double[1];
-
-        Instance tempInstance = DataUtils.createInstance(instance, instance.weight(), instance.toDoubleArray());
-
-        double distribution[];
+    public void update(MultiLabelInstances data) throws Exception {
+        if (!(baseClassifier instanceof UpdateableClassifier)) {
+            throw new IllegalArgumentException("Incremental update requires an updateable base classifier");
+        }
+        if (ensemble == null) {
+            throw new IllegalStateException("The model must be built before it is updated");
+        }
+        
+        final Instances dataset = data.getDataSet();
+        
+        //Position of each label in the chain
+        int[] position = new int[numLabels];
+        for (int i = 0; i < numLabels; i++) {
+            position[chain[i]] = i;
+        }
+        
+        //Level of each link: a link is updated after the links of the labels whose predictions it uses
+        final int[] level = new int[numLabels];
+        int numLevels = 1;
+        for (int i = 0; i < numLabels; i++) {
+            if (usePredictions) {
+                Instances format = ensemble[i].getFilter().getOutputFormat();
+                for (int j = 0; j < numLabels; j++) {
+                    if ((j != chain[i]) && (position[j] < i) && (format.attribute(dataset.attribute(labelIndices[j]).name()) != null)) {
+                        level[i] = Math.max(level[i], level[position[j]] + 1);
+                    }
+                }
+            }
+            numLevels = Math.max(numLevels, level[i] + 1);
+        }
+        
+        //Predictions of each label over the new instances, stored apart so the dataset is not modified
+        final double[][] predictions = new double[dataset.numAttributes()][];
+        
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism());
         try {
-        	distribution = ensemble[classifierIndex].distributionForInstance(tempInstance);
-        } catch (Exception e) {
-        	System.out.println(e);
-            return null;
+            for (int l = 0; l < numLevels; l++) {
+                final int currentLevel = l;
+                forEachLink(executorService, 0, numLabels, new LinkTask() {
+                    @Override
+                    public void run(int i) throws Exception {
+                        if (level[i] != currentLevel) {
+                            return;
+                        }
+                        Instances filtered = ((SparseRemove) ensemble[i].getFilter()).filterDataset(dataset, predictions);
+                        for (Instance instance : filtered) {
+                            ((UpdateableClassifier) ensemble[i].getClassifier()).updateClassifier(instance);
+                        }
+                        if (usePredictions) {
+                            predictions[labelIndices[chain[i]]] = predictLink(ensemble[i], filtered);
+                        }
+                    }
+                });
+            }
+        } finally {
+            executorService.shutdown();
         }
-        int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
-
-        // Ensure correct predictions both for class values {0,1} and {1,0}
-        Attribute classAttribute = ensemble[classifierIndex].getFilter().getOutputFormat().classAttribute();
-        bipartition[0] = (classAttribute.value(maxIndex).equals("1")) ? true : false;
-
-        // The confidence of the label being equal to 1
-        confidences[0] = distribution[classAttribute.indexOfValue("1")];
-
-        tempInstance.setValue(labelIndices[0], maxIndex);
-
-        MultiLabelOutput mlo = new MultiLabelOutput(bipartition, confidences);
-        return mlo;
+        
+        //Trees and linear models have changed
+        flatEnsemble = null;
+        compileEnsemble(dataset);
     }
+    
+    /**
+     * Task over a link of the chain
+     */
+    interface LinkTask {
+    	void run(int i) throws Exception;
+    }
+    
+    /**
+     * Executes a task for each link in a range of positions of the chain, and waits until all of them finish
+     * 
+     * @param executorService Executor of the tasks
+     * @param from First position
+     * @param to Position after the last one
+     * @param task Task to execute for each link
+     * @throws Exception if any task fails
+     */
+    static void forEachLink(ExecutorService executorService, int from, int to, final LinkTask task) throws Exception {
+    	ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+    	for(int i=from; i<to; i++) {
+    		final int link = i;
+    		futures.add(executorService.submit(new Callable<Void>() {
+    			@Override
+    			public Void call() throws Exception {
+    				task.run(link);
+    				return null;
+    			}
+    		}));
+    	}
+    	try {
+    		for(Future<Void> future : futures) {
+    			future.get();
+    		}
+    	} catch (ExecutionException e) {
+    		throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+    	}
+    }
+
 }
\ No newline at end of file
@@ -15,24 +15,32 @@
  */
 package parallelCC;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
-import mulan.classifier.MultiLabelOutput;
-import mulan.data.DataUtils;
 import mulan.data.MultiLabelInstances;
+import parallelCC.data.ChainOrdering;
+import parallelCC.data.PredictionSpill;
+import parallelCC.data.StreamingDataset;
+import parallelCC.events.QueueWaitEvent;
+import parallelCC.events.TrainingPredictionEvent;
+import parallelCC.filters.SparseRemove;
+import parallelCC.metrics.BuildProgress;
+import parallelCC.metrics.InstrumentedThreadPool;
+import parallelCC.metrics.PoolMetrics;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
 import weka.classifiers.meta.FilteredClassifier;
 import weka.classifiers.trees.J48;
-import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.filters.unsupervised.attribute.Remove;
 
 /**
  * Implementation of the Parallel Classifier Chain (PCC) algorithm. 
@@ -60,6 +68,26 @@ public class ParallelCC extends NewCC {
      * Variable to lock critical code
      */
     Lock lock = new ReentrantLock();
+    
+    /**
+     * Number of consecutive labels of the chain trained in each pass of streaming training; if 0, the number of threads
+     */
+    int labelsPerPass = 0;
+    
+    /**
+     * Directory of the files with predictions in streaming training; null for the default temporary directory
+     */
+    File spillDirectory = null;
+    
+    /**
+     * Dataset read from disk in streaming training; null in the usual training
+     */
+    private transient StreamingDataset streamingData;
+    
+    /**
+     * Metrics of the thread pool of the last building; null if it has not been built in this JVM
+     */
+    transient PoolMetrics poolMetrics;
 
     /**
      * Creates a new instance using J48 as the underlying classifier
@@ -90,15 +118,80 @@ public class ParallelCC extends NewCC {
     public void setNumThreads(int numThreads) {
     	this.numThreads = numThreads;
     }    
+    
+    /**
+     * Set the number of consecutive labels of the chain trained in each pass over the data in streaming training.
+     * More labels per pass need less passes, but each label uses less predictions of previous labels.
+     * 
+     * @param labelsPerPass Number of labels per pass; if 0, the number of threads
+     */
+    public void setLabelsPerPass(int labelsPerPass) {
+    	this.labelsPerPass = labelsPerPass;
+    }
+    
+    /**
+     * Set the directory of the files with predictions of labels in streaming training
+     * 
+     * @param spillDirectory Directory; null for the default temporary directory
+     */
+    public void setSpillDirectory(File spillDirectory) {
+    	this.spillDirectory = spillDirectory;
+    }
+    
+    /**
+     * Builds the chain over a dataset that is read from disk block by block, so it does not need to fit in memory.
+     * The base classifier must be updateable (e.g., NaiveBayesUpdateable or HoeffdingTree).
+     * The chain is trained in passes over the data; each pass trains a group of consecutive labels of the chain in parallel,
+     * 	as PCC does, using the predictions of the labels of previous passes. These predictions are spilled to side files
+     * 	(see PredictionSpill) instead of being kept in memory. If predictions are not used, all labels are trained in one pass.
+     * 
+     * @param data Dataset read from disk
+     * @throws Exception if the base classifier is not updateable or the dataset cannot be read
+     */
+    public void build(StreamingDataset data) throws Exception {
+    	if(!(baseClassifier instanceof UpdateableClassifier)) {
+    		throw new IllegalArgumentException("Streaming training requires an updateable base classifier");
+    	}
+    	streamingData = data;
+    	try {
+    		build(data.getHeader());
+    	} finally {
+    		streamingData = null;
+    	}
+    }
+    
+    /**
+     * Get the metrics of the thread pool of the last building (see PoolMetrics), including the number of previous labels
+     * 	whose predictions each link of the chain used.
+     * 
+     * @return Metrics of the pool, or null if the model has not been built in this JVM
+     */
+    public PoolMetrics getPoolMetrics() {
+    	return poolMetrics;
+    }
+    
+    /**
+     * Get the number of binary classifiers that are built at the same time, i.e., the number of threads
+     * 
+     * @return Number of threads
+     */
+    @Override
+    protected int parallelism() {
+    	return numThreads;
+    }
 
     protected void buildInternal(MultiLabelInstances train) throws Exception {
         long time_init = System.currentTimeMillis();
+        
+        if(streamingData != null) {
+        	buildStreaming(streamingData);
+        	timeBuild = System.currentTimeMillis() - time_init;
+        	return;
+        }
     	
     	//Create chain if it does not exists
-    	//Create RANDOM chain if it does not exists
-    	if (chain == null) {
-            chain = randomChain(seed);
-        }
+    	//Create RANDOM (or dependency-based) chain if it does not exists
+    	createChain(train);
         
     	//At the beginning, all bytes from 'trained' are zeros
         trained = new byte[chain.length];
@@ -107,17 +200,23 @@ public class ParallelCC extends NewCC {
         Instances trainDataset;
         numLabels = train.getNumLabels();
         ensemble = new FilteredClassifier[numLabels];
+        flatEnsemble = null;
         trainDataset = train.getDataSet();
         
+        //Predictions of each label on training, stored apart so the training dataset is not modified
+        double[][] predictions = new double[trainDataset.numAttributes()][];
+        
+        //Number of labels used by the link in each position of the chain
+        int[] predecessors = new int[numLabels];
+        
         //Set number of threads
-        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        InstrumentedThreadPool executorService = new InstrumentedThreadPool(numThreads);
         
         //Loop for building classifier for each label (in parallel)
-        for (int i = 0; i < numLabels; i++) {        	
+        BuildProgress.of(getClass().getSimpleName(), "labels").submit(numLabels, executorService, i -> {
         	executorService.execute(new BuildClassifierParallel(i, trainDataset, labelIndices, chain,
-    				ensemble, baseClassifier, trained, usePredictions, lock));
-        }
-        executorService.shutdown();
+    				ensemble, predictions, baseClassifier, trained, usePredictions, lock, predecessors));
+        });
         
 		try {
 			//Wait until all threads finish
@@ -125,10 +224,156 @@ public class ParallelCC extends NewCC {
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		poolMetrics = executorService.snapshot();
+		poolMetrics.setPredecessorsSeen(predecessors);
+		
+		compileEnsemble(trainDataset);
 		
 		timeBuild = System.currentTimeMillis() - time_init;
     }
     
+    /**
+     * Builds the chain by reading the dataset block by block, in several passes.
+     * The pass p trains the labels in positions [p*size, (p+1)*size) of the chain; each of them keeps the labels of previous passes.
+     * In each block, the labels of the previous pass (already trained) are predicted and spilled, and then the labels of the
+     * 	current pass are updated; each model is updated by only one thread, in the order of the instances,
+     * 	so the result does not depend on the number of threads.
+     * 
+     * @param data Dataset read from disk
+     * @throws Exception
+     */
+    protected void buildStreaming(StreamingDataset data) throws Exception {
+    	final Instances header = data.getHeader().getDataSet();
+    	
+    	//Create RANDOM (or dependency-based) chain if it does not exists
+    	//	The dependence of the labels needs an additional pass
+    	if(useDependencyOrdering) {
+    		chain = ChainOrdering.dependencyChain(dependence(data.labelDependence(numThreads)), parallelism(), chain);
+    	}
+    	else if(chain == null) {
+    		chain = randomChain(seed);
+    	}
+    	
+    	trained = new byte[chain.length];
+    	ensemble = new FilteredClassifier[numLabels];
+    	flatEnsemble = null;
+    	
+    	//Without predictions, links do not use other labels (as in PCC), so they are trained in one pass
+    	final int passSize = !usePredictions ? numLabels : ((labelsPerPass > 0) ? labelsPerPass : numThreads);
+    	int numPasses = (numLabels + passSize - 1) / passSize;
+    	
+    	//Initialize each link with the empty dataset, keeping the labels of previous passes
+    	for(int i=0; i<numLabels; i++) {
+    		int first = (i / passSize) * passSize;
+    		ArrayList<Integer> toRemoveLabels = new ArrayList<Integer>();
+    		for(int j=first; j<numLabels; j++) {
+    			if(j != i) {
+    				toRemoveLabels.add(labelIndices[chain[j]]);
+    			}
+    		}
+    		int [] indicesToRemove = toRemoveLabels.stream().mapToInt(Integer::intValue).toArray();
+    		
+    		ensemble[i] = new FilteredClassifier();
+    		ensemble[i].setClassifier(AbstractClassifier.makeCopy(baseClassifier));
+    		buildLink(ensemble[i], header, labelIndices[chain[i]], indicesToRemove, null);
+    	}
+    	
+    	final InstrumentedThreadPool executorService = new InstrumentedThreadPool(numThreads);
+    	PredictionSpill spill = new PredictionSpill(spillDirectory);
+    	
+    	//Tasks of the pool update a range of links over a block, so labels are counted when their pass finishes
+    	BuildProgress progress = BuildProgress.of(getClass().getSimpleName(), "labels");
+    	progress.begin(numLabels);
+    	int built = 0;
+    	try {
+    		for(int pass=0; pass<numPasses; pass++) {
+    			final int first = pass * passSize;
+    			final int end = Math.min(numLabels, first + passSize);
+    			final int previous = first - passSize;
+    			debug("Pass " + (pass + 1) + "/" + numPasses);
+    			
+    			//Predictions of the labels of passes before the previous one, and file for the predictions of the previous one
+    			final DataInputStream [] readers = new DataInputStream[spill.numSegments()];
+    			for(int s=0; s<readers.length; s++) {
+    				readers[s] = spill.openSegment(s);
+    			}
+    			final DataOutputStream writer = (pass > 0) ? spill.newSegment() : null;
+    			
+    			try {
+    				data.forEachBlock(new StreamingDataset.BlockHandler() {
+    					@Override
+    					public void accept(final Instances block) throws Exception {
+    						int n = block.numInstances();
+    						final double [][] overrides = new double[header.numAttributes()][];
+    						for(int s=0; s<readers.length; s++) {
+    							double [][] columns = PredictionSpill.readColumns(readers[s], passSize, n);
+    							for(int c=0; c<passSize; c++) {
+    								overrides[labelIndices[chain[s * passSize + c]]] = columns[c];
+    							}
+    						}
+    						
+    						//Predict the labels of the previous pass with their final models
+    						if(writer != null) {
+    							final double [][] columns = new double[passSize][];
+    							forEachLink(executorService, previous, first, new LinkTask() {
+    								@Override
+    								public void run(int i) throws Exception {
+    									Instances filtered = ((SparseRemove) ensemble[i].getFilter()).filterDataset(block, overrides);
+    									columns[i - previous] = predictLink(ensemble[i], filtered);
+    								}
+    							});
+    							for(int c=0; c<passSize; c++) {
+    								overrides[labelIndices[chain[previous + c]]] = columns[c];
+    							}
+    							PredictionSpill.writeColumns(writer, columns, n);
+    						}
+    						
+    						//Update the links of this pass
+    						forEachLink(executorService, first, end, new LinkTask() {
+    							@Override
+    							public void run(int i) throws Exception {
+    								Instances filtered = ((SparseRemove) ensemble[i].getFilter()).filterDataset(block, overrides);
+    								for(Instance instance : filtered) {
+    									((UpdateableClassifier) ensemble[i].getClassifier()).updateClassifier(instance);
+    								}
+    							}
+    						});
+    					}
+    				});
+    			} finally {
+    				for(DataInputStream reader : readers) {
+    					reader.close();
+    				}
+    				if(writer != null) {
+    					writer.close();
+    				}
+    			}
+    			
+    			for(int i=first; i<end; i++) {
+    				progress.unitDone();
+    				built++;
+    			}
+    		}
+    	} finally {
+    		executorService.shutdown();
+    		spill.close();
+    		progress.abort(numLabels - built);
+    	}
+    	
+    	//Each link uses the labels of the previous passes
+    	int[] predecessors = new int[numLabels];
+    	for(int i=0; i<numLabels; i++) {
+    		predecessors[i] = usePredictions ? (i / passSize) * passSize : 0;
+    	}
+    	poolMetrics = executorService.snapshot();
+    	poolMetrics.setPredecessorsSeen(predecessors);
+    	
+    	if(usePredictions) {
+    		Arrays.fill(trained, (byte) 1);
+    	}
+    	compileEnsemble(header);
+    }
+    
     /**
      * Class that extends Thread, for code that is executed in parallel
      * 
@@ -161,6 +406,11 @@ public class ParallelCC extends NewCC {
 		 */
 		FilteredClassifier[] ensemble;
 		
+		/**
+		 * Predictions on training of the labels that have been trained, for each attribute
+		 */
+		double[][] predictions;
+		
 		/**
 		 * Variable to lock critical code
 		 */
@@ -186,6 +436,16 @@ public class ParallelCC extends NewCC {
 		 */
 		boolean usePredictions;
 		
+		/**
+		 * Event with the time the task waits in the queue of the pool, since it is created
+		 */
+		QueueWaitEvent queueEvent;
+		
+		/**
+		 * Number of labels used by the link in each position of the chain
+		 */
+		int [] predecessors;
+		
 		/**
 		 * Constructor
 		 * 
@@ -194,23 +454,30 @@ public class ParallelCC extends NewCC {
 		 * @param labelIndices
 		 * @param chain
 		 * @param ensemble
+		 * @param predictions
 		 * @param baseClassifier
 		 * @param trained
 		 * @param usePredictions
+		 * @param lock
+		 * @param predecessors
 		 */
 		BuildClassifierParallel(int labelIndex, Instances trainDataset, int [] labelIndices, int [] chain,
-				FilteredClassifier[] ensemble, Classifier baseClassifier, byte [] trained, boolean usePredictions, 
-				Lock lock){
+				FilteredClassifier[] ensemble, double[][] predictions, Classifier baseClassifier, byte [] trained, boolean usePredictions, 
+				Lock lock, int [] predecessors){
 			this.labelIndex = labelIndex;
 			this.trainDataset = trainDataset;
 			this.labelIndices = labelIndices;
 			this.chain = chain;
 			this.ensemble = ensemble;
+			this.predictions = predictions;
 			this.numLabels = labelIndices.length;
 			this.baseClassifier = baseClassifier;
 			this.trained = trained;
 			this.usePredictions = usePredictions;
 			this.lock = lock;
+			this.predecessors = predecessors;
+			this.queueEvent = new QueueWaitEvent();
+			this.queueEvent.begin();
 		}
 		
 		/**
@@ -219,17 +486,18 @@ public class ParallelCC extends NewCC {
 		 * Critical code is locked (only one thread simoultaneously)
 		 */
 		public void run() {
+			queueEvent.label = trainDataset.attribute(labelIndices[chain[labelIndex]]).name();
+			queueEvent.commit();
 			try {
-				//Create copy of data for each classifier
-	        	Instances iData = new Instances(trainDataset);
-	        	iData.setClassIndex(labelIndices[chain[labelIndex]]);
-	        	
 	        	//List that store the labels to remove in each case
 	        	ArrayList<Integer> toRemoveLabels = new ArrayList<Integer>();
 
 	            ensemble[labelIndex] = new FilteredClassifier();
 	            ensemble[labelIndex].setClassifier(AbstractClassifier.makeCopy(baseClassifier));
 	            
+	            //Predictions of the labels that are kept
+	            double[][] linkPredictions = new double[predictions.length][];
+	            
 	            //Lock critical code
 	            //Check which labels have been previously trained
 	            //Keep labels that have been previously trained and current label; remove the rest
@@ -238,43 +506,34 @@ public class ParallelCC extends NewCC {
 	            	if((j != chain[labelIndex]) && (trained[j] == 0)) {
 	            		toRemoveLabels.add(labelIndices[j]);
 	            	}
+	            	else {
+	            		linkPredictions[labelIndices[j]] = predictions[labelIndices[j]];
+	            		if(j != chain[labelIndex]) {
+	            			predecessors[labelIndex]++;
+	            		}
+	            	}
 	            }
 	            lock.unlock();
 	            int [] indicesToRemove = toRemoveLabels.stream().mapToInt(Integer::intValue).toArray();
 	            
-	            //Remove labels
-	            Remove remove = new Remove();
-	            remove.setAttributeIndicesArray(indicesToRemove);
-	            remove.setInputFormat(iData);
-	            remove.setInvertSelection(false);
-	            ensemble[labelIndex].setFilter(remove);
-	            
-	            //Build model
-	            iData.setClassIndex(labelIndices[chain[labelIndex]]);
-	            ensemble[labelIndex].buildClassifier(iData);
+	            //Remove labels and build model
+	            //	The training dataset is shared by all threads and it is not modified,
+	            //	so it is not copied for each classifier
+	            Instances filtered = buildLink(ensemble[labelIndex], trainDataset, labelIndices[chain[labelIndex]], indicesToRemove, linkPredictions);
 
 	            //Predict over training instances
 	            if(usePredictions) {
-	            	//Bipartition for each instance
-	            	boolean[] bip = new boolean[iData.numInstances()];
-	            	
-	            	//Get bipartition for each training instance
-		        	for(int j=0; j<iData.numInstances(); j++) {
-		            	bip[j] = makePredictionInternal(labelIndex, iData.get(j)).getBipartition()[0];
-		        	}
-		        	
-		        	//Set prediction values in training dataset
-		        	for(int j=0; j<iData.numInstances(); j++) {
-		                trainDataset.get(j).setValue(labelIndices[chain[labelIndex]], bip[j]? 1:0);
-		        	}
-		        	
-		        	//Comments about the latest for loop 
-		        	//We don't mind if we are adding predictions to the data and another thread is copying the dataset
-		        	// because this label then is going to be removed
-		        	//The important thing is to lock when defining that the given label has been trained
+	            	//Store the predicted values apart from the training dataset
+	            	TrainingPredictionEvent predictionEvent = new TrainingPredictionEvent();
+	            	predictionEvent.begin();
+	            	double[] predicted = predictLink(ensemble[labelIndex], filtered);
+	            	predictionEvent.label = queueEvent.label;
+	            	predictionEvent.commit();
 		        	
 		        	//Lock critical code
+		        	//	Predictions are published before defining that the given label has been trained
 		        	lock.lock();
+		        	predictions[labelIndices[chain[labelIndex]]] = predicted;
 			        trained[chain[labelIndex]] = 1;
 			        lock.unlock();
 		        }
@@ -283,42 +542,6 @@ public class ParallelCC extends NewCC {
 			e.printStackTrace();	
 			}
 		}
-		
-		/**
-	     * Make prediction for a given i-th classifier in the chain and a given instance
-	     * 
-	     * @param classifierIndex Index of the label to predict
-	     * @param instance Instance to predict the label
-	     * @return Output predicted by i-th classifier for given instance
-	     * @throws Exception
-	     */
-	    protected MultiLabelOutput makePredictionInternal(int classifierIndex, Instance instance) throws Exception {
-	        boolean[] bipartition = new boolean[1];
-	        double[] confidences = new double[1];
-
-	        Instance tempInstance = DataUtils.createInstance(instance, instance.weight(), instance.toDoubleArray());
-
-	        double distribution[];
-	        try {
-	        	distribution = ensemble[classifierIndex].distributionForInstance(tempInstance);
-	        } catch (Exception e) {
-	        	System.out.println(e);
-	            return null;
-	        }
-	        int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
-
-	        // Ensure correct predictions both for class values {0,1} and {1,0}
-	        Attribute classAttribute = ensemble[classifierIndex].getFilter().getOutputFormat().classAttribute();
-	        bipartition[0] = (classAttribute.value(maxIndex).equals("1")) ? true : false;
-
-	        // The confidence of the label being equal to 1
-	        confidences[0] = distribution[classAttribute.indexOfValue("1")];
-
-	        tempInstance.setValue(labelIndices[0], maxIndex);
-
-	        MultiLabelOutput mlo = new MultiLabelOutput(bipartition, confidences);
-	        return mlo;
-	    }
-	}
+	}
     
 }
\ No newline at end of file
@@ -0,0 +1,413 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import mulan.data.LabelsBuilder;
+import mulan.data.MultiLabelInstances;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * Compact binary columnar file with a multi-label dataset, which is read by memory-mapping it.
+ * The file stores the hashes of the source ARFF and XML files, the ARFF header, the XML label metadata,
+ * 	and the values of the instances as primitive arrays:
+ * 	<ul>
+ * 		<li>Dense datasets: one column of doubles per attribute.</li>
+ * 		<li>Sparse datasets: offsets of each row, and indices and values of the non-zero values (CSR).</li>
+ * 	</ul>
+ * Columns are mapped and read on demand, so opening the file does not read the data, and any range of instances
+ * 	can be read without reading the rest of the file.
+ * All values are stored in big-endian order.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class BinaryDataset {
+
+	/**
+	 * Magic number of the files ("PCCB")
+	 */
+	static final int MAGIC = 0x50434342;
+
+	/**
+	 * Version of the format
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Length of hashes (SHA-256)
+	 */
+	static final int HASH_LENGTH = 32;
+
+	/**
+	 * Layouts of the values
+	 */
+	static final byte DENSE = 0;
+	static final byte SPARSE = 1;
+
+	/**
+	 * Hash of the source ARFF file
+	 */
+	byte [] sourceHash;
+
+	/**
+	 * Hash of the source XML file
+	 */
+	byte [] xmlHash;
+
+	/**
+	 * Header of the dataset (without instances)
+	 */
+	Instances header;
+
+	/**
+	 * Content of the XML file with the labels
+	 */
+	byte [] xml;
+
+	/**
+	 * Number of instances
+	 */
+	int numInstances;
+
+	/**
+	 * Number of attributes
+	 */
+	int numAttributes;
+
+	/**
+	 * Layout of the values
+	 */
+	byte layout;
+
+	/**
+	 * Weight of each instance
+	 */
+	DoubleBuffer weights;
+
+	/**
+	 * Column of each attribute (dense layout)
+	 */
+	DoubleBuffer [] columns;
+
+	/**
+	 * Offset of the first non-zero value of each row, and end of the last row (sparse layout)
+	 */
+	LongBuffer rowOffsets;
+
+	/**
+	 * Indices of non-zero values (sparse layout)
+	 */
+	IntBuffer indices;
+
+	/**
+	 * Non-zero values (sparse layout)
+	 */
+	DoubleBuffer values;
+
+	/**
+	 * Opens a binary dataset by memory-mapping it
+	 *
+	 * @param file Binary file
+	 * @return Binary dataset
+	 * @throws IOException if the file cannot be read or it is not a valid binary dataset
+	 */
+	public static BinaryDataset open(File file) throws IOException {
+		BinaryDataset data = new BinaryDataset();
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+
+			//Small sections at the beginning of the file
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+			if(size < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a binary dataset: " + file);
+			}
+			data.sourceHash = new byte[HASH_LENGTH];
+			buffer.get(data.sourceHash);
+			data.xmlHash = new byte[HASH_LENGTH];
+			buffer.get(data.xmlHash);
+
+			byte [] headerBytes = new byte[buffer.getInt()];
+			buffer.get(headerBytes);
+			data.header = new Instances(new StringReader(new String(headerBytes, StandardCharsets.UTF_8)));
+			data.xml = new byte[buffer.getInt()];
+			buffer.get(data.xml);
+
+			data.numInstances = buffer.getInt();
+			data.numAttributes = buffer.getInt();
+			data.layout = buffer.get();
+			long position = buffer.position();
+
+			//Primitive sections
+			data.weights = map(channel, position, 8L * data.numInstances).asDoubleBuffer();
+			position += 8L * data.numInstances;
+
+			if(data.layout == DENSE) {
+				data.columns = new DoubleBuffer[data.numAttributes];
+				for(int a=0; a<data.numAttributes; a++) {
+					data.columns[a] = map(channel, position, 8L * data.numInstances).asDoubleBuffer();
+					position += 8L * data.numInstances;
+				}
+			}
+			else {
+				data.rowOffsets = map(channel, position, 8L * (data.numInstances + 1)).asLongBuffer();
+				position += 8L * (data.numInstances + 1);
+				long nnz = data.rowOffsets.get(data.numInstances);
+				data.indices = map(channel, position, 4L * nnz).asIntBuffer();
+				position += 4L * nnz;
+				data.values = map(channel, position, 8L * nnz).asDoubleBuffer();
+				position += 8L * nnz;
+			}
+
+			if(position != size) {
+				throw new IOException("Corrupted binary dataset: " + file);
+			}
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Not a valid binary dataset: " + file, e);
+		}
+
+		return data;
+	}
+
+	/**
+	 * Maps a region of the file; mapped regions remain valid after the channel is closed
+	 *
+	 * @param channel File channel
+	 * @param position Position of the region
+	 * @param length Length of the region in bytes
+	 * @return Mapped region
+	 * @throws IOException
+	 */
+	private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+		if(length > Integer.MAX_VALUE) {
+			throw new IOException("Section of binary dataset is too large to be mapped: " + length + " bytes");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+	}
+
+	/**
+	 * Writes a multi-label dataset in the binary format.
+	 * The file is written column by column, so it is first written to a temporary file that then replaces the given one.
+	 *
+	 * @param data Multi-label dataset
+	 * @param sourceHash Hash of the source ARFF file
+	 * @param xml Content of the XML file with the labels
+	 * @param xmlHash Hash of the XML file
+	 * @param file Binary file
+	 * @throws IOException
+	 */
+	public static void write(MultiLabelInstances data, byte [] sourceHash, byte [] xml, byte [] xmlHash, File file) throws IOException {
+		Instances dataset = data.getDataSet();
+		for(int a=0; a<dataset.numAttributes(); a++) {
+			if(dataset.attribute(a).isString() || dataset.attribute(a).isRelationValued()) {
+				throw new IOException("String and relational attributes are not supported in binary datasets");
+			}
+		}
+		boolean sparse = (dataset.numInstances() > 0) && (dataset.get(0) instanceof SparseInstance);
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(sourceHash);
+			out.write(xmlHash);
+
+			byte [] headerBytes = new Instances(dataset, 0).toString().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(headerBytes.length);
+			out.write(headerBytes);
+			out.writeInt(xml.length);
+			out.write(xml);
+
+			out.writeInt(dataset.numInstances());
+			out.writeInt(dataset.numAttributes());
+			out.writeByte(sparse ? SPARSE : DENSE);
+
+			for(Instance instance : dataset) {
+				out.writeDouble(instance.weight());
+			}
+
+			if(!sparse) {
+				for(int a=0; a<dataset.numAttributes(); a++) {
+					for(Instance instance : dataset) {
+						out.writeDouble(instance.value(a));
+					}
+				}
+			}
+			else {
+				long offset = 0;
+				out.writeLong(offset);
+				for(Instance instance : dataset) {
+					offset += instance.numValues();
+					out.writeLong(offset);
+				}
+				for(Instance instance : dataset) {
+					for(int k=0; k<instance.numValues(); k++) {
+						out.writeInt(instance.index(k));
+					}
+				}
+				for(Instance instance : dataset) {
+					for(int k=0; k<instance.numValues(); k++) {
+						out.writeDouble(instance.valueSparse(k));
+					}
+				}
+			}
+		}
+
+		if(file.exists() && !file.delete()) {
+			throw new IOException("Binary dataset cannot be replaced: " + file);
+		}
+		if(!tmp.renameTo(file)) {
+			throw new IOException("Binary dataset cannot be created: " + file);
+		}
+	}
+
+	/**
+	 * Get the hash of the source ARFF file
+	 *
+	 * @return Hash of the ARFF file
+	 */
+	public byte [] getSourceHash() {
+		return sourceHash;
+	}
+
+	/**
+	 * Get the hash of the source XML file
+	 *
+	 * @return Hash of the XML file
+	 */
+	public byte [] getXmlHash() {
+		return xmlHash;
+	}
+
+	/**
+	 * Get the header of the dataset
+	 *
+	 * @return Header (without instances)
+	 */
+	public Instances getHeader() {
+		return new Instances(header, 0);
+	}
+
+	/**
+	 * Get the number of instances
+	 *
+	 * @return Number of instances
+	 */
+	public int numInstances() {
+		return numInstances;
+	}
+
+	/**
+	 * Indicates if the values are stored in sparse format
+	 *
+	 * @return True if the dataset is sparse
+	 */
+	public boolean isSparse() {
+		return layout == SPARSE;
+	}
+
+	/**
+	 * Get the column of values of an attribute, only for dense datasets.
+	 * It is a read-only view of the mapped file, with one value per instance.
+	 *
+	 * @param attribute Index of the attribute
+	 * @return Column of the attribute
+	 */
+	public DoubleBuffer getColumn(int attribute) {
+		if(layout != DENSE) {
+			throw new IllegalStateException("Columns are only available in dense binary datasets");
+		}
+		return columns[attribute].duplicate();
+	}
+
+	/**
+	 * Get an instance of the dataset. It is thread-safe.
+	 * The dataset of the instance is not set.
+	 *
+	 * @param index Index of the instance
+	 * @return Instance
+	 */
+	public Instance instance(int index) {
+		double weight = weights.get(index);
+
+		if(layout == DENSE) {
+			double [] vals = new double[numAttributes];
+			for(int a=0; a<numAttributes; a++) {
+				vals[a] = columns[a].get(index);
+			}
+			return new DenseInstance(weight, vals);
+		}
+		else {
+			int first = (int) rowOffsets.get(index);
+			int n = (int) (rowOffsets.get(index + 1) - first);
+			double [] vals = new double[n];
+			int [] idx = new int[n];
+			for(int k=0; k<n; k++) {
+				idx[k] = indices.get(first + k);
+				vals[k] = values.get(first + k);
+			}
+			return new SparseInstance(weight, vals, idx, numAttributes);
+		}
+	}
+
+	/**
+	 * Get a range of instances of the dataset
+	 *
+	 * @param from Index of the first instance
+	 * @param to Index after the last instance
+	 * @return Dataset with the instances in the range
+	 */
+	public Instances getInstances(int from, int to) {
+		Instances data = new Instances(header, to - from);
+		for(int j=from; j<to; j++) {
+			Instance instance = instance(j);
+			instance.setDataset(data);
+			data.add(instance);
+		}
+		return data;
+	}
+
+	/**
+	 * Get the whole multi-label dataset
+	 *
+	 * @return Multi-label dataset
+	 * @throws Exception if the labels are not valid
+	 */
+	public MultiLabelInstances toMultiLabelInstances() throws Exception {
+		return new MultiLabelInstances(getInstances(0, numInstances), LabelsBuilder.createLabels(new ByteArrayInputStream(xml)));
+	}
+}
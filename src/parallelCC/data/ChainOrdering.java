@@ -0,0 +1,135 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.util.Random;
+
+/**
+ * Chain ordering from the dependence structure of the labels.
+ * In PCC, the binary classifiers are built by a pool of threads in the order of the chain,
+ * 	so each classifier is built at the same time than the ones next to it in the chain (its window),
+ * 	and it only uses the predictions of the labels that were built before.
+ * The dependence of a label with the labels that are not available when it is built (the labels in its window
+ * 	and the labels placed later in the chain) is lost. The chain is built greedily, placing in each position the label
+ * 	that loses less dependence; so independent labels are placed first and built in parallel,
+ * 	dependent labels are placed later, and labels strongly dependent between them are not built at the same time.
+ * The greedy chain is the same for all the samples of a dataset with similar dependence, so the members of ensembles
+ * 	perturb the dependence (see perturb()) to keep some diversity among their chains.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class ChainOrdering {
+
+	/**
+	 * Builds a chain from the dependence structure of the labels
+	 *
+	 * @param matrix Label matrix of the training data
+	 * @param windowSize Number of classifiers built at the same time (i.e., number of threads); 1 for sequential chains
+	 * @param tieOrder Order of the labels used to break ties (e.g., a random chain), or null to use the order of the labels
+	 * @return Chain, with the index of the label in each position
+	 */
+	public static int[] dependencyChain(LabelMatrix matrix, int windowSize, int[] tieOrder) {
+		return dependencyChain(matrix.dependence(), windowSize, tieOrder);
+	}
+
+	/**
+	 * Builds a chain from the pairwise dependence of the labels
+	 *
+	 * @param dependence Symmetric matrix of pairwise dependence of the labels (e.g., mutual information)
+	 * @param windowSize Number of classifiers built at the same time (i.e., number of threads); 1 for sequential chains
+	 * @param tieOrder Order of the labels used to break ties (e.g., a random chain), or null to use the order of the labels
+	 * @return Chain, with the index of the label in each position
+	 */
+	public static int[] dependencyChain(double[][] dependence, int windowSize, int[] tieOrder) {
+		int numLabels = dependence.length;
+
+		//Rank of each label to break ties
+		int[] rank = new int[numLabels];
+		for(int i=0; i<numLabels; i++) {
+			rank[(tieOrder != null) ? tieOrder[i] : i] = i;
+		}
+
+		//Dependence of each label with the labels that have not been placed yet
+		double[] unmet = new double[numLabels];
+		boolean[] placed = new boolean[numLabels];
+		for(int i=0; i<numLabels; i++) {
+			for(int k=0; k<numLabels; k++) {
+				if(k != i) {
+					unmet[i] += dependence[i][k];
+				}
+			}
+		}
+
+		int[] chain = new int[numLabels];
+		for(int p=0; p<numLabels; p++) {
+			int best = -1;
+			double bestLost = Double.MAX_VALUE;
+
+			for(int c=0; c<numLabels; c++) {
+				if(placed[c]) {
+					continue;
+				}
+
+				//Dependence lost with labels placed later and with labels built at the same time
+				double lost = unmet[c];
+				for(int q=Math.max(0, p - windowSize + 1); q<p; q++) {
+					lost += dependence[c][chain[q]];
+				}
+
+				if(lost < bestLost || (lost == bestLost && rank[c] < rank[best])) {
+					best = c;
+					bestLost = lost;
+				}
+			}
+
+			chain[p] = best;
+			placed[best] = true;
+			for(int c=0; c<numLabels; c++) {
+				if(c != best) {
+					unmet[c] -= dependence[c][best];
+				}
+			}
+		}
+
+		return chain;
+	}
+
+	/**
+	 * Perturbs the pairwise dependence of the labels, so the members of an ensemble get different dependency chains.
+	 * Each pair is multiplied by a random factor in [1 - perturbation, 1 + perturbation], so strong dependencies still
+	 * 	shape the chain while close ones are ordered differently in each member. The larger the perturbation,
+	 * 	the more diverse the chains of the ensemble, but the more dependence is lost by each chain
+	 * 	(with a perturbation of 1, chains are close to random ones).
+	 *
+	 * @param dependence Symmetric matrix of pairwise dependence of the labels
+	 * @param perturbation Maximum relative change of each pair, in [0, 1]
+	 * @param rand Random numbers generator
+	 * @return Perturbed matrix; the given one is not modified
+	 */
+	public static double[][] perturb(double[][] dependence, double perturbation, Random rand) {
+		int numLabels = dependence.length;
+		double[][] perturbed = new double[numLabels][numLabels];
+		for(int i=0; i<numLabels; i++) {
+			for(int k=i+1; k<numLabels; k++) {
+				double factor = 1 + perturbation * (2 * rand.nextDouble() - 1);
+				perturbed[i][k] = dependence[i][k] * factor;
+				perturbed[k][i] = dependence[k][i] * factor;
+			}
+		}
+		return perturbed;
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import mulan.data.MultiLabelInstances;
+
+/**
+ * Cache of multi-label datasets in binary format (see BinaryDataset).
+ * The first time an ARFF file is loaded, it is parsed and converted to a binary file next to it
+ * 	(with extension ".bin"); later loads memory-map the binary file instead of parsing the ARFF file.
+ * The binary file stores the SHA-256 hashes of the ARFF and XML files, so it is only used if their content has not changed;
+ * 	otherwise, it is rebuilt. If the binary file cannot be written, the parsed dataset is used.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class DatasetCache {
+
+	/**
+	 * Extension of binary files
+	 */
+	public static final String EXTENSION = ".bin";
+
+	/**
+	 * Loads a multi-label dataset, using the binary cache if it is valid
+	 *
+	 * @param arffFilename Path of the ARFF file
+	 * @param xmlFilename Path of the XML file
+	 * @return Multi-label dataset
+	 * @throws Exception if the dataset cannot be read
+	 */
+	public static MultiLabelInstances load(String arffFilename, String xmlFilename) throws Exception {
+		return load(arffFilename, xmlFilename, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Loads a multi-label dataset, using the binary cache if it is valid.
+	 * If it is not valid, the ARFF file is parsed in parallel (see ParallelArffReader).
+	 *
+	 * @param arffFilename Path of the ARFF file
+	 * @param xmlFilename Path of the XML file
+	 * @param numThreads Number of threads to parse the ARFF file
+	 * @return Multi-label dataset
+	 * @throws Exception if the dataset cannot be read
+	 */
+	public static MultiLabelInstances load(String arffFilename, String xmlFilename, int numThreads) throws Exception {
+		File cacheFile = new File(arffFilename + EXTENSION);
+		byte [] sourceHash = hash(new File(arffFilename));
+		byte [] xml = Files.readAllBytes(new File(xmlFilename).toPath());
+		byte [] xmlHash = hash(xml);
+
+		BinaryDataset binary = open(cacheFile, sourceHash, xmlHash);
+		if(binary != null) {
+			return binary.toMultiLabelInstances();
+		}
+
+		//Parse the ARFF file and create the binary file
+		MultiLabelInstances data;
+		try {
+			data = ParallelArffReader.load(arffFilename, xmlFilename, numThreads);
+		} catch (IOException e) {
+			//Attributes not supported by the parallel reader (nor by the binary format); parsed as usual
+			data = new MultiLabelInstances(arffFilename, xmlFilename);
+		}
+		try {
+			BinaryDataset.write(data, sourceHash, xml, xmlHash, cacheFile);
+		} catch (IOException e) {
+			System.out.println("Binary cache not created for " + arffFilename + ": " + e.getMessage());
+		}
+		return data;
+	}
+
+	/**
+	 * Opens the binary file of an ARFF file, if it is valid
+	 *
+	 * @param cacheFile Binary file
+	 * @param sourceHash Hash of the ARFF file
+	 * @param xmlHash Hash of the XML file
+	 * @return Binary dataset, or null if it does not exist or it is not valid
+	 */
+	public static BinaryDataset open(File cacheFile, byte [] sourceHash, byte [] xmlHash) {
+		if(!cacheFile.exists()) {
+			return null;
+		}
+
+		try {
+			BinaryDataset binary = BinaryDataset.open(cacheFile);
+			if(Arrays.equals(binary.getSourceHash(), sourceHash) && Arrays.equals(binary.getXmlHash(), xmlHash)) {
+				return binary;
+			}
+		} catch (Exception e) {
+			//Invalid or outdated file; it is rebuilt
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the SHA-256 hash of the content of a file
+	 *
+	 * @param file File
+	 * @return Hash
+	 * @throws IOException
+	 */
+	public static byte [] hash(File file) throws IOException {
+		MessageDigest digest = sha256();
+		byte [] buffer = new byte[1 << 16];
+		try (InputStream in = new FileInputStream(file)) {
+			int n;
+			while((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Computes the SHA-256 hash of some bytes
+	 *
+	 * @param bytes Bytes
+	 * @return Hash
+	 */
+	public static byte [] hash(byte [] bytes) {
+		return sha256().digest(bytes);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			//SHA-256 is available in every Java platform
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,410 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import mulan.data.MultiLabelInstances;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * Bit-packed matrix with the relevance of each label in each instance of a multi-label dataset.
+ * It is extracted once from the dataset; each label is stored as a row of 64-bit words (bit j is set if
+ * 	the label is relevant for the j-th instance), so label-wise statistics are computed with bitwise
+ * 	operations and popcounts over the rows, instead of scanning whole instances.
+ * Frequencies and pairwise co-occurrences of the labels are computed in parallel and cached,
+ * 	so chain-ordering and scheduling code may ask for them as many times as needed.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class LabelMatrix implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 2875044393616718514L;
+
+	/**
+	 * Number of labels
+	 */
+	int numLabels;
+
+	/**
+	 * Number of instances
+	 */
+	int numInstances;
+
+	/**
+	 * Number of 64-bit words of each row
+	 */
+	int numWords;
+
+	/**
+	 * Bits of all labels, i.e., the j-th instance of label l is the bit (j % 64) of bits[l*numWords + j/64]
+	 */
+	long [] bits;
+
+	/**
+	 * Number of threads used to compute the statistics
+	 */
+	int numThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Pairwise co-occurrences of the labels, once computed; the diagonal stores the frequency of each label
+	 */
+	private int [][] cooccurrences;
+
+	/**
+	 * Constructor.
+	 * All the bits are stored in a single array, so its size is checked; then, the offset of any row (label * numWords)
+	 * 	fits in an int.
+	 *
+	 * @param numLabels Number of labels
+	 * @param numInstances Number of instances
+	 * @throws IllegalArgumentException if the matrix does not fit in an array
+	 */
+	public LabelMatrix(int numLabels, int numInstances) {
+		this.numLabels = numLabels;
+		this.numInstances = numInstances;
+		this.numWords = (int) (((long) numInstances + 63) >>> 6);
+		long size = (long) numLabels * numWords;
+		if(size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The label matrix of " + numLabels + " labels and " + numInstances
+					+ " instances needs " + size + " words, more than the maximum size of an array");
+		}
+		this.bits = new long[(int) size];
+	}
+
+	/**
+	 * Extracts the label matrix of a multi-label dataset
+	 *
+	 * @param data Multi-label dataset
+	 * @return Label matrix
+	 */
+	public static LabelMatrix fromInstances(MultiLabelInstances data) {
+		return fromInstances(data.getDataSet(), data.getLabelIndices(), Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Extracts the label matrix of a dataset, given the indices of the labels.
+	 * A label is relevant if its value is "1"; missing values are considered as not relevant.
+	 * Instances are split among threads in blocks of 64, so each thread writes its own words.
+	 *
+	 * @param data Dataset
+	 * @param labelIndices Indices of the labels in the dataset
+	 * @param numThreads Number of threads
+	 * @return Label matrix
+	 */
+	public static LabelMatrix fromInstances(Instances data, int [] labelIndices, int numThreads) {
+		final LabelMatrix matrix = new LabelMatrix(labelIndices.length, data.numInstances());
+		matrix.setNumThreads(numThreads);
+
+		//Value of each label that indicates that it is relevant, and label of each attribute (-1 if it is not a label)
+		final double [] relevantValue = new double[labelIndices.length];
+		final int [] labelOf = new int[data.numAttributes()];
+		boolean sparseFriendly = true;
+		Arrays.fill(labelOf, -1);
+		for(int l=0; l<labelIndices.length; l++) {
+			Attribute att = data.attribute(labelIndices[l]);
+			relevantValue[l] = att.indexOfValue("1");
+			labelOf[labelIndices[l]] = l;
+			if(relevantValue[l] != 1) {
+				sparseFriendly = false;
+			}
+		}
+		final boolean useSparse = sparseFriendly;
+
+		matrix.parallel(matrix.numWords, new IntConsumer() {
+			@Override
+			public void accept(int w) {
+				int end = Math.min(matrix.numInstances, (w + 1) << 6);
+				for(int j=w << 6; j<end; j++) {
+					Instance instance = data.get(j);
+					long bit = 1L << (j & 63);
+					if(useSparse && instance instanceof SparseInstance) {
+						//Only non-zero values may be relevant labels
+						for(int k=0; k<instance.numValues(); k++) {
+							int l = labelOf[instance.index(k)];
+							if(l >= 0 && instance.valueSparse(k) == 1) {
+								matrix.bits[l * matrix.numWords + w] |= bit;
+							}
+						}
+					}
+					else {
+						for(int l=0; l<labelIndices.length; l++) {
+							if(instance.value(labelIndices[l]) == relevantValue[l]) {
+								matrix.bits[l * matrix.numWords + w] |= bit;
+							}
+						}
+					}
+				}
+			}
+		});
+
+		return matrix;
+	}
+
+	/**
+	 * Set the number of threads used to compute the statistics
+	 *
+	 * @param numThreads Number of threads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Get the number of labels
+	 *
+	 * @return Number of labels
+	 */
+	public int numLabels() {
+		return numLabels;
+	}
+
+	/**
+	 * Get the number of instances
+	 *
+	 * @return Number of instances
+	 */
+	public int numInstances() {
+		return numInstances;
+	}
+
+	/**
+	 * Indicates if a label is relevant for an instance
+	 *
+	 * @param instance Index of the instance
+	 * @param label Index of the label
+	 * @return True if the label is relevant
+	 */
+	public boolean isRelevant(int instance, int label) {
+		return (bits[label * numWords + (instance >>> 6)] & (1L << (instance & 63))) != 0;
+	}
+
+	/**
+	 * Set the relevance of a label for an instance
+	 *
+	 * @param instance Index of the instance
+	 * @param label Index of the label
+	 * @param relevant Relevance of the label
+	 */
+	public synchronized void setRelevant(int instance, int label, boolean relevant) {
+		if(relevant) {
+			bits[label * numWords + (instance >>> 6)] |= (1L << (instance & 63));
+		}
+		else {
+			bits[label * numWords + (instance >>> 6)] &= ~(1L << (instance & 63));
+		}
+		cooccurrences = null;
+	}
+
+	/**
+	 * Get a copy of the bits of a label
+	 *
+	 * @param label Index of the label
+	 * @return Words of the label; bit (j % 64) of word j/64 is set if the label is relevant for the j-th instance
+	 */
+	public long [] getLabelBits(int label) {
+		long [] row = new long[numWords];
+		System.arraycopy(bits, label * numWords, row, 0, numWords);
+		return row;
+	}
+
+	/**
+	 * Get the number of instances where each label is relevant
+	 *
+	 * @return Frequency of each label
+	 */
+	public int [] frequencies() {
+		int [][] co = cooccurrences();
+		int [] freq = new int[numLabels];
+		for(int l=0; l<numLabels; l++) {
+			freq[l] = co[l][l];
+		}
+		return freq;
+	}
+
+	/**
+	 * Get the number of instances where each pair of labels are both relevant.
+	 * The matrix is symmetric, and its diagonal stores the frequency of each label.
+	 * It is computed in parallel the first time it is required.
+	 * The returned matrix is shared, so it must not be modified.
+	 *
+	 * @return Pairwise co-occurrences of the labels
+	 */
+	public synchronized int [][] cooccurrences() {
+		if(cooccurrences == null) {
+			final int [][] co = new int[numLabels][numLabels];
+
+			//Rows are assigned cyclically, since the i-th row computes (numLabels - i) pairs
+			parallel(numLabels, new IntConsumer() {
+				@Override
+				public void accept(int i) {
+					int offsetI = i * numWords;
+					for(int k=i; k<numLabels; k++) {
+						int offsetK = k * numWords;
+						int count = 0;
+						for(int w=0; w<numWords; w++) {
+							count += Long.bitCount(bits[offsetI + w] & bits[offsetK + w]);
+						}
+						co[i][k] = count;
+					}
+				}
+			});
+
+			for(int i=0; i<numLabels; i++) {
+				for(int k=0; k<i; k++) {
+					co[i][k] = co[k][i];
+				}
+			}
+			cooccurrences = co;
+		}
+
+		return cooccurrences;
+	}
+
+	/**
+	 * Get the conditional probability of each label given each other label,
+	 * 	i.e., P(label k is relevant | label i is relevant) in position [i][k].
+	 * If label i is never relevant, the marginal probability of label k is used (0 if there are no instances).
+	 *
+	 * @return Conditional probabilities of the labels
+	 */
+	public double [][] conditionalProbabilities() {
+		int [][] co = cooccurrences();
+		double [][] prob = new double[numLabels][numLabels];
+		for(int i=0; i<numLabels; i++) {
+			for(int k=0; k<numLabels; k++) {
+				if(co[i][i] > 0) {
+					prob[i][k] = co[i][k] / (double) co[i][i];
+				}
+				else if(numInstances > 0) {
+					prob[i][k] = co[k][k] / (double) numInstances;
+				}
+			}
+		}
+		return prob;
+	}
+
+	/**
+	 * Get the conditional dependence of each pair of labels, measured as the mutual information (in bits)
+	 * 	between their relevance. It is symmetric, zero for independent labels, and the diagonal stores the entropy of each label.
+	 * It only needs the co-occurrences, so it does not scan the matrix again.
+	 *
+	 * @return Pairwise dependence of the labels
+	 */
+	public double [][] dependence() {
+		return dependence(cooccurrences(), numInstances);
+	}
+
+	/**
+	 * Get the conditional dependence of each pair of labels from their co-occurrences (see dependence()).
+	 * It allows to compute the dependence from co-occurrences accumulated over several blocks of instances.
+	 *
+	 * @param co Pairwise co-occurrences of the labels, with the frequency of each label in the diagonal
+	 * @param numInstances Number of instances
+	 * @return Pairwise dependence of the labels; all zeros if there are no instances
+	 */
+	public static double [][] dependence(int [][] co, int numInstances) {
+		int numLabels = co.length;
+		double [][] mi = new double[numLabels][numLabels];
+		if(numInstances == 0) {
+			return mi;
+		}
+		double n = numInstances;
+		for(int i=0; i<numLabels; i++) {
+			for(int k=i; k<numLabels; k++) {
+				//Contingency table of both labels
+				double n11 = co[i][k];
+				double n10 = co[i][i] - n11;
+				double n01 = co[k][k] - n11;
+				double n00 = n - n11 - n10 - n01;
+				double pi = co[i][i] / n, pk = co[k][k] / n;
+
+				double value = term(n11 / n, pi * pk) + term(n10 / n, pi * (1 - pk))
+						+ term(n01 / n, (1 - pi) * pk) + term(n00 / n, (1 - pi) * (1 - pk));
+				mi[i][k] = value;
+				mi[k][i] = value;
+			}
+		}
+		return mi;
+	}
+
+	/**
+	 * Term of the mutual information for a cell of the contingency table
+	 *
+	 * @param joint Joint probability of the cell
+	 * @param independent Probability of the cell if both labels were independent
+	 * @return Term of the mutual information
+	 */
+	private static double term(double joint, double independent) {
+		if(joint <= 0 || independent <= 0) {
+			return 0;
+		}
+		return joint * Math.log(joint / independent) / Math.log(2);
+	}
+
+	/**
+	 * Executes a task for each index in [0, numTasks), distributing indices cyclically among threads
+	 *
+	 * @param numTasks Number of indices
+	 * @param task Task to execute for each index
+	 */
+	private void parallel(final int numTasks, final IntConsumer task) {
+		int threads = Math.min(numThreads, numTasks);
+		if(threads <= 1) {
+			for(int t=0; t<numTasks; t++) {
+				task.accept(t);
+			}
+			return;
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		for(int i=0; i<threads; i++) {
+			final int first = i;
+			final int step = threads;
+			futures.add(executorService.submit(new Runnable() {
+				@Override
+				public void run() {
+					for(int t=first; t<numTasks; t+=step) {
+						task.accept(t);
+					}
+				}
+			}));
+		}
+		executorService.shutdown();
+
+		try {
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mulan.data.MultiLabelInstances;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Sampling of new instances for the members of an ensemble that is updated incrementally.
+ * As the whole training set is not available, each new instance is sampled independently (online bagging, Oza and Russell):
+ * 	<ul>
+ * 		<li>With replacement: each instance is included k times, with k following a Poisson distribution of mean equal to
+ * 			the bag size, which approximates sampling the bag with replacement from the whole data.</li>
+ * 		<li>Without replacement: each instance is included with a probability equal to the sampling percentage.</li>
+ * 	</ul>
+ * The members of ensembles (e.g., ECC and EBR) are updated with their own samples by updateMembers().
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class OnlineSampling {
+
+	/**
+	 * Member of an ensemble that can be updated with new training instances
+	 */
+	public interface Updateable {
+
+		/**
+		 * Updates the member with new training instances, instead of building it again from scratch
+		 *
+		 * @param data New training instances
+		 * @throws Exception if the member cannot be updated
+		 */
+		void update(MultiLabelInstances data) throws Exception;
+	}
+
+	/**
+	 * Updates the members of an ensemble, each of them with its own sample of the new instances.
+	 * Samples are drawn before updating the members, so they do not depend on the order in which members are updated.
+	 *
+	 * @param members Members of the ensemble
+	 * @param data New training instances
+	 * @param rand Random numbers generator
+	 * @param useSamplingWithReplacement Indicates if sampling with replacement is used
+	 * @param bagSizePercent Size of each bag, as a percentage of the data; used with replacement
+	 * @param samplingPercentage Size of each sample, as a percentage of the data; used without replacement
+	 * @param numThreads Number of members updated at the same time
+	 * @throws Exception if the ensemble has not been built or a member cannot be updated
+	 */
+	public static void updateMembers(final Updateable[] members, MultiLabelInstances data, Random rand, boolean useSamplingWithReplacement,
+			int bagSizePercent, double samplingPercentage, int numThreads) throws Exception {
+		if(members.length == 0 || members[0] == null) {
+			throw new IllegalStateException("The model must be built before it is updated");
+		}
+
+		final MultiLabelInstances[] samples = new MultiLabelInstances[members.length];
+		for(int i=0; i<members.length; i++) {
+			Instances sampledDataSet = sample(data.getDataSet(), rand, useSamplingWithReplacement, bagSizePercent, samplingPercentage);
+			samples[i] = new MultiLabelInstances(sampledDataSet, data.getLabelsMetaData());
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for(int i=0; i<members.length; i++) {
+			final int member = i;
+			futures.add(executorService.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					members[member].update(samples[member]);
+					return null;
+				}
+			}));
+		}
+		executorService.shutdown();
+
+		try {
+			for(Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * Samples new instances for a member of an ensemble
+	 *
+	 * @param data New instances
+	 * @param rand Random numbers generator
+	 * @param useSamplingWithReplacement Indicates if sampling with replacement is used
+	 * @param bagSizePercent Size of each bag, as a percentage of the data; used with replacement
+	 * @param samplingPercentage Size of each sample, as a percentage of the data; used without replacement
+	 * @return Sampled instances
+	 */
+	public static Instances sample(Instances data, Random rand, boolean useSamplingWithReplacement, int bagSizePercent, double samplingPercentage) {
+		Instances sampled = new Instances(data, data.numInstances());
+		for(Instance instance : data) {
+			int times;
+			if(useSamplingWithReplacement) {
+				times = poisson(bagSizePercent / 100.0, rand);
+			}
+			else {
+				times = (rand.nextDouble() * 100 < samplingPercentage) ? 1 : 0;
+			}
+			for(int k=0; k<times; k++) {
+				sampled.add(instance);
+			}
+		}
+		return sampled;
+	}
+
+	/**
+	 * Draws a value from a Poisson distribution (Knuth's algorithm, suitable for small means)
+	 *
+	 * @param mean Mean of the distribution
+	 * @param rand Random numbers generator
+	 * @return Value
+	 */
+	static int poisson(double mean, Random rand) {
+		double limit = Math.exp(-mean);
+		double product = rand.nextDouble();
+		int k = 0;
+		while(product > limit) {
+			k++;
+			product *= rand.nextDouble();
+		}
+		return k;
+	}
+}
@@ -0,0 +1,823 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mulan.data.LabelsBuilder;
+import mulan.data.MultiLabelInstances;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * Reader of ARFF files that parses the data section in parallel.
+ * The data section is split into byte ranges (chunks), which are parsed by several threads into blocks of primitive arrays;
+ * 	both dense rows and sparse rows ({index value, ...}) are supported, as well as instance weights.
+ * Blocks are delivered in the order of the file, and only a few chunks are read at the same time,
+ * 	so the text of the file is never fully loaded in memory, and blocks may be consumed (e.g., converted to instances
+ * 	or written to disk) while the rest of the file is parsed.
+ * String and relational attributes are not supported.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class ParallelArffReader {
+
+	/**
+	 * ARFF file
+	 */
+	File file;
+
+	/**
+	 * Header of the dataset
+	 */
+	Instances header;
+
+	/**
+	 * Position of the first byte after the @data line
+	 */
+	long dataStart;
+
+	/**
+	 * Size of the file
+	 */
+	long fileSize;
+
+	/**
+	 * Indicates if blocks are stored in sparse format (it is the format of the first row of the file)
+	 */
+	boolean sparse;
+
+	/**
+	 * Number of threads
+	 */
+	int numThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Size of each chunk in bytes
+	 */
+	int chunkSize = 1 << 24;
+
+	/**
+	 * Block of consecutive instances parsed from a chunk of the file, stored as primitive arrays
+	 */
+	public static class Block {
+
+		/**
+		 * Number of rows
+		 */
+		int numRows;
+
+		/**
+		 * Number of attributes
+		 */
+		int numAttributes;
+
+		/**
+		 * Weight of each row
+		 */
+		double [] weights;
+
+		/**
+		 * Indicates if rows are stored in sparse format
+		 */
+		boolean sparse;
+
+		/**
+		 * Values of all rows, row by row (dense format)
+		 */
+		double [] values;
+
+		/**
+		 * Offset of the first value of each row, and end of the last row (sparse format)
+		 */
+		int [] rowOffsets;
+
+		/**
+		 * Indices of the non-zero values (sparse format)
+		 */
+		int [] indices;
+
+		/**
+		 * Get the number of rows
+		 *
+		 * @return Number of rows
+		 */
+		public int numRows() {
+			return numRows;
+		}
+
+		/**
+		 * Indicates if the block is stored in sparse format
+		 *
+		 * @return True if the block is sparse
+		 */
+		public boolean isSparse() {
+			return sparse;
+		}
+
+		/**
+		 * Get the weight of a row
+		 *
+		 * @param row Index of the row
+		 * @return Weight of the row
+		 */
+		public double weight(int row) {
+			return weights[row];
+		}
+
+		/**
+		 * Get the values of all rows in dense format (row by row), or the non-zero values in sparse format
+		 *
+		 * @return Values
+		 */
+		public double [] getValues() {
+			return values;
+		}
+
+		/**
+		 * Get the offset of the first non-zero value of each row, and the end of the last row (sparse format)
+		 *
+		 * @return Offsets of rows
+		 */
+		public int [] getRowOffsets() {
+			return rowOffsets;
+		}
+
+		/**
+		 * Get the indices of the non-zero values (sparse format)
+		 *
+		 * @return Indices of non-zero values
+		 */
+		public int [] getIndices() {
+			return indices;
+		}
+
+		/**
+		 * Creates the instance of a row. The dataset of the instance is not set.
+		 *
+		 * @param row Index of the row
+		 * @return Instance
+		 */
+		public Instance instance(int row) {
+			if(!sparse) {
+				return new DenseInstance(weights[row], Arrays.copyOfRange(values, row * numAttributes, (row + 1) * numAttributes));
+			}
+			else {
+				return new SparseInstance(weights[row], Arrays.copyOfRange(values, rowOffsets[row], rowOffsets[row + 1]),
+						Arrays.copyOfRange(indices, rowOffsets[row], rowOffsets[row + 1]), numAttributes);
+			}
+		}
+
+		/**
+		 * Adds the instances of the block to a dataset
+		 *
+		 * @param data Dataset
+		 */
+		public void addTo(Instances data) {
+			for(int row=0; row<numRows; row++) {
+				Instance instance = instance(row);
+				instance.setDataset(data);
+				data.add(instance);
+			}
+		}
+	}
+
+	/**
+	 * Consumer of the blocks of a file, which are given in the order of the file
+	 */
+	public interface BlockConsumer {
+
+		/**
+		 * Consumes a block
+		 *
+		 * @param block Block of instances
+		 * @throws Exception
+		 */
+		void accept(Block block) throws Exception;
+	}
+
+	/**
+	 * Constructor. It reads the header of the file.
+	 *
+	 * @param file ARFF file
+	 * @throws IOException if the header cannot be read
+	 */
+	public ParallelArffReader(File file) throws IOException {
+		this.file = file;
+		this.fileSize = file.length();
+		readHeader();
+	}
+
+	/**
+	 * Constructor of a parser of rows in the format of a header, which are not read from a file (see parseLines)
+	 *
+	 * @param header Header of the dataset
+	 * @throws IOException if the header has string or relational attributes
+	 */
+	public ParallelArffReader(Instances header) throws IOException {
+		this.header = new Instances(header, 0);
+		checkAttributes();
+	}
+
+	/**
+	 * Set the number of threads
+	 *
+	 * @param numThreads Number of threads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Set the size of the chunks
+	 *
+	 * @param chunkSize Size of each chunk in bytes
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = Math.max(1 << 10, chunkSize);
+	}
+
+	/**
+	 * Get the header of the dataset
+	 *
+	 * @return Header (without instances)
+	 */
+	public Instances getHeader() {
+		return new Instances(header, 0);
+	}
+
+	/**
+	 * Reads the header of the file, until the @data line, and the format of the first row
+	 *
+	 * @throws IOException
+	 */
+	private void readHeader() throws IOException {
+		ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+			long position = 0;
+			boolean inData = false;
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			int b;
+			while((b = in.read()) >= 0) {
+				position++;
+				if(b != '\n') {
+					line.write(b);
+					continue;
+				}
+
+				String text = new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+				line.reset();
+				if(!inData) {
+					headerBytes.write(text.getBytes(StandardCharsets.UTF_8));
+					headerBytes.write('\n');
+					if(text.toLowerCase().startsWith("@data")) {
+						inData = true;
+						dataStart = position;
+					}
+				}
+				else if(text.length() > 0 && !text.startsWith("%")) {
+					sparse = text.startsWith("{");
+					break;
+				}
+			}
+
+			if(!inData) {
+				throw new IOException("No @data section in " + file);
+			}
+		}
+
+		try {
+			header = new Instances(new StringReader(new String(headerBytes.toByteArray(), StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			throw new IOException("Invalid ARFF header in " + file + ": " + e.getMessage(), e);
+		}
+		checkAttributes();
+	}
+
+	/**
+	 * Checks that the attributes of the header are supported
+	 *
+	 * @throws IOException if there are string or relational attributes
+	 */
+	private void checkAttributes() throws IOException {
+		for(int a=0; a<header.numAttributes(); a++) {
+			if(header.attribute(a).isString() || header.attribute(a).isRelationValued()) {
+				throw new IOException("String and relational attributes are not supported: " + header.attribute(a).name());
+			}
+		}
+	}
+
+	/**
+	 * Parses rows given as lines of text in the format of the data section (e.g., received from a client,
+	 * 	or read from a CSV file without header); empty lines and comments are skipped.
+	 * The block is sparse if the first row is sparse.
+	 *
+	 * @param lines Lines with one row each
+	 * @return Block with the parsed rows
+	 * @throws IOException if any row is not valid
+	 */
+	public Block parseLines(Iterable<String> lines) throws IOException {
+		BlockBuilder builder = null;
+		for(String line : lines) {
+			line = line.trim();
+			if(line.length() == 0 || line.startsWith("%")) {
+				continue;
+			}
+			if(builder == null) {
+				builder = new BlockBuilder(header.numAttributes(), line.startsWith("{"));
+			}
+			parseLine(line, builder);
+		}
+		return (builder == null) ? new BlockBuilder(header.numAttributes(), false).build() : builder.build();
+	}
+
+	/**
+	 * Reads the data section, giving the blocks to the consumer in the order of the file.
+	 * Chunks are parsed in parallel, and at most twice the number of threads are read at the same time.
+	 *
+	 * @param consumer Consumer of blocks
+	 * @throws Exception if the file cannot be parsed or the consumer fails
+	 */
+	public void read(BlockConsumer consumer) throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+		ArrayDeque<Future<Block>> pending = new ArrayDeque<Future<Block>>();
+		int maxPending = 2 * numThreads;
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			final FileChannel channel = raf.getChannel();
+			long start = dataStart;
+			while(start < fileSize || !pending.isEmpty()) {
+				//Submit chunks until the window is full
+				while(start < fileSize && pending.size() < maxPending) {
+					final long chunkStart = start;
+					final long chunkEnd = Math.min(fileSize, start + chunkSize);
+					pending.add(executorService.submit(new Callable<Block>() {
+						@Override
+						public Block call() throws Exception {
+							return parseChunk(channel, chunkStart, chunkEnd);
+						}
+					}));
+					start = chunkEnd;
+				}
+
+				//Consume the oldest chunk
+				Block block;
+				try {
+					block = pending.poll().get();
+				} catch (ExecutionException e) {
+					throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+				}
+				if(block.numRows > 0) {
+					consumer.accept(block);
+				}
+			}
+		} finally {
+			for(Future<Block> future : pending) {
+				future.cancel(true);
+			}
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Reads all the instances of the file
+	 *
+	 * @return Dataset
+	 * @throws Exception if the file cannot be parsed
+	 */
+	public Instances readInstances() throws Exception {
+		final Instances data = new Instances(header, 0);
+		read(new BlockConsumer() {
+			@Override
+			public void accept(Block block) {
+				block.addTo(data);
+			}
+		});
+		return data;
+	}
+
+	/**
+	 * Loads a multi-label dataset, parsing the ARFF file in parallel
+	 *
+	 * @param arffFilename Path of the ARFF file
+	 * @param xmlFilename Path of the XML file
+	 * @param numThreads Number of threads
+	 * @return Multi-label dataset
+	 * @throws Exception if the dataset cannot be read
+	 */
+	public static MultiLabelInstances load(String arffFilename, String xmlFilename, int numThreads) throws Exception {
+		ParallelArffReader reader = new ParallelArffReader(new File(arffFilename));
+		reader.setNumThreads(numThreads);
+		return new MultiLabelInstances(reader.readInstances(), LabelsBuilder.createLabels(xmlFilename));
+	}
+
+	/**
+	 * Parses the lines starting in a byte range of the data section.
+	 * The first line starting at or after the beginning of the range is the first one parsed,
+	 * 	and the last line starting before the end of the range is read completely.
+	 *
+	 * @param channel File channel
+	 * @param start Beginning of the range
+	 * @param end End of the range
+	 * @return Block with the parsed rows
+	 * @throws IOException
+	 */
+	Block parseChunk(FileChannel channel, long start, long end) throws IOException {
+		//Read from the byte before the range, to know if a line starts at the beginning of the range
+		long readStart = Math.max(dataStart, start - 1);
+		byte [] bytes = read(channel, readStart, (int) (end - readStart));
+		int length = bytes.length;
+
+		//Complete the last line, which ends at the first newline from the end of the range
+		int scan = Math.max(0, length - 1);
+		while(scan < length && bytes[scan] != '\n') {
+			scan++;
+		}
+		while(scan == length && readStart + length < fileSize) {
+			byte [] more = read(channel, readStart + length, (int) Math.min(1 << 16, fileSize - readStart - length));
+			bytes = Arrays.copyOf(bytes, length + more.length);
+			System.arraycopy(more, 0, bytes, length, more.length);
+			length += more.length;
+			while(scan < length && bytes[scan] != '\n') {
+				scan++;
+			}
+		}
+
+		//First line starting in the range
+		int pos = (int) (start - readStart);
+		if(start > dataStart) {
+			while(pos < length && bytes[pos - 1] != '\n') {
+				pos++;
+			}
+		}
+
+		BlockBuilder builder = new BlockBuilder(header.numAttributes(), sparse);
+		int rangeEnd = (int) (end - readStart);
+		while(pos < rangeEnd && pos < length) {
+			int lineEnd = pos;
+			while(lineEnd < length && bytes[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			String line = new String(bytes, pos, lineEnd - pos, StandardCharsets.UTF_8).trim();
+			if(line.length() > 0 && !line.startsWith("%")) {
+				parseLine(line, builder);
+			}
+			pos = lineEnd + 1;
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Reads a range of bytes of the file; positional reads are thread-safe
+	 *
+	 * @param channel File channel
+	 * @param position Position of the range
+	 * @param length Length of the range
+	 * @return Bytes
+	 * @throws IOException
+	 */
+	private static byte [] read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while(buffer.hasRemaining()) {
+			int n = channel.read(buffer, position + buffer.position());
+			if(n < 0) {
+				break;
+			}
+		}
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	/**
+	 * Parses a row of the data section
+	 *
+	 * @param line Line with the row
+	 * @param builder Builder of the block
+	 * @throws IOException if the row is not valid
+	 */
+	private void parseLine(String line, BlockBuilder builder) throws IOException {
+		double weight = 1;
+
+		if(line.startsWith("{")) {
+			//Sparse row, with optional weight after it
+			int close = closingBrace(line, 0);
+			String rest = line.substring(close + 1).trim();
+			if(rest.startsWith(",")) {
+				weight = parseWeight(rest.substring(1).trim(), line);
+			}
+
+			builder.startRow();
+			int previous = -1;
+			ArrayList<String> tokens = tokenize(line.substring(1, close));
+			for(String token : tokens) {
+				if(token.isEmpty()) {
+					continue;
+				}
+				int space = 0;
+				while(space < token.length() && !Character.isWhitespace(token.charAt(space))) {
+					space++;
+				}
+				if(space >= token.length()) {
+					throw new IOException("Invalid sparse value '" + token + "' in row: " + line);
+				}
+				int index;
+				try {
+					index = Integer.parseInt(token.substring(0, space));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid sparse index '" + token + "' in row: " + line);
+				}
+				if(index <= previous || index >= header.numAttributes()) {
+					throw new IOException("Sparse indices must be ordered and in range '" + token + "' in row: " + line);
+				}
+				previous = index;
+				builder.addValue(index, parseValue(index, token.substring(space).trim(), line));
+			}
+			builder.endRow(weight);
+		}
+		else {
+			ArrayList<String> tokens = tokenize(line);
+			if(tokens.size() == header.numAttributes() + 1 && tokens.get(tokens.size() - 1).startsWith("{")) {
+				weight = parseWeight(tokens.remove(tokens.size() - 1), line);
+			}
+			if(tokens.size() != header.numAttributes()) {
+				throw new IOException("Wrong number of values (" + tokens.size() + " instead of " + header.numAttributes() + ") in row: " + line);
+			}
+
+			builder.startRow();
+			for(int a=0; a<tokens.size(); a++) {
+				builder.addValue(a, parseValue(a, tokens.get(a), line));
+			}
+			builder.endRow(weight);
+		}
+	}
+
+	/**
+	 * Parses the value of an attribute
+	 *
+	 * @param attIndex Index of the attribute
+	 * @param token Token with the value
+	 * @param line Line, for error messages
+	 * @return Internal value
+	 * @throws IOException if the value is not valid
+	 */
+	private double parseValue(int attIndex, String token, String line) throws IOException {
+		if(token.equals("?")) {
+			return Utils.missingValue();
+		}
+
+		Attribute att = header.attribute(attIndex);
+		String value = unquote(token);
+		try {
+			if(att.isNumeric() && !att.isDate()) {
+				return Double.parseDouble(value);
+			}
+			else if(att.isNominal()) {
+				int index = att.indexOfValue(value);
+				if(index < 0) {
+					throw new IOException("Nominal value '" + value + "' not declared for attribute " + att.name() + " in row: " + line);
+				}
+				return index;
+			}
+			else {
+				return att.parseDate(value);
+			}
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Invalid value '" + value + "' for attribute " + att.name() + " in row: " + line);
+		}
+	}
+
+	/**
+	 * Parses the weight of a row ({weight})
+	 *
+	 * @param token Token with the weight
+	 * @param line Line, for error messages
+	 * @return Weight
+	 * @throws IOException if the weight is not valid
+	 */
+	private static double parseWeight(String token, String line) throws IOException {
+		if(!token.startsWith("{") || !token.endsWith("}")) {
+			throw new IOException("Invalid weight '" + token + "' in row: " + line);
+		}
+		try {
+			return Double.parseDouble(token.substring(1, token.length() - 1).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid weight '" + token + "' in row: " + line);
+		}
+	}
+
+	/**
+	 * Splits a line by commas that are not quoted
+	 *
+	 * @param line Line
+	 * @return Trimmed tokens
+	 */
+	private static ArrayList<String> tokenize(String line) {
+		ArrayList<String> tokens = new ArrayList<String>();
+		int start = 0;
+		int comma;
+		while((comma = nextComma(line, start)) >= 0) {
+			tokens.add(line.substring(start, comma).trim());
+			start = comma + 1;
+		}
+		tokens.add(line.substring(start).trim());
+		return tokens;
+	}
+
+	/**
+	 * Get the position of the next comma of a line that is not quoted (with single or double quotes, escaped by backslashes)
+	 *
+	 * @param line Line
+	 * @param from Position where the search starts, out of any quoted value
+	 * @return Position of the comma, or -1 if there is none
+	 */
+	public static int nextComma(String line, int from) {
+		char quote = 0;
+		for(int i=from; i<line.length(); i++) {
+			char c = line.charAt(i);
+			if(quote != 0) {
+				if(c == '\\') {
+					i++;
+				}
+				else if(c == quote) {
+					quote = 0;
+				}
+			}
+			else if(c == '\'' || c == '"') {
+				quote = c;
+			}
+			else if(c == ',') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the position of the brace that closes the one at a given position, skipping quoted text
+	 *
+	 * @param line Line
+	 * @param open Position of the opening brace
+	 * @return Position of the closing brace
+	 * @throws IOException if the brace is not closed
+	 */
+	private static int closingBrace(String line, int open) throws IOException {
+		char quote = 0;
+		for(int i=open+1; i<line.length(); i++) {
+			char c = line.charAt(i);
+			if(quote != 0) {
+				if(c == '\\') {
+					i++;
+				}
+				else if(c == quote) {
+					quote = 0;
+				}
+			}
+			else if(c == '\'' || c == '"') {
+				quote = c;
+			}
+			else if(c == '}') {
+				return i;
+			}
+		}
+		throw new IOException("Sparse row not closed: " + line);
+	}
+
+	/**
+	 * Removes the quotes of a value, if any
+	 *
+	 * @param token Token
+	 * @return Value without quotes
+	 */
+	private static String unquote(String token) {
+		if(token.length() >= 2 && (token.charAt(0) == '\'' || token.charAt(0) == '"') && token.charAt(token.length() - 1) == token.charAt(0)) {
+			return Utils.unbackQuoteChars(token.substring(1, token.length() - 1));
+		}
+		return token;
+	}
+
+	/**
+	 * Builder of blocks, with growable primitive arrays.
+	 * Rows in a format different than the one of the block are converted.
+	 * Values of sparse rows must be given in the order of their indices.
+	 */
+	static class BlockBuilder {
+
+		int numAttributes;
+		boolean sparse;
+		int numRows = 0;
+		double [] weights = new double[64];
+		double [] values = new double[1024];
+		int [] indices = new int[1024];
+		int [] rowOffsets = new int[65];
+		int numValues = 0;
+
+		/**
+		 * Start of the current row in the arrays of values
+		 */
+		int rowStart;
+
+		/**
+		 * Indicates if the current row is given in sparse format
+		 */
+		boolean rowIsSparse;
+
+		BlockBuilder(int numAttributes, boolean sparse) {
+			this.numAttributes = numAttributes;
+			this.sparse = sparse;
+		}
+
+		void startRow() {
+			rowStart = numValues;
+			if(!sparse) {
+				//Dense rows are filled with zeros, so sparse rows only set their non-zero values
+				ensure(numValues + numAttributes);
+				Arrays.fill(values, numValues, numValues + numAttributes, 0);
+				numValues += numAttributes;
+			}
+		}
+
+		void addValue(int index, double value) {
+			if(!sparse) {
+				values[rowStart + index] = value;
+			}
+			else if(value != 0) {
+				ensure(numValues + 1);
+				indices[numValues] = index;
+				values[numValues] = value;
+				numValues++;
+			}
+		}
+
+		void endRow(double weight) {
+			if(numRows + 1 >= weights.length) {
+				weights = Arrays.copyOf(weights, weights.length * 2);
+				rowOffsets = Arrays.copyOf(rowOffsets, rowOffsets.length * 2);
+			}
+			weights[numRows] = weight;
+			numRows++;
+			rowOffsets[numRows] = numValues;
+		}
+
+		void ensure(int capacity) {
+			if(capacity > values.length) {
+				int newLength = Math.max(capacity, values.length * 2);
+				values = Arrays.copyOf(values, newLength);
+				if(sparse) {
+					indices = Arrays.copyOf(indices, newLength);
+				}
+			}
+		}
+
+		Block build() {
+			Block block = new Block();
+			block.numRows = numRows;
+			block.numAttributes = numAttributes;
+			block.sparse = sparse;
+			block.weights = Arrays.copyOf(weights, numRows);
+			block.values = Arrays.copyOf(values, numValues);
+			if(sparse) {
+				block.indices = Arrays.copyOf(indices, numValues);
+				block.rowOffsets = Arrays.copyOf(rowOffsets, numRows + 1);
+			}
+			return block;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Side files with the predictions of labels over the training instances, used when chains are trained out of core.
+ * Each segment is a temporary file with the predicted values of a group of labels (e.g., the labels trained in the same pass),
+ * 	stored instance by instance with one byte per label; segments are written and read sequentially, block by block,
+ * 	so predictions of previous labels are not kept in memory.
+ * Files are deleted when the spill is closed.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class PredictionSpill implements Closeable {
+
+	/**
+	 * Directory of the files; null for the default temporary directory
+	 */
+	File directory;
+
+	/**
+	 * File of each segment
+	 */
+	ArrayList<File> segments = new ArrayList<File>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param directory Directory of the files; null for the default temporary directory
+	 */
+	public PredictionSpill(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Creates a new segment, and opens it for writing
+	 *
+	 * @return Stream to write the segment
+	 * @throws IOException
+	 */
+	public DataOutputStream newSegment() throws IOException {
+		File file = File.createTempFile("predictions", ".spill", directory);
+		file.deleteOnExit();
+		segments.add(file);
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+	}
+
+	/**
+	 * Opens a segment for reading, from its beginning
+	 *
+	 * @param segment Index of the segment, in order of creation
+	 * @return Stream to read the segment
+	 * @throws IOException
+	 */
+	public DataInputStream openSegment(int segment) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(segments.get(segment)), 1 << 16));
+	}
+
+	/**
+	 * Get the number of segments
+	 *
+	 * @return Number of segments
+	 */
+	public int numSegments() {
+		return segments.size();
+	}
+
+	/**
+	 * Writes the predictions of a block of instances
+	 *
+	 * @param out Stream of the segment
+	 * @param columns Predicted value (0 or 1) of each label for each instance of the block
+	 * @param numRows Number of instances of the block
+	 * @throws IOException
+	 */
+	public static void writeColumns(DataOutputStream out, double [][] columns, int numRows) throws IOException {
+		byte [] row = new byte[columns.length];
+		for(int r=0; r<numRows; r++) {
+			for(int c=0; c<columns.length; c++) {
+				row[c] = (byte) columns[c][r];
+			}
+			out.write(row);
+		}
+	}
+
+	/**
+	 * Reads the predictions of a block of instances
+	 *
+	 * @param in Stream of the segment
+	 * @param numColumns Number of labels of the segment
+	 * @param numRows Number of instances of the block
+	 * @return Predicted value of each label for each instance of the block
+	 * @throws IOException
+	 */
+	public static double [][] readColumns(DataInputStream in, int numColumns, int numRows) throws IOException {
+		double [][] columns = new double[numColumns][numRows];
+		byte [] row = new byte[numColumns];
+		for(int r=0; r<numRows; r++) {
+			in.readFully(row);
+			for(int c=0; c<numColumns; c++) {
+				columns[c][r] = row[c];
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Deletes the files of all segments
+	 */
+	@Override
+	public void close() {
+		for(File file : segments) {
+			file.delete();
+		}
+		segments.clear();
+	}
+}
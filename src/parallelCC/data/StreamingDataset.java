@@ -0,0 +1,203 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+import mulan.data.LabelsBuilder;
+import mulan.data.LabelsMetaData;
+import mulan.data.MultiLabelInstances;
+import weka.core.Instances;
+
+/**
+ * Multi-label dataset that is read from disk in blocks of instances, instead of being loaded in memory.
+ * It may be read from an ARFF file (parsed in parallel, see ParallelArffReader) or from a binary dataset (see BinaryDataset);
+ * 	only one block (and the blocks being parsed) is in memory at the same time, so it is used to train models
+ * 	over datasets larger than the heap. It can be read as many times as needed.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class StreamingDataset {
+
+	/**
+	 * Header of the dataset (without instances)
+	 */
+	MultiLabelInstances header;
+
+	/**
+	 * Reader of the ARFF file, if it is read from an ARFF file
+	 */
+	ParallelArffReader reader;
+
+	/**
+	 * Binary dataset, if it is read from a binary file
+	 */
+	BinaryDataset binary;
+
+	/**
+	 * Number of instances of each block read from a binary dataset
+	 */
+	int blockSize = 10000;
+
+	/**
+	 * Handler of the blocks of the dataset, which are given in the order of the file
+	 */
+	public interface BlockHandler {
+
+		/**
+		 * Handles a block
+		 *
+		 * @param block Block of instances, with the format of the header
+		 * @throws Exception
+		 */
+		void accept(Instances block) throws Exception;
+	}
+
+	/**
+	 * Opens a dataset stored in an ARFF file
+	 *
+	 * @param arffFilename Path of the ARFF file
+	 * @param xmlFilename Path of the XML file
+	 * @param numThreads Number of threads to parse the file
+	 * @return Streaming dataset
+	 * @throws Exception if the header or the labels cannot be read
+	 */
+	public static StreamingDataset fromArff(String arffFilename, String xmlFilename, int numThreads) throws Exception {
+		StreamingDataset data = new StreamingDataset();
+		data.reader = new ParallelArffReader(new File(arffFilename));
+		data.reader.setNumThreads(numThreads);
+		data.header = new MultiLabelInstances(data.reader.getHeader(), LabelsBuilder.createLabels(xmlFilename));
+		return data;
+	}
+
+	/**
+	 * Opens a dataset stored in a binary file
+	 *
+	 * @param binary Binary dataset
+	 * @return Streaming dataset
+	 * @throws Exception if the labels cannot be read
+	 */
+	public static StreamingDataset fromBinary(BinaryDataset binary) throws Exception {
+		StreamingDataset data = new StreamingDataset();
+		data.binary = binary;
+		LabelsMetaData labels = LabelsBuilder.createLabels(new ByteArrayInputStream(binary.xml));
+		data.header = new MultiLabelInstances(binary.getHeader(), labels);
+		return data;
+	}
+
+	/**
+	 * Opens a dataset, using its binary cache (see DatasetCache) if required and it is valid; otherwise, the ARFF file is used
+	 *
+	 * @param arffFilename Path of the ARFF file
+	 * @param xmlFilename Path of the XML file
+	 * @param useCache Indicates if the binary cache is used
+	 * @param numThreads Number of threads to parse the ARFF file
+	 * @return Streaming dataset
+	 * @throws Exception if the dataset cannot be read
+	 */
+	public static StreamingDataset open(String arffFilename, String xmlFilename, boolean useCache, int numThreads) throws Exception {
+		if(useCache) {
+			byte [] xml = Files.readAllBytes(new File(xmlFilename).toPath());
+			BinaryDataset binary = DatasetCache.open(new File(arffFilename + DatasetCache.EXTENSION),
+					DatasetCache.hash(new File(arffFilename)), DatasetCache.hash(xml));
+			if(binary != null) {
+				return fromBinary(binary);
+			}
+		}
+		return fromArff(arffFilename, xmlFilename, numThreads);
+	}
+
+	/**
+	 * Set the number of instances of each block read from a binary dataset
+	 *
+	 * @param blockSize Number of instances of each block
+	 */
+	public void setBlockSize(int blockSize) {
+		this.blockSize = Math.max(1, blockSize);
+	}
+
+	/**
+	 * Get the header of the dataset, i.e., a multi-label dataset without instances
+	 *
+	 * @return Header
+	 */
+	public MultiLabelInstances getHeader() {
+		return header;
+	}
+
+	/**
+	 * Reads the whole dataset, block by block
+	 *
+	 * @param handler Handler of the blocks
+	 * @throws Exception if the dataset cannot be read or the handler fails
+	 */
+	public void forEachBlock(final BlockHandler handler) throws Exception {
+		final Instances format = header.getDataSet();
+
+		if(binary != null) {
+			for(int from=0; from<binary.numInstances(); from+=blockSize) {
+				int to = Math.min(binary.numInstances(), from + blockSize);
+				Instances block = new Instances(format, to - from);
+				for(int j=from; j<to; j++) {
+					block.add(binary.instance(j));
+				}
+				handler.accept(block);
+			}
+		}
+		else {
+			reader.read(new ParallelArffReader.BlockConsumer() {
+				@Override
+				public void accept(ParallelArffReader.Block block) throws Exception {
+					Instances instances = new Instances(format, block.numRows());
+					block.addTo(instances);
+					handler.accept(instances);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Computes the pairwise dependence of the labels (see LabelMatrix.dependence) in one pass over the dataset,
+	 * 	adding the co-occurrences of the labels in each block
+	 *
+	 * @param numThreads Number of threads to compute the co-occurrences of each block
+	 * @return Pairwise dependence of the labels
+	 * @throws Exception if the dataset cannot be read
+	 */
+	public double [][] labelDependence(final int numThreads) throws Exception {
+		final int [] labelIndices = header.getLabelIndices();
+		final int [][] co = new int[labelIndices.length][labelIndices.length];
+		final int [] numInstances = new int[1];
+
+		forEachBlock(new BlockHandler() {
+			@Override
+			public void accept(Instances block) {
+				int [][] blockCo = LabelMatrix.fromInstances(block, labelIndices, numThreads).cooccurrences();
+				for(int i=0; i<co.length; i++) {
+					for(int k=0; k<co.length; k++) {
+						co[i][k] += blockCo[i][k];
+					}
+				}
+				numInstances[0] += block.numInstances();
+			}
+		});
+
+		return LabelMatrix.dependence(co, numInstances[0]);
+	}
+}
@@ -0,0 +1,617 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.data;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import mulan.data.LabelNodeImpl;
+import mulan.data.LabelsMetaDataImpl;
+import mulan.data.MultiLabelInstances;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * Generator of synthetic multi-label datasets of any size, for scaling studies.
+ * Features are numeric values in (0, 1], each of them zero with a given probability (sparsity).
+ * Each label depends on a few random features, through a random linear function, and on its parent label (if any),
+ * 	given by the dependency structure:
+ * 	<ul>
+ * 		<li>NONE: labels are independent given the features.</li>
+ * 		<li>CHAIN: the parent of each label is the previous one.</li>
+ * 		<li>TREE: the parent of each label is a random previous label.</li>
+ * 		<li>CLUSTERS: labels are grouped in clusters of consecutive labels, and the parent of each label is the first label of its cluster.</li>
+ * 	</ul>
+ * The strength of the dependency, in [0, 1], weights the parent against the features (with 1, a label only depends on its parent).
+ * The threshold of each label is calibrated over a sample, so the mean number of relevant labels is the given cardinality;
+ * 	frequencies of labels follow a power law with the given skew (0 for all labels with the same frequency).
+ * Values of the features have 4 decimals, so instances generated in memory are the same that are read from the ARFF files.
+ * The same configuration and seed always give the same instances.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class SyntheticGenerator {
+
+	/**
+	 * Structure of dependencies among labels
+	 */
+	public enum Dependency {NONE, CHAIN, TREE, CLUSTERS}
+
+	/**
+	 * Number of features each label depends on
+	 */
+	static final int FEATURES_PER_LABEL = 10;
+
+	/**
+	 * Number of instances to calibrate the thresholds of labels
+	 */
+	static final int CALIBRATION_SIZE = 5000;
+
+	/**
+	 * Standard deviation of the noise added to the score of each label
+	 */
+	static final double NOISE = 0.25;
+
+	/**
+	 * Number of features
+	 */
+	int numFeatures = 100;
+
+	/**
+	 * Number of labels
+	 */
+	int numLabels = 20;
+
+	/**
+	 * Mean number of relevant labels of each instance
+	 */
+	double cardinality = 2;
+
+	/**
+	 * Probability of a feature value being zero
+	 */
+	double sparsity = 0;
+
+	/**
+	 * Skew of the frequencies of labels
+	 */
+	double skew = 0;
+
+	/**
+	 * Structure of dependencies among labels
+	 */
+	Dependency dependency = Dependency.CHAIN;
+
+	/**
+	 * Strength of the dependency of each label on its parent, in [0, 1]
+	 */
+	double strength = 0.5;
+
+	/**
+	 * Number of labels of each cluster (CLUSTERS structure)
+	 */
+	int clusterSize = 10;
+
+	/**
+	 * Seed for random numbers
+	 */
+	long seed = 1;
+
+	/**
+	 * Random numbers to generate the instances; the model of labels is generated first
+	 */
+	Random rand;
+
+	/**
+	 * Features of each label
+	 */
+	int [][] labelFeatures;
+
+	/**
+	 * Weights of the features of each label
+	 */
+	double [][] labelWeights;
+
+	/**
+	 * Parent of each label, or -1
+	 */
+	int [] parents;
+
+	/**
+	 * Mean and standard deviation of the linear function of each label, and threshold of its score
+	 */
+	double [] means, deviations, thresholds;
+
+	/**
+	 * Header of the dataset
+	 */
+	Instances header;
+
+	/**
+	 * Labels of the dataset
+	 */
+	LabelsMetaDataImpl labelsMetaData;
+
+	/**
+	 * Set the number of features
+	 *
+	 * @param numFeatures Number of features
+	 */
+	public void setNumFeatures(int numFeatures) {
+		checkNotStarted();
+		this.numFeatures = numFeatures;
+	}
+
+	/**
+	 * Set the number of labels
+	 *
+	 * @param numLabels Number of labels
+	 */
+	public void setNumLabels(int numLabels) {
+		checkNotStarted();
+		this.numLabels = numLabels;
+	}
+
+	/**
+	 * Set the label cardinality, i.e., the mean number of relevant labels of each instance
+	 *
+	 * @param cardinality Label cardinality, in (0, numLabels)
+	 */
+	public void setCardinality(double cardinality) {
+		checkNotStarted();
+		this.cardinality = cardinality;
+	}
+
+	/**
+	 * Set the sparsity of the features, i.e., the probability of a feature value being zero.
+	 * If it is greater than 0, instances are sparse.
+	 *
+	 * @param sparsity Sparsity, in [0, 1)
+	 */
+	public void setSparsity(double sparsity) {
+		checkNotStarted();
+		this.sparsity = sparsity;
+	}
+
+	/**
+	 * Set the skew of the frequencies of labels; the frequency of the i-th label is proportional to 1/(i+1)^skew
+	 *
+	 * @param skew Skew; 0 for all labels with the same frequency
+	 */
+	public void setSkew(double skew) {
+		checkNotStarted();
+		this.skew = skew;
+	}
+
+	/**
+	 * Set the structure of dependencies among labels
+	 *
+	 * @param dependency Structure of dependencies
+	 */
+	public void setDependency(Dependency dependency) {
+		checkNotStarted();
+		this.dependency = dependency;
+	}
+
+	/**
+	 * Set the strength of the dependency of each label on its parent
+	 *
+	 * @param strength Strength, in [0, 1]
+	 */
+	public void setStrength(double strength) {
+		checkNotStarted();
+		this.strength = strength;
+	}
+
+	/**
+	 * Set the number of labels of each cluster, for the CLUSTERS structure
+	 *
+	 * @param clusterSize Number of labels of each cluster
+	 */
+	public void setClusterSize(int clusterSize) {
+		checkNotStarted();
+		this.clusterSize = clusterSize;
+	}
+
+	/**
+	 * Set the seed for random numbers
+	 *
+	 * @param seed Seed
+	 */
+	public void setSeed(long seed) {
+		checkNotStarted();
+		this.seed = seed;
+	}
+
+	/**
+	 * Get the header of the dataset
+	 *
+	 * @return Header, with the features first and the labels last
+	 */
+	public Instances getHeader() {
+		init();
+		return header;
+	}
+
+	/**
+	 * Generates new instances.
+	 * Consecutive calls give different instances of the same dataset (e.g., train and test instances).
+	 *
+	 * @param numInstances Number of instances
+	 * @return Multi-label dataset
+	 * @throws Exception if the dataset cannot be created
+	 */
+	public MultiLabelInstances generate(int numInstances) throws Exception {
+		init();
+		Instances dataset = new Instances(header, numInstances);
+		double [] values = new double[numFeatures + numLabels];
+		for(int i=0; i<numInstances; i++) {
+			next(values);
+			dataset.add(toInstance(values));
+		}
+		return new MultiLabelInstances(dataset, labelsMetaData.clone());
+	}
+
+	/**
+	 * Writes new instances to an ARFF file, one by one, so datasets of any size are written with constant memory.
+	 *
+	 * @param numInstances Number of instances
+	 * @param file ARFF file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeArff(int numInstances, File file) throws IOException {
+		init();
+		double [] values = new double[numFeatures + numLabels];
+		StringBuilder line = new StringBuilder();
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+			writer.write(header.toString());
+			for(int i=0; i<numInstances; i++) {
+				next(values);
+				line.setLength(0);
+				appendRow(line, values);
+				line.append('\n');
+				writer.append(line);
+			}
+		}
+	}
+
+	/**
+	 * Writes the XML file with the labels
+	 *
+	 * @param file XML file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeXml(File file) throws IOException {
+		init();
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+			writer.write("<labels xmlns=\"http://mulan.sourceforge.net/labels\">\n");
+			for(int l=0; l<numLabels; l++) {
+				writer.write("<label name=\"" + header.attribute(numFeatures + l).name() + "\"></label>\n");
+			}
+			writer.write("</labels>\n");
+		}
+	}
+
+	/**
+	 * Writes a train and a test partition, with the same XML file.
+	 * Files are named "name-train.arff", "name-test.arff" and "name.xml".
+	 * If binary is set, the binary files used by DatasetCache are also created, so the datasets are not parsed when loaded.
+	 *
+	 * @param directory Output directory
+	 * @param name Name of the dataset
+	 * @param numTrain Number of train instances
+	 * @param numTest Number of test instances
+	 * @param binary Indicates if binary files are also created
+	 * @return Line for the file with the paths to datasets (see MainClass): train, test and XML files separated by spaces
+	 * @throws Exception if the files cannot be written
+	 */
+	public String write(File directory, String name, int numTrain, int numTest, boolean binary) throws Exception {
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Directory cannot be created: " + directory);
+		}
+		File train = new File(directory, name + "-train.arff");
+		File test = new File(directory, name + "-test.arff");
+		File xml = new File(directory, name + ".xml");
+		writeXml(xml);
+		writeArff(numTrain, train);
+		writeArff(numTest, test);
+		if(binary) {
+			DatasetCache.load(train.getPath(), xml.getPath());
+			DatasetCache.load(test.getPath(), xml.getPath());
+		}
+		return train.getPath() + " " + test.getPath() + " " + xml.getPath();
+	}
+
+	/**
+	 * Throws an exception if instances have already been generated, since the model of labels cannot change
+	 */
+	private void checkNotStarted() {
+		if(rand != null) {
+			throw new IllegalStateException("The configuration cannot change once instances have been generated");
+		}
+	}
+
+	/**
+	 * Creates the header and the model of labels, if they have not been created yet
+	 */
+	private void init() {
+		if(rand != null) {
+			return;
+		}
+		if(numFeatures < 1 || numLabels < 1) {
+			throw new IllegalArgumentException("At least one feature and one label are needed");
+		}
+		if(cardinality <= 0 || cardinality >= numLabels) {
+			throw new IllegalArgumentException("Cardinality must be in (0, " + numLabels + ")");
+		}
+		if(sparsity < 0 || sparsity >= 1 || strength < 0 || strength > 1) {
+			throw new IllegalArgumentException("Sparsity must be in [0, 1) and strength in [0, 1]");
+		}
+
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>(numFeatures + numLabels);
+		for(int f=0; f<numFeatures; f++) {
+			attributes.add(new Attribute("f" + f));
+		}
+		ArrayList<String> binary = new ArrayList<String>(2);
+		binary.add("0");
+		binary.add("1");
+		labelsMetaData = new LabelsMetaDataImpl();
+		for(int l=0; l<numLabels; l++) {
+			attributes.add(new Attribute("label" + l, binary));
+			labelsMetaData.addRootNode(new LabelNodeImpl("label" + l));
+		}
+		header = new Instances("synthetic-" + numLabels + "-" + dependency.name().toLowerCase() + "-" + seed, attributes, 0);
+
+		rand = new Random(seed);
+		int relevant = Math.min(numFeatures, FEATURES_PER_LABEL);
+		int [] permutation = new int[numFeatures];
+		for(int f=0; f<numFeatures; f++) {
+			permutation[f] = f;
+		}
+		labelFeatures = new int[numLabels][relevant];
+		labelWeights = new double[numLabels][relevant];
+		parents = new int[numLabels];
+		for(int l=0; l<numLabels; l++) {
+			//Partial shuffle to select the features of the label
+			for(int k=0; k<relevant; k++) {
+				int r = k + rand.nextInt(numFeatures - k);
+				int aux = permutation[k];
+				permutation[k] = permutation[r];
+				permutation[r] = aux;
+				labelFeatures[l][k] = permutation[k];
+				labelWeights[l][k] = rand.nextGaussian();
+			}
+			Arrays.sort(labelFeatures[l]);
+			parents[l] = parent(l);
+		}
+
+		calibrate();
+	}
+
+	/**
+	 * Get the parent of a label, given the dependency structure
+	 *
+	 * @param label Index of the label
+	 * @return Index of the parent, or -1
+	 */
+	private int parent(int label) {
+		if(label == 0) {
+			return -1;
+		}
+		switch(dependency) {
+			case CHAIN:
+				return label - 1;
+			case TREE:
+				return rand.nextInt(label);
+			case CLUSTERS:
+				int first = label - (label % clusterSize);
+				return (first == label) ? -1 : first;
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Computes the mean and deviation of the linear function of each label, and the threshold of each label
+	 * 	to obtain the given frequency, over a sample of instances.
+	 * Parents are always previous labels, so labels are calibrated in order.
+	 */
+	private void calibrate() {
+		double [] frequencies = new double[numLabels];
+		double sum = 0;
+		for(int l=0; l<numLabels; l++) {
+			frequencies[l] = 1.0 / Math.pow(l + 1, skew);
+			sum += frequencies[l];
+		}
+		for(int l=0; l<numLabels; l++) {
+			frequencies[l] = Math.min(0.95, frequencies[l] * cardinality / sum);
+		}
+
+		double [][] sample = new double[CALIBRATION_SIZE][numFeatures + numLabels];
+		double [][] noise = new double[CALIBRATION_SIZE][numLabels];
+		for(int i=0; i<CALIBRATION_SIZE; i++) {
+			nextFeatures(sample[i]);
+			for(int l=0; l<numLabels; l++) {
+				noise[i][l] = rand.nextGaussian();
+			}
+		}
+
+		means = new double[numLabels];
+		deviations = new double[numLabels];
+		thresholds = new double[numLabels];
+		double [] linear = new double[CALIBRATION_SIZE];
+		double [] scores = new double[CALIBRATION_SIZE];
+		for(int l=0; l<numLabels; l++) {
+			double mean = 0, squares = 0;
+			for(int i=0; i<CALIBRATION_SIZE; i++) {
+				linear[i] = linear(l, sample[i]);
+				mean += linear[i];
+				squares += linear[i] * linear[i];
+			}
+			mean /= CALIBRATION_SIZE;
+			means[l] = mean;
+			deviations[l] = Math.max(1e-9, Math.sqrt(Math.max(0, squares / CALIBRATION_SIZE - mean * mean)));
+
+			for(int i=0; i<CALIBRATION_SIZE; i++) {
+				scores[i] = score(l, linear[i], noise[i][l], sample[i]);
+			}
+			double [] sorted = scores.clone();
+			Arrays.sort(sorted);
+			int position = (int) Math.round((1 - frequencies[l]) * CALIBRATION_SIZE);
+			thresholds[l] = (position >= CALIBRATION_SIZE) ? Double.POSITIVE_INFINITY : sorted[Math.max(0, position)];
+			for(int i=0; i<CALIBRATION_SIZE; i++) {
+				sample[i][numFeatures + l] = (scores[i] >= thresholds[l]) ? 1 : 0;
+			}
+		}
+	}
+
+	/**
+	 * Generates the values of the features of a new instance
+	 *
+	 * @param values Values of the instance, which are overwritten
+	 */
+	private void nextFeatures(double [] values) {
+		for(int f=0; f<numFeatures; f++) {
+			values[f] = (sparsity > 0 && rand.nextDouble() < sparsity) ? 0 : (1 + rand.nextInt(10000)) / 10000.0;
+		}
+	}
+
+	/**
+	 * Generates a new instance
+	 *
+	 * @param values Values of the instance, which are overwritten
+	 */
+	private void next(double [] values) {
+		nextFeatures(values);
+		for(int l=0; l<numLabels; l++) {
+			double score = score(l, linear(l, values), rand.nextGaussian(), values);
+			values[numFeatures + l] = (score >= thresholds[l]) ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Computes the linear function of the features of a label
+	 *
+	 * @param label Index of the label
+	 * @param values Values of the instance
+	 * @return Value of the linear function
+	 */
+	private double linear(int label, double [] values) {
+		double sum = 0;
+		int [] features = labelFeatures[label];
+		double [] weights = labelWeights[label];
+		for(int k=0; k<features.length; k++) {
+			sum += weights[k] * values[features[k]];
+		}
+		return sum;
+	}
+
+	/**
+	 * Computes the score of a label, which is compared with its threshold
+	 *
+	 * @param label Index of the label
+	 * @param linear Value of the linear function of the features of the label
+	 * @param noise Standard normal noise
+	 * @param values Values of the instance, including the previous labels
+	 * @return Score
+	 */
+	private double score(int label, double linear, double noise, double [] values) {
+		double score = (linear - means[label]) / deviations[label] + NOISE * noise;
+		if(parents[label] >= 0) {
+			double parent = (values[numFeatures + parents[label]] == 1) ? 1 : -1;
+			score = (1 - strength) * score + strength * 2 * parent;
+		}
+		return score;
+	}
+
+	/**
+	 * Creates an instance from its values
+	 *
+	 * @param values Values of the instance
+	 * @return Dense instance, or sparse instance if sparsity is greater than 0
+	 */
+	private Instance toInstance(double [] values) {
+		Instance instance = new DenseInstance(1, values.clone());
+		return (sparsity > 0) ? new SparseInstance(instance) : instance;
+	}
+
+	/**
+	 * Appends a row of the ARFF file
+	 *
+	 * @param line Line
+	 * @param values Values of the instance
+	 */
+	private void appendRow(StringBuilder line, double [] values) {
+		if(sparsity > 0) {
+			line.append('{');
+			boolean first = true;
+			for(int a=0; a<values.length; a++) {
+				if(values[a] != 0) {
+					if(!first) {
+						line.append(',');
+					}
+					first = false;
+					line.append(a).append(' ');
+					appendValue(line, values[a]);
+				}
+			}
+			line.append('}');
+		}
+		else {
+			for(int a=0; a<values.length; a++) {
+				if(a > 0) {
+					line.append(',');
+				}
+				appendValue(line, values[a]);
+			}
+		}
+	}
+
+	/**
+	 * Appends a value in [0, 1] with up to 4 decimals, without the rounding of general formatting
+	 *
+	 * @param line Line
+	 * @param value Value
+	 */
+	private static void appendValue(StringBuilder line, double value) {
+		int units = (int) Math.round(value * 10000);
+		if(units % 10000 == 0) {
+			line.append(units / 10000);
+			return;
+		}
+		line.append("0.");
+		int digits = units;
+		int scale = 1000;
+		while(digits > 0) {
+			line.append((char) ('0' + digits / scale));
+			digits %= scale;
+			scale /= 10;
+		}
+	}
+}
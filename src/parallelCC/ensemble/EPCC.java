@@ -20,11 +20,18 @@ import mulan.classifier.InvalidDataException;
 import mulan.classifier.MultiLabelOutput;
 import mulan.classifier.transformation.ECC;
 import mulan.data.MultiLabelInstances;
+import parallelCC.NewCC;
 import parallelCC.ParallelCC;
+import parallelCC.events.BuildEvent;
+import parallelCC.events.DatasetCopyEvent;
+import parallelCC.events.MemberBuildEvent;
+import parallelCC.metrics.BuildProgress;
+import parallelCC.metrics.PoolMetrics;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 import weka.filters.Filter;
 import weka.filters.unsupervised.instance.RemovePercentage;
 
@@ -56,6 +63,11 @@ public class EPCC extends ECC {
      */
     int numThreads = Runtime.getRuntime().availableProcessors();
 
+    /**
+     * Metrics of the thread pool of the last building; null if it has not been built in this JVM
+     */
+    transient PoolMetrics poolMetrics;
+
     /**
      * Set the number of threads
      * @param numThreads Number of threads
@@ -63,6 +75,43 @@ public class EPCC extends ECC {
     public void setNumThreads(int numThreads) {
     	this.numThreads = numThreads;
     }   
+    
+    /**
+     * Get the metrics of the thread pools of the last building.
+     * Members are built one after another, so they are the metrics of the pools of all the members together (see PoolMetrics.merge).
+     * 
+     * @return Metrics of the pools, or null if the model has not been built in this JVM
+     */
+    public PoolMetrics getPoolMetrics() {
+    	return poolMetrics;
+    }
+    
+    /**
+     * Get the metrics of the thread pools of the members of the ensemble, where each task builds a label of a chain,
+     * 	combined (see PoolMetrics.merge)
+     * 
+     * @return Metrics of the pools, or null if the model has not been built in this JVM
+     */
+    public PoolMetrics getMemberPoolMetrics() {
+    	PoolMetrics metrics = null;
+    	for(ParallelCC member : ensemble) {
+    		if(member != null) {
+    			metrics = PoolMetrics.merge(metrics, member.getPoolMetrics());
+    		}
+    	}
+    	return metrics;
+    }
+    
+    @Override
+    public ParallelCC[] members() {
+    	return ensemble;
+    }
+    
+    @Override
+    public void restore(int[] labelIndices, int[] featureIndices, NewCC[] members) {
+    	super.restore(labelIndices, featureIndices, members);
+    	ensemble = Arrays.copyOf(members, members.length, ParallelCC[].class);
+    }
 
     /**
      * Default constructor
@@ -91,8 +140,11 @@ public class EPCC extends ECC {
     	
         Instances dataSet = new Instances(trainingSet.getDataSet());
 
-        for (int i = 0; i < numOfModels; i++) {
+        BuildProgress.of(getClass().getSimpleName(), "members").build(numOfModels, i -> {
             debug("ECC Building Model:" + (i + 1) + "/" + numOfModels);
+            BuildEvent.setMember(i);
+            DatasetCopyEvent copyEvent = new DatasetCopyEvent();
+            copyEvent.begin();
             Instances sampledDataSet;
             dataSet.randomize(rand);
             if (useSamplingWithReplacement) {
@@ -110,7 +162,10 @@ public class EPCC extends ECC {
                 sampledDataSet = Filter.useFilter(dataSet, rmvp);
             }
             MultiLabelInstances train = new MultiLabelInstances(sampledDataSet, trainingSet.getLabelsMetaData());
+            copyEvent.commit();
 
+            MemberBuildEvent buildEvent = new MemberBuildEvent();
+            buildEvent.begin();
             int[] chain = new int[numLabels];
             for (int j = 0; j < numLabels; j++) {
                 chain[j] = j;
@@ -126,8 +181,18 @@ public class EPCC extends ECC {
             //Build PCC
             ensemble[i] = new ParallelCC(baseClassifier, chain);
             ensemble[i].setNumThreads(numThreads);
+            ensemble[i].setUseLinearScorer(useLinearScorer);
+            ensemble[i].setUseDependencyOrdering(useDependencyOrdering);
+            if (useDependencyOrdering) {
+                //Each member perturbs the dependence differently, so members do not share the same greedy chain
+                ensemble[i].setChainPerturbation(chainPerturbation);
+                ensemble[i].setSeed(rand.nextLong());
+            }
             ensemble[i].build(train);
-        }
+            buildEvent.commit();
+        });
+        BuildEvent.clearMember();
+        poolMetrics = getMemberPoolMetrics();
 
         timeBuild = System.currentTimeMillis() - time_init;
     }
@@ -142,8 +207,15 @@ public class EPCC extends ECC {
         Arrays.fill(sumVotes, 0);
         Arrays.fill(sumConf, 0);
 
+        // The same feature vector is shared by all members using flattened trees
+        // Sparse instances are not converted to dense; each member visits only their non-zero values
+        double[] values = (instance instanceof SparseInstance) ? null : instance.toDoubleArray();
+
         for (int i = 0; i < numOfModels; i++) {
-            MultiLabelOutput ensembleMLO = ensemble[i].makePrediction(instance);
+            MultiLabelOutput ensembleMLO = (values != null) ? ensemble[i].makeFlatPrediction(values) : ensemble[i].makeFlatPrediction(instance);
+            if (ensembleMLO == null) {
+                ensembleMLO = ensemble[i].makePrediction(instance);
+            }
             boolean[] bip = ensembleMLO.getBipartition();
             double[] conf = ensembleMLO.getConfidences();
 
@@ -16,13 +16,18 @@ package parallelCC.ensemble;
  */
 
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-import mulan.classifier.transformation.BinaryRelevance;
+import mulan.classifier.transformation.BR;
 import mulan.classifier.transformation.EBR;
 import mulan.data.MultiLabelInstances;
+import parallelCC.events.BuildEvent;
+import parallelCC.events.DatasetCopyEvent;
+import parallelCC.events.MemberBuildEvent;
+import parallelCC.events.QueueWaitEvent;
+import parallelCC.metrics.BuildProgress;
+import parallelCC.metrics.InstrumentedThreadPool;
+import parallelCC.metrics.PoolMetrics;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instances;
@@ -49,6 +54,11 @@ public class PEBR extends EBR {
     */
    int numThreads = Runtime.getRuntime().availableProcessors();
 
+    /**
+     * Metrics of the thread pool of the last building; null if it has not been built in this JVM
+     */
+    transient PoolMetrics poolMetrics;
+
 
     /**
      * Default constructor
@@ -89,21 +99,33 @@ public class PEBR extends EBR {
     	this.numThreads = numThreads;
     }    
 
+    @Override
+    protected int memberThreads() {
+    	return numThreads;
+    }
+
+    /**
+     * Get the metrics of the thread pool of the last building, where each task builds a member of the ensemble (see PoolMetrics)
+     * 
+     * @return Metrics of the pool, or null if the model has not been built in this JVM
+     */
+    public PoolMetrics getPoolMetrics() {
+    	return poolMetrics;
+    }
+
     @Override
     protected void buildInternal(MultiLabelInstances trainingSet) throws Exception {
     	long time_init = System.currentTimeMillis();
     	
     	//Set number of threads
-        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        InstrumentedThreadPool executorService = new InstrumentedThreadPool(numThreads);
     	
         Instances dataSet = new Instances(trainingSet.getDataSet());
 
-        for (int i = 0; i < numOfModels; i++) {
+        BuildProgress.of(getClass().getSimpleName(), "members").submit(numOfModels, executorService, i -> {
         	executorService.execute(new BuildEnsembleParallel(numOfModels, dataSet, rand, useSamplingWithReplacement, 
             		BagSizePercent,  samplingPercentage, numLabels, ensemble, trainingSet, baseClassifier, i));
-        }
-        
-        executorService.shutdown();
+        });
         
         try {
 			//Wait until all threads finish
@@ -111,6 +133,7 @@ public class PEBR extends EBR {
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+        poolMetrics = executorService.snapshot();
         
         timeBuild = System.currentTimeMillis() - time_init;
     }
@@ -137,7 +160,7 @@ public class PEBR extends EBR {
     	
     	int numLabels;
     	
-    	protected BinaryRelevance[] ensemble;
+    	protected BR[] ensemble;
     	
     	MultiLabelInstances trainingSet;
     	
@@ -145,11 +168,16 @@ public class PEBR extends EBR {
     	
     	int i;
     	
+    	/**
+    	 * Event with the time the task waits in the queue of the pool, since it is created
+    	 */
+    	QueueWaitEvent queueEvent;
+    	
 		/**
 		 * Constructor
 		 */
 		BuildEnsembleParallel(int numOfModels, Instances dataSet, Random rand, boolean useSamplingWithReplacement, 
-				int BagSizePercent, double samplingPercentage, int numLabels, BinaryRelevance[] ensemble, 
+				int BagSizePercent, double samplingPercentage, int numLabels, BR[] ensemble, 
 				MultiLabelInstances trainingSet, Classifier baseClassifier, int i){
 			this.numOfModels = numOfModels;
 			this.dataSet = dataSet;
@@ -162,6 +190,8 @@ public class PEBR extends EBR {
 			this.trainingSet = trainingSet;
 			this.baseClassifier = baseClassifier;
 			this.i = i;
+			this.queueEvent = new QueueWaitEvent();
+			this.queueEvent.begin();
 		}
 		
 		/**
@@ -170,7 +200,12 @@ public class PEBR extends EBR {
 		 * It has not critical code.
 		 */
 		public void run() {
+			queueEvent.member = i;
+			queueEvent.commit();
+			BuildEvent.setMember(i);
 			try {
+				DatasetCopyEvent copyEvent = new DatasetCopyEvent();
+				copyEvent.begin();
 				Instances sampledDataSet;
 	            dataSet.randomize(rand);
 	            if (useSamplingWithReplacement) {
@@ -188,12 +223,19 @@ public class PEBR extends EBR {
 	                sampledDataSet = Filter.useFilter(dataSet, rmvp);
 	            }
 	            MultiLabelInstances train = new MultiLabelInstances(sampledDataSet, trainingSet.getLabelsMetaData());
+	            copyEvent.commit();
 
-	            ensemble[i] = new BinaryRelevance(baseClassifier);
+	            MemberBuildEvent buildEvent = new MemberBuildEvent();
+	            buildEvent.begin();
+	            ensemble[i] = new BR(baseClassifier);
 	            ensemble[i].build(train);
+	            buildEvent.commit();
 			}catch(Exception e) {
 			e.printStackTrace();	
 			}
+			finally {
+				BuildEvent.clearMember();
+			}
 		}
 	}
 }
\ No newline at end of file
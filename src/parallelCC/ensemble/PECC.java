@@ -16,13 +16,18 @@
 package parallelCC.ensemble;
 
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import mulan.classifier.transformation.ECC;
 import mulan.data.MultiLabelInstances;
 import parallelCC.NewCC;
+import parallelCC.events.BuildEvent;
+import parallelCC.events.DatasetCopyEvent;
+import parallelCC.events.MemberBuildEvent;
+import parallelCC.events.QueueWaitEvent;
+import parallelCC.metrics.BuildProgress;
+import parallelCC.metrics.InstrumentedThreadPool;
+import parallelCC.metrics.PoolMetrics;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instances;
@@ -50,6 +55,11 @@ public class PECC extends ECC {
      */
     int numThreads = Runtime.getRuntime().availableProcessors();
 
+    /**
+     * Metrics of the thread pool of the last building; null if it has not been built in this JVM
+     */
+    transient PoolMetrics poolMetrics;
+
     /**
      * Default constructor
      */
@@ -78,6 +88,20 @@ public class PECC extends ECC {
     public void setNumThreads(int numThreads) {
     	this.numThreads = numThreads;
     }    
+
+    @Override
+    protected int memberThreads() {
+    	return numThreads;
+    }
+
+    /**
+     * Get the metrics of the thread pool of the last building, where each task builds a member of the ensemble (see PoolMetrics)
+     * 
+     * @return Metrics of the pool, or null if the model has not been built in this JVM
+     */
+    public PoolMetrics getPoolMetrics() {
+    	return poolMetrics;
+    }
     
     @Override
     protected void buildInternal(MultiLabelInstances trainingSet) throws Exception {
@@ -86,15 +110,14 @@ public class PECC extends ECC {
         Instances dataSet = new Instances(trainingSet.getDataSet());
 
         //Set number of threads
-        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        InstrumentedThreadPool executorService = new InstrumentedThreadPool(numThreads);
         
         //Build each member in a different thread
-        for (int i = 0; i < numOfModels; i++) {
+        BuildProgress.of(getClass().getSimpleName(), "members").submit(numOfModels, executorService, i -> {
             executorService.execute(new BuildEnsembleParallel(numOfModels, dataSet, rand, useSamplingWithReplacement, 
-            		BagSizePercent,  samplingPercentage, numLabels, ensemble, trainingSet, baseClassifier, i));
-        }
-        
-        executorService.shutdown();
+            		BagSizePercent,  samplingPercentage, numLabels, ensemble, trainingSet, baseClassifier, i, 
+            		useLinearScorer, useDependencyOrdering, chainPerturbation));
+        });
         
         try {
 			//Wait until all threads finish
@@ -102,6 +125,7 @@ public class PECC extends ECC {
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+        poolMetrics = executorService.snapshot();
 
         timeBuild = System.currentTimeMillis() - time_init;
     }
@@ -136,12 +160,24 @@ public class PECC extends ECC {
     	
     	int i;
     	
+    	/**
+    	 * Event with the time the task waits in the queue of the pool, since it is created
+    	 */
+    	QueueWaitEvent queueEvent;
+    	
+    	boolean useLinearScorer;
+    	
+    	boolean useDependencyOrdering;
+    	
+    	double chainPerturbation;
+    	
 		/**
 		 * Constructor
 		 */
 		BuildEnsembleParallel(int numOfModels, Instances dataSet, Random rand, boolean useSamplingWithReplacement, 
 				int BagSizePercent, double samplingPercentage, int numLabels, NewCC[] ensemble, 
-				MultiLabelInstances trainingSet, Classifier baseClassifier, int i){
+				MultiLabelInstances trainingSet, Classifier baseClassifier, int i, boolean useLinearScorer,
+				boolean useDependencyOrdering, double chainPerturbation){
 			this.numOfModels = numOfModels;
 			this.dataSet = dataSet;
 			this.rand = rand;
@@ -153,6 +189,11 @@ public class PECC extends ECC {
 			this.trainingSet = trainingSet;
 			this.baseClassifier = baseClassifier;
 			this.i = i;
+			this.queueEvent = new QueueWaitEvent();
+			this.queueEvent.begin();
+			this.useLinearScorer = useLinearScorer;
+			this.useDependencyOrdering = useDependencyOrdering;
+			this.chainPerturbation = chainPerturbation;
 		}
 		
 		/**
@@ -161,7 +202,12 @@ public class PECC extends ECC {
 		 * It has not critical code.
 		 */
 		public void run() {
+			queueEvent.member = i;
+			queueEvent.commit();
+			BuildEvent.setMember(i);
 			try {
+	            DatasetCopyEvent copyEvent = new DatasetCopyEvent();
+	            copyEvent.begin();
 	            Instances sampledDataSet;
 	            dataSet.randomize(rand);
 	            if (useSamplingWithReplacement) {
@@ -179,7 +225,10 @@ public class PECC extends ECC {
 	                sampledDataSet = Filter.useFilter(dataSet, rmvp);
 	            }
 	            MultiLabelInstances train = new MultiLabelInstances(sampledDataSet, trainingSet.getLabelsMetaData());
+	            copyEvent.commit();
 
+	            MemberBuildEvent buildEvent = new MemberBuildEvent();
+	            buildEvent.begin();
 	            int[] chain = new int[numLabels];
 	            for (int j = 0; j < numLabels; j++) {
 	                chain[j] = j;
@@ -192,10 +241,21 @@ public class PECC extends ECC {
 	            }
 
 	            ensemble[i] = new NewCC(baseClassifier, chain);
+	            ensemble[i].setUseLinearScorer(useLinearScorer);
+	            ensemble[i].setUseDependencyOrdering(useDependencyOrdering);
+	            if (useDependencyOrdering) {
+	                //Each member perturbs the dependence differently, so members do not share the same greedy chain
+	                ensemble[i].setChainPerturbation(chainPerturbation);
+	                ensemble[i].setSeed(rand.nextLong());
+	            }
 	            ensemble[i].build(train);
+	            buildEvent.commit();
 			}catch(Exception e) {
 			e.printStackTrace();	
 			}
+			finally {
+				BuildEvent.clearMember();
+			}
 		}
 	}
 }
\ No newline at end of file
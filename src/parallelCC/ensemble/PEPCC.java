@@ -16,12 +16,17 @@
 package parallelCC.ensemble;
 
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import mulan.data.MultiLabelInstances;
 import parallelCC.ParallelCC;
+import parallelCC.events.BuildEvent;
+import parallelCC.events.DatasetCopyEvent;
+import parallelCC.events.MemberBuildEvent;
+import parallelCC.events.QueueWaitEvent;
+import parallelCC.metrics.BuildProgress;
+import parallelCC.metrics.InstrumentedThreadPool;
+import parallelCC.metrics.PoolMetrics;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instances;
@@ -71,16 +76,14 @@ public class PEPCC extends EPCC {
         Instances dataSet = new Instances(trainingSet.getDataSet());
 
         //Set number of threads
-        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        InstrumentedThreadPool executorService = new InstrumentedThreadPool(numThreads);
         
         //Build each member in parallel
-        for (int i = 0; i < numOfModels; i++) {
+        BuildProgress.of(getClass().getSimpleName(), "members").submit(numOfModels, executorService, i -> {
             executorService.execute(new BuildEnsembleParallel(numOfModels, dataSet, rand, useSamplingWithReplacement, 
             		BagSizePercent,  samplingPercentage, numLabels, ensemble, trainingSet, baseClassifier, i, 
-            		numThreads));
-        }
-        
-        executorService.shutdown();
+            		numThreads, useLinearScorer, useDependencyOrdering, chainPerturbation));
+        });
         
         try {
 			//Wait until all threads finish
@@ -88,10 +91,27 @@ public class PEPCC extends EPCC {
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+        poolMetrics = executorService.snapshot();
 
         timeBuild = System.currentTimeMillis() - time_init;
     }
     
+    @Override
+    protected int memberThreads() {
+    	return numThreads;
+    }
+    
+    /**
+     * Get the metrics of the thread pool of the last building, where each task builds a member of the ensemble.
+     * The pools of the members, which build the labels of each chain, are given by getMemberPoolMetrics().
+     * 
+     * @return Metrics of the pool, or null if the model has not been built in this JVM
+     */
+    @Override
+    public PoolMetrics getPoolMetrics() {
+    	return poolMetrics;
+    }
+    
     /**
      * Class that extends Thread, for code that is executed in parallel
      * 
@@ -121,14 +141,26 @@ public class PEPCC extends EPCC {
     	
     	int i;
     	
+    	/**
+    	 * Event with the time the task waits in the queue of the pool, since it is created
+    	 */
+    	QueueWaitEvent queueEvent;
+    	
     	int numThreads;
     	
+    	boolean useLinearScorer;
+    	
+    	boolean useDependencyOrdering;
+    	
+    	double chainPerturbation;
+    	
 		/**
 		 * Constructor
 		 */
 		BuildEnsembleParallel(int numOfModels, Instances dataSet, Random rand, boolean useSamplingWithReplacement, 
 				int BagSizePercent, double samplingPercentage, int numLabels, ParallelCC[] ensemble, 
-				MultiLabelInstances trainingSet, Classifier baseClassifier, int i, int numThreads){
+				MultiLabelInstances trainingSet, Classifier baseClassifier, int i, int numThreads, 
+				boolean useLinearScorer, boolean useDependencyOrdering, double chainPerturbation){
 			this.numOfModels = numOfModels;
 			this.dataSet = dataSet;
 			this.rand = rand;
@@ -140,7 +172,12 @@ public class PEPCC extends EPCC {
 			this.trainingSet = trainingSet;
 			this.baseClassifier = baseClassifier;
 			this.i = i;
+			this.queueEvent = new QueueWaitEvent();
+			this.queueEvent.begin();
 			this.numThreads = numThreads;
+			this.useLinearScorer = useLinearScorer;
+			this.useDependencyOrdering = useDependencyOrdering;
+			this.chainPerturbation = chainPerturbation;
 		}
 		
 		/**
@@ -149,7 +186,12 @@ public class PEPCC extends EPCC {
 		 * It has not critical code.
 		 */
 		public void run() {
+			queueEvent.member = i;
+			queueEvent.commit();
+			BuildEvent.setMember(i);
 			try {
+	            DatasetCopyEvent copyEvent = new DatasetCopyEvent();
+	            copyEvent.begin();
 	            Instances sampledDataSet;
 	            dataSet.randomize(rand);
 	            if (useSamplingWithReplacement) {
@@ -167,7 +209,10 @@ public class PEPCC extends EPCC {
 	                sampledDataSet = Filter.useFilter(dataSet, rmvp);
 	            }
 	            MultiLabelInstances train = new MultiLabelInstances(sampledDataSet, trainingSet.getLabelsMetaData());
+	            copyEvent.commit();
 
+	            MemberBuildEvent buildEvent = new MemberBuildEvent();
+	            buildEvent.begin();
 	            int[] chain = new int[numLabels];
 	            for (int j = 0; j < numLabels; j++) {
 	                chain[j] = j;
@@ -182,10 +227,21 @@ public class PEPCC extends EPCC {
 	            //Further, each member of the ensemble is a PCC -> built in parallel
 	            ensemble[i] = new ParallelCC(baseClassifier, chain);
 	            ensemble[i].setNumThreads(numThreads);
+	            ensemble[i].setUseLinearScorer(useLinearScorer);
+	            ensemble[i].setUseDependencyOrdering(useDependencyOrdering);
+	            if (useDependencyOrdering) {
+	                //Each member perturbs the dependence differently, so members do not share the same greedy chain
+	                ensemble[i].setChainPerturbation(chainPerturbation);
+	                ensemble[i].setSeed(rand.nextLong());
+	            }
 	            ensemble[i].build(train);
+	            buildEvent.commit();
 			}catch(Exception e) {
 			e.printStackTrace();	
 			}
+			finally {
+				BuildEvent.clearMember();
+			}
 		}
 	}
 }
\ No newline at end of file
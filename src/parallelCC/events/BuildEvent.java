@@ -0,0 +1,73 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base of the Java Flight Recorder events emitted while building the learners, one event type for each phase.
+ * Events have almost no cost when no recording is running, so they are always emitted;
+ * 	to record them, start the JVM with -XX:StartFlightRecording (or start a recording with jcmd).
+ * Events of binary classifiers have the name of their label, and events emitted while building a member of an ensemble
+ * 	have the index of the member. The member is taken from the thread that creates the event; it is inherited by threads
+ * 	created while building the member (e.g., the threads of a PCC member).
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+@Category({"ParallelCC", "Build"})
+public abstract class BuildEvent extends Event {
+
+	/**
+	 * Member of the ensemble built by each thread
+	 */
+	private static final InheritableThreadLocal<Integer> MEMBER = new InheritableThreadLocal<Integer>();
+
+	@Label("Label")
+	@Description("Name of the label of the binary classifier")
+	public String label;
+
+	@Label("Member")
+	@Description("Index of the member of the ensemble, or -1 if it is not built by an ensemble")
+	public int member;
+
+	/**
+	 * Constructor; the member is the one that is being built by the current thread
+	 */
+	protected BuildEvent() {
+		Integer current = MEMBER.get();
+		member = (current == null) ? -1 : current;
+	}
+
+	/**
+	 * Set the member of the ensemble that is being built by the current thread (and threads it creates)
+	 *
+	 * @param member Index of the member
+	 */
+	public static void setMember(int member) {
+		MEMBER.set(member);
+	}
+
+	/**
+	 * Indicates that the current thread is no longer building a member of an ensemble
+	 */
+	public static void clearMember() {
+		MEMBER.remove();
+	}
+}
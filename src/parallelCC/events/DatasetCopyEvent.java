@@ -0,0 +1,32 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event with the time to copy (sample) the training dataset of a member of an ensemble.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+@Name("parallelCC.DatasetCopy")
+@Label("Dataset Copy")
+@Description("Sampling of the training dataset of a member of the ensemble")
+public class DatasetCopyEvent extends BuildEvent {
+}
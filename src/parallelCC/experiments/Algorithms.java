@@ -0,0 +1,202 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.experiments;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.classifier.transformation.BR;
+import mulan.classifier.transformation.ClassicCC;
+import mulan.classifier.transformation.EBR;
+import mulan.classifier.transformation.ECC;
+import parallelCC.NewCC;
+import parallelCC.ParallelCC;
+import parallelCC.ensemble.EPCC;
+import parallelCC.ensemble.PEBR;
+import parallelCC.ensemble.PECC;
+import parallelCC.ensemble.PEPCC;
+import weka.classifiers.trees.J48;
+
+/**
+ * Creates the algorithms by the names used in MainClass (BR, CC, PCC, EBR, PEBR, ECC, EPCC, PECC and PEPCC),
+ * 	with the same configuration.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class Algorithms {
+
+	/**
+	 * Names of the parallel algorithms
+	 */
+	public static final String [] PARALLEL = {"PCC", "PEBR", "EPCC", "PECC", "PEPCC"};
+
+	/**
+	 * Creates an algorithm
+	 *
+	 * @param algorithm Name of the algorithm
+	 * @param numThreads Number of threads; only used by parallel algorithms
+	 * @param seed Seed for random numbers
+	 * @param dependencyOrdering Indicates if CC methods use the dependency ordering of the chain
+	 * @return New learner, not built
+	 */
+	public static MultiLabelLearner create(String algorithm, int numThreads, int seed, boolean dependencyOrdering) {
+		if(algorithm.equalsIgnoreCase("BR")) {
+			return new BR(new J48());
+		}
+		else if(algorithm.equalsIgnoreCase("CC")) {
+			NewCC cc = new NewCC(new J48());
+			cc.setSeed(seed);
+			cc.setUseDependencyOrdering(dependencyOrdering);
+			return cc;
+		}
+		else if(algorithm.equalsIgnoreCase("PCC")) {
+			ParallelCC pcc = new ParallelCC(new J48());
+			pcc.setNumThreads(numThreads);
+			pcc.setSeed(seed);
+			pcc.setUseDependencyOrdering(dependencyOrdering);
+			return pcc;
+		}
+		else if(algorithm.equalsIgnoreCase("EBR")) {
+			EBR ebr = new EBR();
+			ebr.setSeed(seed);
+			return ebr;
+		}
+		else if(algorithm.equalsIgnoreCase("PEBR")) {
+			PEBR pebr = new PEBR();
+			pebr.setNumThreads(numThreads);
+			pebr.setSeed(seed);
+			return pebr;
+		}
+		else if(algorithm.equalsIgnoreCase("ECC")) {
+			ECC ecc = new ECC();
+			ecc.setSeed(seed);
+			ecc.setUseDependencyOrdering(dependencyOrdering);
+			return ecc;
+		}
+		else if(algorithm.equalsIgnoreCase("EPCC")) {
+			EPCC epcc = new EPCC();
+			epcc.setNumThreads(numThreads);
+			epcc.setSeed(seed);
+			epcc.setUseDependencyOrdering(dependencyOrdering);
+			return epcc;
+		}
+		else if(algorithm.equalsIgnoreCase("PECC")) {
+			PECC pecc = new PECC();
+			pecc.setNumThreads(numThreads);
+			pecc.setSeed(seed);
+			pecc.setUseDependencyOrdering(dependencyOrdering);
+			return pecc;
+		}
+		else if(algorithm.equalsIgnoreCase("PEPCC")) {
+			PEPCC pepcc = new PEPCC();
+			pepcc.setNumThreads(numThreads);
+			pepcc.setSeed(seed);
+			pepcc.setUseDependencyOrdering(dependencyOrdering);
+			return pepcc;
+		}
+		throw new IllegalArgumentException("Algorithm not defined: " + algorithm);
+	}
+
+	/**
+	 * Get the number of threads that an algorithm keeps busy while it is built
+	 *
+	 * @param algorithm Name of the algorithm
+	 * @param numThreads Number of threads of parallel algorithms
+	 * @return Number of threads; numThreads * numThreads for PEPCC, whose members are parallel chains built in parallel,
+	 * 	and 1 for sequential algorithms
+	 */
+	public static int threads(String algorithm, int numThreads) {
+		if(algorithm.equalsIgnoreCase("PEPCC")) {
+			return numThreads * numThreads;
+		}
+		return isParallel(algorithm) ? numThreads : 1;
+	}
+
+	/**
+	 * Get the name of an algorithm in the reports, as in MainClass (e.g., pCC_4_dep for PCC with 4 threads and dependency ordering)
+	 *
+	 * @param algorithm Name of the algorithm
+	 * @param numThreads Number of threads of parallel algorithms
+	 * @param dependencyOrdering Indicates if CC methods use the dependency ordering of the chain
+	 * @return Name in the reports
+	 */
+	public static String reportName(String algorithm, int numThreads, boolean dependencyOrdering) {
+		String name = algorithm.equalsIgnoreCase("PCC") ? "pCC" : algorithm.toUpperCase();
+		if(isParallel(algorithm)) {
+			name += "_" + numThreads;
+		}
+		if(dependencyOrdering && !algorithm.toUpperCase().endsWith("BR")) {
+			name += "_dep";
+		}
+		return name;
+	}
+
+	/**
+	 * Get the building time of a learner created by create()
+	 *
+	 * @param learner Built learner
+	 * @return Building time (ms), or -1 if the learner does not measure it
+	 */
+	public static long buildingTime(MultiLabelLearner learner) {
+		if(learner instanceof BR) {
+			return ((BR) learner).getBuildingTime();
+		}
+		else if(learner instanceof ClassicCC) {
+			return ((ClassicCC) learner).getBuildingTime();
+		}
+		else if(learner instanceof EBR) {
+			return ((EBR) learner).getBuildingTime();
+		}
+		else if(learner instanceof ECC) {
+			return ((ECC) learner).getBuildingTime();
+		}
+		return -1;
+	}
+
+	/**
+	 * Indicates if an algorithm is parallel
+	 *
+	 * @param algorithm Name of the algorithm
+	 * @return True if it uses several threads
+	 */
+	public static boolean isParallel(String algorithm) {
+		for(String name : PARALLEL) {
+			if(name.equalsIgnoreCase(algorithm)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the sequential counterpart of a parallel algorithm, i.e., the algorithm it speeds up
+	 *
+	 * @param algorithm Name of the algorithm
+	 * @return Name of the sequential algorithm (CC for PCC, EBR for PEBR, ECC for the ensembles of chains),
+	 * 	or the same name if it is not parallel
+	 */
+	public static String sequentialCounterpart(String algorithm) {
+		if(algorithm.equalsIgnoreCase("PCC")) {
+			return "CC";
+		}
+		else if(algorithm.equalsIgnoreCase("PEBR")) {
+			return "EBR";
+		}
+		else if(algorithm.equalsIgnoreCase("EPCC") || algorithm.equalsIgnoreCase("PECC") || algorithm.equalsIgnoreCase("PEPCC")) {
+			return "ECC";
+		}
+		return algorithm.toUpperCase();
+	}
+}
@@ -0,0 +1,578 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.experiments;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.data.MultiLabelInstances;
+import mulan.evaluation.Evaluation;
+import mulan.evaluation.Evaluator;
+import mulan.evaluation.measure.Measure;
+import parallelCC.data.DatasetCache;
+import parallelCC.data.ParallelArffReader;
+import parallelCC.inference.ModelFile;
+import parallelCC.metrics.MetricsRegistry;
+import parallelCC.metrics.ResourceUsage;
+
+/**
+ * Runs the experiments of MainClass (each algorithm built and evaluated with several seeds on several datasets)
+ * 	as concurrent jobs, one for each dataset, algorithm and seed, within a budget of cores.
+ * Each job takes from the budget as many cores as threads its algorithm keeps busy (see Algorithms.threads),
+ * 	or the whole budget if it needs more. Jobs start in the order of the report, when there are enough free cores;
+ * 	a job waits for the previous ones to start, so jobs with many threads are not delayed by the small ones.
+ * Datasets are loaded by the first job that needs them, shared by all the jobs of the dataset (algorithms do not modify
+ * 	their training data), and released when all of them finish.
+ * Results are written through a ResultSink, so the report is the same as if the jobs were run one after another.
+ * The header of each dataset is an entry of the sink on its own, written once the dataset is loaded, so it is written
+ * 	even if the job that loaded the dataset fails.
+ * If a job fails, no more jobs are started and the error is thrown once the running jobs finish.
+ * The resources used by each job (see ResourceUsage) are measured for the whole JVM, so they are only reported for jobs
+ * 	that take the whole budget, which run alone; for the other jobs, only the elapsed times are reported.
+ * Runs can be resumed: with an index (see RunIndex), jobs whose results are already in the report are not run again,
+ * 	and each job is added to the index once its results are written; the header of a dataset is not written again
+ * 	if some of its results are in the report. Further, trained models can be kept in a directory
+ * 	(see ModelFile); the model of a job is then loaded instead of built if it exists, e.g., to evaluate new measures
+ * 	without training again. Models of EBR and PEBR are not supported by ModelFile, so they are always built.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class ExperimentRunner {
+
+	/**
+	 * Writes the results of the jobs in the report
+	 */
+	public interface Reporter {
+
+		/**
+		 * Creates the evaluation measures of a job; each job needs its own measures
+		 *
+		 * @param trainData Training dataset
+		 * @return List of measures
+		 */
+		List<Measure> measures(MultiLabelInstances trainData);
+
+		/**
+		 * Writes the header of the results of a dataset, before the results of its first job
+		 *
+		 * @param pw Writer
+		 * @param measures Measures of the job
+		 * @param trainData Training dataset
+		 * @throws Exception if the header cannot be written
+		 */
+		void header(PrintWriter pw, List<Measure> measures, MultiLabelInstances trainData) throws Exception;
+
+		/**
+		 * Writes the results of a job
+		 *
+		 * @param pw Writer
+		 * @param job Job
+		 * @param learner Built learner
+		 * @param results Evaluation of the learner
+		 * @param runtime Time to build and evaluate the learner (ms)
+		 * @param buildTime Building time of the learner (ms), or -1 if it was loaded from a model file
+		 * @param load Resources used to load the datasets
+		 * @param build Resources used to build the learner
+		 * @param evaluation Resources used to evaluate the learner
+		 * @throws Exception if the results cannot be written
+		 */
+		void results(PrintWriter pw, Job job, MultiLabelLearner learner, Evaluation results, long runtime, long buildTime,
+				ResourceUsage load, ResourceUsage build, ResourceUsage evaluation) throws Exception;
+	}
+
+	/**
+	 * Building and evaluation of an algorithm with a seed on a dataset
+	 */
+	public static class Job {
+
+		/**
+		 * Position of the job in the report, and position of the header of its dataset
+		 */
+		public final int index, header;
+
+		/**
+		 * Index of the dataset, and paths of its train, test and XML files
+		 */
+		public final int dataset;
+		public final String [] files;
+
+		/**
+		 * Name of the algorithm (see Algorithms), and its name in the report
+		 */
+		public final String algorithm, name;
+
+		/**
+		 * Index of the seed; the learner uses (seed+1)*10, as in MainClass
+		 */
+		public final int seed;
+
+		/**
+		 * Number of threads of the algorithm (1 for sequential algorithms), and number of threads kept busy by the job
+		 */
+		public final int numThreads, threads;
+
+		Job(int index, int header, int dataset, String [] files, String algorithm, String name, int seed, int numThreads, int threads) {
+			this.index = index;
+			this.header = header;
+			this.dataset = dataset;
+			this.files = files;
+			this.algorithm = algorithm;
+			this.name = name;
+			this.seed = seed;
+			this.numThreads = numThreads;
+			this.threads = threads;
+		}
+	}
+
+	/**
+	 * Dataset shared by the jobs
+	 */
+	static class SharedDataset {
+		final String [] files;
+		MultiLabelInstances trainData, testData;
+		ResourceUsage load;
+
+		/**
+		 * Position of the header of the dataset in the report, and whether it has been given to the sink
+		 */
+		int header;
+		boolean headerDone;
+
+		/**
+		 * Number of jobs of the dataset that have not finished
+		 */
+		int remaining;
+
+		SharedDataset(String [] files) {
+			this.files = files;
+		}
+	}
+
+	/**
+	 * Algorithms to run
+	 */
+	final String [] algorithms;
+
+	/**
+	 * Number of seeds, and number of threads of parallel algorithms
+	 */
+	final int numSeeds, numThreads;
+
+	/**
+	 * Number of cores for all the jobs
+	 */
+	final int budget;
+
+	/**
+	 * Indicates if CC methods use the dependency ordering of the chain
+	 */
+	boolean dependencyOrdering = false;
+
+	/**
+	 * Indicates if datasets are loaded with the binary cache (see DatasetCache) or parsed in parallel (see ParallelArffReader)
+	 */
+	boolean useCache = false, parallelParser = false;
+
+	/**
+	 * Index of the completed jobs, or null to run all the jobs
+	 */
+	RunIndex index = null;
+
+	/**
+	 * Directory of the trained models, or null to not keep them
+	 */
+	File modelDirectory = null;
+
+	/**
+	 * Constructor
+	 *
+	 * @param algorithms Names of the algorithms (see Algorithms)
+	 * @param numSeeds Number of seeds
+	 * @param numThreads Number of threads of parallel algorithms
+	 * @param budget Number of cores for all the jobs; if 0, all available cores
+	 */
+	public ExperimentRunner(String [] algorithms, int numSeeds, int numThreads, int budget) {
+		for(String algorithm : algorithms) {
+			//Fails for unknown algorithms
+			Algorithms.create(algorithm, numThreads, 10, false);
+		}
+		this.algorithms = algorithms.clone();
+		this.numSeeds = numSeeds;
+		this.numThreads = numThreads;
+		this.budget = (budget < 1) ? Runtime.getRuntime().availableProcessors() : budget;
+	}
+
+	/**
+	 * Set if CC methods use the dependency ordering of the chain
+	 *
+	 * @param dependencyOrdering True to use the dependency ordering
+	 */
+	public void setUseDependencyOrdering(boolean dependencyOrdering) {
+		this.dependencyOrdering = dependencyOrdering;
+	}
+
+	/**
+	 * Set if datasets are loaded with the binary cache
+	 *
+	 * @param useCache True to use the binary cache
+	 */
+	public void setUseCache(boolean useCache) {
+		this.useCache = useCache;
+	}
+
+	/**
+	 * Set if ARFF files are parsed in parallel
+	 *
+	 * @param parallelParser True to parse them in parallel
+	 */
+	public void setParallelParser(boolean parallelParser) {
+		this.parallelParser = parallelParser;
+	}
+
+	/**
+	 * Set the index of completed jobs, so they are not run again
+	 *
+	 * @param index Index, or null to run all the jobs
+	 */
+	public void setIndex(RunIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * Set the directory where trained models are kept and loaded from
+	 *
+	 * @param modelDirectory Existing directory, or null to not keep the models
+	 */
+	public void setModelDirectory(File modelDirectory) {
+		this.modelDirectory = modelDirectory;
+	}
+
+	/**
+	 * Get the number of cores for all the jobs
+	 *
+	 * @return Number of cores
+	 */
+	public int getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Get the jobs of some datasets, in the order of the report: by dataset, algorithm and seed.
+	 * Each dataset takes a position for its header before its first job, unless the index has some of its results.
+	 * Jobs that are completed in the index are not included.
+	 *
+	 * @param datasets Datasets, each of them given by the paths of its train, test and XML files
+	 * @return List of jobs
+	 */
+	public List<Job> jobs(List<String []> datasets) {
+		List<Job> jobs = new ArrayList<Job>();
+		int positions = 0;
+		for(int d=0; d<datasets.size(); d++) {
+			int header = -1;
+			boolean hasHeader = index != null && index.hasDataset(datasets.get(d)[0]);
+			for(String algorithm : algorithms) {
+				String name = Algorithms.reportName(algorithm, numThreads, dependencyOrdering);
+				int algorithmThreads = Algorithms.isParallel(algorithm) ? numThreads : 1;
+				int threads = Algorithms.threads(algorithm, numThreads);
+				for(int s=0; s<numSeeds; s++) {
+					if(index != null && index.isDone(datasets.get(d)[0], name, s, algorithmThreads)) {
+						continue;
+					}
+					if(header < 0 && !hasHeader) {
+						header = positions++;
+					}
+					jobs.add(new Job(positions++, header, d, datasets.get(d), algorithm, name, s, algorithmThreads, threads));
+				}
+			}
+		}
+		return jobs;
+	}
+
+	/**
+	 * Runs all the jobs of some datasets
+	 *
+	 * @param datasets Datasets, each of them given by the paths of its train, test and XML files
+	 * @param pw Writer of the report
+	 * @param reporter Writer of the results of the jobs
+	 * @throws Exception if a dataset cannot be read or an algorithm fails
+	 */
+	public void run(List<String []> datasets, PrintWriter pw, Reporter reporter) throws Exception {
+		run(datasets, pw, null, reporter);
+	}
+
+	/**
+	 * Runs all the jobs of some datasets, syncing the report to disk before each job is added to the index
+	 *
+	 * @param datasets Datasets, each of them given by the paths of its train, test and XML files
+	 * @param pw Writer of the report
+	 * @param fd Descriptor of the file of the report; it may be null
+	 * @param reporter Writer of the results of the jobs
+	 * @throws Exception if a dataset cannot be read or an algorithm fails
+	 */
+	public void run(List<String []> datasets, PrintWriter pw, FileDescriptor fd, Reporter reporter) throws Exception {
+		final Map<Integer, Job> jobs = new HashMap<Integer, Job>();
+		List<Job> list = jobs(datasets);
+		for(Job job : list) {
+			jobs.put(job.index, job);
+		}
+		ResultSink sink = new ResultSink(pw, fd, 0) {
+			@Override
+			protected void written(int position) {
+				Job j = jobs.get(position);
+				if(index != null && j != null) {
+					try {
+						index.add(j.files[0], j.name, j.seed, j.numThreads);
+					} catch (IOException e) {
+						//The job is run again if the run is resumed
+						e.printStackTrace();
+					}
+				}
+			}
+		};
+		run(list, sink, reporter);
+	}
+
+	/**
+	 * Runs some jobs
+	 *
+	 * @param jobs Jobs, in the order of the report
+	 * @param sink Sink of the results, whose first position is the first of the list (the header of its dataset)
+	 * @param reporter Writer of the results of the jobs
+	 * @throws Exception if a dataset cannot be read or an algorithm fails
+	 */
+	void run(List<Job> jobs, final ResultSink sink, final Reporter reporter) throws Exception {
+		final List<SharedDataset> shared = new ArrayList<SharedDataset>();
+		for(Job job : jobs) {
+			while(shared.size() <= job.dataset) {
+				shared.add(null);
+			}
+			if(shared.get(job.dataset) == null) {
+				shared.set(job.dataset, new SharedDataset(job.files));
+				shared.get(job.dataset).header = job.header;
+			}
+			shared.get(job.dataset).remaining++;
+		}
+
+		final Semaphore cores = new Semaphore(budget, true);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+			final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				return new Thread(r, "experiment-job-" + count.incrementAndGet());
+			}
+		});
+
+		try {
+			for(final Job job : jobs) {
+				final int permits = Math.min(job.threads, budget);
+				cores.acquire(permits);
+				if(failure.get() != null) {
+					cores.release(permits);
+					break;
+				}
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						SharedDataset dataset = shared.get(job.dataset);
+						try {
+							sink.put(job.index, runJob(job, dataset, sink, reporter));
+						} catch (Throwable t) {
+							failure.compareAndSet(null, t);
+							sink.skip(job.index);
+						} finally {
+							release(dataset);
+							cores.release(permits);
+						}
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+
+		Throwable t = failure.get();
+		if(t instanceof Exception) {
+			throw (Exception) t;
+		}
+		else if(t != null) {
+			throw new Exception(t);
+		}
+	}
+
+	/**
+	 * Builds and evaluates the learner of a job
+	 *
+	 * @param job Job
+	 * @param dataset Dataset of the job
+	 * @param sink Sink of the results, where the header of the dataset is given when it is loaded
+	 * @param reporter Writer of the results
+	 * @return Text of the results in the report
+	 * @throws Exception if the dataset cannot be read or the algorithm fails
+	 */
+	String runJob(Job job, SharedDataset dataset, ResultSink sink, Reporter reporter) throws Exception {
+		//Jobs that take the whole budget run alone; the other ones may run with other jobs
+		boolean exclusive = job.threads >= budget;
+		acquire(dataset, exclusive, sink, reporter);
+		List<Measure> measures = reporter.measures(dataset.trainData);
+		StringWriter text = new StringWriter();
+		PrintWriter pw = new PrintWriter(text);
+
+		long init_time = System.currentTimeMillis();
+		ResourceUsage buildUsage = ResourceUsage.begin(exclusive);
+		MultiLabelLearner learner;
+		long buildTime;
+		File modelFile = modelFile(job);
+		if(modelFile != null && modelFile.exists()) {
+			learner = ModelFile.read(modelFile, numThreads);
+			buildTime = -1;
+		}
+		else {
+			learner = Algorithms.create(job.algorithm, numThreads, (job.seed+1)*10, dependencyOrdering);
+			learner.build(dataset.trainData);
+			buildTime = Algorithms.buildingTime(learner);
+			if(modelFile != null) {
+				ModelFile.write(learner, modelFile);
+			}
+		}
+		buildUsage.end();
+		ResourceUsage evaluationUsage = ResourceUsage.begin(exclusive);
+		Evaluation results = new Evaluator().evaluate(learner, dataset.testData, measures);
+		evaluationUsage.end();
+		MetricsRegistry.recordPredictions("evaluation", dataset.testData.getNumInstances());
+		long end_time = System.currentTimeMillis();
+
+		reporter.results(pw, job, learner, results, end_time - init_time, buildTime, dataset.load, buildUsage, evaluationUsage);
+		pw.flush();
+		return text.toString();
+	}
+
+	/**
+	 * Get the file of the trained model of a job
+	 *
+	 * @param job Job
+	 * @return Model file, or null if models are not kept or the algorithm is not supported by ModelFile
+	 */
+	File modelFile(Job job) {
+		if(modelDirectory == null || job.algorithm.toUpperCase().endsWith("EBR")) {
+			return null;
+		}
+		//The hash of the path distinguishes datasets with the same name in different directories (e.g., folds)
+		String dataset = ScalingSweep.datasetName(job.files[0]) + "_" + Integer.toHexString(job.files[0].hashCode());
+		return new File(modelDirectory, dataset + "_" + job.name + "_" + job.seed + ".pccm");
+	}
+
+	/**
+	 * Loads a dataset if it is not loaded yet, and gives its header to the sink the first time it is loaded.
+	 * If the dataset cannot be read the first time, its header is skipped.
+	 *
+	 * @param dataset Dataset
+	 * @param exclusive True if no other job runs at the same time (see ResourceUsage.begin(boolean))
+	 * @param sink Sink of the results
+	 * @param reporter Writer of the header
+	 * @throws Exception if the dataset cannot be read or the header cannot be written
+	 */
+	void acquire(SharedDataset dataset, boolean exclusive, ResultSink sink, Reporter reporter) throws Exception {
+		synchronized(dataset) {
+			try {
+				load(dataset, exclusive);
+				if(!dataset.headerDone && dataset.header >= 0) {
+					StringWriter text = new StringWriter();
+					PrintWriter pw = new PrintWriter(text);
+					reporter.header(pw, reporter.measures(dataset.trainData), dataset.trainData);
+					pw.flush();
+					dataset.headerDone = true;
+					sink.put(dataset.header, text.toString());
+				}
+			} finally {
+				if(!dataset.headerDone && dataset.header >= 0) {
+					dataset.headerDone = true;
+					sink.skip(dataset.header);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads a dataset if it is not loaded yet
+	 *
+	 * @param dataset Dataset
+	 * @param exclusive True if no other job runs at the same time (see ResourceUsage.begin(boolean))
+	 * @throws Exception if the dataset cannot be read
+	 */
+	void load(SharedDataset dataset, boolean exclusive) throws Exception {
+		synchronized(dataset) {
+			if(dataset.trainData == null) {
+				ResourceUsage load = ResourceUsage.begin(exclusive);
+				dataset.trainData = load(dataset.files[0], dataset.files[2], numThreads);
+				dataset.testData = load(dataset.files[1], dataset.files[2], numThreads);
+				dataset.load = load.end();
+			}
+		}
+	}
+
+	/**
+	 * Indicates that a job of a dataset has finished, and releases the dataset after the last one
+	 *
+	 * @param dataset Dataset
+	 */
+	void release(SharedDataset dataset) {
+		synchronized(dataset) {
+			dataset.remaining--;
+			if(dataset.remaining == 0) {
+				dataset.trainData = null;
+				dataset.testData = null;
+			}
+		}
+	}
+
+	/**
+	 * Loads a dataset as MainClass does
+	 *
+	 * @param arffFilename Path of the ARFF file
+	 * @param xmlFilename Path of the XML file
+	 * @param threads Number of threads to load it
+	 * @return Dataset
+	 * @throws Exception if the dataset cannot be read
+	 */
+	MultiLabelInstances load(String arffFilename, String xmlFilename, int threads) throws Exception {
+		if(useCache) {
+			return DatasetCache.load(arffFilename, xmlFilename, threads);
+		}
+		else if(parallelParser) {
+			return ParallelArffReader.load(arffFilename, xmlFilename, threads);
+		}
+		return new MultiLabelInstances(arffFilename, xmlFilename);
+	}
+}
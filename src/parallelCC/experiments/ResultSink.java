@@ -0,0 +1,150 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.experiments;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread-safe writer of the results of numbered jobs, that writes them in the order of the jobs whatever order they finish in,
+ * 	so the report is the same as if the jobs were run one after another.
+ * Results that arrive before the ones of previous jobs are kept until those are written.
+ * Each job must give its result (put) or be skipped (skip), or the results of the next jobs are never written.
+ * Subclasses are told when the result of each job has been written (see written()), e.g., to record it in a RunIndex;
+ * 	if the descriptor of the report is given, results are synced to disk before.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class ResultSink {
+
+	/**
+	 * Writer of the report
+	 */
+	final PrintWriter pw;
+
+	/**
+	 * Descriptor of the file of the report, synced after each write, or null to only flush the writer
+	 */
+	final FileDescriptor fd;
+
+	/**
+	 * Number of the next job to write
+	 */
+	int next;
+
+	/**
+	 * Results waiting for the ones of previous jobs; null values are skipped jobs
+	 */
+	final Map<Integer, String> pending = new HashMap<Integer, String>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param pw Writer of the report
+	 * @param first Number of the first job
+	 */
+	public ResultSink(PrintWriter pw, int first) {
+		this(pw, null, first);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pw Writer of the report
+	 * @param fd Descriptor of the file the writer writes to, synced after each write; it may be null
+	 * @param first Number of the first job
+	 */
+	public ResultSink(PrintWriter pw, FileDescriptor fd, int first) {
+		this.pw = pw;
+		this.fd = fd;
+		this.next = first;
+	}
+
+	/**
+	 * Gives the result of a job
+	 *
+	 * @param job Number of the job
+	 * @param text Text of the result, written as it is
+	 */
+	public synchronized void put(int job, String text) {
+		pending.put(job, text);
+		drain();
+	}
+
+	/**
+	 * Indicates that a job has no result (e.g., it failed)
+	 *
+	 * @param job Number of the job
+	 */
+	public synchronized void skip(int job) {
+		pending.put(job, null);
+		drain();
+	}
+
+	/**
+	 * Get the number of results waiting for the ones of previous jobs
+	 *
+	 * @return Number of results
+	 */
+	public synchronized int getPending() {
+		return pending.size();
+	}
+
+	/**
+	 * Writes the results of the jobs that are next in order
+	 */
+	void drain() {
+		List<Integer> written = new ArrayList<Integer>();
+		while(pending.containsKey(next)) {
+			String text = pending.remove(next);
+			if(text != null) {
+				pw.print(text);
+				written.add(next);
+			}
+			next++;
+		}
+		if(!written.isEmpty()) {
+			pw.flush();
+			if(fd != null) {
+				try {
+					fd.sync();
+				} catch (IOException e) {
+					//The results are not known to be on disk, so they are not reported as written
+					e.printStackTrace();
+					return;
+				}
+			}
+			for(int job : written) {
+				written(job);
+			}
+		}
+	}
+
+	/**
+	 * Called when the result of a job has been written and flushed (and synced, if the descriptor is given), in the order of the jobs;
+	 * 	by default, it does nothing
+	 *
+	 * @param job Number of the job
+	 */
+	protected void written(int job) {
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.experiments;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Durable index of the experiments whose results are in a report, used to resume runs that were interrupted
+ * 	(see ExperimentRunner). Each completed cell (dataset, algorithm, seed and number of threads) is a line of a text file,
+ * 	appended and synced to disk once its results have been written and synced in the report (see ResultSink),
+ * 	so a run can be killed at any time, even by a crash of the system.
+ * Each line ends with a mark, so a line cut by a crash is ignored and its cell is run again.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class RunIndex {
+
+	/**
+	 * Mark at the end of each complete line
+	 */
+	static final String END = "done";
+
+	/**
+	 * Number of fields of a line: dataset, algorithm, seed, threads and mark
+	 */
+	static final int FIELDS = 5;
+
+	/**
+	 * File of the index
+	 */
+	final File file;
+
+	/**
+	 * Keys of the completed cells, and datasets with some completed cell
+	 */
+	final Set<String> done = new HashSet<String>();
+	final Set<String> datasets = new HashSet<String>();
+
+	/**
+	 * Stream where completed cells are appended
+	 */
+	FileOutputStream out;
+
+	/**
+	 * Constructor; use open()
+	 *
+	 * @param file File of the index
+	 */
+	RunIndex(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Opens an index, reading the cells completed in previous runs
+	 *
+	 * @param file File of the index; it is created if it does not exist
+	 * @param reset Indicates if the cells of previous runs are discarded (e.g., if the report does not exist anymore)
+	 * @return Index
+	 * @throws IOException if the file cannot be read or written
+	 */
+	public static RunIndex open(File file, boolean reset) throws IOException {
+		RunIndex index = new RunIndex(file);
+		if(file.exists() && !reset) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+			try {
+				String line;
+				while((line = reader.readLine()) != null) {
+					String [] fields = line.split("\t");
+					if(fields.length == FIELDS && fields[FIELDS - 1].equals(END)) {
+						index.done.add(line);
+						index.datasets.add(fields[0]);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+
+			//A line cut by a crash is finished, so the next cell is written in its own line
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				if(raf.length() > 0) {
+					raf.seek(raf.length() - 1);
+					if(raf.read() != '\n') {
+						raf.write('\n');
+					}
+				}
+			} finally {
+				raf.close();
+			}
+		}
+		index.out = new FileOutputStream(file, !reset);
+		return index;
+	}
+
+	/**
+	 * Get the key of a cell, which is its line in the file
+	 *
+	 * @param dataset Path of the train file of the dataset
+	 * @param algorithm Name of the algorithm in the report
+	 * @param seed Index of the seed
+	 * @param numThreads Number of threads of the algorithm
+	 * @return Key
+	 */
+	static String key(String dataset, String algorithm, int seed, int numThreads) {
+		return dataset + "\t" + algorithm + "\t" + seed + "\t" + numThreads + "\t" + END;
+	}
+
+	/**
+	 * Indicates if a cell has been completed
+	 *
+	 * @param dataset Path of the train file of the dataset
+	 * @param algorithm Name of the algorithm in the report
+	 * @param seed Index of the seed
+	 * @param numThreads Number of threads of the algorithm
+	 * @return True if its results are in the report
+	 */
+	public synchronized boolean isDone(String dataset, String algorithm, int seed, int numThreads) {
+		return done.contains(key(dataset, algorithm, seed, numThreads));
+	}
+
+	/**
+	 * Indicates if some cell of a dataset has been completed, so the header of its results is already in the report
+	 *
+	 * @param dataset Path of the train file of the dataset
+	 * @return True if some results of the dataset are in the report
+	 */
+	public synchronized boolean hasDataset(String dataset) {
+		return datasets.contains(dataset);
+	}
+
+	/**
+	 * Adds a completed cell, once its results have been written in the report
+	 *
+	 * @param dataset Path of the train file of the dataset
+	 * @param algorithm Name of the algorithm in the report
+	 * @param seed Index of the seed
+	 * @param numThreads Number of threads of the algorithm
+	 * @throws IOException if the index cannot be written
+	 */
+	public synchronized void add(String dataset, String algorithm, int seed, int numThreads) throws IOException {
+		String key = key(dataset, algorithm, seed, numThreads);
+		out.write((key + "\n").getBytes(StandardCharsets.UTF_8));
+		out.getFD().sync();
+		done.add(key);
+		datasets.add(dataset);
+	}
+
+	/**
+	 * Get the number of completed cells
+	 *
+	 * @return Number of cells
+	 */
+	public synchronized int size() {
+		return done.size();
+	}
+
+	/**
+	 * Closes the index
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+}
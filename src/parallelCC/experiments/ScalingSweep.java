@@ -0,0 +1,689 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.experiments;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.data.MultiLabelInstances;
+import parallelCC.data.DatasetCache;
+import parallelCC.data.LabelMatrix;
+import parallelCC.inference.PredictionMatrix;
+import weka.core.Instances;
+
+/**
+ * Sweeps the number of threads of the parallel algorithms over several datasets, comparing them with their
+ * 	sequential counterparts (CC for PCC, EBR for PEBR and ECC for EPCC, PECC and PEPCC; see Algorithms).
+ * Two kinds of scaling are measured:
+ * 	<ul>
+ * 		<li>Strong scaling: the whole training dataset is used with any number of threads.</li>
+ * 		<li>Weak scaling: the training dataset grows with the number of threads; with t threads, a random subset with
+ * 			t/T of the training instances is used, being T the maximum number of threads.</li>
+ * 	</ul>
+ * Each configuration is built some times to warm up the JVM, and then several times with different seeds
+ * 	(the same seeds for all algorithms); the median building time is reported, and the evaluation measures are averaged.
+ * For each parallel algorithm and number of threads, it reports the speedup over the sequential counterpart with the same data,
+ * 	the parallel efficiency, the Karp-Flatt estimate of the serial fraction, and the difference of the evaluation measures.
+ * For strong scaling, the serial fraction of Amdahl's law is also fitted over all the numbers of threads.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class ScalingSweep {
+
+	/**
+	 * Kind of scaling
+	 */
+	public enum Mode {STRONG, WEAK}
+
+	/**
+	 * Evaluation measures whose differences with the sequential counterpart are reported
+	 */
+	public static final String [] MEASURES = {"Hamming Loss", "Subset Accuracy", "Example-Based F Measure",
+			"Micro-averaged F-Measure", "Macro-averaged F-Measure"};
+
+	/**
+	 * Colors of the algorithms in the charts
+	 */
+	static final String [] COLORS = {"#1f77b4", "#d62728", "#2ca02c", "#ff7f0e", "#9467bd", "#8c564b", "#e377c2", "#17becf"};
+
+	/**
+	 * Parallel algorithms
+	 */
+	String [] algorithms = Algorithms.PARALLEL.clone();
+
+	/**
+	 * Numbers of threads, in ascending order
+	 */
+	int [] threads;
+
+	/**
+	 * Kinds of scaling
+	 */
+	Mode [] modes = {Mode.STRONG};
+
+	/**
+	 * Number of runs to warm up each configuration, and number of measured runs
+	 */
+	int warmup = 1, repetitions = 3;
+
+	/**
+	 * Indicates if CC methods use the dependency ordering of the chain
+	 */
+	boolean dependencyOrdering = false;
+
+	/**
+	 * Indicates if datasets are loaded with the binary cache (see DatasetCache)
+	 */
+	boolean useCache = false;
+
+	/**
+	 * Constructor; by default, numbers of threads are the powers of two up to the available processors
+	 */
+	public ScalingSweep() {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		for(int t=1; t<=Runtime.getRuntime().availableProcessors(); t*=2) {
+			list.add(t);
+		}
+		threads = new int[list.size()];
+		for(int i=0; i<threads.length; i++) {
+			threads[i] = list.get(i);
+		}
+	}
+
+	/**
+	 * Set the parallel algorithms to sweep
+	 *
+	 * @param algorithms Names of the algorithms (see Algorithms.PARALLEL)
+	 */
+	public void setAlgorithms(String [] algorithms) {
+		for(String algorithm : algorithms) {
+			if(!Algorithms.isParallel(algorithm)) {
+				throw new IllegalArgumentException("Not a parallel algorithm: " + algorithm);
+			}
+		}
+		this.algorithms = algorithms.clone();
+	}
+
+	/**
+	 * Set the numbers of threads
+	 *
+	 * @param threads Numbers of threads, greater than 0
+	 */
+	public void setThreads(int [] threads) {
+		this.threads = threads.clone();
+		Arrays.sort(this.threads);
+		if(this.threads.length == 0 || this.threads[0] < 1) {
+			throw new IllegalArgumentException("Numbers of threads must be greater than 0");
+		}
+	}
+
+	/**
+	 * Set the kinds of scaling
+	 *
+	 * @param modes Kinds of scaling
+	 */
+	public void setModes(Mode [] modes) {
+		this.modes = modes.clone();
+	}
+
+	/**
+	 * Set the number of runs to warm up each configuration
+	 *
+	 * @param warmup Number of runs, not measured
+	 */
+	public void setWarmup(int warmup) {
+		this.warmup = warmup;
+	}
+
+	/**
+	 * Set the number of measured runs of each configuration
+	 *
+	 * @param repetitions Number of runs, with different seeds
+	 */
+	public void setRepetitions(int repetitions) {
+		this.repetitions = Math.max(1, repetitions);
+	}
+
+	/**
+	 * Set if CC methods use the dependency ordering of the chain
+	 *
+	 * @param dependencyOrdering True to use the dependency ordering
+	 */
+	public void setUseDependencyOrdering(boolean dependencyOrdering) {
+		this.dependencyOrdering = dependencyOrdering;
+	}
+
+	/**
+	 * Set if datasets are loaded with the binary cache
+	 *
+	 * @param useCache True to use the binary cache
+	 */
+	public void setUseCache(boolean useCache) {
+		this.useCache = useCache;
+	}
+
+	/**
+	 * Result of a parallel algorithm with a number of threads
+	 */
+	public static class Result {
+
+		public final Mode mode;
+		public final String dataset, algorithm, baseline;
+		public final int numThreads, numInstances;
+
+		/**
+		 * Median and minimum building times of the algorithm, and median building time of the baseline (ms)
+		 */
+		public final double buildTime, minBuildTime, baselineTime;
+
+		/**
+		 * Mean evaluation measures of the algorithm and the baseline
+		 */
+		public final LinkedHashMap<String, Double> measures, baselineMeasures;
+
+		/**
+		 * Building time with the fewest threads divided by the building time (weak scaling), or NaN (strong scaling)
+		 */
+		double weakEfficiency = Double.NaN;
+
+		Result(Mode mode, String dataset, String algorithm, String baseline, int numThreads, int numInstances,
+				Measurement measurement, Measurement baselineMeasurement) {
+			this.mode = mode;
+			this.dataset = dataset;
+			this.algorithm = algorithm;
+			this.baseline = baseline;
+			this.numThreads = numThreads;
+			this.numInstances = numInstances;
+			this.buildTime = measurement.median;
+			this.minBuildTime = measurement.min;
+			this.baselineTime = baselineMeasurement.median;
+			this.measures = measurement.measures;
+			this.baselineMeasures = baselineMeasurement.measures;
+		}
+
+		/**
+		 * Get the speedup over the sequential counterpart
+		 *
+		 * @return Speedup
+		 */
+		public double getSpeedup() {
+			return baselineTime / Math.max(buildTime, 1e-3);
+		}
+
+		/**
+		 * Get the parallel efficiency, i.e., the speedup divided by the number of threads
+		 *
+		 * @return Efficiency
+		 */
+		public double getEfficiency() {
+			return getSpeedup() / numThreads;
+		}
+
+		/**
+		 * Get the Karp-Flatt metric, i.e., the serial fraction that explains the speedup given by Amdahl's law
+		 *
+		 * @return Serial fraction, or NaN with one thread
+		 */
+		public double getSerialFraction() {
+			if(numThreads == 1) {
+				return Double.NaN;
+			}
+			return (1 / getSpeedup() - 1.0 / numThreads) / (1 - 1.0 / numThreads);
+		}
+
+		/**
+		 * Get the weak scaling efficiency
+		 *
+		 * @return Building time with the fewest threads divided by the building time, or NaN for strong scaling
+		 */
+		public double getWeakEfficiency() {
+			return weakEfficiency;
+		}
+
+		/**
+		 * Get the difference of a measure with the sequential counterpart
+		 *
+		 * @param measure Name of the measure
+		 * @return Value of the algorithm minus value of the sequential counterpart
+		 */
+		public double getDelta(String measure) {
+			return measures.get(measure) - baselineMeasures.get(measure);
+		}
+	}
+
+	/**
+	 * Building times and evaluation of a configuration
+	 */
+	static class Measurement {
+		double median, min;
+		LinkedHashMap<String, Double> measures;
+	}
+
+	/**
+	 * Runs the sweep
+	 *
+	 * @param datasets Datasets, each of them given by the paths of its train, test and XML files
+	 * @return Results of each parallel algorithm, kind of scaling, dataset and number of threads
+	 * @throws Exception if a dataset cannot be read or an algorithm fails
+	 */
+	public List<Result> run(List<String []> datasets) throws Exception {
+		List<Result> results = new ArrayList<Result>();
+		int maxThreads = threads[threads.length - 1];
+
+		for(String [] files : datasets) {
+			String dataset = datasetName(files[0]);
+			MultiLabelInstances trainData = load(files[0], files[2]);
+			MultiLabelInstances testData = load(files[1], files[2]);
+			LabelMatrix truth = LabelMatrix.fromInstances(testData);
+
+			//Baselines of the dataset, by algorithm and number of training instances
+			Map<String, Measurement> baselines = new HashMap<String, Measurement>();
+
+			for(Mode mode : modes) {
+				List<Result> modeResults = new ArrayList<Result>();
+				for(int t : threads) {
+					MultiLabelInstances data = (mode == Mode.STRONG) ? trainData : subset(trainData, t / (double) maxThreads);
+					int numInstances = data.getNumInstances();
+					for(String algorithm : algorithms) {
+						String baseline = Algorithms.sequentialCounterpart(algorithm);
+						String key = baseline + "@" + numInstances;
+						Measurement baselineMeasurement = baselines.get(key);
+						if(baselineMeasurement == null) {
+							baselineMeasurement = measure(baseline, 1, data, testData, truth);
+							baselines.put(key, baselineMeasurement);
+							System.out.println(String.format(Locale.US, "%s %s %s n=%d: %.1f ms",
+									mode, dataset, baseline, numInstances, baselineMeasurement.median));
+						}
+						Measurement measurement = measure(algorithm, t, data, testData, truth);
+						Result result = new Result(mode, dataset, algorithm, baseline, t, numInstances, measurement, baselineMeasurement);
+						modeResults.add(result);
+						System.out.println(String.format(Locale.US, "%s %s %s t=%d n=%d: %.1f ms (speedup %.2f)",
+								mode, dataset, algorithm, t, numInstances, result.buildTime, result.getSpeedup()));
+					}
+				}
+
+				if(mode == Mode.WEAK) {
+					for(Result result : modeResults) {
+						Result first = find(modeResults, result.algorithm, threads[0]);
+						result.weakEfficiency = first.buildTime / Math.max(result.buildTime, 1e-3);
+					}
+				}
+				results.addAll(modeResults);
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Builds and evaluates an algorithm several times
+	 *
+	 * @param algorithm Name of the algorithm
+	 * @param numThreads Number of threads
+	 * @param trainData Training dataset
+	 * @param testData Test dataset
+	 * @param truth Labels of the test dataset
+	 * @return Building times and mean evaluation measures
+	 * @throws Exception if the algorithm fails
+	 */
+	Measurement measure(String algorithm, int numThreads, MultiLabelInstances trainData, MultiLabelInstances testData, LabelMatrix truth) throws Exception {
+		for(int w=0; w<warmup; w++) {
+			Algorithms.create(algorithm, numThreads, 10, dependencyOrdering).build(trainData);
+		}
+
+		double [] times = new double[repetitions];
+		LinkedHashMap<String, Double> measures = new LinkedHashMap<String, Double>();
+		for(int r=0; r<repetitions; r++) {
+			MultiLabelLearner learner = Algorithms.create(algorithm, numThreads, (r+1)*10, dependencyOrdering);
+			long init_time = System.nanoTime();
+			learner.build(trainData);
+			times[r] = (System.nanoTime() - init_time) / 1e6;
+
+			PredictionMatrix predictions = PredictionMatrix.predict(new MultiLabelLearner[]{learner}, testData);
+			for(Map.Entry<String, Double> entry : predictions.evaluate(truth).entrySet()) {
+				Double sum = measures.get(entry.getKey());
+				measures.put(entry.getKey(), ((sum == null) ? 0 : sum) + entry.getValue() / repetitions);
+			}
+		}
+
+		Measurement measurement = new Measurement();
+		Arrays.sort(times);
+		measurement.median = (repetitions % 2 == 1) ? times[repetitions / 2] : (times[repetitions / 2 - 1] + times[repetitions / 2]) / 2;
+		measurement.min = times[0];
+		measurement.measures = measures;
+		return measurement;
+	}
+
+	/**
+	 * Fits the serial fraction of Amdahl's law, S(t) = 1 / (s + (1 - s) / t), to the speedups of an algorithm
+	 * 	with different numbers of threads, by least squares over 1/S(t) = a + b/t
+	 *
+	 * @param results Results of the same algorithm, kind of scaling and dataset
+	 * @return Serial fraction, in [0, 1], or NaN if there are less than two numbers of threads
+	 */
+	public static double fitSerialFraction(List<Result> results) {
+		int n = results.size();
+		if(n < 2) {
+			return Double.NaN;
+		}
+		double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+		for(Result result : results) {
+			double x = 1.0 / result.numThreads, y = 1 / result.getSpeedup();
+			sumX += x;
+			sumY += y;
+			sumXX += x * x;
+			sumXY += x * y;
+		}
+		double denominator = n * sumXX - sumX * sumX;
+		if(denominator == 0) {
+			return Double.NaN;
+		}
+		double b = (n * sumXY - sumX * sumY) / denominator;
+		double a = (sumY - b * sumX) / n;
+		if(a + b <= 0) {
+			return Double.NaN;
+		}
+		return Math.max(0, Math.min(1, a / (a + b)));
+	}
+
+	/**
+	 * Writes the results to a CSV file, with the same separator than reports of MainClass
+	 *
+	 * @param results Results
+	 * @param file CSV file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeCsv(List<Result> results, File file) throws IOException {
+		try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+			pw.print("Mode;Dataset;Algorithm;Baseline;Threads;Instances;Build time (ms);Min build time (ms);Baseline build time (ms);"
+					+ "Speedup;Efficiency;Serial fraction;Weak efficiency");
+			for(String measure : MEASURES) {
+				pw.print(";" + measure + ";" + measure + " delta");
+			}
+			pw.println();
+			for(Result r : results) {
+				pw.print(String.format(Locale.US, "%s;%s;%s;%s;%d;%d;%.3f;%.3f;%.3f;%.4f;%.4f;%s;%s",
+						r.mode.name().toLowerCase(), r.dataset, r.algorithm, r.baseline, r.numThreads, r.numInstances,
+						r.buildTime, r.minBuildTime, r.baselineTime, r.getSpeedup(), r.getEfficiency(),
+						format(r.getSerialFraction()), format(r.getWeakEfficiency())));
+				for(String measure : MEASURES) {
+					pw.print(";" + format(r.measures.get(measure)) + ";" + format(r.getDelta(measure)));
+				}
+				pw.println();
+			}
+		}
+	}
+
+	/**
+	 * Writes the results to a standalone HTML report, with SVG charts of speedup and efficiency for each
+	 * 	kind of scaling and dataset, a summary of each algorithm, and the table with all the results
+	 *
+	 * @param results Results
+	 * @param file HTML file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeHtml(List<Result> results, File file) throws IOException {
+		//Results grouped by kind of scaling and dataset
+		LinkedHashMap<String, List<Result>> groups = new LinkedHashMap<String, List<Result>>();
+		for(Result r : results) {
+			String key = r.mode.name().toLowerCase() + " scaling: " + r.dataset;
+			if(!groups.containsKey(key)) {
+				groups.put(key, new ArrayList<Result>());
+			}
+			groups.get(key).add(r);
+		}
+
+		StringBuilder html = new StringBuilder();
+		html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Scaling report</title>\n<style>\n");
+		html.append("body{font-family:sans-serif;margin:24px;color:#222}\n");
+		html.append("table{border-collapse:collapse;margin:12px 0;font-size:13px}\n");
+		html.append("th,td{border:1px solid #ccc;padding:3px 8px;text-align:right}\nth{background:#f0f0f0}\n");
+		html.append("td:first-child,th:first-child{text-align:left}\nsvg{margin-right:24px}\n");
+		html.append("</style>\n</head>\n<body>\n<h1>Scaling report</h1>\n");
+
+		for(Map.Entry<String, List<Result>> group : groups.entrySet()) {
+			List<Result> groupResults = group.getValue();
+			LinkedHashSet<String> algorithms = new LinkedHashSet<String>();
+			TreeSet<Integer> threadSet = new TreeSet<Integer>();
+			for(Result r : groupResults) {
+				algorithms.add(r.algorithm);
+				threadSet.add(r.numThreads);
+			}
+			int [] threads = new int[threadSet.size()];
+			int i = 0;
+			for(int t : threadSet) {
+				threads[i++] = t;
+			}
+			String [] names = algorithms.toArray(new String[0]);
+			double [][] speedups = new double[names.length][threads.length];
+			double [][] efficiencies = new double[names.length][threads.length];
+			for(int a=0; a<names.length; a++) {
+				for(int t=0; t<threads.length; t++) {
+					Result r = find(groupResults, names[a], threads[t]);
+					speedups[a][t] = (r == null) ? Double.NaN : r.getSpeedup();
+					efficiencies[a][t] = (r == null) ? Double.NaN : ((r.mode == Mode.WEAK) ? r.getWeakEfficiency() : r.getEfficiency());
+				}
+			}
+
+			html.append("<h2>").append(escape(group.getKey())).append("</h2>\n<div>\n");
+			appendChart(html, "Speedup over sequential counterpart", threads, names, speedups, true);
+			appendChart(html, groupResults.get(0).mode == Mode.WEAK ? "Weak scaling efficiency" : "Parallel efficiency",
+					threads, names, efficiencies, false);
+			html.append("</div>\n");
+
+			//Summary of each algorithm: fitted serial fraction, best speedup, and deltas with the most threads
+			html.append("<table>\n<tr><th>Algorithm</th><th>Baseline</th><th>Serial fraction (fit)</th><th>Max speedup</th><th>Threads</th>");
+			for(String measure : MEASURES) {
+				html.append("<th>&Delta; ").append(escape(measure)).append("</th>");
+			}
+			html.append("</tr>\n");
+			for(String name : names) {
+				List<Result> algorithmResults = new ArrayList<Result>();
+				Result best = null;
+				for(Result r : groupResults) {
+					if(r.algorithm.equals(name)) {
+						algorithmResults.add(r);
+						if(best == null || r.getSpeedup() > best.getSpeedup()) {
+							best = r;
+						}
+					}
+				}
+				double fraction = (best.mode == Mode.STRONG) ? fitSerialFraction(algorithmResults) : Double.NaN;
+				html.append("<tr><td>").append(escape(name)).append("</td><td>").append(escape(best.baseline)).append("</td><td>")
+					.append(format(fraction)).append("</td><td>").append(String.format(Locale.US, "%.2f", best.getSpeedup()))
+					.append("</td><td>").append(best.numThreads).append("</td>");
+				for(String measure : MEASURES) {
+					html.append("<td>").append(String.format(Locale.US, "%+.4f", best.getDelta(measure))).append("</td>");
+				}
+				html.append("</tr>\n");
+			}
+			html.append("</table>\n");
+		}
+
+		html.append("<h2>All results</h2>\n<table>\n<tr><th>Mode</th><th>Dataset</th><th>Algorithm</th><th>Threads</th><th>Instances</th>");
+		html.append("<th>Build time (ms)</th><th>Baseline (ms)</th><th>Speedup</th><th>Efficiency</th><th>Serial fraction</th><th>Weak efficiency</th>");
+		for(String measure : MEASURES) {
+			html.append("<th>&Delta; ").append(escape(measure)).append("</th>");
+		}
+		html.append("</tr>\n");
+		for(Result r : results) {
+			html.append(String.format(Locale.US, "<tr><td>%s</td><td>%s</td><td>%s</td><td>%d</td><td>%d</td><td>%.1f</td><td>%.1f</td><td>%.2f</td><td>%.2f</td><td>%s</td><td>%s</td>",
+					r.mode.name().toLowerCase(), escape(r.dataset), escape(r.algorithm), r.numThreads, r.numInstances,
+					r.buildTime, r.baselineTime, r.getSpeedup(), r.getEfficiency(), format(r.getSerialFraction()), format(r.getWeakEfficiency())));
+			for(String measure : MEASURES) {
+				html.append("<td>").append(String.format(Locale.US, "%+.4f", r.getDelta(measure))).append("</td>");
+			}
+			html.append("</tr>\n");
+		}
+		html.append("</table>\n</body>\n</html>\n");
+
+		try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+			pw.print(html);
+		}
+	}
+
+	/**
+	 * Appends an SVG line chart of a value of each algorithm against the number of threads (in log scale)
+	 *
+	 * @param html HTML report
+	 * @param title Title of the chart
+	 * @param threads Numbers of threads
+	 * @param names Names of the algorithms
+	 * @param values Value of each algorithm and number of threads (NaN if missing)
+	 * @param ideal Indicates if the ideal speedup (equal to the number of threads) is drawn
+	 */
+	static void appendChart(StringBuilder html, String title, int [] threads, String [] names, double [][] values, boolean ideal) {
+		final int width = 460, height = 320, left = 50, right = 110, top = 30, bottom = 40;
+		final int plotWidth = width - left - right, plotHeight = height - top - bottom;
+
+		double maxY = ideal ? threads[threads.length - 1] : 1;
+		for(double [] row : values) {
+			for(double v : row) {
+				if(!Double.isNaN(v)) {
+					maxY = Math.max(maxY, v);
+				}
+			}
+		}
+		maxY *= 1.05;
+		double minX = log2(threads[0]), maxX = log2(threads[threads.length - 1]);
+		double rangeX = (maxX > minX) ? maxX - minX : 1;
+
+		html.append(String.format(Locale.US, "<svg width=\"%d\" height=\"%d\" xmlns=\"http://www.w3.org/2000/svg\" font-size=\"11\">\n", width, height));
+		html.append(String.format(Locale.US, "<text x=\"%d\" y=\"18\" font-size=\"13\" font-weight=\"bold\">%s</text>\n", left, escape(title)));
+
+		//Axes, ticks and grid
+		html.append(String.format(Locale.US, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"#333\"/>\n", left, top + plotHeight, left + plotWidth, top + plotHeight));
+		html.append(String.format(Locale.US, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"#333\"/>\n", left, top, left, top + plotHeight));
+		for(int t : threads) {
+			double x = left + (log2(t) - minX) / rangeX * plotWidth;
+			html.append(String.format(Locale.US, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">%d</text>\n", x, top + plotHeight + 15, t));
+		}
+		html.append(String.format(Locale.US, "<text x=\"%d\" y=\"%d\" text-anchor=\"middle\">Threads</text>\n", left + plotWidth / 2, height - 5));
+		for(int k=0; k<=4; k++) {
+			double value = maxY * k / 4;
+			double y = top + plotHeight - value / maxY * plotHeight;
+			html.append(String.format(Locale.US, "<line x1=\"%d\" y1=\"%.1f\" x2=\"%d\" y2=\"%.1f\" stroke=\"#eee\"/>\n", left + 1, y, left + plotWidth, y));
+			html.append(String.format(Locale.US, "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%.2f</text>\n", left - 4, y + 4, value));
+		}
+
+		if(ideal) {
+			StringBuilder points = new StringBuilder();
+			for(int t : threads) {
+				points.append(String.format(Locale.US, "%.1f,%.1f ", left + (log2(t) - minX) / rangeX * plotWidth, top + plotHeight - t / maxY * plotHeight));
+			}
+			html.append("<polyline fill=\"none\" stroke=\"#999\" stroke-dasharray=\"4,3\" points=\"").append(points).append("\"/>\n");
+			html.append(String.format(Locale.US, "<text x=\"%d\" y=\"%d\" fill=\"#999\">ideal</text>\n", left + plotWidth + 8, top + 10 + 16 * names.length));
+		}
+
+		for(int a=0; a<names.length; a++) {
+			String color = COLORS[a % COLORS.length];
+			StringBuilder points = new StringBuilder();
+			for(int t=0; t<threads.length; t++) {
+				if(!Double.isNaN(values[a][t])) {
+					double x = left + (log2(threads[t]) - minX) / rangeX * plotWidth;
+					double y = top + plotHeight - values[a][t] / maxY * plotHeight;
+					points.append(String.format(Locale.US, "%.1f,%.1f ", x, y));
+					html.append(String.format(Locale.US, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"3\" fill=\"%s\"><title>%s, %d threads: %.3f</title></circle>\n",
+							x, y, color, escape(names[a]), threads[t], values[a][t]));
+				}
+			}
+			html.append("<polyline fill=\"none\" stroke=\"").append(color).append("\" stroke-width=\"2\" points=\"").append(points).append("\"/>\n");
+			html.append(String.format(Locale.US, "<text x=\"%d\" y=\"%d\" fill=\"%s\">%s</text>\n", left + plotWidth + 8, top + 10 + 16 * a, color, escape(names[a])));
+		}
+		html.append("</svg>\n");
+	}
+
+	/**
+	 * Loads a dataset
+	 *
+	 * @param arffFilename Path of the ARFF file
+	 * @param xmlFilename Path of the XML file
+	 * @return Multi-label dataset
+	 * @throws Exception if the dataset cannot be read
+	 */
+	MultiLabelInstances load(String arffFilename, String xmlFilename) throws Exception {
+		return useCache ? DatasetCache.load(arffFilename, xmlFilename) : new MultiLabelInstances(arffFilename, xmlFilename);
+	}
+
+	/**
+	 * Get a random subset of the instances of a dataset; subsets of increasing size are nested
+	 *
+	 * @param data Dataset
+	 * @param fraction Fraction of instances
+	 * @return Subset of the dataset
+	 * @throws Exception if the subset cannot be created
+	 */
+	static MultiLabelInstances subset(MultiLabelInstances data, double fraction) throws Exception {
+		Instances shuffled = new Instances(data.getDataSet());
+		shuffled.randomize(new Random(1));
+		int size = Math.max(1, (int) Math.round(shuffled.numInstances() * fraction));
+		return data.reintegrateModifiedDataSet(new Instances(shuffled, 0, size));
+	}
+
+	/**
+	 * Finds the result of an algorithm with a number of threads
+	 *
+	 * @param results Results
+	 * @param algorithm Name of the algorithm
+	 * @param numThreads Number of threads
+	 * @return Result, or null if it does not exist
+	 */
+	static Result find(List<Result> results, String algorithm, int numThreads) {
+		for(Result r : results) {
+			if(r.algorithm.equals(algorithm) && r.numThreads == numThreads) {
+				return r;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the name of a dataset from the path of its file, as in the reports of MainClass
+	 *
+	 * @param filename Path of the file
+	 * @return Name of the dataset
+	 */
+	static String datasetName(String filename) {
+		String [] p = filename.split("\\/");
+		return p[p.length-1].split("\\.")[0];
+	}
+
+	private static double log2(double x) {
+		return Math.log(x) / Math.log(2);
+	}
+
+	private static String format(double value) {
+		return Double.isNaN(value) ? "" : String.format(Locale.US, "%.4f", value);
+	}
+
+	private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+}
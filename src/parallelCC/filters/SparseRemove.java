@@ -0,0 +1,207 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.filters;
+
+import java.util.Arrays;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.filters.unsupervised.attribute.Remove;
+
+/**
+ * Version of the Remove filter that keeps sparse instances sparse.
+ * Remove converts each instance into a dense array of values before creating the output instance,
+ * 	so filtering depends on the number of attributes; here it only depends on the number of non-zero values.
+ * Further, a whole dataset can be filtered without copying it first, and the values of some attributes
+ * 	can be replaced on the fly (e.g., with the predictions of previous labels in a chain),
+ * 	so the input dataset is never modified.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class SparseRemove extends Remove {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 4102946563826358013L;
+
+	/**
+	 * Index in the output format of each input attribute, or -1 if it is removed
+	 */
+	protected int [] m_OutputIndices;
+
+	@Override
+	public boolean setInputFormat(Instances instanceInfo) throws Exception {
+		boolean result = super.setInputFormat(instanceInfo);
+
+		m_OutputIndices = new int[instanceInfo.numAttributes()];
+		Arrays.fill(m_OutputIndices, -1);
+		for(int i=0; i<m_SelectedAttributes.length; i++) {
+			m_OutputIndices[m_SelectedAttributes[i]] = i;
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean input(Instance instance) {
+		if(!(instance instanceof SparseInstance)) {
+			return super.input(instance);
+		}
+
+		if(getInputFormat() == null) {
+			throw new IllegalStateException("No input instance format defined");
+		}
+		if(m_NewBatch) {
+			resetQueue();
+			m_NewBatch = false;
+		}
+		if(outputFormatPeek().numAttributes() == 0) {
+			return false;
+		}
+
+		Instance inst = convert(instance, null, null, 0);
+		copyValues(inst, false, instance.dataset(), outputFormatPeek());
+		push(inst);
+		return true;
+	}
+
+	/**
+	 * Get the input attributes that are kept, in the order of the output format.
+	 * It is only available once the input format has been set.
+	 *
+	 * @return Indices of the kept attributes in the input format
+	 */
+	public int [] getSelectedAttributes() {
+		return m_SelectedAttributes.clone();
+	}
+
+	/**
+	 * Get the input format of the filter
+	 *
+	 * @return Input format (without instances), or null if it has not been set
+	 */
+	public Instances getInputHeader() {
+		return (inputFormatPeek() == null) ? null : new Instances(inputFormatPeek(), 0);
+	}
+
+	/**
+	 * Converts a single instance to the output format, without using the queue of the filter.
+	 * It is thread-safe once the input format has been set.
+	 *
+	 * @param instance Instance in the input format
+	 * @return Instance in the output format
+	 */
+	public Instance convertInstance(Instance instance) {
+		Instance inst = convert(instance, null, null, 0);
+		inst.setDataset(outputFormatPeek());
+		return inst;
+	}
+
+	/**
+	 * Filters a whole dataset. Unlike Filter.useFilter, the input dataset is not copied first nor modified,
+	 * 	and sparse instances are kept sparse.
+	 * It is thread-safe once the input format has been set, so the input dataset may be shared by several threads.
+	 *
+	 * @param data Dataset in the input format
+	 * @param overrides For each input attribute, the values that replace the ones in the instances of the dataset
+	 * 	(one value per instance), or null to keep the values of the instances. It may be null.
+	 * @return Filtered dataset
+	 */
+	public Instances filterDataset(Instances data, double [][] overrides) {
+		//Attributes that are kept and whose values are replaced, in ascending order
+		int numOverridden = 0;
+		int [] overridden = new int[0];
+		if(overrides != null) {
+			overridden = new int[overrides.length];
+			for(int i=0; i<overrides.length; i++) {
+				if(overrides[i] != null && m_OutputIndices[i] >= 0) {
+					overridden[numOverridden++] = i;
+				}
+			}
+			overridden = Arrays.copyOf(overridden, numOverridden);
+		}
+
+		Instances output = new Instances(outputFormatPeek(), data.numInstances());
+		for(int j=0; j<data.numInstances(); j++) {
+			output.add(convert(data.get(j), overrides, overridden, j));
+		}
+		return output;
+	}
+
+	/**
+	 * Converts an instance to the output format
+	 *
+	 * @param instance Instance to convert
+	 * @param overrides Values replacing the ones of the instance, for each input attribute
+	 * @param overridden Kept attributes whose value is replaced, in ascending order
+	 * @param row Index of the instance, to get its replaced values
+	 * @return Converted instance
+	 */
+	protected Instance convert(Instance instance, double [][] overrides, int [] overridden, int row) {
+		int numOutput = m_SelectedAttributes.length;
+
+		if(!(instance instanceof SparseInstance)) {
+			double [] vals = new double[numOutput];
+			for(int i=0; i<numOutput; i++) {
+				int att = m_SelectedAttributes[i];
+				if(overrides != null && overrides[att] != null) {
+					vals[i] = overrides[att][row];
+				}
+				else {
+					vals[i] = instance.value(att);
+				}
+			}
+			return new DenseInstance(instance.weight(), vals);
+		}
+
+		//Merge the non-zero values of the instance with the replaced values; both are sorted by attribute
+		int numValues = instance.numValues();
+		int numOverridden = (overridden == null) ? 0 : overridden.length;
+		double [] vals = new double[numValues + numOverridden];
+		int [] indices = new int[numValues + numOverridden];
+		int n = 0;
+		int k = 0, o = 0;
+		while(k < numValues || o < numOverridden) {
+			int att = (k < numValues) ? instance.index(k) : Integer.MAX_VALUE;
+			int oAtt = (o < numOverridden) ? overridden[o] : Integer.MAX_VALUE;
+			double value;
+			if(oAtt <= att) {
+				if(oAtt == att) {
+					k++;
+				}
+				att = oAtt;
+				value = overrides[oAtt][row];
+				o++;
+			}
+			else {
+				value = instance.valueSparse(k);
+				k++;
+			}
+
+			if(m_OutputIndices[att] >= 0 && value != 0) {
+				indices[n] = m_OutputIndices[att];
+				vals[n] = value;
+				n++;
+			}
+		}
+
+		return new SparseInstance(instance.weight(), Arrays.copyOf(vals, n), Arrays.copyOf(indices, n), numOutput);
+	}
+}
@@ -0,0 +1,459 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.classifier.MultiLabelOutput;
+import parallelCC.data.ParallelArffReader;
+import parallelCC.metrics.MetricsRegistry;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Predicts the rows of a file (ARFF or CSV) with a trained model, and writes the bipartition and confidences of each row
+ * 	to an output CSV file, in the order of the input.
+ * The file is processed by a pipeline of three stages, connected by a bounded queue:
+ * 	<ul>
+ * 		<li>Read: the calling thread reads lines and groups them into batches.</li>
+ * 		<li>Parse and predict: batches are parsed and predicted in parallel by a pool of threads.</li>
+ * 		<li>Write: a thread writes the predictions of the batches in the order they were read.</li>
+ * 	</ul>
+ * At most twice the number of threads batches are in the pipeline at the same time, so the memory used does not depend
+ * 	on the size of the file.
+ * ARFF input must have the same header as the training dataset. CSV input has one row per line in the format of the ARFF
+ * 	data section, with either all the attributes (values of labels are ignored) or only the features, in the order of the
+ * 	header; an optional first line with the names of the attributes is skipped. Values may be quoted, as in ARFF.
+ * The output is keyed by data rows, not by lines: empty lines and comments (%) are not rows, so they have no output line,
+ * 	and the n-th line of the output is the prediction of the n-th row of the input.
+ * The models are taken from a pool by the threads that predict; the same model may be given several times if it predicts
+ * 	in a thread-safe way (e.g., chains of flattened J48 trees), or one copy for each thread otherwise.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class BatchPredictor {
+
+	/**
+	 * Header of the training dataset
+	 */
+	Instances header;
+
+	/**
+	 * Indices of the labels
+	 */
+	int [] labelIndices;
+
+	/**
+	 * Indicates if each attribute is a label
+	 */
+	boolean [] isLabel;
+
+	/**
+	 * Parser of the rows
+	 */
+	ParallelArffReader parser;
+
+	/**
+	 * Models available to predict
+	 */
+	LinkedBlockingQueue<MultiLabelLearner> models = new LinkedBlockingQueue<MultiLabelLearner>();
+
+	/**
+	 * Number of threads that predict
+	 */
+	int numThreads;
+
+	/**
+	 * Number of rows of each batch
+	 */
+	int batchSize = 1000;
+
+	/**
+	 * Predictions of a batch, ready to be written
+	 */
+	static class Result {
+
+		/**
+		 * Text of the predictions
+		 */
+		String text;
+
+		/**
+		 * Number of predicted rows
+		 */
+		int numRows;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param models Trained models; one of them is used by each thread at the same time, so there are as many threads as models
+	 * @param header Header of the training dataset
+	 * @param labelIndices Indices of the labels in the header
+	 * @throws IOException if the header has attributes that cannot be parsed
+	 */
+	public BatchPredictor(MultiLabelLearner [] models, Instances header, int [] labelIndices) throws IOException {
+		for(MultiLabelLearner model : models) {
+			this.models.add(model);
+		}
+		this.numThreads = models.length;
+		this.header = new Instances(header, 0);
+		this.labelIndices = labelIndices.clone();
+		this.isLabel = isLabel(header.numAttributes(), labelIndices);
+		this.parser = new ParallelArffReader(header);
+	}
+
+	/**
+	 * Set the number of rows of each batch
+	 *
+	 * @param batchSize Batch size
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Predicts all the rows of a file
+	 *
+	 * @param input Input file; it is read as ARFF if its name ends with .arff, and as CSV otherwise
+	 * @param output Output CSV file, with the bipartition and then the confidences of the labels of each row
+	 * @return Number of predicted rows
+	 * @throws Exception if the input cannot be read or parsed, the model fails, or the output cannot be written
+	 */
+	public long predict(File input, File output) throws Exception {
+		boolean isArff = input.getName().toLowerCase().endsWith(".arff");
+		final ArrayBlockingQueue<Future<Result>> pending = new ArrayBlockingQueue<Future<Result>>(2 * numThreads);
+		final FutureTask<Result> end = new FutureTask<Result>(new Callable<Result>() {
+			@Override
+			public Result call() {
+				return null;
+			}
+		});
+		final long [] numRows = new long[1];
+		final AtomicReference<Exception> error = new AtomicReference<Exception>();
+		ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8), 1 << 20);
+				final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8), 1 << 20)) {
+			writeHeader(writer);
+
+			//Write stage: predictions are written in the order of the input
+			Thread writerThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Future<Result> future;
+						while((future = pending.take()) != end) {
+							//After an error, the rest of the batches are discarded
+							if(error.get() != null) {
+								future.cancel(true);
+								continue;
+							}
+							try {
+								Result result = future.get();
+								writer.write(result.text);
+								numRows[0] += result.numRows;
+							} catch (ExecutionException e) {
+								error.set((e.getCause() instanceof Exception) ? (Exception) e.getCause() : e);
+							} catch (IOException e) {
+								error.set(e);
+							}
+						}
+					} catch (InterruptedException e) {
+						error.set(e);
+					}
+				}
+			}, "prediction-writer");
+			writerThread.start();
+
+			//Read stage: lines are grouped into batches, which are parsed and predicted in parallel
+			try {
+				String line = isArff ? skipArffHeader(reader) : skipCsvHeader(reader);
+				ArrayList<String> batch = new ArrayList<String>(batchSize);
+				while(line != null && error.get() == null) {
+					batch.add(line);
+					if(batch.size() == batchSize) {
+						pending.put(submit(executorService, batch));
+						batch = new ArrayList<String>(batchSize);
+					}
+					line = reader.readLine();
+				}
+				if(!batch.isEmpty() && error.get() == null) {
+					pending.put(submit(executorService, batch));
+				}
+			} finally {
+				pending.put(end);
+				writerThread.join();
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		if(error.get() != null) {
+			throw error.get();
+		}
+		return numRows[0];
+	}
+
+	/**
+	 * Submits a batch to be parsed and predicted
+	 *
+	 * @param executorService Executor of the tasks
+	 * @param lines Lines of the batch
+	 * @return Future predictions of the batch
+	 */
+	Future<Result> submit(ExecutorService executorService, final ArrayList<String> lines) {
+		return executorService.submit(new Callable<Result>() {
+			@Override
+			public Result call() throws Exception {
+				return predictBatch(lines);
+			}
+		});
+	}
+
+	/**
+	 * Parses and predicts the lines of a batch
+	 *
+	 * @param lines Lines of the batch
+	 * @return Predictions of the batch
+	 * @throws Exception if any line cannot be parsed or the model fails
+	 */
+	Result predictBatch(ArrayList<String> lines) throws Exception {
+		addMissingLabels(lines, isLabel);
+
+		ParallelArffReader.Block block = parser.parseLines(lines);
+		StringBuilder text = new StringBuilder(block.numRows() * labelIndices.length * 10);
+		MultiLabelLearner model = models.take();
+		try {
+			for(int j=0; j<block.numRows(); j++) {
+				Instance instance = block.instance(j);
+				instance.setDataset(header);
+				MultiLabelOutput output = model.makePrediction(instance);
+				appendPrediction(text, output);
+			}
+		} finally {
+			models.put(model);
+		}
+
+		MetricsRegistry.recordPredictions("batch", block.numRows());
+		Result result = new Result();
+		result.text = text.toString();
+		result.numRows = block.numRows();
+		return result;
+	}
+
+	/**
+	 * Writes the names of the columns of the output
+	 *
+	 * @param writer Writer of the output
+	 * @throws IOException
+	 */
+	void writeHeader(Writer writer) throws IOException {
+		StringBuilder line = new StringBuilder();
+		for(int j=0; j<labelIndices.length; j++) {
+			line.append((j > 0) ? "," : "").append(header.attribute(labelIndices[j]).name());
+		}
+		for(int j=0; j<labelIndices.length; j++) {
+			line.append(",conf_").append(header.attribute(labelIndices[j]).name());
+		}
+		writer.write(line.append('\n').toString());
+	}
+
+	/**
+	 * Appends the bipartition (0/1) and the confidences (with 6 decimals) of a prediction as a line
+	 *
+	 * @param text Text of the predictions
+	 * @param output Output of the model
+	 */
+	static void appendPrediction(StringBuilder text, MultiLabelOutput output) {
+		boolean [] bipartition = output.getBipartition();
+		for(int j=0; j<bipartition.length; j++) {
+			text.append((j > 0) ? "," : "").append(bipartition[j] ? '1' : '0');
+		}
+		for(double confidence : output.getConfidences()) {
+			text.append(',');
+			if(Double.isNaN(confidence)) {
+				text.append('?');
+				continue;
+			}
+			long micros = Math.round(confidence * 1e6);
+			if(micros < 0) {
+				text.append('-');
+				micros = -micros;
+			}
+			String fraction = Long.toString(micros % 1000000);
+			text.append(micros / 1000000).append('.');
+			for(int d=fraction.length(); d<6; d++) {
+				text.append('0');
+			}
+			text.append(fraction);
+		}
+		text.append('\n');
+	}
+
+	/**
+	 * Reads the header of an ARFF file, checking that it is the header of the training dataset
+	 *
+	 * @param reader Reader of the file
+	 * @return First line of the data section, or null if there is none
+	 * @throws IOException if the header is not valid or is different from the header of the training dataset
+	 */
+	String skipArffHeader(BufferedReader reader) throws IOException {
+		StringBuilder headerText = new StringBuilder();
+		String line;
+		while((line = reader.readLine()) != null) {
+			headerText.append(line).append('\n');
+			if(line.trim().toLowerCase().startsWith("@data")) {
+				break;
+			}
+		}
+		if(line == null) {
+			throw new IOException("No @data section in the input file");
+		}
+
+		Instances inputHeader = new Instances(new StringReader(headerText.toString()));
+		if(!header.equalHeaders(inputHeader)) {
+			throw new IOException("The header of the input file is different from the header of the model: " + header.equalHeadersMsg(inputHeader));
+		}
+		return reader.readLine();
+	}
+
+	/**
+	 * Skips the first line of a CSV file if it has the names of the attributes
+	 *
+	 * @param reader Reader of the file
+	 * @return First line with values, or null if there is none
+	 * @throws IOException
+	 */
+	String skipCsvHeader(BufferedReader reader) throws IOException {
+		String line = reader.readLine();
+		if(line == null) {
+			return null;
+		}
+
+		//The first column is the first attribute (if labels are given) or the first feature
+		int firstFeature = 0;
+		while(isLabel[firstFeature]) {
+			firstFeature++;
+		}
+		int comma = ParallelArffReader.nextComma(line, 0);
+		String first = ((comma < 0) ? line : line.substring(0, comma)).trim().replace("'", "").replace("\"", "");
+		if(first.equals(header.attribute(0).name()) || first.equals(header.attribute(firstFeature).name())) {
+			return reader.readLine();
+		}
+		return line;
+	}
+
+	/**
+	 * Indicates if each attribute is a label
+	 *
+	 * @param numAttributes Number of attributes
+	 * @param labelIndices Indices of the labels
+	 * @return For each attribute, true if it is a label
+	 */
+	static boolean [] isLabel(int numAttributes, int [] labelIndices) {
+		boolean [] isLabel = new boolean[numAttributes];
+		for(int index : labelIndices) {
+			isLabel[index] = true;
+		}
+		return isLabel;
+	}
+
+	/**
+	 * Adds missing values of the labels to the dense rows that only have the features; other lines are not changed
+	 *
+	 * @param lines Lines, which are replaced by the completed rows
+	 * @param isLabel Indicates if each attribute is a label
+	 */
+	static void addMissingLabels(List<String> lines, boolean [] isLabel) {
+		int numFeatures = 0;
+		for(boolean label : isLabel) {
+			numFeatures += label ? 0 : 1;
+		}
+		for(int i=0; i<lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if(line.length() > 0 && !line.startsWith("%") && !line.startsWith("{") && numFields(line) == numFeatures) {
+				lines.set(i, addMissingLabels(line, isLabel));
+			}
+		}
+	}
+
+	/**
+	 * Get the number of values of a dense row; commas in quoted values are not counted
+	 *
+	 * @param line Row
+	 * @return Number of values
+	 */
+	static int numFields(String line) {
+		int n = 1;
+		for(int comma = ParallelArffReader.nextComma(line, 0); comma >= 0; comma = ParallelArffReader.nextComma(line, comma + 1)) {
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Adds missing values of the labels to a row that only has the features
+	 *
+	 * @param line Row with the values of the features
+	 * @param isLabel Indicates if each attribute is a label
+	 * @return Row with the values of all the attributes
+	 */
+	static String addMissingLabels(String line, boolean [] isLabel) {
+		StringBuilder row = new StringBuilder(line.length() + 2 * isLabel.length);
+		int start = 0;
+		for(int a=0; a<isLabel.length; a++) {
+			if(a > 0) {
+				row.append(',');
+			}
+			if(isLabel[a]) {
+				row.append('?');
+			}
+			else {
+				int end = ParallelArffReader.nextComma(line, start);
+				if(end < 0) {
+					end = line.length();
+				}
+				row.append(line, start, end);
+				start = end + 1;
+			}
+		}
+		return row.toString();
+	}
+}
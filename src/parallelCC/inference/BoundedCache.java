@@ -0,0 +1,800 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Cache with a bounded number of entries (or total weight, e.g., bytes), whose values are loaded on first use.
+ * When the cache is full, an entry is evicted following one of these policies:
+ * 	<ul>
+ * 		<li>LRU: the least recently used entry.</li>
+ * 		<li>LFU: the least frequently used entry since it was loaded; ties are broken by recency.
+ * 			It keeps frequently used entries (e.g., the most common labels) when other entries are used only occasionally.</li>
+ * 		<li>W_TINY_LFU: new entries enter a small LRU window (1% of the entries), and the main space is a segmented LRU.
+ * 			An entry leaving the window is only admitted to the main space if it has been requested more often than the entry
+ * 			that it would replace. Frequencies of all requested keys (also those not in the cache) are estimated with a compact
+ * 			sketch whose counters are periodically halved, so old popularity fades out. It resists one-time keys flushing
+ * 			the cache better than LRU, and adapts to changes of popularity better than LFU.</li>
+ * 	</ul>
+ * It keeps the number of hits, misses and evictions, and the time spent loading values.
+ * It is thread-safe; values are loaded outside of the lock, so a value requested by several threads at the same time
+ * 	may be loaded more than once.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public class BoundedCache<K, V> {
+
+	/**
+	 * Eviction policies
+	 */
+	public enum Policy { LRU, LFU, W_TINY_LFU }
+
+	/**
+	 * Loader of the values that are not in the cache
+	 *
+	 * @param <K> Type of the keys
+	 * @param <V> Type of the values
+	 */
+	public interface Loader<K, V> {
+
+		/**
+		 * Loads the value of a key
+		 *
+		 * @param key Key
+		 * @return Value; it must not be null
+		 * @throws Exception if the value cannot be loaded
+		 */
+		V load(K key) throws Exception;
+	}
+
+	/**
+	 * Weigher of the entries, when the cache is bounded by weight
+	 *
+	 * @param <K> Type of the keys
+	 * @param <V> Type of the values
+	 */
+	public interface Weigher<K, V> {
+
+		/**
+		 * Get the weight of an entry (e.g., its approximate size in bytes); it must not change while it is cached
+		 *
+		 * @param key Key
+		 * @param value Value
+		 * @return Weight
+		 */
+		long weigh(K key, V value);
+	}
+
+	/**
+	 * Maximum number of entries
+	 */
+	int capacity;
+
+	/**
+	 * Maximum total weight of the entries
+	 */
+	long maxWeight = Long.MAX_VALUE;
+
+	/**
+	 * Weigher of the entries, or null if the cache is bounded by number of entries
+	 */
+	Weigher<K, V> weigher;
+
+	/**
+	 * Total weight of the entries
+	 */
+	long weight;
+
+	/**
+	 * Loader of the values
+	 */
+	Loader<K, V> loader;
+
+	/**
+	 * Entries of the cache
+	 */
+	Store<K, V> store;
+
+	/**
+	 * Statistics of the accesses
+	 */
+	long hits, misses, evictions;
+
+	/**
+	 * Number of loaded values
+	 */
+	long loads;
+
+	/**
+	 * Total and maximum time spent loading values (ns)
+	 */
+	long loadTime, maxLoadTime;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity Maximum number of entries
+	 * @param policy Eviction policy
+	 * @param loader Loader of the values; it may be null if values are always loaded with get(key, loader)
+	 */
+	public BoundedCache(int capacity, Policy policy, Loader<K, V> loader) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("The capacity of the cache must be positive");
+		}
+		this.capacity = capacity;
+		this.loader = loader;
+		this.store = newStore(policy, capacity);
+	}
+
+	/**
+	 * Constructor of a cache bounded by the total weight of its entries
+	 *
+	 * @param maxWeight Maximum total weight of the entries
+	 * @param weigher Weigher of the entries
+	 * @param policy Eviction policy
+	 * @param loader Loader of the values; it may be null if values are always loaded with get(key, loader)
+	 */
+	public BoundedCache(long maxWeight, Weigher<K, V> weigher, Policy policy, Loader<K, V> loader) {
+		if(maxWeight < 1) {
+			throw new IllegalArgumentException("The maximum weight of the cache must be positive");
+		}
+		this.capacity = Integer.MAX_VALUE;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.loader = loader;
+		this.store = newStore(policy, 1024);
+	}
+
+	/**
+	 * Creates the entries of the cache for a policy
+	 *
+	 * @param policy Eviction policy
+	 * @param expectedSize Expected number of entries
+	 * @return Entries
+	 */
+	static <K, V> Store<K, V> newStore(Policy policy, int expectedSize) {
+		switch(policy) {
+			case LFU:
+				return new LfuStore<K, V>();
+			case W_TINY_LFU:
+				return new WTinyLfuStore<K, V>(expectedSize);
+			default:
+				return new LruStore<K, V>();
+		}
+	}
+
+	/**
+	 * Get the value of a key, loading it if it is not in the cache
+	 *
+	 * @param key Key
+	 * @return Value
+	 * @throws Exception if the value cannot be loaded
+	 */
+	public V get(K key) throws Exception {
+		return get(key, loader);
+	}
+
+	/**
+	 * Get the value of a key, loading it with the given loader if it is not in the cache.
+	 * It is useful when loading the value needs more than the key (e.g., the instance whose prediction is cached).
+	 *
+	 * @param key Key
+	 * @param loader Loader of the value
+	 * @return Value
+	 * @throws Exception if the value cannot be loaded
+	 */
+	public V get(K key, Loader<K, V> loader) throws Exception {
+		synchronized(this) {
+			V value = store.get(key);
+			if(value != null) {
+				hits++;
+				return value;
+			}
+			misses++;
+		}
+
+		long start = System.nanoTime();
+		V value = loader.load(key);
+		long time = System.nanoTime() - start;
+
+		synchronized(this) {
+			loads++;
+			loadTime += time;
+			maxLoadTime = Math.max(maxLoadTime, time);
+			if(!store.contains(key)) {
+				long entryWeight = (weigher != null) ? weigher.weigh(key, value) : 0;
+				//Entries heavier than the whole cache are not stored
+				if(entryWeight <= maxWeight) {
+					while(store.size() > 0 && (store.size() >= capacity || weight + entryWeight > maxWeight)) {
+						Map.Entry<K, V> evicted = store.evict();
+						if(weigher != null) {
+							weight -= weigher.weigh(evicted.getKey(), evicted.getValue());
+						}
+						evictions++;
+					}
+					store.put(key, value);
+					weight += entryWeight;
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Removes all the entries; statistics are kept
+	 */
+	public synchronized void clear() {
+		store.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Resets the statistics
+	 */
+	public synchronized void resetStatistics() {
+		hits = misses = evictions = loads = 0;
+		loadTime = maxLoadTime = 0;
+	}
+
+	/**
+	 * Get the number of entries
+	 *
+	 * @return Number of entries
+	 */
+	public synchronized int size() {
+		return store.size();
+	}
+
+	/**
+	 * Get the maximum number of entries
+	 *
+	 * @return Capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the total weight of the entries
+	 *
+	 * @return Weight, or 0 if the cache is bounded by number of entries
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Get the maximum total weight of the entries
+	 *
+	 * @return Maximum weight, or Long.MAX_VALUE if the cache is bounded by number of entries
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Get the number of accesses whose value was in the cache
+	 *
+	 * @return Number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of accesses whose value was loaded
+	 *
+	 * @return Number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of evicted entries
+	 *
+	 * @return Number of evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Get the ratio of accesses whose value was in the cache
+	 *
+	 * @return Hit rate, or 0 if there were no accesses
+	 */
+	public synchronized double getHitRate() {
+		return (hits + misses == 0) ? 0 : hits / (double) (hits + misses);
+	}
+
+	/**
+	 * Get the mean time to load a value
+	 *
+	 * @return Mean load time (ms), or 0 if no value was loaded
+	 */
+	public synchronized double getMeanLoadTime() {
+		return (loads == 0) ? 0 : loadTime / (double) loads / 1e6;
+	}
+
+	/**
+	 * Get the maximum time to load a value
+	 *
+	 * @return Maximum load time (ms)
+	 */
+	public synchronized double getMaxLoadTime() {
+		return maxLoadTime / 1e6;
+	}
+
+	@Override
+	public synchronized String toString() {
+		String size = (weigher != null) ? String.format("weight=%d/%d", weight, maxWeight) : String.format("entries=%d/%d", store.size(), capacity);
+		return String.format("%s; hits=%d; misses=%d; hitRate=%.4f; evictions=%d; meanLoad=%.3fms; maxLoad=%.3fms",
+				size, hits, misses, getHitRate(), evictions, getMeanLoadTime(), getMaxLoadTime());
+	}
+
+	/**
+	 * Entries of the cache with an eviction policy
+	 *
+	 * @param <K> Type of the keys
+	 * @param <V> Type of the values
+	 */
+	static abstract class Store<K, V> {
+
+		/**
+		 * Get the value of a key, registering the access
+		 *
+		 * @param key Key
+		 * @return Value, or null if it is not stored
+		 */
+		abstract V get(K key);
+
+		/**
+		 * Indicates if a key is stored, without registering an access
+		 *
+		 * @param key Key
+		 * @return True if it is stored
+		 */
+		abstract boolean contains(K key);
+
+		/**
+		 * Stores a new entry
+		 *
+		 * @param key Key
+		 * @param value Value
+		 */
+		abstract void put(K key, V value);
+
+		/**
+		 * Removes the entry selected by the policy; it is called before storing a new entry
+		 *
+		 * @return Removed entry
+		 */
+		abstract Map.Entry<K, V> evict();
+
+		/**
+		 * Get the number of entries
+		 *
+		 * @return Number of entries
+		 */
+		abstract int size();
+
+		/**
+		 * Removes all the entries
+		 */
+		abstract void clear();
+
+		/**
+		 * Removes the first entry of a map
+		 *
+		 * @param map Map
+		 * @return Removed entry
+		 */
+		static <K, V> Map.Entry<K, V> removeFirst(LinkedHashMap<K, V> map) {
+			Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+			Map.Entry<K, V> first = iterator.next();
+			Map.Entry<K, V> removed = new AbstractMap.SimpleImmutableEntry<K, V>(first.getKey(), first.getValue());
+			iterator.remove();
+			return removed;
+		}
+	}
+
+	/**
+	 * Entries evicted in order of last access
+	 */
+	static class LruStore<K, V> extends Store<K, V> {
+
+		/**
+		 * Entries in order of access
+		 */
+		LinkedHashMap<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+		@Override
+		V get(K key) {
+			return entries.get(key);
+		}
+
+		@Override
+		boolean contains(K key) {
+			return entries.containsKey(key);
+		}
+
+		@Override
+		void put(K key, V value) {
+			entries.put(key, value);
+		}
+
+		@Override
+		Map.Entry<K, V> evict() {
+			return removeFirst(entries);
+		}
+
+		@Override
+		int size() {
+			return entries.size();
+		}
+
+		@Override
+		void clear() {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Entries evicted in order of number of accesses, and then in order of last access.
+	 * Entries are grouped by their number of accesses, so all operations take constant time.
+	 */
+	static class LfuStore<K, V> extends Store<K, V> {
+
+		/**
+		 * Value of each key
+		 */
+		HashMap<K, V> values = new HashMap<K, V>();
+
+		/**
+		 * Number of accesses of each key
+		 */
+		HashMap<K, Integer> counts = new HashMap<K, Integer>();
+
+		/**
+		 * Keys with each number of accesses, in order of last access
+		 */
+		HashMap<Integer, LinkedHashSet<K>> groups = new HashMap<Integer, LinkedHashSet<K>>();
+
+		/**
+		 * Minimum number of accesses of the stored keys
+		 */
+		int minCount;
+
+		@Override
+		V get(K key) {
+			V value = values.get(key);
+			if(value != null) {
+				int count = counts.get(key);
+				LinkedHashSet<K> group = groups.get(count);
+				group.remove(key);
+				if(group.isEmpty()) {
+					groups.remove(count);
+					if(minCount == count) {
+						minCount++;
+					}
+				}
+				counts.put(key, count + 1);
+				group(count + 1).add(key);
+			}
+			return value;
+		}
+
+		@Override
+		boolean contains(K key) {
+			return values.containsKey(key);
+		}
+
+		@Override
+		void put(K key, V value) {
+			values.put(key, value);
+			counts.put(key, 1);
+			group(1).add(key);
+			minCount = 1;
+		}
+
+		@Override
+		Map.Entry<K, V> evict() {
+			LinkedHashSet<K> group = groups.get(minCount);
+			Iterator<K> iterator = group.iterator();
+			K key = iterator.next();
+			iterator.remove();
+			if(group.isEmpty()) {
+				groups.remove(minCount);
+				minCount = Integer.MAX_VALUE;
+				for(int count : groups.keySet()) {
+					minCount = Math.min(minCount, count);
+				}
+			}
+			counts.remove(key);
+			return new AbstractMap.SimpleImmutableEntry<K, V>(key, values.remove(key));
+		}
+
+		/**
+		 * Get the group of keys with a number of accesses, creating it if it does not exist
+		 *
+		 * @param count Number of accesses
+		 * @return Group of keys
+		 */
+		LinkedHashSet<K> group(int count) {
+			LinkedHashSet<K> group = groups.get(count);
+			if(group == null) {
+				group = new LinkedHashSet<K>();
+				groups.put(count, group);
+			}
+			return group;
+		}
+
+		@Override
+		int size() {
+			return values.size();
+		}
+
+		@Override
+		void clear() {
+			values.clear();
+			counts.clear();
+			groups.clear();
+			minCount = 0;
+		}
+	}
+
+	/**
+	 * Entries evicted following W-TinyLFU: new entries enter an LRU window, and the main space is a segmented LRU
+	 * 	(probation and protected segments) whose admission is filtered by the estimated frequency of the keys.
+	 */
+	static class WTinyLfuStore<K, V> extends Store<K, V> {
+
+		/**
+		 * Recently added entries, in order of access
+		 */
+		LinkedHashMap<K, V> window = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+		/**
+		 * Entries of the main space accessed once since they were admitted, in order of access
+		 */
+		LinkedHashMap<K, V> probation = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+		/**
+		 * Entries of the main space accessed again since they were admitted, in order of access
+		 */
+		LinkedHashMap<K, V> protect = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+		/**
+		 * Estimated frequency of the requested keys
+		 */
+		FrequencySketch sketch;
+
+		/**
+		 * Constructor
+		 *
+		 * @param expectedSize Expected number of entries, to size the frequency sketch
+		 */
+		WTinyLfuStore(int expectedSize) {
+			sketch = new FrequencySketch(expectedSize);
+		}
+
+		@Override
+		V get(K key) {
+			sketch.increment(key.hashCode());
+
+			V value = window.get(key);
+			if(value != null) {
+				return value;
+			}
+			value = probation.remove(key);
+			if(value != null) {
+				//Promote to the protected segment, which keeps up to 80% of the main space
+				protect.put(key, value);
+				int mainSize = probation.size() + protect.size();
+				if(protect.size() > Math.max(1, mainSize * 4 / 5)) {
+					Map.Entry<K, V> demoted = removeFirst(protect);
+					probation.put(demoted.getKey(), demoted.getValue());
+				}
+				return value;
+			}
+			return protect.get(key);
+		}
+
+		@Override
+		boolean contains(K key) {
+			return window.containsKey(key) || probation.containsKey(key) || protect.containsKey(key);
+		}
+
+		@Override
+		void put(K key, V value) {
+			window.put(key, value);
+			sketch.ensureCapacity(size());
+		}
+
+		@Override
+		Map.Entry<K, V> evict() {
+			//The window keeps 1% of the entries; the rest of the recent entries go to the main space
+			int windowSize = Math.max(1, size() / 100);
+			while(window.size() > windowSize) {
+				Map.Entry<K, V> moved = removeFirst(window);
+				probation.put(moved.getKey(), moved.getValue());
+			}
+
+			LinkedHashMap<K, V> main = !probation.isEmpty() ? probation : protect;
+			if(main.isEmpty()) {
+				return removeFirst(window);
+			}
+			if(window.size() < windowSize) {
+				return removeFirst(main);
+			}
+
+			//The window is full, so its oldest entry is admitted only if it is more frequent than the victim of the main space
+			K candidate = window.keySet().iterator().next();
+			K victim = main.keySet().iterator().next();
+			if(sketch.frequency(candidate.hashCode()) > sketch.frequency(victim.hashCode())) {
+				Map.Entry<K, V> evicted = removeFirst(main);
+				probation.put(candidate, window.remove(candidate));
+				return evicted;
+			}
+			return removeFirst(window);
+		}
+
+		@Override
+		int size() {
+			return window.size() + probation.size() + protect.size();
+		}
+
+		@Override
+		void clear() {
+			window.clear();
+			probation.clear();
+			protect.clear();
+			sketch.clear();
+		}
+	}
+
+	/**
+	 * Count-min sketch with 4-bit counters (stored in bytes), which estimates the frequency of keys with little memory.
+	 * When the number of increments reaches 10 times the width, all counters are halved.
+	 */
+	static class FrequencySketch {
+
+		/**
+		 * Seeds of the hash function of each row
+		 */
+		static final long [] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0x27D4EB2F165667C5L};
+
+		/**
+		 * Maximum value of a counter
+		 */
+		static final int MAX_COUNT = 15;
+
+		/**
+		 * Counters of the rows, one after the other
+		 */
+		byte [] counters;
+
+		/**
+		 * Number of counters of each row (power of two)
+		 */
+		int width;
+
+		/**
+		 * Number of increments since the counters were halved
+		 */
+		int additions;
+
+		/**
+		 * Constructor
+		 *
+		 * @param expectedSize Expected number of entries of the cache
+		 */
+		FrequencySketch(int expectedSize) {
+			resize(expectedSize);
+		}
+
+		/**
+		 * Grows the sketch if the cache has more entries than counters in each row; estimated frequencies are lost
+		 *
+		 * @param size Number of entries of the cache
+		 */
+		void ensureCapacity(int size) {
+			if(size > width) {
+				resize(size);
+			}
+		}
+
+		/**
+		 * Creates the counters for a number of entries
+		 *
+		 * @param size Number of entries
+		 */
+		void resize(int size) {
+			width = Integer.highestOneBit(Math.max(16, Math.min(size, 1 << 26) - 1) << 1);
+			counters = new byte[SEEDS.length * width];
+			additions = 0;
+		}
+
+		/**
+		 * Get the position of the counter of a hash in a row
+		 *
+		 * @param hash Hash of the key
+		 * @param row Row
+		 * @return Position of the counter
+		 */
+		int index(int hash, int row) {
+			long h = (hash + SEEDS[row]) * SEEDS[row];
+			//High bits of the product depend on all bits of the hash
+			h += h >>> 32;
+			return row * width + ((int) h & (width - 1));
+		}
+
+		/**
+		 * Registers a request of a key
+		 *
+		 * @param hash Hash of the key
+		 */
+		void increment(int hash) {
+			boolean added = false;
+			for(int row=0; row<SEEDS.length; row++) {
+				int i = index(hash, row);
+				if(counters[i] < MAX_COUNT) {
+					counters[i]++;
+					added = true;
+				}
+			}
+			if(added && ++additions >= 10 * width) {
+				for(int i=0; i<counters.length; i++) {
+					counters[i] >>= 1;
+				}
+				additions /= 2;
+			}
+		}
+
+		/**
+		 * Get the estimated number of requests of a key
+		 *
+		 * @param hash Hash of the key
+		 * @return Estimated frequency
+		 */
+		int frequency(int hash) {
+			int frequency = MAX_COUNT;
+			for(int row=0; row<SEEDS.length; row++) {
+				frequency = Math.min(frequency, counters[index(hash, row)]);
+			}
+			return frequency;
+		}
+
+		/**
+		 * Resets all counters
+		 */
+		void clear() {
+			counters = new byte[counters.length];
+			additions = 0;
+		}
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.util.Arrays;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.classifier.MultiLabelLearnerBase;
+import mulan.classifier.MultiLabelOutput;
+import mulan.data.MultiLabelInstances;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.TechnicalInformation;
+import weka.core.TechnicalInformationHandler;
+
+/**
+ * Cache of predictions in front of any multi-label learner.
+ * Predictions are cached by the values of the features of the instance (labels are ignored), so repeated feature
+ * 	vectors are predicted with a lookup instead of predicting with all binary classifiers (of all members of ensembles).
+ * The cache is bounded by number of entries or approximate size in bytes, with the LRU, LFU or W-TinyLFU eviction
+ * 	policies (see BoundedCache), whose hit rate is available through getCache().
+ * It can wrap a learner to build, or an already trained learner (e.g., loaded from a ModelFile).
+ * Each prediction returns its own copy of the cached output, so callers may modify it without changing the cache.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class CachedLearner extends MultiLabelLearnerBase {
+
+	/** For serialization */
+	private static final long serialVersionUID = 2317450916826380742L;
+
+	/**
+	 * Learner whose predictions are cached
+	 */
+	MultiLabelLearner learner;
+
+	/**
+	 * Maximum number of cached predictions
+	 */
+	int maxEntries = 10000;
+
+	/**
+	 * Maximum approximate size of the cached predictions in bytes; if 0, the cache is bounded by number of entries
+	 */
+	long maxBytes = 0;
+
+	/**
+	 * Eviction policy
+	 */
+	BoundedCache.Policy policy = BoundedCache.Policy.W_TINY_LFU;
+
+	/**
+	 * Cached predictions; it is not serialized, so copies of the learner start with an empty cache
+	 */
+	transient BoundedCache<FeatureVector, MultiLabelOutput> cache;
+
+	/**
+	 * Values of the features of an instance, used as key of the cache
+	 */
+	static final class FeatureVector {
+
+		/**
+		 * Values of the features
+		 */
+		final double [] values;
+
+		/**
+		 * Hash of the values
+		 */
+		final int hash;
+
+		/**
+		 * Constructor
+		 *
+		 * @param instance Instance
+		 * @param featureIndices Indices of the features
+		 */
+		FeatureVector(Instance instance, int [] featureIndices) {
+			values = new double[featureIndices.length];
+			//FNV-1a over the bits of the values, then mixed so all bits of the hash depend on all values
+			long h = 0xCBF29CE484222325L;
+			for(int i=0; i<featureIndices.length; i++) {
+				values[i] = instance.value(featureIndices[i]);
+				h = (h ^ Double.doubleToLongBits(values[i])) * 0x100000001B3L;
+			}
+			h ^= h >>> 33;
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+			hash = (int) h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof FeatureVector)) {
+				return false;
+			}
+			FeatureVector other = (FeatureVector) o;
+			return (hash == other.hash) && Arrays.equals(values, other.values);
+		}
+	}
+
+	/**
+	 * Constructor for a learner that is built with build()
+	 *
+	 * @param learner Learner whose predictions are cached
+	 */
+	public CachedLearner(MultiLabelLearner learner) {
+		this.learner = learner;
+	}
+
+	/**
+	 * Constructor for an already trained learner, which can predict without calling build()
+	 *
+	 * @param learner Trained learner whose predictions are cached
+	 * @param header Header of the training dataset
+	 * @param labelIndices Indices of the labels in the header
+	 * @throws Exception if the learner cannot be marked as built
+	 */
+	public CachedLearner(MultiLabelLearner learner, Instances header, int [] labelIndices) throws Exception {
+		this.learner = learner;
+		this.labelIndices = labelIndices.clone();
+		this.numLabels = labelIndices.length;
+		this.featureIndices = ModelFile.featureIndices(header.numAttributes(), labelIndices);
+		ModelFile.setModelInitialized(this);
+	}
+
+	/**
+	 * Set the maximum number of cached predictions; the cache is emptied
+	 *
+	 * @param maxEntries Maximum number of entries
+	 */
+	public synchronized void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = 0;
+		cache = null;
+	}
+
+	/**
+	 * Set the maximum approximate size of the cached predictions; the cache is emptied
+	 *
+	 * @param maxBytes Maximum size in bytes
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		cache = null;
+	}
+
+	/**
+	 * Set the eviction policy; the cache is emptied
+	 *
+	 * @param policy Eviction policy
+	 */
+	public synchronized void setPolicy(BoundedCache.Policy policy) {
+		this.policy = policy;
+		cache = null;
+	}
+
+	/**
+	 * Get the learner whose predictions are cached
+	 *
+	 * @return Learner
+	 */
+	public MultiLabelLearner getLearner() {
+		return learner;
+	}
+
+	/**
+	 * Get the cache of predictions, e.g., to get its hit rate
+	 *
+	 * @return Cache of predictions
+	 */
+	public synchronized BoundedCache<?, ?> getCache() {
+		if(cache == null) {
+			if(maxBytes > 0) {
+				final long entryBytes = entryBytes(featureIndices.length, numLabels);
+				cache = new BoundedCache<FeatureVector, MultiLabelOutput>(maxBytes, new BoundedCache.Weigher<FeatureVector, MultiLabelOutput>() {
+					@Override
+					public long weigh(FeatureVector key, MultiLabelOutput value) {
+						return entryBytes;
+					}
+				}, policy, null);
+			}
+			else {
+				cache = new BoundedCache<FeatureVector, MultiLabelOutput>(maxEntries, policy, null);
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Uses the cache of another learner with the same features, e.g., for copies of a model that predict in different
+	 * 	threads; changing the bounds or the policy afterwards gives this learner its own cache again
+	 *
+	 * @param other Learner whose cache is shared
+	 */
+	@SuppressWarnings("unchecked")
+	public void shareCache(CachedLearner other) {
+		BoundedCache<?, ?> shared = other.getCache();
+		synchronized(this) {
+			cache = (BoundedCache<FeatureVector, MultiLabelOutput>) shared;
+		}
+	}
+
+	/**
+	 * Get the approximate size of a cached prediction, including its key and the overhead of the cache
+	 *
+	 * @param numFeatures Number of features
+	 * @param numLabels Number of labels
+	 * @return Size in bytes
+	 */
+	static long entryBytes(int numFeatures, int numLabels) {
+		long key = 16 + 16 + 8L * numFeatures;
+		//Bipartition, confidences and ranking of the output
+		long value = 24 + (16 + numLabels) + (16 + 8L * numLabels) + (16 + 4L * numLabels);
+		long overhead = 64;
+		return key + value + overhead;
+	}
+
+	@Override
+	protected void buildInternal(MultiLabelInstances trainingSet) throws Exception {
+		learner.build(trainingSet);
+		synchronized(this) {
+			cache = null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected MultiLabelOutput makePredictionInternal(final Instance instance) throws Exception {
+		BoundedCache<FeatureVector, MultiLabelOutput> cache = (BoundedCache<FeatureVector, MultiLabelOutput>) getCache();
+		MultiLabelOutput output = cache.get(new FeatureVector(instance, featureIndices), new BoundedCache.Loader<FeatureVector, MultiLabelOutput>() {
+			@Override
+			public MultiLabelOutput load(FeatureVector key) throws Exception {
+				return learner.makePrediction(instance);
+			}
+		});
+		return copy(output);
+	}
+
+	/**
+	 * Copies an output, so the arrays of the cached one are not shared with callers
+	 *
+	 * @param output Output
+	 * @return Copy of the output, with the same bipartition, confidences and ranking
+	 */
+	static MultiLabelOutput copy(MultiLabelOutput output) {
+		if(output == null) {
+			return null;
+		}
+		if(output.hasBipartition() && output.hasConfidences()) {
+			return new MultiLabelOutput(output.getBipartition().clone(), output.getConfidences().clone());
+		}
+		if(output.hasBipartition()) {
+			return new MultiLabelOutput(output.getBipartition().clone());
+		}
+		if(output.hasConfidences()) {
+			return new MultiLabelOutput(output.getConfidences().clone());
+		}
+		return new MultiLabelOutput(output.getRanking().clone());
+	}
+
+	@Override
+	public TechnicalInformation getTechnicalInformation() {
+		return (learner instanceof TechnicalInformationHandler) ? ((TechnicalInformationHandler) learner).getTechnicalInformation() : null;
+	}
+
+	@Override
+	public String globalInfo() {
+		return "Cache of predictions of a multi-label learner, keyed by the values of the features.";
+	}
+}
@@ -0,0 +1,408 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+
+import weka.classifiers.meta.FilteredClassifier;
+import weka.classifiers.trees.J48;
+import weka.classifiers.trees.j48.BinC45Split;
+import weka.classifiers.trees.j48.C45Split;
+import weka.classifiers.trees.j48.ClassifierSplitModel;
+import weka.classifiers.trees.j48.ClassifierTree;
+import weka.classifiers.trees.j48.Distribution;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Flattened representation of a trained J48 tree wrapped in a FilteredClassifier.
+ * Nodes are stored in breadth-first order as a struct of arrays, and the children of each node are contiguous.
+ * Attribute indices refer to the original (unfiltered) dataset, so the tree is evaluated directly
+ * 	over the primitive feature vector of an instance, without filtering it nor walking the object graph of J48.
+ * Predictions are the same than the ones of the original FilteredClassifier, including missing values.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class FlatTree implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -2693826441578904457L;
+
+	/**
+	 * Kinds of nodes
+	 */
+	static final byte LEAF = 0;
+	static final byte NUMERIC = 1;
+	static final byte NOMINAL = 2;
+	static final byte BINARY_NOMINAL = 3;
+
+	/**
+	 * Kind of each node
+	 */
+	byte [] kind;
+
+	/**
+	 * Index of the attribute (in the original dataset) evaluated in each node
+	 */
+	int [] attribute;
+
+	/**
+	 * Split point of each node: threshold for numeric attributes or value for binary nominal splits
+	 */
+	double [] threshold;
+
+	/**
+	 * Index of the first child of each node
+	 */
+	int [] firstChild;
+
+	/**
+	 * Number of children of each node
+	 */
+	int [] numChildren;
+
+	/**
+	 * Weight of each node within its parent, used to distribute instances with missing values
+	 */
+	double [] weight;
+
+	/**
+	 * Indicates if the node was empty in training; empty nodes are skipped for missing values
+	 */
+	boolean [] empty;
+
+	/**
+	 * Class distribution of each node (numClasses values per node); only used in leaves
+	 */
+	double [] distribution;
+
+	/**
+	 * Number of values of the class
+	 */
+	int numClasses;
+
+	/**
+	 * Index of the class value "1"
+	 */
+	int positiveIndex;
+
+	/**
+	 * Fields of the J48 object graph, which are not publicly available
+	 */
+	private static Field rootField, isLeafField, isEmptyField, sonsField, localModelField;
+
+	/**
+	 * Flattens the J48 tree of a FilteredClassifier
+	 *
+	 * @param classifier Trained filtered classifier
+	 * @param header Header of the dataset given to the filtered classifier
+	 * @return Flattened tree, or null if the classifier could not be flattened (i.e., the base classifier is not J48)
+	 */
+	public static FlatTree flatten(FilteredClassifier classifier, Instances header) {
+		if(!(classifier.getClassifier() instanceof J48)) {
+			return null;
+		}
+		J48 j48 = (J48) classifier.getClassifier();
+		if(j48.getUseLaplace()) {
+			return null;
+		}
+
+		try {
+			initFields();
+			ClassifierTree root = (ClassifierTree) rootField.get(j48);
+			if(root == null) {
+				return null;
+			}
+
+			//Map attributes of the filtered dataset to attributes of the original one
+			Instances filteredHeader = classifier.getFilter().getOutputFormat();
+			int [] map = new int[filteredHeader.numAttributes()];
+			for(int i=0; i<map.length; i++) {
+				Attribute att = header.attribute(filteredHeader.attribute(i).name());
+				if(att == null) {
+					return null;
+				}
+				map[i] = att.index();
+			}
+
+			FlatTree tree = new FlatTree();
+			tree.numClasses = filteredHeader.numClasses();
+			tree.positiveIndex = filteredHeader.classAttribute().indexOfValue("1");
+			tree.build(root, filteredHeader, map);
+			return tree;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the fields of the J48 object graph by reflection
+	 *
+	 * @throws Exception
+	 */
+	private static synchronized void initFields() throws Exception {
+		if(rootField == null) {
+			isLeafField = accessibleField(ClassifierTree.class, "m_isLeaf");
+			isEmptyField = accessibleField(ClassifierTree.class, "m_isEmpty");
+			sonsField = accessibleField(ClassifierTree.class, "m_sons");
+			localModelField = accessibleField(ClassifierTree.class, "m_localModel");
+			rootField = accessibleField(J48.class, "m_root");
+		}
+	}
+
+	private static Field accessibleField(Class<?> c, String name) throws Exception {
+		Field field = c.getDeclaredField(name);
+		field.setAccessible(true);
+		return field;
+	}
+
+	/**
+	 * Fills the arrays of the tree by traversing the J48 tree in breadth-first order
+	 *
+	 * @param root Root of J48 tree
+	 * @param filteredHeader Header of the dataset used to train the tree
+	 * @param map Mapping from filtered to original attribute indices
+	 * @throws Exception
+	 */
+	private void build(ClassifierTree root, Instances filteredHeader, int [] map) throws Exception {
+		ArrayList<ClassifierTree> nodes = new ArrayList<ClassifierTree>();
+		ArrayList<double[]> leafDistributions = new ArrayList<double[]>();
+		ArrayList<Double> weights = new ArrayList<Double>();
+		ArrayList<int[]> children = new ArrayList<int[]>();
+
+		//First pass: number all nodes in breadth-first order
+		//	(nodes are appended to the list as they are reached, so the list itself acts as the queue)
+		nodes.add(root);
+		leafDistributions.add(null);
+		weights.add(1.0);
+
+		for(int n=0; n<nodes.size(); n++) {
+			ClassifierTree node = nodes.get(n);
+			if(node == null || isLeafField.getBoolean(node)) {
+				children.add(null);
+				continue;
+			}
+
+			ClassifierSplitModel model = (ClassifierSplitModel) localModelField.get(node);
+			ClassifierTree [] sons = (ClassifierTree[]) sonsField.get(node);
+			Distribution dist = model.distribution();
+			int [] c = new int[] {nodes.size(), sons.length};
+			children.add(c);
+			for(int s=0; s<sons.length; s++) {
+				weights.add(dist.perBag(s) / dist.total());
+				if(isEmptyField.getBoolean(sons[s])) {
+					//Empty sons predict with the distribution of the subset in the parent
+					double [] p = new double[numClasses];
+					for(int k=0; k<numClasses; k++) {
+						p[k] = dist.prob(k, s);
+					}
+					nodes.add(null);
+					leafDistributions.add(p);
+				}
+				else {
+					nodes.add(sons[s]);
+					leafDistributions.add(null);
+				}
+			}
+		}
+
+		//Second pass: fill the arrays
+		int numNodes = nodes.size();
+		kind = new byte[numNodes];
+		attribute = new int[numNodes];
+		threshold = new double[numNodes];
+		firstChild = new int[numNodes];
+		numChildren = new int[numNodes];
+		weight = new double[numNodes];
+		empty = new boolean[numNodes];
+		distribution = new double[numNodes * numClasses];
+
+		for(int n=0; n<numNodes; n++) {
+			ClassifierTree node = nodes.get(n);
+			weight[n] = weights.get(n);
+			attribute[n] = -1;
+
+			if(node == null) {
+				kind[n] = LEAF;
+				empty[n] = true;
+				System.arraycopy(leafDistributions.get(n), 0, distribution, n*numClasses, numClasses);
+			}
+			else if(children.get(n) == null) {
+				kind[n] = LEAF;
+				Distribution dist = ((ClassifierSplitModel) localModelField.get(node)).distribution();
+				for(int k=0; k<numClasses; k++) {
+					distribution[n*numClasses + k] = dist.prob(k);
+				}
+			}
+			else {
+				ClassifierSplitModel model = (ClassifierSplitModel) localModelField.get(node);
+				int attIndex;
+				if(model instanceof C45Split) {
+					attIndex = ((C45Split) model).attIndex();
+					threshold[n] = ((C45Split) model).splitPoint();
+					kind[n] = filteredHeader.attribute(attIndex).isNominal() ? NOMINAL : NUMERIC;
+				}
+				else if(model instanceof BinC45Split) {
+					attIndex = ((BinC45Split) model).attIndex();
+					threshold[n] = ((BinC45Split) model).splitPoint();
+					kind[n] = filteredHeader.attribute(attIndex).isNominal() ? BINARY_NOMINAL : NUMERIC;
+				}
+				else {
+					throw new Exception("Split model not supported: " + model.getClass().getName());
+				}
+				attribute[n] = map[attIndex];
+				firstChild[n] = children.get(n)[0];
+				numChildren[n] = children.get(n)[1];
+			}
+		}
+	}
+
+	/**
+	 * Get the index of the class value "1"
+	 *
+	 * @return Index of positive class value
+	 */
+	public int getPositiveIndex() {
+		return positiveIndex;
+	}
+
+	/**
+	 * Get the number of nodes of the tree
+	 *
+	 * @return Number of nodes
+	 */
+	public int numNodes() {
+		return kind.length;
+	}
+
+	/**
+	 * Obtain the class distribution for a given instance
+	 *
+	 * @param values Values of all attributes of the instance in the original dataset
+	 * @return Class distribution
+	 */
+	public double[] distributionForInstance(double [] values) {
+		return distribution(values, null);
+	}
+
+	/**
+	 * Obtain the class distribution for a given instance.
+	 * Only the attributes evaluated in the path are accessed, so sparse instances are not converted to dense.
+	 *
+	 * @param instance Instance in the original dataset
+	 * @return Class distribution
+	 */
+	public double[] distributionForInstance(Instance instance) {
+		return distribution(null, instance);
+	}
+
+	/**
+	 * Obtain the class distribution for a given instance, given either as a vector of values or as an Instance
+	 *
+	 * @param values Values of all attributes of the instance, or null
+	 * @param instance Instance, used if values is null
+	 * @return Class distribution
+	 */
+	private double[] distribution(double [] values, Instance instance) {
+		double [] dist = new double[numClasses];
+
+		int node = 0;
+		while(kind[node] != LEAF) {
+			double value = value(node, values, instance);
+			if(Double.isNaN(value)) {
+				return missingDistribution(node, values, instance, 1);
+			}
+			node = firstChild[node] + branch(node, value);
+		}
+
+		System.arraycopy(distribution, node*numClasses, dist, 0, numClasses);
+		return dist;
+	}
+
+	/**
+	 * Obtain the value of the attribute evaluated in a node
+	 *
+	 * @param node Node
+	 * @param values Values of all attributes of the instance, or null
+	 * @param instance Instance, used if values is null
+	 * @return Value of the attribute
+	 */
+	private double value(int node, double [] values, Instance instance) {
+		return (values != null) ? values[attribute[node]] : instance.value(attribute[node]);
+	}
+
+	/**
+	 * Obtain the weighted distribution of the leaves reached from a given node,
+	 * 	distributing the instance among all children when the value is missing.
+	 * Sums are made in the same order than in J48, so the results are exactly the same.
+	 *
+	 * @param node Current node
+	 * @param values Values of the instance, or null
+	 * @param instance Instance, used if values is null
+	 * @param w Weight of the instance in the current node
+	 * @return Weighted class distribution
+	 */
+	private double[] missingDistribution(int node, double [] values, Instance instance, double w) {
+		double [] dist = new double[numClasses];
+		if(kind[node] == LEAF) {
+			for(int k=0; k<numClasses; k++) {
+				dist[k] = w * distribution[node*numClasses + k];
+			}
+			return dist;
+		}
+
+		double value = value(node, values, instance);
+		if(Double.isNaN(value)) {
+			for(int child=firstChild[node]; child<firstChild[node]+numChildren[node]; child++) {
+				if(!empty[child]) {
+					double [] childDist = missingDistribution(child, values, instance, weight[child] * w);
+					for(int k=0; k<numClasses; k++) {
+						dist[k] += childDist[k];
+					}
+				}
+			}
+			return dist;
+		}
+		else {
+			return missingDistribution(firstChild[node] + branch(node, value), values, instance, w);
+		}
+	}
+
+	/**
+	 * Obtain the branch followed by a value in a given node
+	 *
+	 * @param node Node
+	 * @param value Value of the attribute of the node
+	 * @return Index of the child
+	 */
+	private int branch(int node, double value) {
+		switch(kind[node]) {
+			case NUMERIC:
+				return Utils.smOrEq(value, threshold[node]) ? 0 : 1;
+			case NOMINAL:
+				return (int) value;
+			default:
+				return ((int) value == (int) threshold[node]) ? 0 : 1;
+		}
+	}
+}
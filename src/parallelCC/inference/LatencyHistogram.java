@@ -0,0 +1,182 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+/**
+ * Histogram of latencies, used to compute percentiles with constant memory.
+ * Latencies are recorded in nanoseconds into log-linear buckets: each power of two is split into 32 buckets,
+ * 	so percentiles are given with a relative error below 1/32 (about 3%).
+ * It is thread-safe.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Number of buckets of each power of two (log2 is SUB_BITS)
+	 */
+	static final int SUB_BITS = 5;
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/**
+	 * Number of values in each bucket
+	 */
+	long [] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+
+	/**
+	 * Number of values
+	 */
+	long count;
+
+	/**
+	 * Sum of the values (ns)
+	 */
+	long sum;
+
+	/**
+	 * Maximum value (ns)
+	 */
+	long max;
+
+	/**
+	 * Records a latency
+	 *
+	 * @param nanos Latency in nanoseconds
+	 */
+	public synchronized void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		counts[bucket(nanos)]++;
+		count++;
+		sum += nanos;
+		max = Math.max(max, nanos);
+	}
+
+	/**
+	 * Get the number of recorded latencies
+	 *
+	 * @return Number of latencies
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the mean latency
+	 *
+	 * @return Mean latency (ms), or 0 if there are no latencies
+	 */
+	public synchronized double getMean() {
+		return (count == 0) ? 0 : sum / (double) count / 1e6;
+	}
+
+	/**
+	 * Get the maximum latency
+	 *
+	 * @return Maximum latency (ms)
+	 */
+	public synchronized double getMax() {
+		return max / 1e6;
+	}
+
+	/**
+	 * Get a percentile of the latencies, i.e., the latency under which there is the given percentage of latencies
+	 *
+	 * @param percentile Percentile, in [0, 100]
+	 * @return Latency (ms), or 0 if there are no latencies
+	 */
+	public synchronized double getPercentile(double percentile) {
+		if(count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long cumulative = 0;
+		for(int b=0; b<counts.length; b++) {
+			cumulative += counts[b];
+			if(cumulative >= rank) {
+				return Math.min(upperBound(b), max) / 1e6;
+			}
+		}
+		return max / 1e6;
+	}
+
+	/**
+	 * Adds the latencies of another histogram to this one
+	 *
+	 * @param other Histogram to add
+	 */
+	public void merge(LatencyHistogram other) {
+		long [] otherCounts;
+		long otherCount, otherSum, otherMax;
+		synchronized(other) {
+			otherCounts = other.counts.clone();
+			otherCount = other.count;
+			otherSum = other.sum;
+			otherMax = other.max;
+		}
+		synchronized(this) {
+			for(int b=0; b<counts.length; b++) {
+				counts[b] += otherCounts[b];
+			}
+			count += otherCount;
+			sum += otherSum;
+			max = Math.max(max, otherMax);
+		}
+	}
+
+	/**
+	 * Removes all the latencies
+	 */
+	public synchronized void reset() {
+		counts = new long[counts.length];
+		count = sum = max = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("count=%d; mean=%.3fms; p50=%.3fms; p90=%.3fms; p99=%.3fms; p999=%.3fms; max=%.3fms",
+				count, getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getPercentile(99.9), getMax());
+	}
+
+	/**
+	 * Get the bucket of a value
+	 *
+	 * @param value Value (ns)
+	 * @return Index of the bucket
+	 */
+	static int bucket(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+	/**
+	 * Get the largest value of a bucket
+	 *
+	 * @param bucket Index of the bucket
+	 * @return Largest value (ns)
+	 */
+	static long upperBound(int bucket) {
+		if(bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.io.File;
+import java.util.PriorityQueue;
+
+import mulan.classifier.MultiLabelOutput;
+import parallelCC.filters.SparseRemove;
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.FilteredClassifier;
+import weka.core.Instance;
+
+/**
+ * Model whose binary classifiers are kept on disk and loaded on first use, for models with too many labels to keep
+ * 	all of them in memory.
+ * It reads a model file (see ModelFile) with a single chain (NewCC, ParallelCC) or a BR model; the file is memory-mapped,
+ * 	and the classifier of each label is loaded when it is needed into a cache with a bounded number of classifiers
+ * 	(see BoundedCache), so the memory used does not depend on the number of labels.
+ * Trained J48 trees are flattened when they are loaded (see FlatTree), so each cached classifier takes less memory.
+ * Besides predicting all labels, BR models can score a subset of labels or get the labels with the highest confidence.
+ * It is thread-safe as long as the base classifier predicts in a thread-safe way.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class LazyModel {
+
+	/**
+	 * Model file
+	 */
+	ModelFile file;
+
+	/**
+	 * Indicates if the model is BR; otherwise it is a chain
+	 */
+	boolean isBR;
+
+	/**
+	 * Filter shared by all the classifiers of BR
+	 */
+	SparseRemove sharedFilter;
+
+	/**
+	 * Classifiers of the labels in memory, by position in the chain (or label in BR)
+	 */
+	BoundedCache<Integer, Link> cache;
+
+	/**
+	 * Binary classifier of a label, ready to predict
+	 */
+	static class Link {
+
+		/**
+		 * Flattened tree, or null if the classifier is not a J48 tree
+		 */
+		FlatTree flat;
+
+		/**
+		 * Filter of the classifier, if it is not flattened
+		 */
+		SparseRemove filter;
+
+		/**
+		 * Classifier, if it is not flattened
+		 */
+		Classifier classifier;
+
+		/**
+		 * Index of the class value "1"
+		 */
+		int positiveIndex;
+
+		/**
+		 * Predicts an instance
+		 *
+		 * @param instance Instance in the format of the dataset
+		 * @param filtered Instance in the format of the filter, or null if it must be filtered
+		 * @return Distribution of the class
+		 * @throws Exception
+		 */
+		double [] distribution(Instance instance, Instance filtered) throws Exception {
+			if(flat != null) {
+				return flat.distributionForInstance(instance);
+			}
+			return classifier.distributionForInstance((filtered != null) ? filtered : filter.convertInstance(instance));
+		}
+	}
+
+	/**
+	 * Opens a model file for lazy prediction; no classifier is loaded until it is needed
+	 *
+	 * @param modelFile Model file, with a NewCC, ParallelCC or BR model
+	 * @param capacity Maximum number of classifiers in memory
+	 * @param policy Eviction policy of the classifiers
+	 * @return Lazy model
+	 * @throws Exception if the file cannot be read or it contains an ensemble
+	 */
+	public static LazyModel open(File modelFile, int capacity, BoundedCache.Policy policy) throws Exception {
+		final LazyModel model = new LazyModel();
+		model.file = ModelFile.open(modelFile);
+		if(model.file.numMembers() != 1) {
+			throw new IllegalArgumentException("Lazy models only support NewCC, ParallelCC and BR models");
+		}
+		model.isBR = (model.file.type == ModelFile.BR);
+		if(model.isBR) {
+			model.sharedFilter = model.file.loadFilter(0, 0);
+		}
+
+		model.cache = new BoundedCache<Integer, Link>(capacity, policy, new BoundedCache.Loader<Integer, Link>() {
+			@Override
+			public Link load(Integer key) throws Exception {
+				return model.loadLink(key);
+			}
+		});
+		return model;
+	}
+
+	/**
+	 * Loads the classifier of a position of the chain (or label in BR)
+	 *
+	 * @param i Position
+	 * @return Classifier ready to predict
+	 * @throws Exception if the classifier cannot be loaded
+	 */
+	Link loadLink(int i) throws Exception {
+		FilteredClassifier model = new FilteredClassifier();
+		model.setFilter(isBR ? sharedFilter : file.loadFilter(0, i));
+		model.setClassifier(file.loadClassifier(0, i));
+
+		Link link = new Link();
+		link.flat = FlatTree.flatten(model, file.header);
+		if(link.flat != null) {
+			link.positiveIndex = link.flat.getPositiveIndex();
+		}
+		else {
+			link.filter = (SparseRemove) model.getFilter();
+			link.classifier = model.getClassifier();
+			link.positiveIndex = link.filter.getOutputFormat().classAttribute().indexOfValue("1");
+		}
+		return link;
+	}
+
+	/**
+	 * Get the number of labels
+	 *
+	 * @return Number of labels
+	 */
+	public int numLabels() {
+		return file.labelIndices.length;
+	}
+
+	/**
+	 * Get the cache of classifiers, e.g., to get its hit rate and load times
+	 *
+	 * @return Cache of classifiers
+	 */
+	public BoundedCache<Integer, ?> getCache() {
+		return cache;
+	}
+
+	/**
+	 * Predicts all the labels of an instance
+	 *
+	 * @param instance Instance, in the format of the training dataset
+	 * @return Output of the model
+	 * @throws Exception if any classifier cannot be loaded
+	 */
+	public MultiLabelOutput makePrediction(Instance instance) throws Exception {
+		int numLabels = numLabels();
+		boolean [] bipartition = new boolean[numLabels];
+		double [] confidences = new double[numLabels];
+
+		if(isBR) {
+			Instance filtered = sharedFilter.convertInstance(instance);
+			for(int j=0; j<numLabels; j++) {
+				Link link = cache.get(j);
+				double [] distribution = link.distribution(instance, filtered);
+				int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
+				bipartition[j] = (maxIndex == link.positiveIndex);
+				confidences[j] = distribution[link.positiveIndex];
+			}
+		}
+		else {
+			int [] chain = file.chains[0];
+			Instance tempInstance = (Instance) instance.copy();
+			for(int i=0; i<numLabels; i++) {
+				Link link = cache.get(i);
+				double [] distribution = link.distribution(tempInstance, null);
+				int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
+				bipartition[chain[i]] = (maxIndex == link.positiveIndex);
+				confidences[chain[i]] = distribution[link.positiveIndex];
+				tempInstance.setValue(file.labelIndices[chain[i]], maxIndex);
+			}
+		}
+
+		return new MultiLabelOutput(bipartition, confidences);
+	}
+
+	/**
+	 * Get the confidence of a subset of labels for an instance; only the classifiers of these labels are used.
+	 * It is only available for BR models, as labels of a chain depend on the previous ones.
+	 *
+	 * @param instance Instance, in the format of the training dataset
+	 * @param labels Labels to score
+	 * @return Confidence of each given label
+	 * @throws Exception if any classifier cannot be loaded
+	 */
+	public double [] scores(Instance instance, int [] labels) throws Exception {
+		if(!isBR) {
+			throw new IllegalStateException("Subsets of labels can only be scored with BR models");
+		}
+
+		Instance filtered = sharedFilter.convertInstance(instance);
+		double [] scores = new double[labels.length];
+		for(int k=0; k<labels.length; k++) {
+			Link link = cache.get(labels[k]);
+			scores[k] = link.distribution(instance, filtered)[link.positiveIndex];
+		}
+		return scores;
+	}
+
+	/**
+	 * Get the labels with the highest confidence for an instance
+	 *
+	 * @param instance Instance, in the format of the training dataset
+	 * @param k Number of labels
+	 * @return Labels, in descending order of confidence
+	 * @throws Exception if any classifier cannot be loaded
+	 */
+	public int [] topLabels(Instance instance, int k) throws Exception {
+		final double [] confidences = makePrediction(instance).getConfidences();
+		k = Math.min(k, confidences.length);
+
+		//Heap with the best k labels, whose head is the worst of them
+		PriorityQueue<Integer> best = new PriorityQueue<Integer>(Math.max(1, k), (a, b) -> Double.compare(confidences[a], confidences[b]));
+		for(int j=0; j<confidences.length && k>0; j++) {
+			if(best.size() < k) {
+				best.add(j);
+			}
+			else if(confidences[j] > confidences[best.peek()]) {
+				best.poll();
+				best.add(j);
+			}
+		}
+
+		int [] top = new int[best.size()];
+		for(int i=top.length-1; i>=0; i--) {
+			top[i] = best.poll();
+		}
+		return top;
+	}
+}
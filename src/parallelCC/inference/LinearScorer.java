@@ -0,0 +1,324 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import mulan.classifier.MultiLabelOutput;
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.Logistic;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * Scoring engine for chains (or BR) whose binary classifiers are linear models (Logistic).
+ * The weights of all labels over the features of the dataset are stored in a single contiguous matrix,
+ * 	so all the dot products of an instance are computed in one pass over its feature vector.
+ * The predictions of previous labels in the chain, used as extra input features, are then applied
+ * 	as sequential corrections over the scores, following the chain order.
+ * The matrix is stored feature-major, so the inner loop is an update of all the label scores
+ * 	with the same feature value, which the JIT is able to vectorize.
+ * Predictions are the same than the ones of the original models, except for rounding errors.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class LinearScorer implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -4580335925062387364L;
+
+	/**
+	 * Number of labels (i.e., links of the chain)
+	 */
+	int numLabels;
+
+	/**
+	 * Indices of the features in the dataset; they are the columns of the weights matrix
+	 */
+	int [] featureIndices;
+
+	/**
+	 * Column of each attribute of the dataset in the weights matrix, or -1 if it is not a feature
+	 */
+	int [] featureColumn;
+
+	/**
+	 * Indices of the labels in the dataset
+	 */
+	int [] labelIndices;
+
+	/**
+	 * Label predicted by each link of the chain
+	 */
+	int [] chain;
+
+	/**
+	 * Weights of each feature (row) for each link of the chain (column), i.e., weights[f*numLabels + l]
+	 */
+	double [] weights;
+
+	/**
+	 * Intercept of each link
+	 */
+	double [] intercepts;
+
+	/**
+	 * Weights of the value of the label predicted by the q-th link, in the p-th link, i.e., labelWeights[p*numLabels + q]
+	 */
+	double [] labelWeights;
+
+	/**
+	 * Indicates if there are weights for previous labels in the chain
+	 */
+	boolean hasLabelWeights;
+
+	/**
+	 * Index of the class value "1" in each link
+	 */
+	int [] positiveIndex;
+
+	/**
+	 * Fields of Logistic, which are not publicly available
+	 */
+	private static Field nominalToBinaryField;
+
+	/**
+	 * Builds the scorer for a set of models, if all of them are Logistic models
+	 *
+	 * @param models Binary classifier of each link of the chain
+	 * @param header Header of the multi-label dataset
+	 * @param featureIndices Indices of the features in the dataset
+	 * @param labelIndices Indices of the labels in the dataset
+	 * @param chain Label predicted by each link; for BR, it is the identity
+	 * @return The scorer, or null if any of the models is not a supported linear model
+	 */
+	public static LinearScorer build(Classifier [] models, Instances header, int [] featureIndices, int [] labelIndices, int [] chain) {
+		int numLabels = chain.length;
+
+		LinearScorer scorer = new LinearScorer();
+		scorer.numLabels = numLabels;
+		scorer.featureIndices = featureIndices;
+		scorer.labelIndices = labelIndices;
+		scorer.chain = chain;
+		scorer.weights = new double[featureIndices.length * numLabels];
+		scorer.intercepts = new double[numLabels];
+		scorer.labelWeights = new double[numLabels * numLabels];
+		scorer.positiveIndex = new int[numLabels];
+
+		//Column of each attribute in the weights matrix, and link predicting each label attribute
+		int [] featureColumn = new int[header.numAttributes()];
+		int [] labelLink = new int[header.numAttributes()];
+		scorer.featureColumn = featureColumn;
+		Arrays.fill(featureColumn, -1);
+		Arrays.fill(labelLink, -1);
+		for(int f=0; f<featureIndices.length; f++) {
+			featureColumn[featureIndices[f]] = f;
+		}
+		for(int p=0; p<numLabels; p++) {
+			labelLink[labelIndices[chain[p]]] = p;
+		}
+
+		try {
+			for(int p=0; p<numLabels; p++) {
+				if(!(models[p] instanceof Logistic)) {
+					return null;
+				}
+				Logistic logistic = (Logistic) models[p];
+
+				//Predictors of the model, after its internal filters
+				Instances structure = structure(logistic);
+				double [][] par = logistic.coefficients();
+				if(structure.numClasses() != 2) {
+					return null;
+				}
+
+				//Coefficients are the logit of the first class value; turn them into the logit of "1"
+				scorer.positiveIndex[p] = structure.classAttribute().indexOfValue("1");
+				double sign = (scorer.positiveIndex[p] == 0) ? 1 : -1;
+
+				scorer.intercepts[p] = sign * par[0][0];
+				int j = 1;
+				for(int k=0; k<structure.numAttributes(); k++) {
+					if(k == structure.classIndex()) {
+						continue;
+					}
+
+					Attribute att = attribute(header, structure.attribute(k).name());
+					if(att == null) {
+						return null;
+					}
+
+					if(featureColumn[att.index()] >= 0) {
+						scorer.weights[featureColumn[att.index()] * numLabels + p] += sign * par[j][0];
+					}
+					else if(labelLink[att.index()] >= 0 && labelLink[att.index()] < p) {
+						scorer.labelWeights[p * numLabels + labelLink[att.index()]] += sign * par[j][0];
+						scorer.hasLabelWeights = true;
+					}
+					else {
+						return null;
+					}
+					j++;
+				}
+			}
+		} catch (Exception e) {
+			return null;
+		}
+
+		return scorer;
+	}
+
+	/**
+	 * Get the attribute of the dataset corresponding to a predictor of Logistic.
+	 * Binary nominal attributes are named as "name=value" by NominalToBinary, and their value is the index of the value,
+	 * 	so they are used as they are. Indicators of nominal attributes with more than two values are not supported.
+	 *
+	 * @param header Header of the multi-label dataset
+	 * @param name Name of the predictor
+	 * @return Attribute in the dataset, or null if not supported
+	 */
+	private static Attribute attribute(Instances header, String name) {
+		Attribute att = header.attribute(name);
+		if(att != null) {
+			return att.isNominal() ? null : att;
+		}
+
+		int pos = name.lastIndexOf('=');
+		if(pos < 0) {
+			return null;
+		}
+		att = header.attribute(name.substring(0, pos));
+		if(att == null || !att.isNominal() || att.numValues() != 2 || !att.value(1).equals(name.substring(pos+1))) {
+			return null;
+		}
+		return att;
+	}
+
+	/**
+	 * Get the structure of the data after the internal filters of a Logistic model
+	 *
+	 * @param logistic Trained Logistic model
+	 * @return Header of the data used to fit the coefficients
+	 * @throws Exception
+	 */
+	private static Instances structure(Logistic logistic) throws Exception {
+		synchronized(LinearScorer.class) {
+			if(nominalToBinaryField == null) {
+				nominalToBinaryField = Logistic.class.getDeclaredField("m_NominalToBinary");
+				nominalToBinaryField.setAccessible(true);
+			}
+		}
+		return ((Filter) nominalToBinaryField.get(logistic)).getOutputFormat();
+	}
+
+	/**
+	 * Makes a prediction over the feature vector of an instance.
+	 * The values of the labels in the vector are overwritten with the predictions of the chain.
+	 *
+	 * @param values Values of all attributes of the instance
+	 * @return Output of the chain, or null if the instance has missing values (they must be handled by the original models)
+	 */
+	public MultiLabelOutput score(double [] values) {
+		//Scores of all links, computed over the contiguous matrix
+		double [] scores = new double[numLabels];
+		System.arraycopy(intercepts, 0, scores, 0, numLabels);
+		for(int f=0; f<featureIndices.length; f++) {
+			double v = values[featureIndices[f]];
+			if(v != 0) {
+				if(Double.isNaN(v)) {
+					return null;
+				}
+				int offset = f * numLabels;
+				for(int p=0; p<numLabels; p++) {
+					scores[p] += weights[offset + p] * v;
+				}
+			}
+		}
+
+		return chainOutput(scores, values);
+	}
+
+	/**
+	 * Makes a prediction over an instance.
+	 * Only the non-zero values of the instance are visited, so sparse instances are not converted to dense.
+	 *
+	 * @param instance Instance in the multi-label dataset
+	 * @return Output of the chain, or null if the instance has missing values (they must be handled by the original models)
+	 */
+	public MultiLabelOutput score(Instance instance) {
+		double [] scores = new double[numLabels];
+		System.arraycopy(intercepts, 0, scores, 0, numLabels);
+		for(int k=0; k<instance.numValues(); k++) {
+			int f = featureColumn[instance.index(k)];
+			double v = instance.valueSparse(k);
+			if(f >= 0 && v != 0) {
+				if(Double.isNaN(v)) {
+					return null;
+				}
+				int offset = f * numLabels;
+				for(int p=0; p<numLabels; p++) {
+					scores[p] += weights[offset + p] * v;
+				}
+			}
+		}
+
+		return chainOutput(scores, null);
+	}
+
+	/**
+	 * Applies the corrections of previous labels in the chain over the scores of the features, sequentially,
+	 * 	and obtains the output of the chain
+	 *
+	 * @param scores Scores of each link given by the features
+	 * @param values Values of all attributes of the instance, where predicted labels are written; it may be null
+	 * @return Output of the chain
+	 */
+	private MultiLabelOutput chainOutput(double [] scores, double [] values) {
+		boolean [] bipartition = new boolean[numLabels];
+		double [] confidences = new double[numLabels];
+		double [] labelValues = new double[numLabels];
+		for(int p=0; p<numLabels; p++) {
+			double s = scores[p];
+			if(hasLabelWeights) {
+				int offset = p * numLabels;
+				for(int q=0; q<p; q++) {
+					s += labelWeights[offset + q] * labelValues[q];
+				}
+			}
+
+			double [] distribution = new double[2];
+			distribution[positiveIndex[p]] = 1 / (1 + Math.exp(-s));
+			distribution[1 - positiveIndex[p]] = 1 / (1 + Math.exp(s));
+			int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
+
+			bipartition[chain[p]] = (maxIndex == positiveIndex[p]);
+			confidences[chain[p]] = distribution[positiveIndex[p]];
+			labelValues[p] = maxIndex;
+			if(values != null) {
+				values[labelIndices[chain[p]]] = maxIndex;
+			}
+		}
+
+		return new MultiLabelOutput(bipartition, confidences);
+	}
+}
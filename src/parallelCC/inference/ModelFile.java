@@ -0,0 +1,735 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.classifier.MultiLabelLearnerBase;
+import mulan.classifier.transformation.BR;
+import mulan.classifier.transformation.ECC;
+import mulan.classifier.transformation.TransformationBasedMultiLabelLearner;
+import parallelCC.NewCC;
+import parallelCC.ParallelCC;
+import parallelCC.ensemble.EPCC;
+import parallelCC.ensemble.PECC;
+import parallelCC.ensemble.PEPCC;
+import parallelCC.filters.SparseRemove;
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.FilteredClassifier;
+import weka.core.Instances;
+
+/**
+ * Compact binary file with a trained chain (NewCC, ParallelCC), ensemble of chains (ECC, EPCC, PECC, PEPCC) or BR model,
+ * 	used instead of Java-serializing the whole model, where each link carries its own filter and copy of the dataset header.
+ * The file stores:
+ * 	<ul>
+ * 		<li>The ARFF header of the training dataset and the indices of the labels, only once.</li>
+ * 		<li>The type and parameters of the model, and the (untrained) base classifier.</li>
+ * 		<li>For each member: its chain and, for each link, the label used as class and the kept attributes (projection),
+ * 			and the position of its base classifier. All the models of BR share the same projection, which is stored once.</li>
+ * 		<li>The trained base classifier of each link, Java-serialized and compressed, one after the other.</li>
+ * 	</ul>
+ * Filters are rebuilt from the header and the projections when the file is loaded.
+ * As the position of each base classifier is known, the links of all members are loaded in parallel, and any link
+ * 	can be loaded alone (see LazyModel). The file is memory-mapped, so opening it only reads its index;
+ * 	projections are read when their link is loaded.
+ * All values are stored in big-endian order.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class ModelFile {
+
+	/**
+	 * Magic number of the files ("PCCM")
+	 */
+	static final int MAGIC = 0x5043434D;
+
+	/**
+	 * Version of the format
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Types of models
+	 */
+	static final byte NEWCC = 0;
+	static final byte PARALLELCC = 1;
+	static final byte ECC = 2;
+	static final byte EPCC = 3;
+	static final byte PECC = 4;
+	static final byte PEPCC = 5;
+	static final byte BR = 6;
+
+	/**
+	 * Flags of the members
+	 */
+	static final byte USE_PREDICTIONS = 1;
+	static final byte USE_LINEAR_SCORER = 2;
+	static final byte SHARED_PROJECTION = 4;
+
+	/**
+	 * Header of the training dataset (without instances)
+	 */
+	Instances header;
+
+	/**
+	 * Indices of the labels
+	 */
+	int [] labelIndices;
+
+	/**
+	 * Indices of the features
+	 */
+	int [] featureIndices;
+
+	/**
+	 * Type of the model
+	 */
+	byte type;
+
+	/**
+	 * Untrained base classifier
+	 */
+	Classifier baseClassifier;
+
+	/**
+	 * Parameters of ensembles
+	 */
+	boolean useConfidences;
+	boolean useSamplingWithReplacement;
+	int bagSizePercent;
+	double samplingPercentage;
+
+	/**
+	 * Type of each member (NEWCC, PARALLELCC or BR)
+	 */
+	byte [] memberTypes;
+
+	/**
+	 * Flags of each member
+	 */
+	byte [] memberFlags;
+
+	/**
+	 * Chain of each member
+	 */
+	int [][] chains;
+
+	/**
+	 * Index of the label used as class by each link of each member
+	 */
+	int [][] classIndices;
+
+	/**
+	 * Position in the file of the kept attributes of each link of each member
+	 */
+	int [][] projections;
+
+	/**
+	 * Position (relative to the section of models) and length of the base classifier of each link of each member
+	 */
+	long [][] offsets;
+	int [][] lengths;
+
+	/**
+	 * Mapped file
+	 */
+	ByteBuffer buffer;
+
+	/**
+	 * Mapped section with the base classifiers
+	 */
+	ByteBuffer models;
+
+	/**
+	 * Opens a model file by memory-mapping it; only the index of the file is read
+	 *
+	 * @param file Model file
+	 * @return Model file
+	 * @throws IOException if the file cannot be read or it is not a valid model file
+	 */
+	public static ModelFile open(File file) throws IOException {
+		ModelFile model = new ModelFile();
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("Model file is too large to be mapped: " + size + " bytes");
+			}
+
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if(size < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a model file: " + file);
+			}
+
+			byte [] headerBytes = new byte[buffer.getInt()];
+			buffer.get(headerBytes);
+			model.header = new Instances(new StringReader(new String(headerBytes, StandardCharsets.UTF_8)));
+			model.labelIndices = readInts(buffer);
+			model.featureIndices = readInts(buffer);
+
+			model.type = buffer.get();
+			byte [] base = new byte[buffer.getInt()];
+			buffer.get(base);
+			model.baseClassifier = (Classifier) deserialize(base);
+			model.useConfidences = buffer.get() != 0;
+			model.useSamplingWithReplacement = buffer.get() != 0;
+			model.bagSizePercent = buffer.getInt();
+			model.samplingPercentage = buffer.getDouble();
+
+			int numMembers = buffer.getInt();
+			int numLabels = model.labelIndices.length;
+			model.memberTypes = new byte[numMembers];
+			model.memberFlags = new byte[numMembers];
+			model.chains = new int[numMembers][];
+			model.classIndices = new int[numMembers][numLabels];
+			model.projections = new int[numMembers][numLabels];
+			model.offsets = new long[numMembers][numLabels];
+			model.lengths = new int[numMembers][numLabels];
+			for(int m=0; m<numMembers; m++) {
+				model.memberTypes[m] = buffer.get();
+				model.memberFlags[m] = buffer.get();
+				model.chains[m] = readInts(buffer);
+				int shared = buffer.position();
+				if((model.memberFlags[m] & SHARED_PROJECTION) != 0) {
+					skipInts(buffer);
+				}
+				for(int i=0; i<numLabels; i++) {
+					model.classIndices[m][i] = buffer.getInt();
+					model.projections[m][i] = ((model.memberFlags[m] & SHARED_PROJECTION) != 0) ? shared : buffer.position();
+					skipInts(buffer);
+					model.offsets[m][i] = buffer.getLong();
+					model.lengths[m][i] = buffer.getInt();
+				}
+			}
+
+			model.buffer = buffer.duplicate();
+			buffer.position(buffer.getInt());
+			model.models = buffer.slice();
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Not a valid model file: " + file, e);
+		}
+
+		return model;
+	}
+
+	/**
+	 * Reads a model file and loads the whole model
+	 *
+	 * @param file Model file
+	 * @param numThreads Number of threads to load the links; it is also the number of threads of parallel models
+	 * @return Trained model
+	 * @throws Exception if the file cannot be read or it is not a valid model file
+	 */
+	public static MultiLabelLearner read(File file, int numThreads) throws Exception {
+		return open(file).load(numThreads);
+	}
+
+	/**
+	 * Writes a trained model in the model format.
+	 * It is first written to a temporary file that then replaces the given one.
+	 *
+	 * @param learner Trained model (NewCC, ParallelCC, ECC, EPCC, PECC, PEPCC or BR)
+	 * @param file Model file
+	 * @throws IOException if the model cannot be written
+	 * @throws IllegalArgumentException if the type of model is not supported or it has not been built
+	 */
+	public static void write(MultiLabelLearner learner, File file) throws IOException {
+		NewCC [] members = null;
+		BR br = null;
+		byte type;
+		ECC ensemble = null;
+		if(learner instanceof ECC) {
+			ensemble = (ECC) learner;
+			members = ensemble.members();
+			type = (learner instanceof PEPCC) ? PEPCC : (learner instanceof EPCC) ? EPCC : (learner instanceof PECC) ? PECC : ECC;
+		}
+		else if(learner instanceof NewCC) {
+			members = new NewCC[]{(NewCC) learner};
+			type = (learner instanceof ParallelCC) ? PARALLELCC : NEWCC;
+		}
+		else if(learner instanceof BR) {
+			br = (BR) learner;
+			type = BR;
+		}
+		else {
+			throw new IllegalArgumentException("Model files only support NewCC, ParallelCC, their ensembles and BR");
+		}
+
+		Instances header;
+		int [] labelIndices;
+		if(br != null) {
+			if(br.getModels() == null) {
+				throw new IllegalArgumentException("The model must be built before it is written");
+			}
+			header = br.getHeader();
+			labelIndices = br.getLabelIndices();
+		}
+		else {
+			for(NewCC member : members) {
+				if(member == null || member.getLinks() == null) {
+					throw new IllegalArgumentException("The model must be built before it is written");
+				}
+			}
+
+			//Header and indices of the labels, from the filter of the first link
+			FilteredClassifier [] firstLinks = members[0].getLinks();
+			header = ((SparseRemove) firstLinks[0].getFilter()).getInputHeader();
+			labelIndices = new int[firstLinks.length];
+			for(int i=0; i<firstLinks.length; i++) {
+				labelIndices[members[0].getChain()[i]] = header.attribute(firstLinks[i].getFilter().getOutputFormat().classAttribute().name()).index();
+			}
+		}
+		int numLabels = labelIndices.length;
+		int [] featureIndices = featureIndices(header.numAttributes(), labelIndices);
+
+		//Base classifiers of the links, which are written after the index
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(index);
+		ArrayList<byte []> blobs = new ArrayList<byte []>();
+		long offset = 0;
+
+		byte [] headerBytes = header.toString().getBytes(StandardCharsets.UTF_8);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(headerBytes.length);
+		out.write(headerBytes);
+		writeInts(out, labelIndices);
+		writeInts(out, featureIndices);
+
+		out.writeByte(type);
+		byte [] base = serialize(((TransformationBasedMultiLabelLearner) learner).getBaseClassifier());
+		out.writeInt(base.length);
+		out.write(base);
+		out.writeByte((ensemble != null && ensemble.getUseConfidences()) ? 1 : 0);
+		out.writeByte((ensemble != null && ensemble.getUseSamplingWithReplacement()) ? 1 : 0);
+		out.writeInt((ensemble != null) ? ensemble.getBagSizePercent() : 0);
+		out.writeDouble((ensemble != null) ? ensemble.getSamplingPercentage() : 0);
+
+		if(br != null) {
+			//All models keep the features and the first label, which holds the label of each model
+			out.writeInt(1);
+			out.writeByte(BR);
+			out.writeByte(SHARED_PROJECTION | (br.getUseLinearScorer() ? USE_LINEAR_SCORER : 0));
+			int [] identity = new int[numLabels];
+			for(int i=0; i<numLabels; i++) {
+				identity[i] = i;
+			}
+			writeInts(out, identity);
+			int [] kept = new int[featureIndices.length + 1];
+			System.arraycopy(featureIndices, 0, kept, 0, featureIndices.length);
+			kept[featureIndices.length] = labelIndices[0];
+			Arrays.sort(kept);
+			writeInts(out, kept);
+
+			Classifier [] models = br.getModels();
+			for(int i=0; i<numLabels; i++) {
+				out.writeInt(labelIndices[i]);
+				writeInts(out, new int[0]);
+
+				byte [] blob = serialize(models[i]);
+				blobs.add(blob);
+				out.writeLong(offset);
+				out.writeInt(blob.length);
+				offset += blob.length;
+			}
+		}
+		else {
+			out.writeInt(members.length);
+			for(NewCC member : members) {
+				byte flags = 0;
+				if(member.getUsePredictions()) {
+					flags |= USE_PREDICTIONS;
+				}
+				if(member.getUseLinearScorer()) {
+					flags |= USE_LINEAR_SCORER;
+				}
+				out.writeByte((member instanceof ParallelCC) ? PARALLELCC : NEWCC);
+				out.writeByte(flags);
+				writeInts(out, member.getChain());
+
+				FilteredClassifier [] links = member.getLinks();
+				for(int i=0; i<numLabels; i++) {
+					SparseRemove remove = (SparseRemove) links[i].getFilter();
+					out.writeInt(header.attribute(remove.getOutputFormat().classAttribute().name()).index());
+					writeInts(out, remove.getSelectedAttributes());
+
+					byte [] blob = serialize(links[i].getClassifier());
+					blobs.add(blob);
+					out.writeLong(offset);
+					out.writeInt(blob.length);
+					offset += blob.length;
+				}
+			}
+		}
+		out.flush();
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream fileOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+			index.writeTo(fileOut);
+			fileOut.writeInt(index.size() + 4);
+			for(byte [] blob : blobs) {
+				fileOut.write(blob);
+			}
+		}
+
+		if(file.exists() && !file.delete()) {
+			throw new IOException("Model file cannot be replaced: " + file);
+		}
+		if(!tmp.renameTo(file)) {
+			throw new IOException("Model file cannot be created: " + file);
+		}
+	}
+
+	/**
+	 * Loads the whole model; the links of all members are loaded in parallel
+	 *
+	 * @param numThreads Number of threads to load the links; it is also the number of threads of parallel models
+	 * @return Trained model
+	 * @throws Exception if any link cannot be loaded
+	 */
+	public MultiLabelLearner load(int numThreads) throws Exception {
+		final int numMembers = numMembers();
+		final int numLabels = labelIndices.length;
+		final FilteredClassifier [][] links = new FilteredClassifier[numMembers][numLabels];
+		final Classifier [] models = new Classifier[numLabels];
+		final NewCC [] members = new NewCC[numMembers];
+
+		ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+		try {
+			//Links of all members
+			ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for(int m=0; m<numMembers; m++) {
+				for(int i=0; i<numLabels; i++) {
+					final int member = m, link = i;
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							if(type == BR) {
+								models[link] = loadClassifier(member, link);
+							}
+							else {
+								links[member][link] = loadLink(member, link);
+							}
+							return null;
+						}
+					});
+				}
+			}
+			invokeAll(executorService, tasks);
+
+			if(type == BR) {
+				BR br = new BR(baseClassifier);
+				br.setUseLinearScorer((memberFlags[0] & USE_LINEAR_SCORER) != 0);
+				br.setNumThreads(numThreads);
+				br.restore(header, labelIndices.clone(), featureIndices.clone(), models);
+				setModelInitialized(br);
+				return br;
+			}
+
+			//Members, whose trees are flattened again
+			tasks.clear();
+			for(int m=0; m<numMembers; m++) {
+				final int member = m;
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						members[member] = (memberTypes[member] == PARALLELCC) ? new ParallelCC(baseClassifier) : new NewCC(baseClassifier);
+						members[member].setUsePredictions((memberFlags[member] & USE_PREDICTIONS) != 0);
+						members[member].setUseLinearScorer((memberFlags[member] & USE_LINEAR_SCORER) != 0);
+						members[member].restore(header, labelIndices.clone(), featureIndices.clone(), chains[member].clone(), links[member]);
+						setModelInitialized(members[member]);
+						return null;
+					}
+				});
+			}
+			invokeAll(executorService, tasks);
+		} finally {
+			executorService.shutdown();
+		}
+
+		for(NewCC member : members) {
+			if(member instanceof ParallelCC) {
+				((ParallelCC) member).setNumThreads(numThreads);
+			}
+		}
+		if(type == NEWCC || type == PARALLELCC) {
+			return members[0];
+		}
+
+		ECC ensemble;
+		switch(type) {
+			case EPCC:
+				ensemble = new EPCC(baseClassifier, numMembers, useConfidences, useSamplingWithReplacement);
+				((EPCC) ensemble).setNumThreads(numThreads);
+				break;
+			case PECC:
+				ensemble = new PECC(baseClassifier, numMembers, useConfidences, useSamplingWithReplacement);
+				((PECC) ensemble).setNumThreads(numThreads);
+				break;
+			case PEPCC:
+				ensemble = new PEPCC(baseClassifier, numMembers, useConfidences, useSamplingWithReplacement);
+				((PEPCC) ensemble).setNumThreads(numThreads);
+				break;
+			default:
+				ensemble = new ECC(baseClassifier, numMembers, useConfidences, useSamplingWithReplacement);
+		}
+		ensemble.setBagSizePercent(bagSizePercent);
+		ensemble.setSamplingPercentage(samplingPercentage);
+		ensemble.restore(labelIndices.clone(), featureIndices.clone(), members);
+		setModelInitialized(ensemble);
+		return ensemble;
+	}
+
+	/**
+	 * Loads a single link of a member, i.e., its filter and trained base classifier. It is thread-safe.
+	 *
+	 * @param member Index of the member
+	 * @param link Position of the link in the chain of the member
+	 * @return Trained model of the link
+	 * @throws Exception if the link cannot be loaded
+	 */
+	public FilteredClassifier loadLink(int member, int link) throws Exception {
+		FilteredClassifier model = new FilteredClassifier();
+		model.setFilter(loadFilter(member, link));
+		model.setClassifier(loadClassifier(member, link));
+		return model;
+	}
+
+	/**
+	 * Loads the trained base classifier of a link. It is thread-safe.
+	 *
+	 * @param member Index of the member
+	 * @param link Position of the link in the chain of the member
+	 * @return Trained base classifier, which predicts instances filtered by the filter of the link
+	 * @throws Exception if the classifier cannot be loaded
+	 */
+	public Classifier loadClassifier(int member, int link) throws Exception {
+		byte [] blob = new byte[lengths[member][link]];
+		ByteBuffer models = this.models.duplicate();
+		models.position((int) offsets[member][link]);
+		models.get(blob);
+		return (Classifier) deserialize(blob);
+	}
+
+	/**
+	 * Builds the filter of a link from its projection. It is thread-safe.
+	 * In BR, the class of all filters is the first label, which holds the label of each model.
+	 *
+	 * @param member Index of the member
+	 * @param link Position of the link in the chain of the member
+	 * @return Filter of the link
+	 * @throws Exception if the filter cannot be built
+	 */
+	public SparseRemove loadFilter(int member, int link) throws Exception {
+		ByteBuffer buffer = this.buffer.duplicate();
+		buffer.position(projections[member][link]);
+		int [] kept = readInts(buffer);
+
+		//Removed attributes are the ones that are not kept
+		int [] removed = new int[header.numAttributes() - kept.length];
+		int n = 0, k = 0;
+		for(int a=0; a<header.numAttributes(); a++) {
+			if(k < kept.length && kept[k] == a) {
+				k++;
+			}
+			else {
+				removed[n++] = a;
+			}
+		}
+
+		Instances linkHeader = new Instances(header, 0);
+		linkHeader.setClassIndex((memberTypes[member] == BR) ? labelIndices[0] : classIndices[member][link]);
+		SparseRemove remove = new SparseRemove();
+		remove.setAttributeIndicesArray(removed);
+		remove.setInvertSelection(false);
+		remove.setInputFormat(linkHeader);
+		return remove;
+	}
+
+	/**
+	 * Get the header of the training dataset
+	 *
+	 * @return Header (without instances)
+	 */
+	public Instances getHeader() {
+		return new Instances(header, 0);
+	}
+
+	/**
+	 * Get the indices of the labels in the header
+	 *
+	 * @return Indices of the labels
+	 */
+	public int [] getLabelIndices() {
+		return labelIndices.clone();
+	}
+
+	/**
+	 * Get the number of members; it is 1 for single chains
+	 *
+	 * @return Number of members
+	 */
+	public int numMembers() {
+		return chains.length;
+	}
+
+	/**
+	 * Get the indices of the features given the number of attributes and the indices of the labels
+	 *
+	 * @param numAttributes Number of attributes
+	 * @param labelIndices Indices of the labels
+	 * @return Indices of the attributes that are not labels
+	 */
+	static int [] featureIndices(int numAttributes, int [] labelIndices) {
+		boolean [] isLabel = new boolean[numAttributes];
+		for(int index : labelIndices) {
+			isLabel[index] = true;
+		}
+		int [] featureIndices = new int[numAttributes - labelIndices.length];
+		int n = 0;
+		for(int a=0; a<numAttributes; a++) {
+			if(!isLabel[a]) {
+				featureIndices[n++] = a;
+			}
+		}
+		return featureIndices;
+	}
+
+	/**
+	 * Marks a model as built, as it is done by build(); the flag is private in Mulan
+	 *
+	 * @param learner Model
+	 * @throws Exception if the flag cannot be set
+	 */
+	static void setModelInitialized(MultiLabelLearnerBase learner) throws Exception {
+		Field field = MultiLabelLearnerBase.class.getDeclaredField("isModelInitialized");
+		field.setAccessible(true);
+		field.setBoolean(learner, true);
+	}
+
+	/**
+	 * Executes a list of tasks and waits until all of them finish
+	 *
+	 * @param executorService Executor of the tasks
+	 * @param tasks Tasks
+	 * @throws Exception if any task fails
+	 */
+	static void invokeAll(ExecutorService executorService, List<Callable<Void>> tasks) throws Exception {
+		try {
+			for(Future<Void> future : executorService.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * Java-serializes and compresses an object
+	 *
+	 * @param object Object
+	 * @return Compressed bytes
+	 * @throws IOException
+	 */
+	static byte [] serialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION)))) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decompresses and deserializes an object
+	 *
+	 * @param bytes Compressed bytes
+	 * @return Object
+	 * @throws Exception
+	 */
+	static Object deserialize(byte [] bytes) throws Exception {
+		try (ObjectInputStream in = new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+			return in.readObject();
+		}
+	}
+
+	/**
+	 * Writes an array of integers, preceded by its length
+	 *
+	 * @param out Output stream
+	 * @param values Values
+	 * @throws IOException
+	 */
+	static void writeInts(DataOutputStream out, int [] values) throws IOException {
+		out.writeInt(values.length);
+		for(int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	/**
+	 * Skips an array of integers, preceded by its length
+	 *
+	 * @param buffer Buffer
+	 */
+	static void skipInts(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		buffer.position(buffer.position() + 4 * length);
+	}
+
+	/**
+	 * Reads an array of integers, preceded by its length
+	 *
+	 * @param buffer Buffer
+	 * @return Values
+	 */
+	static int [] readInts(ByteBuffer buffer) {
+		int [] values = new int[buffer.getInt()];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * values.length);
+		return values;
+	}
+}
@@ -0,0 +1,558 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.classifier.MultiLabelOutput;
+import mulan.data.MultiLabelInstances;
+import mulan.evaluation.measure.InformationRetrievalMeasures;
+import parallelCC.data.LabelMatrix;
+import parallelCC.metrics.MetricsRegistry;
+import weka.core.Instances;
+
+/**
+ * Predictions of a multi-label model over a set of instances, stored in primitive arrays instead of one MultiLabelOutput
+ * 	per instance.
+ * Bipartitions are stored as a bit matrix with the same layout as LabelMatrix (each label is a row of 64-bit words,
+ * 	whose bit j is set if the label is predicted as relevant for the j-th instance), and confidences as a float matrix
+ * 	(instance by instance).
+ * It can be written to and read from disk, and evaluated against the true labels (see evaluate) with popcounts over the words
+ * 	and primitive arrays, giving the same values as the Mulan measures (up to the precision of floats for ranking measures).
+ * Instances in the same block of 64 share the same words, so they must not be set by different threads at the same time.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class PredictionMatrix {
+
+	/**
+	 * Identifier of the file format ("PCCP")
+	 */
+	static final int MAGIC = 0x50434350;
+
+	/**
+	 * Version of the file format
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Number of instances
+	 */
+	int numInstances;
+
+	/**
+	 * Number of labels
+	 */
+	int numLabels;
+
+	/**
+	 * Number of 64-bit words of each label
+	 */
+	int numWords;
+
+	/**
+	 * Bipartitions, i.e., the j-th instance of label l is the bit (j % 64) of bits[l*numWords + j/64]
+	 */
+	long [] bits;
+
+	/**
+	 * Confidences, i.e., the confidence of label l for the j-th instance is confidences[j*numLabels + l]
+	 */
+	float [] confidences;
+
+	/**
+	 * Constructor
+	 *
+	 * @param numInstances Number of instances
+	 * @param numLabels Number of labels
+	 */
+	public PredictionMatrix(int numInstances, int numLabels) {
+		if((long) numInstances * numLabels > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many predictions for a single matrix: " + numInstances + " x " + numLabels);
+		}
+		this.numInstances = numInstances;
+		this.numLabels = numLabels;
+		this.numWords = (numInstances + 63) >>> 6;
+		this.bits = new long[numLabels * numWords];
+		this.confidences = new float[numInstances * numLabels];
+	}
+
+	/**
+	 * Predicts all the instances of a dataset, in blocks of 64 instances distributed among threads.
+	 * Each thread uses its own model; the same model may be given several times if it predicts in a thread-safe way.
+	 *
+	 * @param models Trained models, one for each thread
+	 * @param data Multi-label dataset
+	 * @return Predictions
+	 * @throws Exception if any model fails
+	 */
+	public static PredictionMatrix predict(MultiLabelLearner [] models, MultiLabelInstances data) throws Exception {
+		final PredictionMatrix matrix = new PredictionMatrix(data.getNumInstances(), data.getNumLabels());
+		final Instances instances = data.getDataSet();
+		final int numThreads = Math.min(models.length, matrix.numWords);
+		if(numThreads <= 1) {
+			for(int j=0; j<matrix.numInstances; j++) {
+				matrix.set(j, models[0].makePrediction(instances.get(j)));
+			}
+			MetricsRegistry.recordPredictions("matrix", matrix.numInstances);
+			return matrix;
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+		ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for(int t=0; t<numThreads; t++) {
+			final int first = t;
+			final MultiLabelLearner model = models[t];
+			futures.add(executorService.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					//Blocks of 64 instances are assigned cyclically, so each thread writes its own words
+					for(int w=first; w<matrix.numWords; w+=numThreads) {
+						int end = Math.min(matrix.numInstances, (w + 1) << 6);
+						for(int j=w << 6; j<end; j++) {
+							matrix.set(j, model.makePrediction(instances.get(j)));
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		executorService.shutdown();
+
+		try {
+			for(Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		}
+		MetricsRegistry.recordPredictions("matrix", matrix.numInstances);
+		return matrix;
+	}
+
+	/**
+	 * Get the number of instances
+	 *
+	 * @return Number of instances
+	 */
+	public int numInstances() {
+		return numInstances;
+	}
+
+	/**
+	 * Get the number of labels
+	 *
+	 * @return Number of labels
+	 */
+	public int numLabels() {
+		return numLabels;
+	}
+
+	/**
+	 * Stores the prediction of an instance
+	 *
+	 * @param instance Index of the instance
+	 * @param output Output of the model
+	 */
+	public void set(int instance, MultiLabelOutput output) {
+		set(instance, output.getBipartition(), output.getConfidences());
+	}
+
+	/**
+	 * Stores the prediction of an instance
+	 *
+	 * @param instance Index of the instance
+	 * @param bipartition Relevance of each label
+	 * @param confidences Confidence of each label; if null, the bipartition is used as confidence
+	 */
+	public void set(int instance, boolean [] bipartition, double [] confidences) {
+		int word = instance >>> 6;
+		long bit = 1L << (instance & 63);
+		int offset = instance * numLabels;
+		for(int l=0; l<numLabels; l++) {
+			if(bipartition[l]) {
+				bits[l * numWords + word] |= bit;
+			}
+			else {
+				bits[l * numWords + word] &= ~bit;
+			}
+			this.confidences[offset + l] = (float) ((confidences != null) ? confidences[l] : (bipartition[l] ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Indicates if a label is predicted as relevant for an instance
+	 *
+	 * @param instance Index of the instance
+	 * @param label Index of the label
+	 * @return True if the label is predicted as relevant
+	 */
+	public boolean isRelevant(int instance, int label) {
+		return (bits[label * numWords + (instance >>> 6)] & (1L << (instance & 63))) != 0;
+	}
+
+	/**
+	 * Get the confidence of a label for an instance
+	 *
+	 * @param instance Index of the instance
+	 * @param label Index of the label
+	 * @return Confidence
+	 */
+	public float getConfidence(int instance, int label) {
+		return confidences[instance * numLabels + label];
+	}
+
+	/**
+	 * Get a copy of the bits of a label
+	 *
+	 * @param label Index of the label
+	 * @return Words of the label; bit (j % 64) of word j/64 is set if the label is predicted as relevant for the j-th instance
+	 */
+	public long [] getLabelBits(int label) {
+		return Arrays.copyOfRange(bits, label * numWords, (label + 1) * numWords);
+	}
+
+	/**
+	 * Get the prediction of an instance as a MultiLabelOutput
+	 *
+	 * @param instance Index of the instance
+	 * @return Output
+	 */
+	public MultiLabelOutput getOutput(int instance) {
+		boolean [] bipartition = new boolean[numLabels];
+		double [] conf = new double[numLabels];
+		for(int l=0; l<numLabels; l++) {
+			bipartition[l] = isRelevant(instance, l);
+			conf[l] = getConfidence(instance, l);
+		}
+		return new MultiLabelOutput(bipartition, conf);
+	}
+
+	/**
+	 * Writes the predictions to a file: a header with the dimensions, the words of the bipartitions and the confidences.
+	 * Arrays are written in large chunks straight from the primitive arrays.
+	 *
+	 * @param file File
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(numInstances).putInt(numLabels);
+
+			for(int i=0; i<bits.length; ) {
+				int n = Math.min(buffer.remaining() / 8, bits.length - i);
+				buffer.asLongBuffer().put(bits, i, n);
+				buffer.position(buffer.position() + 8 * n);
+				i += n;
+				flushIfFull(channel, buffer, 8);
+			}
+			for(int i=0; i<confidences.length; ) {
+				int n = Math.min(buffer.remaining() / 4, confidences.length - i);
+				buffer.asFloatBuffer().put(confidences, i, n);
+				buffer.position(buffer.position() + 4 * n);
+				i += n;
+				flushIfFull(channel, buffer, 4);
+			}
+			flushIfFull(channel, buffer, Integer.MAX_VALUE);
+		}
+
+		if(file.exists() && !file.delete()) {
+			throw new IOException("Prediction file cannot be replaced: " + file);
+		}
+		if(!tmp.renameTo(file)) {
+			throw new IOException("Prediction file cannot be created: " + file);
+		}
+	}
+
+	/**
+	 * Writes the content of a buffer if it has not room for another value
+	 *
+	 * @param channel File channel
+	 * @param buffer Buffer
+	 * @param size Size of the values
+	 * @throws IOException
+	 */
+	private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int size) throws IOException {
+		if(buffer.remaining() < size) {
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Reads predictions written with write()
+	 *
+	 * @param file File
+	 * @return Predictions
+	 * @throws IOException if the file cannot be read or it is not a valid prediction file
+	 */
+	public static PredictionMatrix read(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+			buffer.limit(0);
+			fill(channel, buffer, 16);
+			if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a prediction file: " + file);
+			}
+			PredictionMatrix matrix = new PredictionMatrix(buffer.getInt(), buffer.getInt());
+
+			for(int i=0; i<matrix.bits.length; ) {
+				fill(channel, buffer, 8);
+				int n = Math.min(buffer.remaining() / 8, matrix.bits.length - i);
+				buffer.asLongBuffer().get(matrix.bits, i, n);
+				buffer.position(buffer.position() + 8 * n);
+				i += n;
+			}
+			for(int i=0; i<matrix.confidences.length; ) {
+				fill(channel, buffer, 4);
+				int n = Math.min(buffer.remaining() / 4, matrix.confidences.length - i);
+				buffer.asFloatBuffer().get(matrix.confidences, i, n);
+				buffer.position(buffer.position() + 4 * n);
+				i += n;
+			}
+			return matrix;
+		}
+	}
+
+	/**
+	 * Reads from a file into a buffer until it has at least the given number of bytes, keeping its unread bytes
+	 *
+	 * @param channel File channel
+	 * @param buffer Buffer, ready to be read
+	 * @param size Minimum number of bytes
+	 * @throws IOException if the file ends before
+	 */
+	private static void fill(FileChannel channel, ByteBuffer buffer, int size) throws IOException {
+		if(buffer.remaining() >= size) {
+			return;
+		}
+		buffer.compact();
+		while(buffer.position() < size) {
+			if(channel.read(buffer) < 0) {
+				throw new IOException("Unexpected end of the prediction file");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Evaluates the predictions against the true labels of the instances, computing the example-based, label-based and
+	 * 	ranking-based measures of Mulan (as used in MainClass) with the same definitions and edge cases.
+	 * Label-based counts are computed with popcounts over the words, and example-based ones over blocks of 64 instances;
+	 * 	rankings are obtained by sorting primitive keys, with ties broken as in MultiLabelOutput.
+	 *
+	 * @param truth True labels, in the same order as the predictions
+	 * @return Value of each measure, by the name of the Mulan measure
+	 */
+	public LinkedHashMap<String, Double> evaluate(LabelMatrix truth) {
+		if(truth.numInstances() != numInstances || truth.numLabels() != numLabels) {
+			throw new IllegalArgumentException("The dimensions of the predictions and the true labels do not match");
+		}
+		long [][] truthBits = new long[numLabels][];
+		for(int l=0; l<numLabels; l++) {
+			truthBits[l] = truth.getLabelBits(l);
+		}
+
+		//Label-based counts
+		double [] tp = new double[numLabels], fp = new double[numLabels], fn = new double[numLabels], tn = new double[numLabels];
+		for(int l=0; l<numLabels; l++) {
+			for(int w=0; w<numWords; w++) {
+				long p = bits[l * numWords + w], t = truthBits[l][w];
+				tp[l] += Long.bitCount(p & t);
+				fp[l] += Long.bitCount(p & ~t);
+				fn[l] += Long.bitCount(~p & t);
+			}
+			tn[l] = numInstances - tp[l] - fp[l] - fn[l];
+		}
+
+		//Example-based and ranking-based sums
+		double hammingLoss = 0, subsetAccuracy = 0, precision = 0, recall = 0, fMeasure = 0, accuracy = 0, specificity = 0;
+		double averagePrecision = 0, coverage = 0, oneError = 0, isError = 0, errorSetSize = 0, rankingLoss = 0;
+		int numWithRelevant = 0;
+		int [] blockTp = new int[64], blockFp = new int[64], blockFn = new int[64];
+		long [] keys = new long[numLabels];
+		boolean [] relevant = new boolean[numLabels];
+
+		for(int w=0; w<numWords; w++) {
+			Arrays.fill(blockTp, 0);
+			Arrays.fill(blockFp, 0);
+			Arrays.fill(blockFn, 0);
+			for(int l=0; l<numLabels; l++) {
+				long p = bits[l * numWords + w], t = truthBits[l][w];
+				countBits(p & t, blockTp);
+				countBits(p & ~t, blockFp);
+				countBits(~p & t, blockFn);
+			}
+
+			int end = Math.min(64, numInstances - (w << 6));
+			for(int b=0; b<end; b++) {
+				double itp = blockTp[b], ifp = blockFp[b], ifn = blockFn[b], itn = numLabels - itp - ifp - ifn;
+				hammingLoss += (ifp + ifn) / numLabels;
+				subsetAccuracy += (ifp + ifn == 0) ? 1 : 0;
+				precision += InformationRetrievalMeasures.precision(itp, ifp, ifn);
+				recall += InformationRetrievalMeasures.recall(itp, ifp, ifn);
+				fMeasure += InformationRetrievalMeasures.fMeasure(itp, ifp, ifn, 1);
+				accuracy += (itp + ifp + ifn == 0) ? 1 : itp / (itp + ifp + ifn);
+				specificity += InformationRetrievalMeasures.specificity(itn, ifp, ifn);
+
+				//Labels in ascending order of confidence, and then of index, as the stable sort of MultiLabelOutput
+				int offset = ((w << 6) + b) * numLabels;
+				for(int l=0; l<numLabels; l++) {
+					relevant[l] = ((truthBits[l][w] >>> b) & 1) != 0;
+					int key = Float.floatToIntBits(confidences[offset + l] + 0.0f);
+					key ^= (key >> 31) & 0x7FFFFFFF;
+					keys[l] = ((long) key << 32) | l;
+				}
+				Arrays.sort(keys);
+
+				//Traverse the ranking from the first position
+				int numRelevant = (int) (itp + ifn), relevantSeen = 0, irrelevantSeen = 0, lastRelevantRank = 0;
+				double pairs = 0, precisionSum = 0;
+				for(int rank=1; rank<=numLabels; rank++) {
+					int l = (int) keys[numLabels - rank];
+					if(relevant[l]) {
+						relevantSeen++;
+						pairs += irrelevantSeen;
+						precisionSum += relevantSeen / (double) rank;
+						lastRelevantRank = rank;
+					}
+					else {
+						irrelevantSeen++;
+						if(rank == 1) {
+							oneError++;
+						}
+					}
+				}
+				coverage += (numRelevant > 0) ? lastRelevantRank - 1 : 0;
+				isError += (pairs > 0) ? 1 : 0;
+				errorSetSize += pairs;
+				if(numRelevant > 0 && numRelevant < numLabels) {
+					rankingLoss += pairs / (numRelevant * (double) (numLabels - numRelevant));
+				}
+				if(numRelevant > 0) {
+					averagePrecision += precisionSum / numRelevant;
+					numWithRelevant++;
+				}
+			}
+		}
+
+		double sumTp = 0, sumFp = 0, sumFn = 0, sumTn = 0;
+		double macroPrecision = 0, macroRecall = 0, macroFMeasure = 0, macroSpecificity = 0;
+		for(int l=0; l<numLabels; l++) {
+			sumTp += tp[l];
+			sumFp += fp[l];
+			sumFn += fn[l];
+			sumTn += tn[l];
+			macroPrecision += InformationRetrievalMeasures.precision(tp[l], fp[l], fn[l]);
+			macroRecall += InformationRetrievalMeasures.recall(tp[l], fp[l], fn[l]);
+			macroFMeasure += InformationRetrievalMeasures.fMeasure(tp[l], fp[l], fn[l], 1);
+			macroSpecificity += InformationRetrievalMeasures.specificity(tn[l], fp[l], fn[l]);
+		}
+
+		//Label-based average precision, over the instances in descending order of confidence (ties in order of the instances)
+		double sumAveragePrecision = 0, productAveragePrecision = 1;
+		int numWithoutRelevant = 0;
+		long [] instanceKeys = new long[numInstances];
+		for(int l=0; l<numLabels; l++) {
+			for(int j=0; j<numInstances; j++) {
+				int key = Float.floatToIntBits(confidences[j * numLabels + l] + 0.0f);
+				key ^= (key >> 31) & 0x7FFFFFFF;
+				instanceKeys[j] = ((long) ~key << 32) | j;
+			}
+			Arrays.sort(instanceKeys);
+
+			double relevantSeen = 0, precisionSum = 0;
+			for(int k=0; k<numInstances; k++) {
+				int j = (int) instanceKeys[k];
+				if(((truthBits[l][j >>> 6] >>> (j & 63)) & 1) != 0) {
+					relevantSeen++;
+					precisionSum += relevantSeen / (k + 1);
+				}
+			}
+			//As in Mulan, labels never relevant are skipped by the mean, but make the geometric mean undefined
+			double labelAveragePrecision = precisionSum / relevantSeen;
+			if(labelAveragePrecision >= 0) {
+				sumAveragePrecision += labelAveragePrecision;
+			}
+			else {
+				numWithoutRelevant++;
+			}
+			productAveragePrecision *= labelAveragePrecision;
+		}
+
+		double n = numInstances;
+		LinkedHashMap<String, Double> measures = new LinkedHashMap<String, Double>();
+		measures.put("Hamming Loss", hammingLoss / n);
+		measures.put("Subset Accuracy", subsetAccuracy / n);
+		measures.put("Example-Based Precision", precision / n);
+		measures.put("Example-Based Recall", recall / n);
+		measures.put("Example-Based F Measure", fMeasure / n);
+		measures.put("Example-Based Accuracy", accuracy / n);
+		measures.put("Example-Based Specificity", specificity / n);
+		measures.put("Micro-averaged Precision", InformationRetrievalMeasures.precision(sumTp, sumFp, sumFn));
+		measures.put("Micro-averaged Recall", InformationRetrievalMeasures.recall(sumTp, sumFp, sumFn));
+		measures.put("Micro-averaged F-Measure", InformationRetrievalMeasures.fMeasure(sumTp, sumFp, sumFn, 1));
+		measures.put("Micro-averaged Specificity", InformationRetrievalMeasures.specificity(sumTn, sumFp, sumFn));
+		measures.put("Macro-averaged Precision", macroPrecision / numLabels);
+		measures.put("Macro-averaged Recall", macroRecall / numLabels);
+		measures.put("Macro-averaged F-Measure", macroFMeasure / numLabels);
+		measures.put("Macro-averaged Specificity", macroSpecificity / numLabels);
+		measures.put("Average Precision", averagePrecision / numWithRelevant);
+		measures.put("Coverage", coverage / n);
+		measures.put("OneError", oneError / n);
+		measures.put("IsError", isError / n);
+		measures.put("ErrorSetSize", errorSetSize / n);
+		measures.put("Ranking Loss", rankingLoss / n);
+		measures.put("Mean Average Precision", sumAveragePrecision / (numLabels - numWithoutRelevant));
+		measures.put("Geometric Mean Average Precision", Math.pow(productAveragePrecision, 1.0 / numLabels));
+		return measures;
+	}
+
+	/**
+	 * Adds 1 to the counter of each set bit of a word
+	 *
+	 * @param word Word
+	 * @param counts Counter of each bit
+	 */
+	private static void countBits(long word, int [] counts) {
+		while(word != 0) {
+			counts[Long.numberOfTrailingZeros(word)]++;
+			word &= word - 1;
+		}
+	}
+}
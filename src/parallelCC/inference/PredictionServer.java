@@ -0,0 +1,631 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.inference;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.transformation.BR;
+import mulan.classifier.transformation.ClassicCC;
+import mulan.classifier.transformation.ECC;
+import parallelCC.NewCC;
+import parallelCC.data.ParallelArffReader;
+import parallelCC.metrics.MetricsRegistry;
+import parallelCC.metrics.MetricsServer;
+import weka.classifiers.Classifier;
+import weka.classifiers.trees.J48;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Local HTTP server that predicts instances with a trained model (e.g., loaded from a ModelFile).
+ * Instances of concurrent requests are coalesced into micro-batches: a batch is dispatched when it reaches the maximum size,
+ * 	or when its first instance has waited the maximum time; batches are predicted by a pool of threads.
+ * Therefore, the overhead of dispatching each request is shared by the instances of a batch.
+ * 	The model still predicts the instances of a batch one by one, so batching does not make each prediction cheaper;
+ * 	it bounds how long requests wait and keeps the instances of concurrent requests in the same queue.
+ * It serves:
+ * 	<ul>
+ * 		<li>POST /predict: rows in the format of the data section of ARFF files (dense or sparse), one per line,
+ * 			with all the attributes of the training dataset (values of labels are ignored, e.g., '?') or, if dense,
+ * 			only the features, as the CSV input of BatchPredictor.
+ * 			Confidences that are not numbers (e.g., NaN) are null in the response.
+ * 			It responds with the bipartition and confidences of each row, as JSON.</li>
+ * 		<li>GET /stats: number of requests, instances and batches, mean batch size, percentiles of the latency
+ * 			of requests and, if the model is a CachedLearner, hits and misses of its cache, as JSON.</li>
+ * 		<li>GET /header: ARFF header of the training dataset.</li>
+ * 		<li>GET /metrics: metrics of the process in the text format of Prometheus (see MetricsRegistry),
+ * 			including the throughput and latency of the server and the statistics of the cache.</li>
+ * 	</ul>
+ * Batches are predicted at the same time by different threads, which take the models from a pool (as in BatchPredictor):
+ * 	the same model may be given several times if it predicts in a thread-safe way (see isThreadSafe()), or one copy
+ * 	for each thread otherwise. Unless the number of threads is given, main() uses all the cores for models known to be
+ * 	thread-safe, and one thread otherwise.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class PredictionServer {
+
+	/**
+	 * First trained model of the pool, whose cache (if any) is reported
+	 */
+	MultiLabelLearner model;
+
+	/**
+	 * Pool of trained models, taken by the threads that predict batches
+	 */
+	LinkedBlockingQueue<MultiLabelLearner> models = new LinkedBlockingQueue<MultiLabelLearner>();
+
+	/**
+	 * Header of the training dataset
+	 */
+	Instances header;
+
+	/**
+	 * Indicates if each attribute is a label
+	 */
+	boolean [] isLabel;
+
+	/**
+	 * Parser of the rows of requests
+	 */
+	ParallelArffReader parser;
+
+	/**
+	 * Maximum number of instances of a batch
+	 */
+	int maxBatchSize = 64;
+
+	/**
+	 * Maximum time that the first instance of a batch waits for more instances (ns)
+	 */
+	long maxWait = TimeUnit.MILLISECONDS.toNanos(2);
+
+	/**
+	 * Number of threads that predict batches
+	 */
+	int numThreads;
+
+	/**
+	 * Instances waiting to be batched
+	 */
+	LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<Pending>();
+
+	/**
+	 * HTTP server
+	 */
+	HttpServer server;
+
+	/**
+	 * Thread that forms the batches
+	 */
+	Thread batcher;
+
+	/**
+	 * Threads that predict the batches
+	 */
+	ExecutorService workers;
+
+	/**
+	 * Indicates if the server is running
+	 */
+	volatile boolean running;
+
+	/**
+	 * Latency of the requests
+	 */
+	LatencyHistogram latencies = new LatencyHistogram();
+
+	/**
+	 * Number of requests, instances and batches
+	 */
+	AtomicLong numRequests = new AtomicLong(), numInstances = new AtomicLong(), numBatches = new AtomicLong();
+
+	/**
+	 * Instance waiting to be predicted
+	 */
+	static class Pending {
+
+		/**
+		 * Instance to predict
+		 */
+		Instance instance;
+
+		/**
+		 * Time when it was queued (ns)
+		 */
+		long queued;
+
+		/**
+		 * Output of the model, once it is predicted
+		 */
+		MultiLabelOutput output;
+
+		/**
+		 * Exception thrown by the model, if any
+		 */
+		Exception error;
+
+		/**
+		 * Counter of the request of the instance, which is decremented when it is predicted
+		 */
+		CountDownLatch done;
+	}
+
+	/**
+	 * Constructor for a server that predicts with one thread
+	 *
+	 * @param model Trained model
+	 * @param header Header of the training dataset
+	 * @param labelIndices Indices of the labels in the header
+	 * @throws IOException if the header has attributes that cannot be parsed
+	 */
+	public PredictionServer(MultiLabelLearner model, Instances header, int [] labelIndices) throws IOException {
+		this(new MultiLabelLearner [] {model}, header, labelIndices);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param models Trained models; one of them is used by each thread at the same time, so there are as many threads as models
+	 * @param header Header of the training dataset
+	 * @param labelIndices Indices of the labels in the header
+	 * @throws IOException if the header has attributes that cannot be parsed
+	 */
+	public PredictionServer(MultiLabelLearner [] models, Instances header, int [] labelIndices) throws IOException {
+		for(MultiLabelLearner model : models) {
+			this.models.add(model);
+		}
+		this.model = models[0];
+		this.numThreads = models.length;
+		this.header = new Instances(header, 0);
+		this.isLabel = BatchPredictor.isLabel(header.numAttributes(), labelIndices);
+		this.parser = new ParallelArffReader(header);
+	}
+
+	/**
+	 * Set the maximum number of instances of a batch
+	 *
+	 * @param maxBatchSize Maximum batch size
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+	}
+
+	/**
+	 * Set the maximum time that the first instance of a batch waits for more instances
+	 *
+	 * @param maxWaitMicros Maximum waiting time (microseconds)
+	 */
+	public void setMaxWait(long maxWaitMicros) {
+		this.maxWait = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxWaitMicros));
+	}
+
+	/**
+	 * Starts the server, listening only on the loopback address
+	 *
+	 * @param port Port; if 0, a free port is used (see getPort)
+	 * @throws IOException if the port cannot be bound
+	 */
+	public void start(int port) throws IOException {
+		running = true;
+		workers = Executors.newFixedThreadPool(numThreads);
+		batcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				formBatches();
+			}
+		}, "prediction-batcher");
+		batcher.setDaemon(true);
+		batcher.start();
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/predict", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handlePredict(exchange);
+			}
+		});
+		server.createContext("/stats", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "application/json", statistics());
+			}
+		});
+		server.createContext("/header", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "text/plain", header.toString());
+			}
+		});
+		server.createContext("/metrics", MetricsServer.handler());
+		MetricsRegistry.registerLatency("server", latencies);
+		if(model instanceof CachedLearner) {
+			MetricsRegistry.registerCache("server", ((CachedLearner) model).getCache());
+		}
+		//Requests are handled by many threads, so they wait for their batches at the same time
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	/**
+	 * Stops the server; pending instances are predicted before the threads finish
+	 */
+	public void stop() {
+		if(server != null) {
+			server.stop(0);
+			((ExecutorService) server.getExecutor()).shutdown();
+		}
+		running = false;
+		if(batcher != null) {
+			try {
+				batcher.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(workers != null) {
+			workers.shutdown();
+		}
+		MetricsRegistry.unregister("server");
+	}
+
+	/**
+	 * Get the port of the server
+	 *
+	 * @return Port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Get the histogram of the latency of the requests
+	 *
+	 * @return Latency histogram
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * Predicts a group of instances, which are batched with the instances of other requests.
+	 * It waits until all of them are predicted.
+	 *
+	 * @param instances Instances, in the format of the training dataset
+	 * @return Output of each instance
+	 * @throws Exception if the server is not running or the model fails
+	 */
+	public MultiLabelOutput [] predict(Instance [] instances) throws Exception {
+		if(!running) {
+			throw new IllegalStateException("The server is not running");
+		}
+		long start = System.nanoTime();
+
+		CountDownLatch done = new CountDownLatch(instances.length);
+		Pending [] pending = new Pending[instances.length];
+		for(int j=0; j<instances.length; j++) {
+			pending[j] = new Pending();
+			pending[j].instance = instances[j];
+			pending[j].done = done;
+			pending[j].queued = System.nanoTime();
+			queue.add(pending[j]);
+		}
+		done.await();
+
+		MultiLabelOutput [] outputs = new MultiLabelOutput[instances.length];
+		for(int j=0; j<instances.length; j++) {
+			if(pending[j].error != null) {
+				throw pending[j].error;
+			}
+			outputs[j] = pending[j].output;
+		}
+
+		numRequests.incrementAndGet();
+		numInstances.addAndGet(instances.length);
+		latencies.record(System.nanoTime() - start);
+		MetricsRegistry.recordPredictions("server", instances.length);
+		return outputs;
+	}
+
+	/**
+	 * Forms batches with the queued instances and gives them to the workers, until the server is stopped
+	 */
+	void formBatches() {
+		while(running || !queue.isEmpty()) {
+			try {
+				Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				final ArrayList<Pending> batch = new ArrayList<Pending>(maxBatchSize);
+				batch.add(first);
+				long deadline = first.queued + maxWait;
+				while(batch.size() < maxBatchSize) {
+					if(queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					Pending next = (remaining > 0) ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if(next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				numBatches.incrementAndGet();
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						predictBatch(batch);
+					}
+				});
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Predicts the instances of a batch, one by one, with a model of the pool
+	 *
+	 * @param batch Batch
+	 */
+	void predictBatch(ArrayList<Pending> batch) {
+		MultiLabelLearner model = models.poll();
+		try {
+			for(Pending pending : batch) {
+				try {
+					pending.output = model.makePrediction(pending.instance);
+				} catch (Exception e) {
+					pending.error = e;
+				}
+				pending.done.countDown();
+			}
+		} finally {
+			models.add(model);
+		}
+	}
+
+	/**
+	 * Handles a request to predict rows
+	 *
+	 * @param exchange HTTP exchange
+	 * @throws IOException if the response cannot be sent
+	 */
+	void handlePredict(HttpExchange exchange) throws IOException {
+		if(!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+			respond(exchange, 405, "text/plain", "Only POST is allowed");
+			return;
+		}
+
+		ArrayList<String> lines = new ArrayList<String>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+
+		Instance [] instances;
+		try {
+			BatchPredictor.addMissingLabels(lines, isLabel);
+			ParallelArffReader.Block block = parser.parseLines(lines);
+			instances = new Instance[block.numRows()];
+			for(int j=0; j<instances.length; j++) {
+				instances[j] = block.instance(j);
+				instances[j].setDataset(header);
+			}
+		} catch (IOException e) {
+			respond(exchange, 400, "text/plain", e.getMessage());
+			return;
+		}
+
+		MultiLabelOutput [] outputs;
+		try {
+			outputs = predict(instances);
+		} catch (Exception e) {
+			respond(exchange, 500, "text/plain", String.valueOf(e));
+			return;
+		}
+
+		StringBuilder json = new StringBuilder("{\"predictions\":[");
+		for(int j=0; j<outputs.length; j++) {
+			if(j > 0) {
+				json.append(',');
+			}
+			json.append("{\"bipartition\":[");
+			boolean [] bipartition = outputs[j].getBipartition();
+			for(int l=0; l<bipartition.length; l++) {
+				json.append((l > 0) ? "," : "").append(bipartition[l] ? 1 : 0);
+			}
+			json.append("],\"confidences\":[");
+			double [] confidences = outputs[j].getConfidences();
+			for(int l=0; l<confidences.length; l++) {
+				json.append((l > 0) ? "," : "").append(jsonNumber(confidences[l]));
+			}
+			json.append("]}");
+		}
+		json.append("]}");
+		respond(exchange, 200, "application/json", json.toString());
+	}
+
+	/**
+	 * Formats a number as JSON, which cannot represent NaN nor infinite values, so they are null
+	 *
+	 * @param value Value
+	 * @return Number or null
+	 */
+	static String jsonNumber(double value) {
+		return (Double.isNaN(value) || Double.isInfinite(value)) ? "null" : Double.toString(value);
+	}
+
+	/**
+	 * Get the statistics of the server, as JSON
+	 *
+	 * @return Statistics
+	 */
+	public String statistics() {
+		long batches = numBatches.get();
+		String cache = "";
+		if(model instanceof CachedLearner) {
+			BoundedCache<?, ?> c = ((CachedLearner) model).getCache();
+			cache = String.format(Locale.US, ",\"cache\":{\"entries\":%d,\"hits\":%d,\"misses\":%d,\"hitRate\":%.4f,\"evictions\":%d}",
+					c.size(), c.getHits(), c.getMisses(), c.getHitRate(), c.getEvictions());
+		}
+		return String.format(Locale.US,
+				"{\"requests\":%d,\"instances\":%d,\"batches\":%d,\"meanBatchSize\":%.3f,"
+				+ "\"latencyMs\":{\"mean\":%.3f,\"p50\":%.3f,\"p90\":%.3f,\"p99\":%.3f,\"p999\":%.3f,\"max\":%.3f}%s}",
+				numRequests.get(), numInstances.get(), batches, (batches == 0) ? 0 : numInstances.get() / (double) batches,
+				latencies.getMean(), latencies.getPercentile(50), latencies.getPercentile(90), latencies.getPercentile(99),
+				latencies.getPercentile(99.9), latencies.getMax(), cache);
+	}
+
+	/**
+	 * Sends a response
+	 *
+	 * @param exchange HTTP exchange
+	 * @param status Status code
+	 * @param contentType Content type
+	 * @param body Body of the response
+	 * @throws IOException
+	 */
+	static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		byte [] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Indicates if a model is known to predict in a thread-safe way: chains whose models are flattened trees
+	 * 	(see ClassicCC.isFlattened()), BR with J48 trees, and ensembles of them.
+	 * Other base classifiers (e.g., Logistic, SMO or filtered ones) keep state while predicting, so they are not.
+	 *
+	 * @param model Trained model
+	 * @return True if it can predict in several threads at the same time
+	 */
+	public static boolean isThreadSafe(MultiLabelLearner model) {
+		if(model instanceof CachedLearner) {
+			model = ((CachedLearner) model).getLearner();
+		}
+		if(model instanceof BR) {
+			for(Classifier classifier : ((BR) model).getModels()) {
+				if(!(classifier instanceof J48)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if(model instanceof ClassicCC) {
+			return ((ClassicCC) model).isFlattened();
+		}
+		if(model instanceof ECC) {
+			for(NewCC member : ((ECC) model).members()) {
+				if(member == null || !member.isFlattened()) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Starts a server with a model file. Arguments are:
+	 * 	1) -f Model file (see ModelFile)
+	 * 	2) -p Port (default 8080)
+	 * 	3) -t Number of threads (default all available processors if the model is thread-safe, 1 otherwise);
+	 * 		if the model is not thread-safe, a copy of it is loaded for each thread
+	 * 	4) -b Maximum batch size (default 64)
+	 * 	5) -w Maximum waiting time of batches, in microseconds (default 2000)
+	 * 	6) -c Maximum number of cached predictions, with W-TinyLFU eviction (default no cache)
+	 *
+	 * @param args List of arguments
+	 * @throws Exception if the model cannot be loaded or the server cannot be started
+	 */
+	public static void main(String [] args) throws Exception {
+		String modelFilename = Utils.getOption("f", args);
+		if(modelFilename.length() == 0) {
+			System.out.println("Parameters: -f model file [-p port] [-t threads (default: all cores if the model is thread-safe, else 1)] [-b max batch size] [-w max wait (us)] [-c cached predictions]");
+			System.exit(1);
+		}
+		String port = Utils.getOption("p", args);
+		String threads = Utils.getOption("t", args);
+		String batchSize = Utils.getOption("b", args);
+		String wait = Utils.getOption("w", args);
+		String cacheSize = Utils.getOption("c", args);
+		int numThreads = (threads.length() > 0) ? Integer.parseInt(threads) : Runtime.getRuntime().availableProcessors();
+
+		ModelFile file = ModelFile.open(new File(modelFilename));
+		MultiLabelLearner model = file.load(numThreads);
+		boolean threadSafe = isThreadSafe(model);
+		if(threads.length() == 0 && !threadSafe) {
+			numThreads = 1;
+			System.out.println("The model does not predict in a thread-safe way, so it is served with one thread (use -t to load a copy for each thread)");
+		}
+		MultiLabelLearner [] models = new MultiLabelLearner[Math.max(1, numThreads)];
+		for(int t=0; t<models.length; t++) {
+			if(t > 0 && threadSafe) {
+				models[t] = models[0];
+				continue;
+			}
+			models[t] = (t == 0) ? model : file.load(numThreads);
+			if(cacheSize.length() > 0) {
+				CachedLearner cached = new CachedLearner(models[t], file.getHeader(), file.getLabelIndices());
+				cached.setMaxEntries(Integer.parseInt(cacheSize));
+				if(t > 0) {
+					cached.shareCache((CachedLearner) models[0]);
+				}
+				models[t] = cached;
+			}
+		}
+		PredictionServer server = new PredictionServer(models, file.getHeader(), file.getLabelIndices());
+		if(batchSize.length() > 0) {
+			server.setMaxBatchSize(Integer.parseInt(batchSize));
+		}
+		if(wait.length() > 0) {
+			server.setMaxWait(Long.parseLong(wait));
+		}
+		server.start((port.length() > 0) ? Integer.parseInt(port) : 8080);
+		System.out.println("Serving " + modelFilename + " on http://localhost:" + server.getPort() + "/predict");
+	}
+}
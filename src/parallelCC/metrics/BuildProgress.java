@@ -0,0 +1,271 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Progress of the building of the models of a kind of learner, counted in units (labels of a chain or members of an ensemble).
+ * There is one progress for each learner and unit (see of()), shared by all the models of that learner that are being built,
+ * 	so concurrent and nested builds (e.g., the chains of the members of PECC) are added together.
+ * When all the units are done, the next build starts a new count; builds that fail give back the units they did not build
+ * 	(see abort()), so the count does not wait for them forever.
+ * Learners usually build their units with build() or submit(), which do both things.
+ * It is exported by MetricsRegistry.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class BuildProgress {
+
+	/**
+	 * Progress of each learner and unit
+	 */
+	static final ConcurrentHashMap<String, BuildProgress> progresses = new ConcurrentHashMap<String, BuildProgress>();
+
+	/**
+	 * Name of the learner and of the units
+	 */
+	final String learner, unit;
+
+	/**
+	 * Builds one unit of a model
+	 */
+	public interface Unit {
+
+		/**
+		 * Builds a unit
+		 *
+		 * @param index Index of the unit
+		 * @throws Exception if the unit cannot be built
+		 */
+		void build(int index) throws Exception;
+	}
+
+	/**
+	 * Number of units to build, and built
+	 */
+	long total, done;
+
+	/**
+	 * Number of builds that have finished
+	 */
+	long builds;
+
+	/**
+	 * Time the current count started and finished (ns)
+	 */
+	long start, end;
+
+	/**
+	 * Constructor
+	 *
+	 * @param learner Name of the learner
+	 * @param unit Name of the units
+	 */
+	BuildProgress(String learner, String unit) {
+		this.learner = learner;
+		this.unit = unit;
+	}
+
+	/**
+	 * Get the progress of a learner
+	 *
+	 * @param learner Name of the learner (e.g., the simple name of its class)
+	 * @param unit Name of the units (e.g., labels or members)
+	 * @return Progress
+	 */
+	public static BuildProgress of(String learner, String unit) {
+		String key = learner + "/" + unit;
+		BuildProgress progress = progresses.get(key);
+		if(progress == null) {
+			BuildProgress created = new BuildProgress(learner, unit);
+			progress = progresses.putIfAbsent(key, created);
+			if(progress == null) {
+				progress = created;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Get the progress of all the learners
+	 *
+	 * @return List of progresses
+	 */
+	public static List<BuildProgress> all() {
+		return new ArrayList<BuildProgress>(progresses.values());
+	}
+
+	/**
+	 * Indicates that a model begins to be built
+	 *
+	 * @param units Number of units of the model
+	 */
+	public synchronized void begin(int units) {
+		if(done >= total) {
+			total = done = 0;
+			start = System.nanoTime();
+		}
+		total += units;
+	}
+
+	/**
+	 * Builds the units of a model one after another, counting each one when it is built.
+	 * If a unit fails, the units that were not built are not waited for.
+	 *
+	 * @param units Number of units of the model
+	 * @param unit Builder of each unit
+	 * @throws Exception if a unit cannot be built
+	 */
+	public void build(int units, Unit unit) throws Exception {
+		begin(units);
+		int built = 0;
+		try {
+			for(; built<units; built++) {
+				unit.build(built);
+				unitDone();
+			}
+		} finally {
+			abort(units - built);
+		}
+	}
+
+	/**
+	 * Submits the units of a model to a pool, which counts each one when it finishes; the pool is shut down afterwards.
+	 * If a unit cannot be submitted, the units that were not submitted are not waited for.
+	 *
+	 * @param units Number of units of the model
+	 * @param pool Pool that builds the units
+	 * @param unit Submitter of each unit to the pool
+	 * @throws Exception if a unit cannot be submitted
+	 */
+	public void submit(int units, InstrumentedThreadPool pool, Unit unit) throws Exception {
+		begin(units);
+		pool.setProgress(this);
+		int submitted = 0;
+		try {
+			for(; submitted<units; submitted++) {
+				unit.build(submitted);
+			}
+		} finally {
+			pool.shutdown();
+			abort(units - submitted);
+		}
+	}
+
+	/**
+	 * Indicates that a unit has been built
+	 */
+	public synchronized void unitDone() {
+		done++;
+		if(done == total) {
+			builds++;
+			end = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Indicates that some units of a model will not be built (e.g., its building failed), so they are not waited for.
+	 * If the current count has no more units to build, it finishes, but it is not counted as a finished build.
+	 *
+	 * @param units Number of units of the model that were not built; nothing is done if it is not positive
+	 */
+	public synchronized void abort(int units) {
+		if(units <= 0) {
+			return;
+		}
+		total -= units;
+		if(done >= total) {
+			end = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Get the name of the learner
+	 *
+	 * @return Name of the learner
+	 */
+	public String getLearner() {
+		return learner;
+	}
+
+	/**
+	 * Get the name of the units
+	 *
+	 * @return Name of the units
+	 */
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Get the number of units of the current count
+	 *
+	 * @return Number of units
+	 */
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Get the number of units built in the current count
+	 *
+	 * @return Number of units
+	 */
+	public synchronized long getDone() {
+		return done;
+	}
+
+	/**
+	 * Get the number of times that all the units of a count were built
+	 *
+	 * @return Number of finished builds
+	 */
+	public synchronized long getBuilds() {
+		return builds;
+	}
+
+	/**
+	 * Get the elapsed time of the current count
+	 *
+	 * @return Elapsed time (s), or 0 if nothing has been built
+	 */
+	public synchronized double getElapsed() {
+		if(total == 0) {
+			return 0;
+		}
+		return (((done >= total) ? end : System.nanoTime()) - start) / 1e9;
+	}
+
+	/**
+	 * Get the estimated time until all the units of the current count are built, assuming that the remaining units
+	 * 	take as long as the built ones
+	 *
+	 * @return Estimated time (s); 0 if all the units are built, and -1 if no unit has been built yet
+	 */
+	public synchronized double getEta() {
+		if(done >= total) {
+			return 0;
+		}
+		if(done == 0) {
+			return -1;
+		}
+		return getElapsed() * (total - done) / done;
+	}
+}
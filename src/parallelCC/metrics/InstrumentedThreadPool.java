@@ -0,0 +1,214 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import parallelCC.inference.LatencyHistogram;
+
+/**
+ * Fixed-size thread pool, as Executors.newFixedThreadPool, that records how it is used:
+ * 	the time each task waits in the queue and runs, the busy and CPU time of the workers, and the depth of the queue over time.
+ * The recorded metrics are obtained with snapshot() (see PoolMetrics), either while the pool is running or after it terminates.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class InstrumentedThreadPool extends ThreadPoolExecutor {
+
+	/**
+	 * Maximum number of samples of the depth of the queue; when it is reached, one of each two samples is discarded
+	 */
+	static final int MAX_SAMPLES = 2048;
+
+	/**
+	 * Bean to get the CPU time of the workers
+	 */
+	static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Time the pool was created and terminated (ns); end is 0 while it is running
+	 */
+	final long start = System.nanoTime();
+	volatile long end = 0;
+
+	/**
+	 * Time of the tasks in the queue and running
+	 */
+	final LatencyHistogram queueWait = new LatencyHistogram();
+	final LatencyHistogram taskTime = new LatencyHistogram();
+
+	/**
+	 * Sum of the running time and CPU time of the tasks (ns)
+	 */
+	final AtomicLong busy = new AtomicLong();
+	final AtomicLong cpu = new AtomicLong();
+
+	/**
+	 * Indicates if the CPU time of the workers is measured
+	 */
+	final boolean measureCpu;
+
+	/**
+	 * Samples of the depth of the queue: time since the creation of the pool (ns) and number of waiting tasks.
+	 * A sample is taken each 'stride' changes of the queue.
+	 */
+	long [] sampleTimes = new long[MAX_SAMPLES];
+	int [] sampleDepths = new int[MAX_SAMPLES];
+	int numSamples = 0;
+	int stride = 1;
+	int changes = 0;
+	int maxQueueDepth = 0;
+
+	/**
+	 * Progress that counts a unit for each finished task; null if tasks are not counted
+	 */
+	volatile BuildProgress progress;
+
+	/**
+	 * Start time and CPU time of the task running in each worker
+	 */
+	final ThreadLocal<long[]> running = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[2];
+		}
+	};
+
+	/**
+	 * Constructor
+	 *
+	 * @param numThreads Number of threads
+	 */
+	public InstrumentedThreadPool(int numThreads) {
+		super(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		measureCpu = threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+	}
+
+	/**
+	 * Set the progress that counts a unit for each finished task (e.g., when each task builds a label or a member)
+	 *
+	 * @param progress Build progress; null to not count tasks
+	 */
+	public void setProgress(BuildProgress progress) {
+		this.progress = progress;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		//Tasks given to submit() also pass through here
+		super.execute(new TimedTask(command));
+		sampleQueue();
+	}
+
+	@Override
+	protected void beforeExecute(Thread t, Runnable r) {
+		long[] times = running.get();
+		times[0] = System.nanoTime();
+		times[1] = measureCpu ? threadBean.getCurrentThreadCpuTime() : 0;
+		if(r instanceof TimedTask) {
+			queueWait.record(times[0] - ((TimedTask) r).submitted);
+		}
+		sampleQueue();
+		super.beforeExecute(t, r);
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+		super.afterExecute(r, t);
+		long[] times = running.get();
+		long elapsed = System.nanoTime() - times[0];
+		taskTime.record(elapsed);
+		busy.addAndGet(elapsed);
+		if(measureCpu) {
+			cpu.addAndGet(threadBean.getCurrentThreadCpuTime() - times[1]);
+		}
+		if(progress != null) {
+			progress.unitDone();
+		}
+	}
+
+	@Override
+	protected void terminated() {
+		end = System.nanoTime();
+		super.terminated();
+	}
+
+	/**
+	 * Takes a sample of the depth of the queue
+	 */
+	synchronized void sampleQueue() {
+		int depth = getQueue().size();
+		maxQueueDepth = Math.max(maxQueueDepth, depth);
+		if(changes++ % stride != 0) {
+			return;
+		}
+		if(numSamples == MAX_SAMPLES) {
+			//Keep one of each two samples, and take samples half as often
+			for(int s=0; s<MAX_SAMPLES/2; s++) {
+				sampleTimes[s] = sampleTimes[2*s];
+				sampleDepths[s] = sampleDepths[2*s];
+			}
+			numSamples = MAX_SAMPLES/2;
+			stride *= 2;
+		}
+		sampleTimes[numSamples] = System.nanoTime() - start;
+		sampleDepths[numSamples] = depth;
+		numSamples++;
+	}
+
+	/**
+	 * Get a snapshot of the metrics recorded so far
+	 *
+	 * @return Metrics of the pool
+	 */
+	public PoolMetrics snapshot() {
+		long wall = ((end != 0) ? end : System.nanoTime()) - start;
+		LatencyHistogram waits = new LatencyHistogram();
+		waits.merge(queueWait);
+		LatencyHistogram times = new LatencyHistogram();
+		times.merge(taskTime);
+		synchronized(this) {
+			return new PoolMetrics(getMaximumPoolSize(), getCompletedTaskCount(), wall, busy.get(), measureCpu ? cpu.get() : -1,
+					waits, times, maxQueueDepth, Arrays.copyOf(sampleTimes, numSamples), Arrays.copyOf(sampleDepths, numSamples));
+		}
+	}
+
+	/**
+	 * Task with the time it was submitted to the pool
+	 */
+	static class TimedTask implements Runnable {
+
+		final Runnable task;
+
+		final long submitted = System.nanoTime();
+
+		TimedTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			task.run();
+		}
+	}
+}
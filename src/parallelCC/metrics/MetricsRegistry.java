@@ -0,0 +1,321 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import parallelCC.inference.BoundedCache;
+import parallelCC.inference.LatencyHistogram;
+
+/**
+ * Registry of the metrics of the process, rendered in the text format of Prometheus (see MetricsServer):
+ * 	<ul>
+ * 		<li>Progress of the building of the models (see BuildProgress): units (labels or members) to build and built,
+ * 			elapsed time and estimated time to finish.</li>
+ * 		<li>Number of predictions and predictions per second over the last minute, for each source (e.g., server or evaluation).</li>
+ * 		<li>Latency histograms (see LatencyHistogram), as summaries with quantiles.</li>
+ * 		<li>Statistics of caches (see BoundedCache).</li>
+ * 		<li>Memory, garbage collections, threads and CPU time of the JVM.</li>
+ * 	</ul>
+ * Recording predictions is cheap, so the hooks are always active, whether or not there is a server.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class MetricsRegistry {
+
+	/**
+	 * Number of seconds of the window of the throughput
+	 */
+	static final int WINDOW = 60;
+
+	/**
+	 * Throughput of each source of predictions
+	 */
+	static final ConcurrentHashMap<String, Throughput> throughputs = new ConcurrentHashMap<String, Throughput>();
+
+	/**
+	 * Registered latency histograms and caches, by name
+	 */
+	static final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+	static final ConcurrentHashMap<String, BoundedCache<?, ?>> caches = new ConcurrentHashMap<String, BoundedCache<?, ?>>();
+
+	/**
+	 * Number of predictions of a source, in buckets of one second
+	 */
+	static class Throughput {
+
+		long total;
+
+		long [] counts = new long[WINDOW];
+
+		long [] seconds = new long[WINDOW];
+
+		/**
+		 * Time of the first prediction (s)
+		 */
+		long first = -1;
+
+		synchronized void record(long n) {
+			long second = System.nanoTime() / 1000000000L;
+			int b = (int) (second % WINDOW);
+			if(seconds[b] != second) {
+				seconds[b] = second;
+				counts[b] = 0;
+			}
+			counts[b] += n;
+			total += n;
+			if(first < 0) {
+				first = second;
+			}
+		}
+
+		synchronized long getTotal() {
+			return total;
+		}
+
+		/**
+		 * Get the predictions per second over the window, or since the first prediction if it is more recent
+		 */
+		synchronized double getRate() {
+			if(first < 0) {
+				return 0;
+			}
+			long now = System.nanoTime() / 1000000000L;
+			long sum = 0;
+			for(int b=0; b<WINDOW; b++) {
+				if(seconds[b] > now - WINDOW && seconds[b] <= now) {
+					sum += counts[b];
+				}
+			}
+			long span = Math.max(1, Math.min(WINDOW, now - first + 1));
+			return sum / (double) span;
+		}
+	}
+
+	/**
+	 * Records predictions
+	 *
+	 * @param source Source of the predictions (e.g., server, batch or evaluation)
+	 * @param n Number of predicted instances
+	 */
+	public static void recordPredictions(String source, long n) {
+		Throughput throughput = throughputs.get(source);
+		if(throughput == null) {
+			Throughput created = new Throughput();
+			throughput = throughputs.putIfAbsent(source, created);
+			if(throughput == null) {
+				throughput = created;
+			}
+		}
+		throughput.record(n);
+	}
+
+	/**
+	 * Registers a latency histogram; a histogram with the same name is replaced
+	 *
+	 * @param name Name of the histogram
+	 * @param histogram Latency histogram
+	 */
+	public static void registerLatency(String name, LatencyHistogram histogram) {
+		latencies.put(name, histogram);
+	}
+
+	/**
+	 * Registers a cache; a cache with the same name is replaced
+	 *
+	 * @param name Name of the cache
+	 * @param cache Cache
+	 */
+	public static void registerCache(String name, BoundedCache<?, ?> cache) {
+		caches.put(name, cache);
+	}
+
+	/**
+	 * Removes a registered latency histogram and cache
+	 *
+	 * @param name Name of the histogram and the cache
+	 */
+	public static void unregister(String name) {
+		latencies.remove(name);
+		caches.remove(name);
+	}
+
+	/**
+	 * Renders all the metrics in the text format of Prometheus (version 0.0.4)
+	 *
+	 * @return Metrics
+	 */
+	public static String render() {
+		StringBuilder sb = new StringBuilder();
+
+		//Build progress
+		Map<String, BuildProgress> progresses = new TreeMap<String, BuildProgress>();
+		for(BuildProgress progress : BuildProgress.all()) {
+			progresses.put(progress.getLearner() + "/" + progress.getUnit(), progress);
+		}
+		header(sb, "parallelcc_build_units", "gauge", "Units (labels or ensemble members) of the models being built.");
+		for(BuildProgress p : progresses.values()) {
+			sample(sb, "parallelcc_build_units", buildLabels(p), p.getTotal());
+		}
+		header(sb, "parallelcc_build_units_done", "gauge", "Units of the models being built that have been built.");
+		for(BuildProgress p : progresses.values()) {
+			sample(sb, "parallelcc_build_units_done", buildLabels(p), p.getDone());
+		}
+		header(sb, "parallelcc_build_elapsed_seconds", "gauge", "Elapsed time of the models being built.");
+		for(BuildProgress p : progresses.values()) {
+			sample(sb, "parallelcc_build_elapsed_seconds", buildLabels(p), p.getElapsed());
+		}
+		header(sb, "parallelcc_build_eta_seconds", "gauge", "Estimated time until the models being built are finished; -1 if unknown.");
+		for(BuildProgress p : progresses.values()) {
+			sample(sb, "parallelcc_build_eta_seconds", buildLabels(p), p.getEta());
+		}
+		header(sb, "parallelcc_builds_total", "counter", "Number of times that all the models being built were finished.");
+		for(BuildProgress p : progresses.values()) {
+			sample(sb, "parallelcc_builds_total", buildLabels(p), p.getBuilds());
+		}
+
+		//Throughput
+		Map<String, Throughput> sortedThroughputs = new TreeMap<String, Throughput>(throughputs);
+		header(sb, "parallelcc_predictions_total", "counter", "Number of predicted instances.");
+		for(Map.Entry<String, Throughput> e : sortedThroughputs.entrySet()) {
+			sample(sb, "parallelcc_predictions_total", "source=\"" + escape(e.getKey()) + "\"", e.getValue().getTotal());
+		}
+		header(sb, "parallelcc_predictions_per_second", "gauge", "Predicted instances per second over the last minute.");
+		for(Map.Entry<String, Throughput> e : sortedThroughputs.entrySet()) {
+			sample(sb, "parallelcc_predictions_per_second", "source=\"" + escape(e.getKey()) + "\"", e.getValue().getRate());
+		}
+
+		//Latencies
+		header(sb, "parallelcc_latency_seconds", "summary", "Latency of predictions.");
+		for(Map.Entry<String, LatencyHistogram> e : new TreeMap<String, LatencyHistogram>(latencies).entrySet()) {
+			String name = "name=\"" + escape(e.getKey()) + "\"";
+			LatencyHistogram h = e.getValue();
+			for(double q : new double[] {0.5, 0.9, 0.99, 0.999}) {
+				sample(sb, "parallelcc_latency_seconds", name + ",quantile=\"" + q + "\"", h.getPercentile(100 * q) / 1e3);
+			}
+			long count = h.getCount();
+			sample(sb, "parallelcc_latency_seconds_sum", name, h.getMean() * count / 1e3);
+			sample(sb, "parallelcc_latency_seconds_count", name, count);
+		}
+
+		//Caches
+		Map<String, BoundedCache<?, ?>> sortedCaches = new TreeMap<String, BoundedCache<?, ?>>(caches);
+		header(sb, "parallelcc_cache_entries", "gauge", "Number of entries of the cache.");
+		for(Map.Entry<String, BoundedCache<?, ?>> e : sortedCaches.entrySet()) {
+			sample(sb, "parallelcc_cache_entries", "cache=\"" + escape(e.getKey()) + "\"", e.getValue().size());
+		}
+		header(sb, "parallelcc_cache_hits_total", "counter", "Number of hits of the cache.");
+		for(Map.Entry<String, BoundedCache<?, ?>> e : sortedCaches.entrySet()) {
+			sample(sb, "parallelcc_cache_hits_total", "cache=\"" + escape(e.getKey()) + "\"", e.getValue().getHits());
+		}
+		header(sb, "parallelcc_cache_misses_total", "counter", "Number of misses of the cache.");
+		for(Map.Entry<String, BoundedCache<?, ?>> e : sortedCaches.entrySet()) {
+			sample(sb, "parallelcc_cache_misses_total", "cache=\"" + escape(e.getKey()) + "\"", e.getValue().getMisses());
+		}
+		header(sb, "parallelcc_cache_evictions_total", "counter", "Number of evictions of the cache.");
+		for(Map.Entry<String, BoundedCache<?, ?>> e : sortedCaches.entrySet()) {
+			sample(sb, "parallelcc_cache_evictions_total", "cache=\"" + escape(e.getKey()) + "\"", e.getValue().getEvictions());
+		}
+
+		//JVM
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+		header(sb, "jvm_memory_bytes_used", "gauge", "Used memory of the JVM.");
+		sample(sb, "jvm_memory_bytes_used", "area=\"heap\"", heap.getUsed());
+		sample(sb, "jvm_memory_bytes_used", "area=\"nonheap\"", nonHeap.getUsed());
+		header(sb, "jvm_memory_bytes_committed", "gauge", "Committed memory of the JVM.");
+		sample(sb, "jvm_memory_bytes_committed", "area=\"heap\"", heap.getCommitted());
+		sample(sb, "jvm_memory_bytes_committed", "area=\"nonheap\"", nonHeap.getCommitted());
+		header(sb, "jvm_memory_bytes_max", "gauge", "Maximum memory of the JVM; -1 if undefined.");
+		sample(sb, "jvm_memory_bytes_max", "area=\"heap\"", heap.getMax());
+		sample(sb, "jvm_memory_bytes_max", "area=\"nonheap\"", nonHeap.getMax());
+		header(sb, "jvm_gc_collection_seconds", "summary", "Number of garbage collections and time spent in them.");
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			String name = "gc=\"" + escape(gc.getName()) + "\"";
+			sample(sb, "jvm_gc_collection_seconds_count", name, gc.getCollectionCount());
+			sample(sb, "jvm_gc_collection_seconds_sum", name, gc.getCollectionTime() / 1e3);
+		}
+		header(sb, "jvm_threads_live", "gauge", "Number of live threads.");
+		sample(sb, "jvm_threads_live", null, ManagementFactory.getThreadMXBean().getThreadCount());
+		long cpu = ResourceUsage.cpuTime();
+		if(cpu >= 0) {
+			header(sb, "process_cpu_seconds_total", "counter", "CPU time of the process.");
+			sample(sb, "process_cpu_seconds_total", null, cpu / 1e9);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get the labels of the metrics of a build progress
+	 *
+	 * @param progress Build progress
+	 * @return Labels
+	 */
+	static String buildLabels(BuildProgress progress) {
+		return "learner=\"" + escape(progress.getLearner()) + "\",unit=\"" + escape(progress.getUnit()) + "\"";
+	}
+
+	/**
+	 * Appends the HELP and TYPE lines of a metric
+	 */
+	static void header(StringBuilder sb, String name, String type, String help) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	/**
+	 * Appends a sample of a metric
+	 *
+	 * @param sb Output
+	 * @param name Name of the metric
+	 * @param labels Labels of the sample, without braces; null if it has no labels
+	 * @param value Value; infinite values are written as +Inf or -Inf
+	 */
+	static void sample(StringBuilder sb, String name, String labels, double value) {
+		sb.append(name);
+		if(labels != null) {
+			sb.append('{').append(labels).append('}');
+		}
+		sb.append(' ');
+		if(Double.isInfinite(value)) {
+			sb.append((value > 0) ? "+Inf" : "-Inf");
+		}
+		else if(value == Math.rint(value) && Math.abs(value) < 1e15) {
+			sb.append((long) value);
+		}
+		else {
+			sb.append(String.format(Locale.US, "%.6g", value));
+		}
+		sb.append('\n');
+	}
+
+	/**
+	 * Escapes the value of a label
+	 *
+	 * @param value Value
+	 * @return Escaped value
+	 */
+	static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
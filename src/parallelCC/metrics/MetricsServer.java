@@ -0,0 +1,115 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server that exposes the metrics of the process (see MetricsRegistry) in the text format of Prometheus,
+ * 	at GET /metrics. It only listens on the loopback address.
+ * The dispatcher thread of the server keeps the JVM alive, so it must be stopped when the work finishes.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class MetricsServer {
+
+	/**
+	 * Content type of the text format of Prometheus
+	 */
+	static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * HTTP server
+	 */
+	HttpServer server;
+
+	/**
+	 * Thread that handles the requests
+	 */
+	ExecutorService executor;
+
+	/**
+	 * Starts the server
+	 *
+	 * @param port Port; if 0, a free port is used (see getPort)
+	 * @throws IOException if the port cannot be bound
+	 */
+	public void start(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", handler());
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "metrics-server");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Stops the server
+	 */
+	public void stop() {
+		if(server != null) {
+			server.stop(0);
+			executor.shutdown();
+			server = null;
+		}
+	}
+
+	/**
+	 * Get the port of the server
+	 *
+	 * @return Port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Get a handler that responds with the metrics, e.g., to add /metrics to other servers
+	 *
+	 * @return Handler of /metrics
+	 */
+	public static HttpHandler handler() {
+		return new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				byte [] bytes = MetricsRegistry.render().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+				exchange.sendResponseHeaders(200, bytes.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+			}
+		};
+	}
+}
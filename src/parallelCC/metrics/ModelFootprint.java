@@ -0,0 +1,628 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.metrics;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import mulan.classifier.MultiLabelLearner;
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.FilteredClassifier;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * Memory footprint of a trained model: bytes of the heap retained by the classifier, the filter and the headers
+ * 	(input and output formats of the filter) of each label, by each member of ensembles, and by the rest of the model.
+ * The model is split into components, and the objects reachable from each component are walked (see ObjectSizer),
+ * 	without going into other components. Each object is retained by the component that reaches it;
+ * 	objects reached by several components are counted as shared by the smallest group that includes all of them
+ * 	(the label, the member or the whole model), so each object is counted once.
+ * Headers are also grouped by their format, to find copies of the same header that could be shared.
+ * Components are found in the fields of the learners (ensemble of CC, BR, ECC and EBR, and any of their subclasses),
+ * 	so any model can be analyzed, although unknown models are reported as a whole.
+ * The model must not be modified while it is analyzed.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class ModelFootprint {
+
+	/**
+	 * Categories of the bytes of the components, and of the ones shared among components
+	 */
+	public static final String [] CATEGORIES = {"classifier", "filter", "headers", "other", "shared"};
+
+	/**
+	 * Part of the model whose objects are walked together
+	 */
+	static class Component {
+
+		/**
+		 * Member and label of the component; null if it does not belong to a member or label
+		 */
+		final String member, label;
+
+		/**
+		 * Kind of component (e.g., classifier, filter, output header, or name of a field of the learner)
+		 */
+		final String kind;
+
+		/**
+		 * Groups that include the component, from the widest one
+		 */
+		final String [] path;
+
+		/**
+		 * Object where the component starts
+		 */
+		final Object root;
+
+		/**
+		 * Retained bytes and objects
+		 */
+		long bytes, objects;
+
+		Component(String member, String label, String kind, Object root) {
+			this.member = member;
+			this.label = label;
+			this.kind = kind;
+			this.root = root;
+			List<String> groups = new ArrayList<String>();
+			if(member != null) {
+				groups.add("m:" + member);
+			}
+			if(label != null) {
+				groups.add("l:" + label);
+			}
+			groups.add("k:" + kind);
+			path = groups.toArray(new String[groups.size()]);
+		}
+
+		/**
+		 * Get the category of the bytes retained by the component
+		 *
+		 * @return Index in CATEGORIES
+		 */
+		int category() {
+			if(kind.equals("classifier")) {
+				return 0;
+			}
+			if(kind.equals("filter")) {
+				return 1;
+			}
+			if(kind.endsWith("header")) {
+				return 2;
+			}
+			return 3;
+		}
+
+		/**
+		 * Get the name of the component in the reports
+		 *
+		 * @return Name
+		 */
+		String name() {
+			StringBuilder sb = new StringBuilder();
+			if(member != null) {
+				sb.append(member).append(" / ");
+			}
+			if(label != null) {
+				sb.append(label).append(" / ");
+			}
+			return sb.append(kind).toString();
+		}
+	}
+
+	/**
+	 * Component that retains an object and number of groups that include all the components that reach it
+	 */
+	static class Owner {
+		final int component;
+		int depth;
+		final long size;
+
+		Owner(int component, int depth, long size) {
+			this.component = component;
+			this.depth = depth;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Name of the model
+	 */
+	String model;
+
+	/**
+	 * Components of the model
+	 */
+	final List<Component> components = new ArrayList<Component>();
+
+	/**
+	 * Total bytes and objects of the model
+	 */
+	long totalBytes, totalObjects;
+
+	/**
+	 * Bytes of each category
+	 */
+	final long [] categoryBytes = new long[CATEGORIES.length];
+
+	/**
+	 * Bytes of each category for each label and member, in order of appearance
+	 */
+	final Map<String, long []> labelBytes = new LinkedHashMap<String, long []>();
+	final Map<String, long []> memberBytes = new LinkedHashMap<String, long []>();
+
+	/**
+	 * Bytes and objects of each class
+	 */
+	final Map<Class<?>, long []> classBytes = new HashMap<Class<?>, long []>();
+
+	/**
+	 * Number of headers and of different formats among them; bytes of the headers that are a copy of another one
+	 */
+	int headers, formats;
+	long duplicatedHeaderBytes;
+
+	/**
+	 * Constructor; use analyze()
+	 */
+	ModelFootprint() {
+	}
+
+	/**
+	 * Analyzes the footprint of a model
+	 *
+	 * @param model Trained model
+	 * @return Footprint of the model
+	 */
+	public static ModelFootprint analyze(Object model) {
+		ModelFootprint footprint = new ModelFootprint();
+		footprint.model = model.getClass().getSimpleName();
+		footprint.addLearner(null, model);
+		footprint.walk();
+		return footprint;
+	}
+
+	/**
+	 * Adds the components of a learner
+	 *
+	 * @param member Member of an ensemble the learner is, or null
+	 * @param learner Learner
+	 */
+	void addLearner(String member, Object learner) {
+		Object ensemble = ObjectSizer.fieldValue(learner, "ensemble");
+		if(ensemble instanceof Object []) {
+			Object [] elements = (Object []) ensemble;
+			Object correspondence = ObjectSizer.fieldValue(learner, "correspondence");
+			for(int i=0; i<elements.length; i++) {
+				Object element = elements[i];
+				if(element instanceof MultiLabelLearner && member == null) {
+					addLearner("member " + i, element);
+				}
+				else if(element instanceof FilteredClassifier) {
+					FilteredClassifier link = (FilteredClassifier) element;
+					String label = labelName(link.getFilter(), "label " + i);
+					components.add(new Component(member, label, "classifier", link.getClassifier()));
+					addFilter(member, label, link.getFilter());
+					components.add(new Component(member, label, "other", link));
+				}
+				else if(element instanceof Classifier) {
+					String label = (correspondence instanceof String [] && i < ((String []) correspondence).length) ? ((String []) correspondence)[i] : "label " + i;
+					components.add(new Component(member, label, "classifier", element));
+				}
+			}
+		}
+
+		for(Field field : ObjectSizer.referenceFields(learner.getClass())) {
+			if(field.getName().equals("ensemble")) {
+				continue;
+			}
+			Object value;
+			try {
+				value = field.get(learner);
+			} catch (IllegalAccessException e) {
+				continue;
+			}
+			if(value == null || !ObjectSizer.isFollowed(value)) {
+				continue;
+			}
+			if(value instanceof Filter) {
+				addFilter(member, null, (Filter) value);
+			}
+			else {
+				components.add(new Component(member, null, field.getName(), value));
+			}
+		}
+		components.add(new Component(member, null, "learner", learner));
+	}
+
+	/**
+	 * Adds a filter and its input and output formats as components
+	 *
+	 * @param member Member, or null
+	 * @param label Label, or null
+	 * @param filter Filter
+	 */
+	void addFilter(String member, String label, Filter filter) {
+		components.add(new Component(member, label, "filter", filter));
+		Object input = ObjectSizer.fieldValue(filter, "m_InputFormat");
+		if(input != null) {
+			components.add(new Component(member, label, "input header", input));
+		}
+		Object output = ObjectSizer.fieldValue(filter, "m_OutputFormat");
+		if(output != null) {
+			components.add(new Component(member, label, "output header", output));
+		}
+	}
+
+	/**
+	 * Get the name of the label of a link, i.e., the class of the output format of its filter
+	 *
+	 * @param filter Filter of the link
+	 * @param name Name if the label is not known
+	 * @return Name of the label
+	 */
+	static String labelName(Filter filter, String name) {
+		Object output = ObjectSizer.fieldValue(filter, "m_OutputFormat");
+		if(output instanceof Instances && ((Instances) output).classIndex() >= 0) {
+			return ((Instances) output).classAttribute().name();
+		}
+		return name;
+	}
+
+	/**
+	 * Walks the objects of all the components and computes the retained bytes
+	 */
+	void walk() {
+		IdentityHashMap<Object, Boolean> roots = new IdentityHashMap<Object, Boolean>();
+		for(Component component : components) {
+			roots.put(component.root, Boolean.TRUE);
+		}
+
+		IdentityHashMap<Object, Owner> owners = new IdentityHashMap<Object, Owner>();
+		ArrayDeque<Object> stack = new ArrayDeque<Object>();
+		List<Object> references = new ArrayList<Object>();
+		for(int c=0; c<components.size(); c++) {
+			Component component = components.get(c);
+			IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+			stack.push(component.root);
+			while(!stack.isEmpty()) {
+				Object object = stack.pop();
+				if(visited.put(object, Boolean.TRUE) != null) {
+					continue;
+				}
+				Owner owner = owners.get(object);
+				if(owner == null) {
+					owners.put(object, new Owner(c, component.path.length, ObjectSizer.shallowSize(object)));
+				}
+				else if(owner.component != c) {
+					owner.depth = Math.min(owner.depth, commonGroups(components.get(owner.component).path, component.path));
+				}
+
+				references.clear();
+				ObjectSizer.references(object, references);
+				for(Object reference : references) {
+					if(ObjectSizer.isFollowed(reference) && !roots.containsKey(reference) && !visited.containsKey(reference)) {
+						stack.push(reference);
+					}
+				}
+			}
+		}
+
+		//Members and labels are reported in the order of the model
+		for(Component component : components) {
+			if(component.member != null && !memberBytes.containsKey(component.member)) {
+				memberBytes.put(component.member, new long[CATEGORIES.length]);
+			}
+			if(component.label != null && !labelBytes.containsKey(component.label)) {
+				labelBytes.put(component.label, new long[CATEGORIES.length]);
+			}
+		}
+
+		for(Map.Entry<Object, Owner> entry : owners.entrySet()) {
+			Owner owner = entry.getValue();
+			Component component = components.get(owner.component);
+			boolean exclusive = owner.depth == component.path.length;
+			int category = exclusive ? component.category() : CATEGORIES.length - 1;
+
+			totalBytes += owner.size;
+			totalObjects++;
+			categoryBytes[category] += owner.size;
+			if(exclusive) {
+				component.bytes += owner.size;
+				component.objects++;
+			}
+			if(component.member != null && owner.depth >= 1) {
+				add(memberBytes, component.member, category, owner.size);
+			}
+			if(component.label != null && owner.depth > ((component.member != null) ? 1 : 0)) {
+				add(labelBytes, component.label, category, owner.size);
+			}
+			long [] c = classBytes.get(entry.getKey().getClass());
+			if(c == null) {
+				c = new long[2];
+				classBytes.put(entry.getKey().getClass(), c);
+			}
+			c[0] += owner.size;
+			c[1]++;
+		}
+
+		findDuplicatedHeaders();
+	}
+
+	/**
+	 * Groups the headers by format and computes the bytes of the ones that are a copy of another one
+	 */
+	void findDuplicatedHeaders() {
+		IdentityHashMap<Object, Boolean> seen = new IdentityHashMap<Object, Boolean>();
+		Map<String, long []> byFormat = new HashMap<String, long []>();
+		for(Component component : components) {
+			if(component.category() != 2 || !(component.root instanceof Instances) || seen.put(component.root, Boolean.TRUE) != null) {
+				continue;
+			}
+			Instances header = (Instances) component.root;
+			StringBuilder format = new StringBuilder(header.relationName());
+			for(int a=0; a<header.numAttributes(); a++) {
+				format.append('\n').append(header.attribute(a).type()).append(' ').append(header.attribute(a).name());
+			}
+			format.append('\n').append(header.classIndex());
+
+			long [] copies = byFormat.get(format.toString());
+			if(copies == null) {
+				copies = new long[2];
+				byFormat.put(format.toString(), copies);
+			}
+			//Total bytes and bytes of the largest copy, which is kept
+			copies[0] += component.bytes;
+			copies[1] = Math.max(copies[1], component.bytes);
+			headers++;
+		}
+		formats = byFormat.size();
+		for(long [] copies : byFormat.values()) {
+			duplicatedHeaderBytes += copies[0] - copies[1];
+		}
+	}
+
+	/**
+	 * Get the number of groups that two components have in common
+	 *
+	 * @param a Groups of a component
+	 * @param b Groups of another component
+	 * @return Number of common groups, from the widest one
+	 */
+	static int commonGroups(String [] a, String [] b) {
+		int n = 0;
+		while(n < a.length && n < b.length && a[n].equals(b[n])) {
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Adds bytes to a category of an entry of a map
+	 *
+	 * @param map Map of bytes per category
+	 * @param key Key of the entry
+	 * @param category Category
+	 * @param bytes Bytes
+	 */
+	static void add(Map<String, long []> map, String key, int category, long bytes) {
+		long [] values = map.get(key);
+		if(values == null) {
+			values = new long[CATEGORIES.length];
+			map.put(key, values);
+		}
+		values[category] += bytes;
+	}
+
+	/**
+	 * Get the total bytes of the model
+	 *
+	 * @return Bytes
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Get the number of objects of the model
+	 *
+	 * @return Number of objects
+	 */
+	public long getTotalObjects() {
+		return totalObjects;
+	}
+
+	/**
+	 * Get the bytes of a category over the whole model
+	 *
+	 * @param category Category (see CATEGORIES)
+	 * @return Bytes, or 0 if the category does not exist
+	 */
+	public long getCategoryBytes(String category) {
+		for(int c=0; c<CATEGORIES.length; c++) {
+			if(CATEGORIES[c].equals(category)) {
+				return categoryBytes[c];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Get the bytes retained by a label, added over all the members
+	 *
+	 * @param label Name of the label
+	 * @return Bytes, or 0 if there are no components of the label
+	 */
+	public long getLabelBytes(String label) {
+		return sum(labelBytes.get(label));
+	}
+
+	/**
+	 * Get the bytes retained by a member of the ensemble
+	 *
+	 * @param member Index of the member
+	 * @return Bytes, or 0 if the model has not that member
+	 */
+	public long getMemberBytes(int member) {
+		return sum(memberBytes.get("member " + member));
+	}
+
+	/**
+	 * Get the bytes of the headers that are a copy of another header of the model, so they could be saved by sharing the headers
+	 *
+	 * @return Bytes
+	 */
+	public long getDuplicatedHeaderBytes() {
+		return duplicatedHeaderBytes;
+	}
+
+	/**
+	 * Get a report of the footprint
+	 *
+	 * @param top Number of components and classes in the lists of top offenders
+	 * @return Report
+	 */
+	public String toString(int top) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.US, "Footprint of %s: %s in %d objects (%d components)%n", model, format(totalBytes), totalObjects, components.size()));
+		for(int c=0; c<CATEGORIES.length; c++) {
+			sb.append(String.format(Locale.US, "  %-12s %12s  %5.1f%%%n", CATEGORIES[c], format(categoryBytes[c]), percentage(categoryBytes[c])));
+		}
+		sb.append(String.format(Locale.US, "  %d headers with %d different formats; %s in copies of other headers%n", headers, formats, format(duplicatedHeaderBytes)));
+
+		if(!memberBytes.isEmpty()) {
+			sb.append(String.format("%nMembers (KB):%n"));
+			table(sb, "member", memberBytes);
+		}
+		if(!labelBytes.isEmpty()) {
+			sb.append(String.format("%nLabels (KB)%s:%n", memberBytes.isEmpty() ? "" : ", added over all the members"));
+			table(sb, "label", labelBytes);
+		}
+
+		List<Component> sorted = new ArrayList<Component>(components);
+		Collections.sort(sorted, new Comparator<Component>() {
+			@Override
+			public int compare(Component a, Component b) {
+				return Long.compare(b.bytes, a.bytes);
+			}
+		});
+		sb.append(String.format("%nTop components:%n"));
+		for(int i=0; i<Math.min(top, sorted.size()); i++) {
+			Component component = sorted.get(i);
+			sb.append(String.format(Locale.US, "  %12s  %5.1f%%  %9d objects  %s%n", format(component.bytes), percentage(component.bytes), component.objects, component.name()));
+		}
+
+		List<Map.Entry<Class<?>, long []>> classes = new ArrayList<Map.Entry<Class<?>, long []>>(classBytes.entrySet());
+		Collections.sort(classes, new Comparator<Map.Entry<Class<?>, long []>>() {
+			@Override
+			public int compare(Map.Entry<Class<?>, long []> a, Map.Entry<Class<?>, long []> b) {
+				return Long.compare(b.getValue()[0], a.getValue()[0]);
+			}
+		});
+		sb.append(String.format("%nTop classes:%n"));
+		for(int i=0; i<Math.min(top, classes.size()); i++) {
+			long [] c = classes.get(i).getValue();
+			sb.append(String.format(Locale.US, "  %12s  %5.1f%%  %9d objects  %s%n", format(c[0]), percentage(c[0]), c[1], classes.get(i).getKey().getName()));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toString(10);
+	}
+
+	/**
+	 * Appends a table with the bytes of each category of some entries
+	 *
+	 * @param sb Report
+	 * @param name Name of the entries
+	 * @param map Bytes per category of each entry
+	 */
+	static void table(StringBuilder sb, String name, Map<String, long []> map) {
+		int width = name.length();
+		for(String key : map.keySet()) {
+			width = Math.max(width, key.length());
+		}
+		sb.append(String.format("  %-" + width + "s", name));
+		for(String category : CATEGORIES) {
+			sb.append(String.format("  %10s", category));
+		}
+		sb.append(String.format("  %10s%n", "total"));
+		for(Map.Entry<String, long []> entry : map.entrySet()) {
+			sb.append(String.format("  %-" + width + "s", entry.getKey()));
+			for(long bytes : entry.getValue()) {
+				sb.append(String.format(Locale.US, "  %10.1f", bytes / 1024.0));
+			}
+			sb.append(String.format(Locale.US, "  %10.1f%n", sum(entry.getValue()) / 1024.0));
+		}
+	}
+
+	/**
+	 * Get the percentage of some bytes over the total of the model
+	 *
+	 * @param bytes Bytes
+	 * @return Percentage
+	 */
+	double percentage(long bytes) {
+		return (totalBytes == 0) ? 0 : 100.0 * bytes / totalBytes;
+	}
+
+	/**
+	 * Adds the values of an array
+	 *
+	 * @param values Values, or null
+	 * @return Sum, or 0 if the array is null
+	 */
+	static long sum(long [] values) {
+		long sum = 0;
+		if(values != null) {
+			for(long value : values) {
+				sum += value;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Formats a number of bytes with its unit
+	 *
+	 * @param bytes Bytes
+	 * @return Formatted bytes
+	 */
+	static String format(long bytes) {
+		if(bytes < 1024) {
+			return bytes + " B";
+		}
+		if(bytes < 1024 * 1024) {
+			return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+		}
+		return String.format(Locale.US, "%.2f MB", bytes / 1048576.0);
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * Size in the heap of single objects and the objects they reference, used to walk object graphs (see ModelFootprint).
+ * Sizes are estimated from the fields of the classes: a header of 12 bytes and references of 4 bytes if the JVM uses
+ * 	compressed references (the default with heaps under 32 GB), and 16 and 8 bytes otherwise, and objects aligned to 8 bytes.
+ * The JVM may pack the fields of subclasses in the gaps of their superclasses, so sizes can be slightly overestimated.
+ * Objects that do not belong to a single graph are not followed: classes, class loaders, threads and enum constants.
+ * If the fields of a class cannot be accessed (e.g., classes of the JDK in recent versions without --add-opens),
+ * 	the elements of collections and maps are followed through their methods.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+class ObjectSizer {
+
+	/**
+	 * Alignment of objects in the heap (bytes)
+	 */
+	static final int ALIGNMENT = 8;
+
+	/**
+	 * Size of the header of objects, and of references (bytes)
+	 */
+	static final int headerSize, referenceSize;
+
+	static {
+		boolean compressed = compressedReferences();
+		headerSize = compressed ? 12 : 16;
+		referenceSize = compressed ? 4 : 8;
+	}
+
+	/**
+	 * Shallow size of the instances of each class (bytes)
+	 */
+	static final ConcurrentHashMap<Class<?>, Long> sizes = new ConcurrentHashMap<Class<?>, Long>();
+
+	/**
+	 * Reference fields of each class; empty if they cannot be accessed
+	 */
+	static final ConcurrentHashMap<Class<?>, Field []> fields = new ConcurrentHashMap<Class<?>, Field []>();
+
+	/**
+	 * Classes whose fields cannot be accessed
+	 */
+	static final ConcurrentHashMap<Class<?>, Boolean> opaque = new ConcurrentHashMap<Class<?>, Boolean>();
+
+	/**
+	 * Get the size of an object, without the objects it references
+	 *
+	 * @param object Object
+	 * @return Size (bytes)
+	 */
+	static long shallowSize(Object object) {
+		Class<?> c = object.getClass();
+		if(c.isArray()) {
+			Class<?> component = c.getComponentType();
+			long scale = component.isPrimitive() ? primitiveSize(component) : referenceSize;
+			//Header and length, aligned for arrays of 8-byte elements
+			long base = (scale == 8) ? align(headerSize + 4) : headerSize + 4;
+			return align(base + scale * Array.getLength(object));
+		}
+
+		Long size = sizes.get(c);
+		if(size == null) {
+			size = instanceSize(c);
+			sizes.put(c, size);
+		}
+		return size;
+	}
+
+	/**
+	 * Adds the objects referenced by an object to a list
+	 *
+	 * @param object Object
+	 * @param references List where the referenced objects are added
+	 */
+	static void references(Object object, List<Object> references) {
+		Class<?> c = object.getClass();
+		if(c.isArray()) {
+			if(!c.getComponentType().isPrimitive()) {
+				for(Object element : (Object []) object) {
+					if(element != null) {
+						references.add(element);
+					}
+				}
+			}
+			return;
+		}
+
+		Field [] f = fields.get(c);
+		if(f == null) {
+			f = referenceFields(c);
+			fields.put(c, f);
+		}
+		for(Field field : f) {
+			try {
+				Object value = field.get(object);
+				if(value != null) {
+					references.add(value);
+				}
+			} catch (IllegalAccessException e) {
+				//Not accessible; it has been checked when the fields were listed
+			}
+		}
+
+		if(opaque.containsKey(c)) {
+			if(object instanceof Collection) {
+				for(Object element : (Collection<?>) object) {
+					if(element != null) {
+						references.add(element);
+					}
+				}
+			}
+			else if(object instanceof Map) {
+				for(Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+					if(entry.getKey() != null) {
+						references.add(entry.getKey());
+					}
+					if(entry.getValue() != null) {
+						references.add(entry.getValue());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indicates if an object is followed when walking a graph
+	 *
+	 * @param object Object
+	 * @return True if it is followed
+	 */
+	static boolean isFollowed(Object object) {
+		return !(object instanceof Class || object instanceof ClassLoader || object instanceof Thread || object instanceof Enum);
+	}
+
+	/**
+	 * Get the value of a field of an object, declared in its class or any superclass
+	 *
+	 * @param object Object
+	 * @param name Name of the field
+	 * @return Value of the field, or null if the field does not exist or cannot be accessed
+	 */
+	static Object fieldValue(Object object, String name) {
+		for(Class<?> c = object.getClass(); c != null; c = c.getSuperclass()) {
+			try {
+				Field field = c.getDeclaredField(name);
+				field.setAccessible(true);
+				return field.get(object);
+			} catch (NoSuchFieldException e) {
+				//Look in the superclass
+			} catch (Exception e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the shallow size of the instances of a class
+	 *
+	 * @param c Class
+	 * @return Size (bytes)
+	 */
+	static long instanceSize(Class<?> c) {
+		long size = headerSize;
+		for(Class<?> k = c; k != null; k = k.getSuperclass()) {
+			for(Field field : k.getDeclaredFields()) {
+				if(Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				size += field.getType().isPrimitive() ? primitiveSize(field.getType()) : referenceSize;
+			}
+		}
+		return align(size);
+	}
+
+	/**
+	 * Lists the instance fields of a class (and its superclasses) that hold references
+	 *
+	 * @param c Class
+	 * @return Accessible reference fields
+	 */
+	static Field [] referenceFields(Class<?> c) {
+		List<Field> list = new ArrayList<Field>();
+		for(Class<?> k = c; k != null; k = k.getSuperclass()) {
+			for(Field field : k.getDeclaredFields()) {
+				if(Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+					continue;
+				}
+				try {
+					field.setAccessible(true);
+					list.add(field);
+				} catch (RuntimeException e) {
+					opaque.put(c, Boolean.TRUE);
+				}
+			}
+		}
+		return list.toArray(new Field[list.size()]);
+	}
+
+	/**
+	 * Get the size of a primitive type
+	 *
+	 * @param type Primitive type
+	 * @return Size (bytes)
+	 */
+	static int primitiveSize(Class<?> type) {
+		if(type == long.class || type == double.class) {
+			return 8;
+		}
+		if(type == int.class || type == float.class) {
+			return 4;
+		}
+		if(type == short.class || type == char.class) {
+			return 2;
+		}
+		return 1;
+	}
+
+	/**
+	 * Aligns a size to the alignment of objects
+	 *
+	 * @param size Size (bytes)
+	 * @return Aligned size (bytes)
+	 */
+	static long align(long size) {
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Indicates if the JVM uses compressed references
+	 *
+	 * @return True if it uses them, or if it is not known (e.g., the JVM is not HotSpot) and the heap is under 32 GB
+	 */
+	static boolean compressedReferences() {
+		try {
+			HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			if(bean != null) {
+				return Boolean.parseBoolean(bean.getVMOption("UseCompressedOops").getValue());
+			}
+		} catch (Throwable t) {
+			//Not a HotSpot JVM
+		}
+		return Runtime.getRuntime().maxMemory() < 32L * 1024 * 1024 * 1024;
+	}
+}
@@ -0,0 +1,391 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.metrics;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import parallelCC.inference.LatencyHistogram;
+
+/**
+ * Snapshot of the metrics of a thread pool (see InstrumentedThreadPool) during the building of a parallel learner:
+ * 	busy and idle time of the workers, depth of the queue over time, and latencies of the tasks in the queue and running.
+ * For PCC, it also includes the number of previous labels of the chain whose predictions each link actually used,
+ * 	since a link only uses the labels that were already trained when it started.
+ * Times are given in milliseconds.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class PoolMetrics {
+
+	/**
+	 * Utilization over which workers are considered to be always busy
+	 */
+	static final double BUSY_UTILIZATION = 0.9;
+
+	/**
+	 * Utilization under which workers are considered to be starved
+	 */
+	static final double STARVED_UTILIZATION = 0.6;
+
+	/**
+	 * Ratio between CPU time and running time under which tasks are considered to be waiting for the CPU
+	 */
+	static final double OVERSUBSCRIBED_CPU_RATIO = 0.8;
+
+	/**
+	 * Number of threads of the pool
+	 */
+	int numThreads;
+
+	/**
+	 * Number of finished tasks
+	 */
+	long numTasks;
+
+	/**
+	 * Elapsed time, time available in all the threads, time running tasks, and CPU time of the tasks (ns); cpu is -1 if not measured
+	 */
+	long wall, capacity, busy, cpu;
+
+	/**
+	 * Time of the tasks in the queue and running
+	 */
+	LatencyHistogram queueWait, taskTime;
+
+	/**
+	 * Maximum number of tasks in the queue
+	 */
+	int maxQueueDepth;
+
+	/**
+	 * Samples of the depth of the queue: time since the beginning (ns) and number of waiting tasks
+	 */
+	long [] sampleTimes;
+	int [] sampleDepths;
+
+	/**
+	 * Number of labels used by each link of the chain, and number of labels before it in the chain;
+	 * 	null if the pool did not build chains
+	 */
+	int [] predecessorsSeen;
+	int [] predecessorsInChain;
+
+	/**
+	 * Constructor
+	 *
+	 * @param numThreads Number of threads
+	 * @param numTasks Number of finished tasks
+	 * @param wall Elapsed time (ns)
+	 * @param busy Time running tasks (ns)
+	 * @param cpu CPU time of the tasks (ns), or -1 if not measured
+	 * @param queueWait Time of the tasks in the queue
+	 * @param taskTime Time of the tasks running
+	 * @param maxQueueDepth Maximum number of tasks in the queue
+	 * @param sampleTimes Time of each sample of the queue (ns)
+	 * @param sampleDepths Depth of the queue in each sample
+	 */
+	PoolMetrics(int numThreads, long numTasks, long wall, long busy, long cpu, LatencyHistogram queueWait, LatencyHistogram taskTime,
+			int maxQueueDepth, long [] sampleTimes, int [] sampleDepths) {
+		this.numThreads = numThreads;
+		this.numTasks = numTasks;
+		this.wall = wall;
+		this.capacity = numThreads * wall;
+		this.busy = busy;
+		this.cpu = cpu;
+		this.queueWait = queueWait;
+		this.taskTime = taskTime;
+		this.maxQueueDepth = maxQueueDepth;
+		this.sampleTimes = sampleTimes;
+		this.sampleDepths = sampleDepths;
+	}
+
+	/**
+	 * Set the number of labels whose predictions were used by each link of the chain.
+	 * In a sequential CC, the link in position i uses the i previous labels.
+	 *
+	 * @param predecessorsSeen Number of labels used by the link in each position of the chain
+	 */
+	public void setPredecessorsSeen(int [] predecessorsSeen) {
+		this.predecessorsSeen = predecessorsSeen.clone();
+		this.predecessorsInChain = new int[predecessorsSeen.length];
+		for(int i=0; i<predecessorsSeen.length; i++) {
+			predecessorsInChain[i] = i;
+		}
+	}
+
+	/**
+	 * Combines the metrics of two pools, e.g., the pools of the members of an ensemble.
+	 * Times and tasks are added, so the utilization is the one of all the threads of both pools together;
+	 * 	the samples of the queue of the second pool are placed after the ones of the first.
+	 *
+	 * @param a Metrics of a pool; may be null
+	 * @param b Metrics of other pool; may be null
+	 * @return Combined metrics
+	 */
+	public static PoolMetrics merge(PoolMetrics a, PoolMetrics b) {
+		if(a == null || b == null) {
+			return (a == null) ? b : a;
+		}
+
+		LatencyHistogram waits = new LatencyHistogram();
+		waits.merge(a.queueWait);
+		waits.merge(b.queueWait);
+		LatencyHistogram times = new LatencyHistogram();
+		times.merge(a.taskTime);
+		times.merge(b.taskTime);
+
+		long [] sampleTimes = Arrays.copyOf(a.sampleTimes, a.sampleTimes.length + b.sampleTimes.length);
+		for(int s=0; s<b.sampleTimes.length; s++) {
+			sampleTimes[a.sampleTimes.length + s] = a.wall + b.sampleTimes[s];
+		}
+		int [] sampleDepths = Arrays.copyOf(a.sampleDepths, a.sampleDepths.length + b.sampleDepths.length);
+		System.arraycopy(b.sampleDepths, 0, sampleDepths, a.sampleDepths.length, b.sampleDepths.length);
+
+		PoolMetrics merged = new PoolMetrics(Math.max(a.numThreads, b.numThreads), a.numTasks + b.numTasks, a.wall + b.wall,
+				a.busy + b.busy, (a.cpu < 0 || b.cpu < 0) ? -1 : a.cpu + b.cpu, waits, times,
+				Math.max(a.maxQueueDepth, b.maxQueueDepth), sampleTimes, sampleDepths);
+		merged.capacity = a.capacity + b.capacity;
+		merged.predecessorsSeen = concat(a.predecessorsSeen, b.predecessorsSeen);
+		merged.predecessorsInChain = concat(a.predecessorsInChain, b.predecessorsInChain);
+		return merged;
+	}
+
+	/**
+	 * Get the number of threads of the pool
+	 *
+	 * @return Number of threads
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Get the number of finished tasks
+	 *
+	 * @return Number of tasks
+	 */
+	public long getNumTasks() {
+		return numTasks;
+	}
+
+	/**
+	 * Get the elapsed time since the pool was created until it terminated
+	 *
+	 * @return Elapsed time (ms)
+	 */
+	public double getWallTime() {
+		return wall / 1e6;
+	}
+
+	/**
+	 * Get the time the workers were running tasks, added over all workers
+	 *
+	 * @return Busy time (ms)
+	 */
+	public double getBusyTime() {
+		return busy / 1e6;
+	}
+
+	/**
+	 * Get the time the workers were not running tasks, added over all workers
+	 *
+	 * @return Idle time (ms)
+	 */
+	public double getIdleTime() {
+		return Math.max(0, capacity - busy) / 1e6;
+	}
+
+	/**
+	 * Get the CPU time of the tasks, added over all workers
+	 *
+	 * @return CPU time (ms), or -1 if the JVM does not measure the CPU time of threads
+	 */
+	public double getCpuTime() {
+		return (cpu < 0) ? -1 : cpu / 1e6;
+	}
+
+	/**
+	 * Get the fraction of the time of the workers that they were running tasks
+	 *
+	 * @return Utilization, in [0, 1]
+	 */
+	public double getUtilization() {
+		return (capacity == 0) ? 0 : Math.min(1, busy / (double) capacity);
+	}
+
+	/**
+	 * Get the fraction of the running time of the tasks that they were using the CPU.
+	 * Lower values mean that tasks were waiting for the CPU (more threads than cores), for I/O or locks,
+	 * 	or for other pools (e.g., the tasks of PEPCC wait for the pools that build their chains).
+	 *
+	 * @return CPU ratio, or -1 if the CPU time is not measured
+	 */
+	public double getCpuRatio() {
+		return (cpu < 0 || busy == 0) ? -1 : Math.min(1, cpu / (double) busy);
+	}
+
+	/**
+	 * Get the latencies of the tasks in the queue, since they were submitted until they started
+	 *
+	 * @return Histogram of latencies
+	 */
+	public LatencyHistogram getQueueWait() {
+		return queueWait;
+	}
+
+	/**
+	 * Get the latencies of the tasks running
+	 *
+	 * @return Histogram of latencies
+	 */
+	public LatencyHistogram getTaskTime() {
+		return taskTime;
+	}
+
+	/**
+	 * Get the maximum number of tasks waiting in the queue
+	 *
+	 * @return Maximum depth of the queue
+	 */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 * Get the mean number of tasks waiting in the queue, weighted by the time between samples
+	 *
+	 * @return Mean depth of the queue
+	 */
+	public double getMeanQueueDepth() {
+		if(sampleTimes.length < 2) {
+			return (sampleDepths.length == 0) ? 0 : sampleDepths[0];
+		}
+		double area = 0;
+		for(int s=1; s<sampleTimes.length; s++) {
+			area += sampleDepths[s-1] * (double) (sampleTimes[s] - sampleTimes[s-1]);
+		}
+		long span = sampleTimes[sampleTimes.length-1] - sampleTimes[0];
+		return (span == 0) ? sampleDepths[0] : area / span;
+	}
+
+	/**
+	 * Get the time of each sample of the depth of the queue
+	 *
+	 * @return Time since the creation of the pool of each sample (ms)
+	 */
+	public double [] getSampleTimes() {
+		double [] times = new double[sampleTimes.length];
+		for(int s=0; s<times.length; s++) {
+			times[s] = sampleTimes[s] / 1e6;
+		}
+		return times;
+	}
+
+	/**
+	 * Get the depth of the queue in each sample
+	 *
+	 * @return Number of waiting tasks of each sample
+	 */
+	public int [] getSampleDepths() {
+		return sampleDepths.clone();
+	}
+
+	/**
+	 * Get the number of labels whose predictions were used by each link of the chain
+	 *
+	 * @return Number of labels for each position of the chain, or null if the pool did not build chains
+	 */
+	public int [] getPredecessorsSeen() {
+		return (predecessorsSeen == null) ? null : predecessorsSeen.clone();
+	}
+
+	/**
+	 * Get the fraction of the previous labels of the chain that links actually used, i.e., the labels seen by PCC
+	 * 	with respect to a sequential CC with the same chain
+	 *
+	 * @return Fraction of labels, in [0, 1], or -1 if the pool did not build chains
+	 */
+	public double getDependencyCoverage() {
+		if(predecessorsSeen == null) {
+			return -1;
+		}
+		long seen = 0, inChain = 0;
+		for(int i=0; i<predecessorsSeen.length; i++) {
+			seen += predecessorsSeen[i];
+			inChain += predecessorsInChain[i];
+		}
+		return (inChain == 0) ? 1 : seen / (double) inChain;
+	}
+
+	/**
+	 * Get a short diagnosis of the use of the pool:
+	 * 	oversubscribed if tasks were running but not using the CPU (e.g., more threads than cores),
+	 * 	CPU-bound if workers were always busy, and starved if workers were often idle (not enough tasks ready to run).
+	 *
+	 * @return Diagnosis
+	 */
+	public String getDiagnosis() {
+		double utilization = getUtilization();
+		double cpuRatio = getCpuRatio();
+		if(cpuRatio >= 0 && cpuRatio < OVERSUBSCRIBED_CPU_RATIO) {
+			return "oversubscribed";
+		}
+		if(utilization >= BUSY_UTILIZATION) {
+			return "CPU-bound";
+		}
+		if(utilization < STARVED_UTILIZATION) {
+			return "starved";
+		}
+		return "balanced";
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.US, "threads=%d; tasks=%d; wall=%.1fms; busy=%.1fms; idle=%.1fms; utilization=%.1f%%",
+				numThreads, numTasks, getWallTime(), getBusyTime(), getIdleTime(), 100 * getUtilization()));
+		if(cpu >= 0) {
+			sb.append(String.format(Locale.US, "; cpu=%.1fms (%.1f%% of busy)", getCpuTime(), 100 * getCpuRatio()));
+		}
+		sb.append(String.format(Locale.US, "; diagnosis=%s%n", getDiagnosis()));
+		sb.append(String.format(Locale.US, "\tqueue depth: max=%d; mean=%.2f%n", maxQueueDepth, getMeanQueueDepth()));
+		sb.append("\tqueue wait: ").append(queueWait).append(String.format("%n"));
+		sb.append("\ttask time: ").append(taskTime);
+		if(predecessorsSeen != null) {
+			sb.append(String.format(Locale.US, "%n\tpredecessors seen: %s (%.1f%% of the chain)",
+					Arrays.toString(predecessorsSeen), 100 * getDependencyCoverage()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Concatenates two arrays
+	 *
+	 * @param a First array; may be null
+	 * @param b Second array; may be null
+	 * @return Concatenated array, or null if both are null
+	 */
+	static int [] concat(int [] a, int [] b) {
+		if(a == null || b == null) {
+			return (a == null) ? b : a;
+		}
+		int [] c = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, c, a.length, b.length);
+		return c;
+	}
+}
@@ -0,0 +1,382 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package parallelCC.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Resources used by the JVM during a phase of an experiment (e.g., loading, building or evaluation):
+ * 	elapsed time, CPU time of all the threads, time and number of garbage collections, peak heap, and allocated bytes.
+ * A phase is measured between begin() and end(). Except the elapsed time, the values are measured for the whole JVM,
+ * 	and the peak of the heap is reset at the beginning of each phase; so, if other phases are measured at the same time
+ * 	(e.g., concurrent jobs), only the elapsed time is measured (see begin(boolean)) and the other values are not available.
+ * Allocated bytes are computed as the growth of the heap plus the bytes reclaimed by the collections during the phase.
+ *
+ * @author Jose M. Moyano
+ * @version 2026.10.18
+ */
+public class ResourceUsage {
+
+	/**
+	 * Names of the columns of each phase in the reports
+	 */
+	static final String [] COLUMNS = {"time (ms)", "CPU time (ms)", "GC time (ms)", "GC count", "peak heap (MB)", "allocated (MB)"};
+
+	/**
+	 * Maximum time to wait for the notifications of collections that have already finished (ms)
+	 */
+	static final long NOTIFICATION_WAIT = 200;
+
+	static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	static final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+
+	static final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+
+	static final List<MemoryPoolMXBean> poolBeans = ManagementFactory.getMemoryPoolMXBeans();
+
+	/**
+	 * Names of the memory pools of the heap
+	 */
+	static final Set<String> heapPools = new HashSet<String>();
+
+	/**
+	 * Bytes reclaimed by all the collections, and number of collections notified (including the ones before the listener was added)
+	 */
+	static final AtomicLong reclaimed = new AtomicLong();
+	static final AtomicLong notified = new AtomicLong();
+
+	/**
+	 * Indicates if collections are notified, so allocated bytes can be computed
+	 */
+	static boolean notifications = false;
+
+	static {
+		for(MemoryPoolMXBean pool : poolBeans) {
+			if(pool.getType() == MemoryType.HEAP) {
+				heapPools.add(pool.getName());
+			}
+		}
+		try {
+			NotificationListener listener = new NotificationListener() {
+				@Override
+				public void handleNotification(Notification notification, Object handback) {
+					if(!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+						return;
+					}
+					GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+					Map<String, MemoryUsage> before = info.getGcInfo().getMemoryUsageBeforeGc();
+					Map<String, MemoryUsage> after = info.getGcInfo().getMemoryUsageAfterGc();
+					long bytes = 0;
+					for(String pool : heapPools) {
+						if(before.containsKey(pool) && after.containsKey(pool)) {
+							bytes += before.get(pool).getUsed() - after.get(pool).getUsed();
+						}
+					}
+					reclaimed.addAndGet(bytes);
+					notified.incrementAndGet();
+				}
+			};
+			notified.set(gcCount());
+			for(GarbageCollectorMXBean gc : gcBeans) {
+				((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+			}
+			notifications = true;
+		} catch (Throwable t) {
+			//Collections of this JVM are not notified; allocated bytes are not available
+		}
+	}
+
+	/**
+	 * Values at the beginning of the phase
+	 */
+	long startWall, startCpu, startGcTime, startGcCount, startHeap, startReclaimed;
+
+	/**
+	 * Measured values; values that are not available are -1
+	 */
+	long wall, cpu, gcTime, gcCount, peakHeap, allocated;
+
+	/**
+	 * Indicates if no other phase is measured at the same time, so the values of the JVM are the ones of this phase
+	 */
+	boolean exclusive;
+
+	/**
+	 * Begins to measure a phase, when no other phase is measured at the same time
+	 *
+	 * @return Usage of the phase, to be finished with end()
+	 */
+	public static ResourceUsage begin() {
+		return begin(true);
+	}
+
+	/**
+	 * Begins to measure a phase
+	 *
+	 * @param exclusive True if no other phase is measured at the same time; otherwise, only the elapsed time is measured,
+	 * 	and the peaks of the heap are not reset, so the phases that are running are not disturbed
+	 * @return Usage of the phase, to be finished with end()
+	 */
+	public static ResourceUsage begin(boolean exclusive) {
+		ResourceUsage usage = new ResourceUsage();
+		usage.exclusive = exclusive;
+		if(!exclusive) {
+			usage.startWall = System.nanoTime();
+			return usage;
+		}
+		awaitNotifications();
+		for(MemoryPoolMXBean pool : poolBeans) {
+			if(pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+		usage.startHeap = heapUsed();
+		usage.startReclaimed = reclaimed.get();
+		usage.startGcTime = gcTime();
+		usage.startGcCount = gcCount();
+		usage.startCpu = cpuTime();
+		usage.startWall = System.nanoTime();
+		return usage;
+	}
+
+	/**
+	 * Finishes the measure of the phase
+	 *
+	 * @return This object
+	 */
+	public ResourceUsage end() {
+		wall = System.nanoTime() - startWall;
+		if(!exclusive) {
+			cpu = gcTime = gcCount = peakHeap = allocated = -1;
+			return this;
+		}
+		cpu = (startCpu < 0) ? -1 : cpuTime() - startCpu;
+		gcTime = gcTime() - startGcTime;
+		gcCount = gcCount() - startGcCount;
+		awaitNotifications();
+		long heap = heapUsed();
+		allocated = notifications ? (heap - startHeap) + (reclaimed.get() - startReclaimed) : -1;
+		peakHeap = 0;
+		for(MemoryPoolMXBean pool : poolBeans) {
+			if(pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		peakHeap = Math.max(peakHeap, heap);
+		return this;
+	}
+
+	/**
+	 * Get the elapsed time of the phase
+	 *
+	 * @return Elapsed time (ms)
+	 */
+	public long getWallTime() {
+		return wall / 1000000;
+	}
+
+	/**
+	 * Get the CPU time of the process during the phase, added over all its threads (including the ones of the garbage collector)
+	 *
+	 * @return CPU time (ms), or -1 if it is not available
+	 */
+	public long getCpuTime() {
+		return (cpu < 0) ? -1 : cpu / 1000000;
+	}
+
+	/**
+	 * Get the time spent in garbage collections during the phase
+	 *
+	 * @return GC time (ms), or -1 if it is not available
+	 */
+	public long getGcTime() {
+		return gcTime;
+	}
+
+	/**
+	 * Get the number of garbage collections during the phase
+	 *
+	 * @return Number of collections, or -1 if it is not available
+	 */
+	public long getGcCount() {
+		return gcCount;
+	}
+
+	/**
+	 * Get the maximum used heap during the phase; it is an upper bound, since the peaks of the pools of the heap are added
+	 *
+	 * @return Peak heap (bytes), or -1 if it is not available
+	 */
+	public long getPeakHeap() {
+		return peakHeap;
+	}
+
+	/**
+	 * Get the bytes allocated in the heap during the phase
+	 *
+	 * @return Allocated bytes, or -1 if it is not available
+	 */
+	public long getAllocatedBytes() {
+		return allocated;
+	}
+
+	/**
+	 * Get the header of the columns of a phase in the reports
+	 *
+	 * @param phase Name of the phase
+	 * @param separator Separator of columns
+	 * @return Header of the columns
+	 */
+	public static String header(String phase, String separator) {
+		StringBuilder sb = new StringBuilder();
+		for(int c=0; c<COLUMNS.length; c++) {
+			if(c > 0) {
+				sb.append(separator);
+			}
+			sb.append(phase).append(" ").append(COLUMNS[c]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get the values of the columns of the phase in the reports (see header); values that are not available are empty
+	 *
+	 * @param separator Separator of columns
+	 * @return Values of the columns
+	 */
+	public String toString(String separator) {
+		return getWallTime() + separator + column(getCpuTime(), 1, "%.0f") + separator + column(gcTime, 1, "%.0f") + separator
+				+ column(gcCount, 1, "%.0f") + separator + column(peakHeap, 1048576.0, "%.1f") + separator + column(allocated, 1048576.0, "%.1f");
+	}
+
+	@Override
+	public String toString() {
+		if(!exclusive) {
+			return String.format(Locale.US, "time=%dms (other resources are not measured for concurrent phases)", getWallTime());
+		}
+		return String.format(Locale.US, "time=%dms; cpu=%dms; gc=%dms (%d); peak heap=%.1fMB; allocated=%.1fMB", getWallTime(), getCpuTime(),
+				gcTime, gcCount, peakHeap / 1048576.0, (allocated < 0) ? -1 : allocated / 1048576.0);
+	}
+
+	/**
+	 * Formats the value of a column of the reports
+	 *
+	 * @param value Value, or -1 if it is not available
+	 * @param scale Value of each unit of the column
+	 * @param format Format of the column
+	 * @return Formatted value, or an empty string if it is not available
+	 */
+	static String column(long value, double scale, String format) {
+		return (value < 0) ? "" : String.format(Locale.US, format, value / scale);
+	}
+
+	/**
+	 * Get the CPU time of the process.
+	 * Worker threads of thread pools finish before the end of the phases, so their CPU time is lost in ThreadMXBean;
+	 * 	it is only used if the JVM does not give the CPU time of the process, adding the time of the live threads.
+	 *
+	 * @return CPU time (ns), or -1 if it is not available
+	 */
+	static long cpuTime() {
+		if(osBean instanceof com.sun.management.OperatingSystemMXBean) {
+			long time = ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+			if(time >= 0) {
+				return time;
+			}
+		}
+		if(!threadBean.isThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) {
+			return -1;
+		}
+		long time = 0;
+		for(long id : threadBean.getAllThreadIds()) {
+			time += Math.max(0, threadBean.getThreadCpuTime(id));
+		}
+		return time;
+	}
+
+	/**
+	 * Get the accumulated time of all the garbage collectors
+	 *
+	 * @return GC time (ms)
+	 */
+	static long gcTime() {
+		long time = 0;
+		for(GarbageCollectorMXBean gc : gcBeans) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	/**
+	 * Get the accumulated number of collections of all the garbage collectors
+	 *
+	 * @return Number of collections
+	 */
+	static long gcCount() {
+		long count = 0;
+		for(GarbageCollectorMXBean gc : gcBeans) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	/**
+	 * Get the used heap
+	 *
+	 * @return Used heap (bytes)
+	 */
+	static long heapUsed() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Waits until the collections that have finished are notified, since notifications are delivered asynchronously
+	 */
+	static void awaitNotifications() {
+		if(!notifications) {
+			return;
+		}
+		long deadline = System.currentTimeMillis() + NOTIFICATION_WAIT;
+		while(notified.get() < gcCount() && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}